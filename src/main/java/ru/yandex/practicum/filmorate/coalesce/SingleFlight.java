@@ -0,0 +1,148 @@
+package ru.yandex.practicum.filmorate.coalesce;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Класс SingleFlight объединяет одинаковые одновременные запросы: для каждого ключа выполняется не больше одного
+ * вычисления, а остальные запросы с тем же ключом ждут его результата. Готовый результат ещё ttl миллисекунд
+ * отдаётся без вычисления. Ошибки не запоминаются: все ожидавшие получают исключение, следующий запрос вычисляет
+ * заново. После invalidate новые запросы не присоединяются к уже идущему вычислению, а начинают своё.
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder computations = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder cached = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public SingleFlight(String name, long ttlMillis, int maxEntries) {
+        this.name = name;
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.maxEntries = maxEntries;
+    }
+
+    // Метод get возвращает результат для ключа key: готовый, ожидаемый от уже идущего вычисления или новый
+    public V get(K key, Supplier<V> computation) {
+        return get(key, computation, value -> true);
+    }
+
+    // Метод get с условием memoize: результат, не прошедший условие (например, неполный), отдаётся только
+    // запросам, ждавшим это вычисление, и не запоминается
+    public V get(K key, Supplier<V> computation, Predicate<? super V> memoize) {
+        requests.increment();
+        while (true) {
+            Flight<V> flight = flights.get(key);
+            if (flight == null) {
+                Flight<V> own = new Flight<>();
+                flight = flights.putIfAbsent(key, own);
+                if (flight == null) {
+                    return compute(key, own, computation, memoize);
+                }
+            }
+            if (!flight.result.isDone()) {
+                coalesced.increment();
+                return await(flight);
+            }
+            if (System.nanoTime() - flight.completedAt < ttlNanos) {
+                cached.increment();
+                return await(flight);
+            }
+            // Результат устарел: убираем его и повторяем попытку (возможно, вычисление начнёт другой запрос)
+            flights.remove(key, flight);
+        }
+    }
+
+    // Метод invalidate забывает результат для ключа key
+    public void invalidate(K key) {
+        if (flights.remove(key) != null) {
+            invalidations.increment();
+        }
+    }
+
+    // Метод invalidateIf забывает результаты для всех ключей, подходящих под условие
+    public void invalidateIf(Predicate<? super K> condition) {
+        flights.keySet().removeIf(key -> {
+            if (condition.test(key)) {
+                invalidations.increment();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public void invalidateAll() {
+        invalidateIf(key -> true);
+    }
+
+    public Snapshot snapshot() {
+        long total = requests.sum();
+        long computed = computations.sum();
+        double ratio = total == 0 ? 0 : 1 - (double) computed / total;
+        return new Snapshot(name, total, computed, coalesced.sum(), cached.sum(), invalidations.sum(), ratio,
+                flights.size());
+    }
+
+    private V compute(K key, Flight<V> flight, Supplier<V> computation, Predicate<? super V> memoize) {
+        computations.increment();
+        V value;
+        try {
+            value = computation.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        flight.completedAt = System.nanoTime();
+        // Результат не запоминается, если он не подходит под условие, не нужен дольше вычисления или ключей
+        // слишком много даже после удаления устаревших результатов
+        if (!memoize.test(value) || ttlNanos <= 0 || flights.size() > maxEntries && evictExpired() > maxEntries) {
+            flights.remove(key, flight);
+        }
+        flight.result.complete(value);
+        return value;
+    }
+
+    // Метод evictExpired удаляет устаревшие результаты и возвращает число оставшихся ключей
+    private int evictExpired() {
+        long now = System.nanoTime();
+        flights.values().removeIf(flight -> flight.result.isDone() && now - flight.completedAt >= ttlNanos);
+        return flights.size();
+    }
+
+    private static <V> V await(Flight<V> flight) {
+        try {
+            return flight.result.join();
+        } catch (CompletionException e) {
+            // Ожидающие получают то же исключение, что и вычислявший запрос (например, NotFoundException)
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    // Вычисление для одного ключа и время его завершения (по System.nanoTime)
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private volatile long completedAt;
+    }
+
+    // Статистика для мониторинга: coalescingRatio — доля запросов, обслуженных без собственного вычисления
+    public record Snapshot(String name, long requests, long computations, long coalesced, long cached,
+                           long invalidations, double coalescingRatio, int entries) {
+    }
+}
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.coalesce;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Класс SingleFlightRegistry создаёт объединители запросов SingleFlight с общими настройками
+// и собирает их статистику для мониторинга
+@Component
+public class SingleFlightRegistry {
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final List<SingleFlight<?, ?>> flights = new CopyOnWriteArrayList<>();
+
+    public SingleFlightRegistry(@Value("${filmorate.single-flight.ttl-ms:1000}") long ttlMillis,
+                                @Value("${filmorate.single-flight.max-entries:10000}") int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    // Метод create создаёт объединитель запросов с именем name для статистики
+    public <K, V> SingleFlight<K, V> create(String name) {
+        SingleFlight<K, V> flight = new SingleFlight<>(name, ttlMillis, maxEntries);
+        flights.add(flight);
+        return flight;
+    }
+
+    // Метод snapshots возвращает статистику всех объединителей запросов
+    public List<SingleFlight.Snapshot> snapshots() {
+        return flights.stream().map(SingleFlight::snapshot).toList();
+    }
+}
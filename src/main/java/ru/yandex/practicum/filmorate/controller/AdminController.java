@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.coalesce.SingleFlight;
+import ru.yandex.practicum.filmorate.coalesce.SingleFlightRegistry;
+import ru.yandex.practicum.filmorate.jfr.FlightRecorderService;
+import ru.yandex.practicum.filmorate.limiter.AimdLimiter;
+import ru.yandex.practicum.filmorate.limiter.ConcurrencyLimitFilter;
+import ru.yandex.practicum.filmorate.model.ComponentsJob;
+import ru.yandex.practicum.filmorate.pipeline.MutationPipeline;
+import ru.yandex.practicum.filmorate.service.ComponentsService;
+import ru.yandex.practicum.filmorate.service.ReachService;
+import ru.yandex.practicum.filmorate.storage.tiered.TieredStore;
+import ru.yandex.practicum.filmorate.storage.tiered.TieredStoreRegistry;
+
+import java.util.List;
+
+// Класс AdminController обрабатывает служебные запросы на /admin (обслуживание индексов, скетчей и т.д.)
+@Slf4j
+@RestController
+@RequestMapping(AdminController.BASE_PATH)
+public class AdminController {
+
+    // Константа BASE_PATH задаёт базовый путь для всех методов контроллера
+    public static final String BASE_PATH = "/admin";
+
+    private final ReachService reachService;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
+    private final ComponentsService componentsService;
+    private final SingleFlightRegistry singleFlightRegistry;
+    private final FlightRecorderService flightRecorderService;
+    private final ObjectProvider<MutationPipeline> mutationPipeline;
+    private final ObjectProvider<TieredStoreRegistry> tieredStores;
+
+    public AdminController(ReachService reachService, ConcurrencyLimitFilter concurrencyLimitFilter,
+                           ComponentsService componentsService, SingleFlightRegistry singleFlightRegistry,
+                           FlightRecorderService flightRecorderService,
+                           ObjectProvider<MutationPipeline> mutationPipeline,
+                           ObjectProvider<TieredStoreRegistry> tieredStores) {
+        this.reachService = reachService;
+        this.concurrencyLimitFilter = concurrencyLimitFilter;
+        this.componentsService = componentsService;
+        this.singleFlightRegistry = singleFlightRegistry;
+        this.flightRecorderService = flightRecorderService;
+        this.mutationPipeline = mutationPipeline;
+        this.tieredStores = tieredStores;
+    }
+
+    // Метод rebuildReach для параллельной перестройки скетчей охвата, обрабатывает POST-запрос на /admin/reach/rebuild
+    @PostMapping("/reach/rebuild")
+    public ReachService.RebuildResult rebuildReach() {
+        log.info("Получен запрос на перестройку скетчей охвата");
+        ReachService.RebuildResult result = reachService.rebuild();
+        log.info("Скетчи охвата перестроены: {}", result);
+        return result;
+    }
+
+    // Метод getLimits для получения текущих лимитов одновременных запросов, обрабатывает GET-запрос на /admin/limits
+    @GetMapping("/limits")
+    public List<AimdLimiter.Snapshot> getLimits() {
+        return concurrencyLimitFilter.snapshots();
+    }
+
+    // Метод getSingleFlight для получения статистики объединения одинаковых запросов (доля запросов без
+    // собственного вычисления, ожидавшие чужого вычисления, взятые из памяти), обрабатывает GET-запрос
+    // на /admin/single-flight
+    @GetMapping("/single-flight")
+    public List<SingleFlight.Snapshot> getSingleFlight() {
+        return singleFlightRegistry.snapshots();
+    }
+
+    // Метод getMutations для получения состояния секций асинхронной очереди лайков и дружбы (пустой список,
+    // если очередь выключена), обрабатывает GET-запрос на /admin/mutations
+    @GetMapping("/mutations")
+    public List<MutationPipeline.Snapshot> getMutations() {
+        MutationPipeline pipeline = mutationPipeline.getIfAvailable();
+        return pipeline == null ? List.of() : pipeline.snapshots();
+    }
+
+    // Метод getStorageTiers для получения метрик двухуровневого хранилища (доля попаданий в горячий уровень,
+    // время чтения холодных записей, вытеснения; пустой список при другом типе хранилища), обрабатывает
+    // GET-запрос на /admin/storage/tiers
+    @GetMapping("/storage/tiers")
+    public List<TieredStore.Stats> getStorageTiers() {
+        TieredStoreRegistry registry = tieredStores.getIfAvailable();
+        return registry == null ? List.of() : registry.stats();
+    }
+
+    // Метод startRecording запускает запись событий JFR (лайки, дружба, вызовы хранилищ) дольше thresholdMs,
+    // обрабатывает POST-запрос на /admin/jfr/start. С jdkEvents=true записываются и стандартные события JVM
+    @PostMapping("/jfr/start")
+    public FlightRecorderService.Info startRecording(@RequestParam(defaultValue = "20") long thresholdMs,
+                                                     @RequestParam(defaultValue = "false") boolean jdkEvents) {
+        log.info("Получен запрос на запуск записи JFR: thresholdMs={}, jdkEvents={}", thresholdMs, jdkEvents);
+        return flightRecorderService.start(thresholdMs, jdkEvents);
+    }
+
+    // Метод stopRecording останавливает запись JFR и сохраняет её в файл, обрабатывает POST-запрос на /admin/jfr/stop
+    @PostMapping("/jfr/stop")
+    public FlightRecorderService.Info stopRecording() {
+        log.info("Получен запрос на остановку записи JFR");
+        return flightRecorderService.stop();
+    }
+
+    // Метод getRecording для получения состояния записи JFR, обрабатывает GET-запрос на /admin/jfr
+    @GetMapping("/jfr")
+    public FlightRecorderService.Info getRecording() {
+        return flightRecorderService.status();
+    }
+
+    // Метод startComponents запускает фоновый поиск компонент связности графа дружбы,
+    // обрабатывает POST-запрос на /admin/graph/components. Возвращает 202 и состояние поиска
+    @PostMapping("/graph/components")
+    public ResponseEntity<ComponentsJob> startComponents() {
+        log.info("Получен запрос на поиск компонент связности графа дружбы");
+        return ResponseEntity.accepted().body(componentsService.start());
+    }
+
+    // Метод getComponents для получения прогресса поиска и результата последнего завершённого поиска,
+    // обрабатывает GET-запрос на /admin/graph/components
+    @GetMapping("/graph/components")
+    public ComponentsJob getComponents() {
+        return componentsService.status();
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.ChangesPage;
+
+import java.util.List;
+
+// Класс ChangeController отдаёт ленту изменений фильмов и пользователей для кешей и других потребителей.
+// Потребитель запрашивает /changes без since, чтобы узнать текущую позицию, затем получает снимок данных
+// (GET /films, GET /users) и дальше читает изменения после этой позиции. Если позиция вытеснена из ленты,
+// возвращается 410 — нужно заново получить снимок. Доступен только при включённой ленте (filmorate.changes.enabled)
+@Slf4j
+@RestController
+@ConditionalOnProperty(name = "filmorate.changes.enabled", havingValue = "true")
+@RequestMapping(ChangeController.BASE_PATH)
+public class ChangeController {
+
+    // Константа BASE_PATH задаёт базовый путь для всех методов контроллера
+    public static final String BASE_PATH = "/changes";
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    // Максимальное время ожидания новых событий в длинном опросе
+    private static final long MAX_TIMEOUT_MS = 30_000;
+
+    private final ChangeFeed changeFeed;
+
+    public ChangeController(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    // Метод getChanges для получения не больше limit событий после since, обрабатывает GET-запрос на /changes
+    // Без since возвращает пустую страницу с текущей позицией ленты
+    @GetMapping
+    public ChangesPage getChanges(@RequestParam(required = false) Long since,
+                                  @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit) {
+        log.info("Получен запрос на получение изменений: since={}, limit={}", since, limit);
+        validateLimit(limit);
+        ChangesPage page = changeFeed.read(since == null ? changeFeed.lastSeq() : since, limit);
+        log.info("Возвращено {} изменений, следующая позиция {}", page.getEvents().size(), page.getNext());
+        return page;
+    }
+
+    // Метод pollChanges — длинный опрос, обрабатывает GET-запрос на /changes/poll: если событий после since нет,
+    // ответ откладывается до появления первого события или до истечения timeoutMs (тогда страница пустая).
+    // Поток сервера на время ожидания не занимается
+    @GetMapping("/poll")
+    public DeferredResult<ChangesPage> pollChanges(@RequestParam long since,
+                                                   @RequestParam(defaultValue = "" + DEFAULT_LIMIT) int limit,
+                                                   @RequestParam(defaultValue = "" + MAX_TIMEOUT_MS) long timeoutMs) {
+        log.info("Получен запрос на ожидание изменений: since={}, limit={}, timeoutMs={}", since, limit, timeoutMs);
+        validateLimit(limit);
+        if (timeoutMs <= 0 || timeoutMs > MAX_TIMEOUT_MS) {
+            log.error("Некорректное время ожидания: {}", timeoutMs);
+            throw new ValidationException("Время ожидания должно быть от 1 до " + MAX_TIMEOUT_MS + " мс");
+        }
+        DeferredResult<ChangesPage> result = new DeferredResult<>(timeoutMs);
+        Runnable cancel = changeFeed.await(since, () -> {
+            try {
+                result.setResult(changeFeed.read(since, limit));
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        });
+        result.onTimeout(() -> {
+            cancel.run();
+            result.setResult(new ChangesPage(List.of(), since, changeFeed.lastSeq()));
+        });
+        result.onCompletion(cancel);
+        return result;
+    }
+
+    private void validateLimit(int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            log.error("Некорректный размер страницы изменений: {}", limit);
+            throw new ValidationException("Размер страницы изменений должен быть от 1 до " + MAX_LIMIT);
+        }
+    }
+}
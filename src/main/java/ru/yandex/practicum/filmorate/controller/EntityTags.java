@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+// Класс EntityTags переводит версии фильмов и пользователей в значения заголовка ETag
+// и разбирает заголовок If-Match, в котором клиент присылает версию, на основе которой сделано изменение
+final class EntityTags {
+
+    // Значение версии, при котором обновление выполняется без проверки (совпадает с ANY_VERSION хранилищ)
+    static final long ANY_VERSION = 0;
+
+    private EntityTags() {
+    }
+
+    // Метод of возвращает значение ETag для версии
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    // Метод expectedVersion возвращает версию из заголовка If-Match, а если его нет — fallbackVersion.
+    // Значение "*" означает обновление без проверки версии
+    static long expectedVersion(String ifMatch, long fallbackVersion) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return fallbackVersion;
+        }
+        String value = ifMatch.trim();
+        if ("*".equals(value)) {
+            return ANY_VERSION;
+        }
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            long version = Long.parseLong(value);
+            if (version > 0) {
+                return version;
+            }
+        } catch (NumberFormatException ignored) {
+            // Сообщение об ошибке формируется ниже
+        }
+        throw new ValidationException("Заголовок If-Match должен содержать версию, полученную в ETag");
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.export.ByteRange;
+import ru.yandex.practicum.filmorate.export.CatalogueSnapshots;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Класс ExportController отдаёт полную выгрузку фильмов и пользователей из последнего снимка каталога
+// (NDJSON, сжатый gzip) на /export/films и /export/users. Файл снимка не читается в память: если Tomcat
+// поддерживает sendfile, он сам передаёт файл в сокет ядром после выхода из обработчика, иначе файл копируется
+// в ответ через FileChannel.transferTo с буфером постоянного размера. Поддерживается докачка: заголовок Range
+// с одним диапазоном байт и If-Range с ETag снимка (если снимок уже сменился, отдаётся новый целиком)
+@Slf4j
+@RestController
+@RequestMapping(ExportController.BASE_PATH)
+public class ExportController {
+
+    // Константа BASE_PATH задаёт базовый путь для всех методов контроллера
+    public static final String BASE_PATH = "/export";
+    private static final String GZIP = "application/gzip";
+    // Атрибуты запроса, которыми Tomcat сообщает о поддержке sendfile и принимает файл и границы диапазона
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final CatalogueSnapshots snapshots;
+    private final boolean sendfile;
+
+    public ExportController(CatalogueSnapshots snapshots,
+                            @Value("${filmorate.export.sendfile:true}") boolean sendfile) {
+        this.snapshots = snapshots;
+        this.sendfile = sendfile;
+    }
+
+    // Метод createSnapshots создаёт новые снимки фильмов и пользователей, обрабатывает POST-запрос
+    // на /export/snapshots
+    @PostMapping("/snapshots")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<CatalogueSnapshots.Snapshot> createSnapshots() {
+        log.info("Получен запрос на создание снимков каталога");
+        return snapshots.create();
+    }
+
+    // Метод download отдаёт последний снимок фильмов или пользователей целиком (200) или диапазон байт (206),
+    // обрабатывает GET- и HEAD-запросы на /export/films и /export/users. Пока первый снимок создаётся, отвечает 503
+    @GetMapping("/{entity}")
+    public void download(@PathVariable String entity,
+                         @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+                         @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        CatalogueSnapshots.Snapshot snapshot = snapshots.latest(entity);
+        long size = snapshot.sizeBytes();
+        // Диапазон относится к тому снимку, с которого начиналась выгрузка; ETag даты If-Range не поддерживаются
+        ByteRange range = ifRange == null || ifRange.equals(snapshot.etag()) ? ByteRange.parse(rangeHeader, size)
+                : null;
+        log.info("Выгрузка {}: снимок {}, диапазон {}", entity, snapshot.file(),
+                range != null ? range.contentRange(size) : "весь файл");
+        response.setContentType(GZIP);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + snapshot.file() + "\"");
+        response.setHeader(HttpHeaders.ETAG, snapshot.etag());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        long start = 0;
+        long length = size;
+        if (range != null) {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(size));
+            start = range.start();
+            length = range.length();
+        }
+        response.setContentLengthLong(length);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        transfer(snapshot.path(), start, length, request, response);
+    }
+
+    private void transfer(Path path, long start, long length, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        if (sendfile && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long sent = channel.transferTo(position, end - position, out);
+                if (sent <= 0) {
+                    throw new EOFException("Файл " + path + " короче ожидаемого: " + position + " из " + end);
+                }
+                position += sent;
+            }
+        }
+    }
+}
@@ -1,15 +1,23 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BulkLookup;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikesPage;
+import ru.yandex.practicum.filmorate.model.MutationAccepted;
+import ru.yandex.practicum.filmorate.pipeline.MutationPipeline;
+import ru.yandex.practicum.filmorate.projection.Projections;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.validation.EntityValidation;
 
-import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 
@@ -24,68 +32,172 @@ public class FilmController {
     // Константа BASE_PATH задаёт базовый путь для всех методов контроллера
     public static final String BASE_PATH = "/films";
     private static final String LIKE_PATH = "/{id}/like/{userId}";
+    // Размер страницы по умолчанию для постраничной выдачи и поиска
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    // Максимальное количество ID в одном запросе получения по списку
+    private static final int MAX_BULK_IDS = 1000;
+    // Максимальный размер страницы лайков фильма
+    private static final int MAX_LIKES_PAGE = 1000;
+    // Максимальное количество популярных фильмов в одном запросе
+    private static final int MAX_POPULAR_COUNT = 1000;
+    // Заголовки, описывающие точность ответа со списком популярных фильмов
+    private static final String ACCURACY_HEADER = "X-Result-Accuracy";
+    private static final String ERROR_BOUND_HEADER = "X-Result-Error-Bound";
     // Объявляем переменную filmStorage для работы с хранилищем фильмов
     private final FilmStorage filmStorage;
     // Объявляем переменную filmService для работы с сервисом фильмов
     private final FilmService filmService;
+    // Асинхронная очередь изменений (null, если лайки применяются синхронно)
+    private final MutationPipeline mutationPipeline;
 
     // Конструктор класса FilmController, который принимает зависимости через аннотацию @Autowired
     @Autowired
-    public FilmController(FilmStorage filmStorage, FilmService filmService) {
+    public FilmController(FilmStorage filmStorage, FilmService filmService,
+                          ObjectProvider<MutationPipeline> mutationPipeline) {
         // Присваиваем переданное хранилище filmStorage локальной переменной filmStorage
         this.filmStorage = filmStorage;
         // Присваиваем переданный сервис filmService локальной переменной filmService
         this.filmService = filmService;
+        this.mutationPipeline = mutationPipeline.getIfAvailable();
     }
 
-    // Метод validateFilm для проверки данных фильма перед сохранением или обновлением
-    private void validateFilm(Film film) {
-        log.debug("Начало валидации фильма: {}", film);
-        // Проверяем, что название фильма не пустое (не null и не состоит только из пробелов)
-        if (film.getName() == null || film.getName().isBlank()) {
-            log.error("Ошибка валидации: Название фильма не может быть пустым");
-            throw new ValidationException("Название не может быть пустым");
+    // Метод validateIds для проверки списка ID в запросе получения по списку
+    private void validateIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            log.error("Список ID не может быть пустым");
+            throw new ValidationException("Список ID не может быть пустым");
         }
-
-        // Проверяем, что описание фильма (если оно есть) не превышает 200 символов
-        if (film.getDescription() != null && film.getDescription().length() > 200) {
-            log.error("Ошибка валидации: Описание не может превышать 200 символов");
-            throw new ValidationException("Описание не может превышать 200 символов");
+        if (ids.size() > MAX_BULK_IDS) {
+            log.error("Слишком много ID в запросе: {}", ids.size());
+            throw new ValidationException("Количество ID в запросе не может быть больше " + MAX_BULK_IDS);
         }
+        if (ids.contains(null)) {
+            log.error("Список ID содержит пустое значение");
+            throw new ValidationException("Список ID не может содержать пустые значения");
+        }
+    }
 
-        // Проверяем, что дата релиза фильма не раньше 28.12/1895 года
-        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
-            log.error("Ошибка валидации: Дата релиза фильма не может быть раньше 28 декабря 1895г.");
-            throw new ValidationException("Дата релиза фильма не может быть раньше 28 декабря 1895г.");
+    // Метод validatePage для проверки параметров постраничной выдачи
+    private void validatePage(int from, int size) {
+        if (from < 0) {
+            log.error("Параметр from не может быть отрицательным: {}", from);
+            throw new ValidationException("Параметр from не может быть отрицательным");
         }
+        if (size <= 0) {
+            log.error("Параметр size должен быть положительным числом: {}", size);
+            throw new ValidationException("Размер страницы должен быть положительным числом");
+        }
+    }
 
-        // Проверяем, что продолжительность фильма больше 0
-        if (film.getDuration() <= 0) {
-            log.error("Ошибка валидации: Продолжительность фильма должна быть положительным числом");
-            throw new ValidationException("Продолжительность фильма должна быть положительным числом");
+    // Метод validateFilm для проверки данных фильма перед сохранением или обновлением
+    // (правила общие с массовым импортом и описаны в EntityValidation)
+    private void validateFilm(Film film) {
+        log.debug("Начало валидации фильма: {}", film);
+        String error = EntityValidation.filmError(film);
+        if (error != null) {
+            log.error("Ошибка валидации: {}", error);
+            throw new ValidationException(error);
         }
         log.debug("Валидация фильма успешно завершена");
     }
 
     // Метод findAll для получения всех фильмов, обрабатывает GET-запрос на /films
+    // Если переданы параметры from и size, возвращается только одна страница фильмов в порядке возрастания ID
     @GetMapping
-    public Collection<Film> findAll() {
-        log.info("Получен запрос на получение всех фильмов");
-        // Получаем все фильмы из хранилища filmStorage, метод findAll возвращает коллекцию фильмов
-        Collection<Film> films = filmStorage.findAll();
+    public Collection<Film> findAll(@RequestParam(required = false) Integer from,
+                                    @RequestParam(required = false) Integer size,
+                                    @RequestParam(required = false) String fields,
+                                    @RequestParam(required = false) String view,
+                                    @RequestParam(required = false) String embed) {
+        if (from == null && size == null) {
+            log.info("Получен запрос на получение всех фильмов");
+            // Получаем все фильмы из хранилища filmStorage, метод findAll возвращает коллекцию фильмов
+            Collection<Film> films = filmStorage.findAll();
+            log.info("Возвращено {} фильмов", films.size());
+            return Projections.FILMS.project(films, fields, view, embed);
+        }
+        log.info("Получен запрос на получение страницы фильмов: from={}, size={}", from, size);
+        int offset = from == null ? 0 : from;
+        int limit = size == null ? DEFAULT_PAGE_SIZE : size;
+        validatePage(offset, limit);
+        List<Film> films = filmStorage.findPage(offset, limit);
         log.info("Возвращено {} фильмов", films.size());
-        return films;
+        return Projections.FILMS.project(films, fields, view, embed);
+    }
+
+    // Метод findByIds для получения нескольких фильмов по списку ID, обрабатывает GET-запрос на /films?ids=1,2,3
+    // Отсутствующие ID перечисляются в поле missing ответа
+    @GetMapping(params = "ids")
+    public BulkLookup<Film> findByIds(@RequestParam List<Long> ids) {
+        log.info("Получен запрос на получение фильмов по списку из {} ID", ids.size());
+        validateIds(ids);
+        return filmService.getFilms(ids);
+    }
+
+    // Метод lookup делает то же, что и findByIds, но принимает список ID в теле POST-запроса
+    // на /films/lookup, чтобы длинные списки не упирались в ограничение длины URL
+    @PostMapping("/lookup")
+    public BulkLookup<Film> lookup(@RequestBody List<Long> ids) {
+        log.info("Получен запрос на получение фильмов по списку из {} ID", ids == null ? 0 : ids.size());
+        validateIds(ids);
+        return filmService.getFilms(ids);
+    }
+
+    // Метод search для поиска фильмов по подстроке в названии или описании, обрабатывает GET-запрос на /films/search
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam String query,
+                             @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                             @RequestParam(required = false) String fields,
+                             @RequestParam(required = false) String view,
+                             @RequestParam(required = false) String embed) {
+        log.info("Получен запрос на поиск фильмов: query={}, limit={}", query, limit);
+        if (query.isBlank()) {
+            log.error("Строка поиска не может быть пустой");
+            throw new ValidationException("Строка поиска не может быть пустой");
+        }
+        validatePage(0, limit);
+        List<Film> films = filmStorage.search(query, limit);
+        log.info("Найдено {} фильмов", films.size());
+        return Projections.FILMS.project(films, fields, view, embed);
     }
 
     // Метод findById для получения фильма по ID, обрабатывает GET-запрос на /films/id
+    // Текущая версия фильма возвращается в заголовке ETag, лайки целиком выводятся только с параметром embed=likes,
+    // параметры fields и view выбирают поля ответа
     @GetMapping("/{id}")
-    public Film findById(@PathVariable("id") Long filmId) {
+    public ResponseEntity<Object> findById(@PathVariable("id") Long filmId,
+                                           @RequestParam(required = false) String fields,
+                                           @RequestParam(required = false) String view,
+                                           @RequestParam(required = false) String embed) {
         log.info("Получен запрос на получение фильма с ID {}", filmId);
+        // Фильма, которого точно нет, не ищем в хранилище
+        if (filmStorage.isDefinitelyAbsent(filmId)) {
+            return NotFoundResponses.FILM.of(filmId);
+        }
         // Ищем фильм в хранилище по ID, метод findById возвращает Optional<Film>
         Film film = filmStorage.findById(filmId)
                 .orElseThrow(() -> new NotFoundException("Фильм с ID " + filmId + " не найден"));
         log.debug("Найден фильм: {}", film);
-        return film;
+        return ResponseEntity.ok()
+                .eTag(EntityTags.of(film.getVersion()))
+                .body(Projections.FILMS.projectOne(film, fields, view, embed));
+    }
+
+    // Метод getLikes для постраничного получения ID пользователей, лайкнувших фильм, обрабатывает GET-запрос
+    // на /films/id/likes. Страница начинается после ID из параметра after, курсор следующей страницы — в поле next
+    @GetMapping("/{id}/likes")
+    public LikesPage getLikes(@PathVariable("id") Long filmId,
+                              @RequestParam(required = false) Long after,
+                              @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        log.info("Получен запрос на получение лайков фильма с ID {}: after={}, limit={}", filmId, after, limit);
+        validatePage(0, limit);
+        if (limit > MAX_LIKES_PAGE) {
+            log.error("Размер страницы лайков больше допустимого: {}", limit);
+            throw new ValidationException("Размер страницы лайков не может быть больше " + MAX_LIKES_PAGE);
+        }
+        LikesPage page = filmService.getLikes(filmId, after, limit);
+        log.info("Возвращено {} лайков фильма с ID {}", page.getUserIds().length, filmId);
+        return page;
     }
 
     // Метод create для создания нового фильма, обрабатывает POST-запрос на /films
@@ -100,8 +212,12 @@ public class FilmController {
     }
 
     // Метод updateFilm для обновления существующего фильма (обрабатывает PUT-запрос на /films)
+    // Если передан заголовок If-Match (или поле version в теле), фильм обновляется, только если его версия
+    // не изменилась, иначе возвращается ошибка 409. Новая версия возвращается в заголовке ETag
     @PutMapping
-    public Film updateFilm(@RequestBody Film film) {
+    public ResponseEntity<Film> updateFilm(@RequestBody Film film,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                           String ifMatch) {
         log.info("Получен запрос на обновление фильма: {}", film);
         // Проверяем, что тело запроса не пустое
         if (film == null) {
@@ -115,43 +231,82 @@ public class FilmController {
             throw new ValidationException("ID фильма должен быть указан");
         }
 
-        // Ищем фильм в хранилище по id, чтобы проверить, что он существует
-        Film existingFilm = filmStorage.findById(film.getId())
-                .orElseThrow(() -> new NotFoundException(String.format("Фильм с ID %d не найден", film.getId())));
-        log.debug("Существующий фильм: {}", existingFilm);
-
         validateFilm(film);
-        // Обновляем фильм в хранилище, метод update возвращает обновлённый фильм
-        Film updatedFilm = filmStorage.update(film);
-        log.info("Фильм с ID {} успешно обновлён", updatedFilm.getId());
-        return updatedFilm;
+        long expectedVersion = EntityTags.expectedVersion(ifMatch, film.getVersion());
+        // Обновляем фильм в хранилище одной операцией сравнения и записи версии: хранилище само сообщит,
+        // если фильма нет (404) или его успели изменить (409)
+        Film updatedFilm = filmStorage.update(film, expectedVersion);
+        log.info("Фильм с ID {} успешно обновлён, версия {}", updatedFilm.getId(), updatedFilm.getVersion());
+        return ResponseEntity.ok()
+                .eTag(EntityTags.of(updatedFilm.getVersion()))
+                .body(updatedFilm);
+    }
+
+    // Метод delete для удаления фильма вместе с его лайками, обрабатывает DELETE-запрос на /films/id
+    @DeleteMapping("/{id}")
+    public void delete(@PathVariable("id") Long filmId) {
+        log.info("Получен запрос на удаление фильма с ID {}", filmId);
+        filmService.deleteFilm(filmId);
+        log.info("Фильм успешно удалён");
     }
 
     // Метод addLike для добавления лайка фильму, обрабатывает PUT-запрос на /films/id/like/userId
+    // При включённой асинхронной очереди лайк ставится в очередь: ответ 202 с токеном в заголовке X-Mutation-Token
     @PutMapping(LIKE_PATH)
-    public void addLike(@PathVariable("id") Long filmId, @PathVariable Long userId) {
+    public ResponseEntity<MutationAccepted> addLike(@PathVariable("id") Long filmId, @PathVariable Long userId) {
         log.info("Получен запрос на добавление лайка: filmId={}, userId={}", filmId, userId);
+        if (mutationPipeline != null) {
+            return accepted(mutationPipeline.addLike(filmId, userId));
+        }
         // Вызываем метод addLike в FilmService, чтобы добавить лайк фильму от пользователя
         filmService.addLike(filmId, userId);
         log.info("Лайк успешно добавлен");
+        return ResponseEntity.ok().build();
     }
 
     // Метод removeLike для удаления лайка с фильма (обрабатывает DELETE-запрос на /films/id/like/userId
     @DeleteMapping(LIKE_PATH)
-    public void removeLike(@PathVariable("id") Long filmId, @PathVariable Long userId) {
+    public ResponseEntity<MutationAccepted> removeLike(@PathVariable("id") Long filmId, @PathVariable Long userId) {
         log.info("Получен запрос на удаление лайка: filmId={}, userId={}", filmId, userId);
+        if (mutationPipeline != null) {
+            return accepted(mutationPipeline.removeLike(filmId, userId));
+        }
         // Вызываем метод removeLike в FilmService чтобы удалить лайк
         filmService.removeLike(filmId, userId);
         log.info("Лайк успешно удалён");
+        return ResponseEntity.ok().build();
+    }
+
+    private static ResponseEntity<MutationAccepted> accepted(MutationAccepted accepted) {
+        log.info("Изменение поставлено в очередь, токен {}", accepted.getToken());
+        return ResponseEntity.accepted()
+                .header(MutationPipeline.TOKEN_HEADER, String.valueOf(accepted.getToken()))
+                .body(accepted);
     }
 
     // Метод getPopularFilms для получения списка популярных фильмов обрабатывает GET-запрос на /films/popular
+    // Заголовок X-Result-Accuracy сообщает, точный (exact) или приближённый (approximate) это ответ,
+    // а для приближённого ответа X-Result-Error-Bound — на сколько может быть завышено количество лайков
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
+    public ResponseEntity<List<Film>> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                                      @RequestParam(required = false) String fields,
+                                                      @RequestParam(required = false) String view,
+                                                      @RequestParam(required = false) String embed) {
         log.info("Получен запрос на получение популярных фильмов, count={}", count);
+        if (count > MAX_POPULAR_COUNT) {
+            log.error("Количество популярных фильмов больше допустимого: {}", count);
+            throw new ValidationException("Количество фильмов не может быть больше " + MAX_POPULAR_COUNT);
+        }
         // Вызываем метод getPopularFilms в FilmService чтобы получить список фильмов сортированных по количеству лайков
         List<Film> popularFilms = filmService.getPopularFilms(count);
         log.info("Возвращено {} популярных фильмов", popularFilms.size());
-        return popularFilms;
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (filmService.isPopularFilmsApproximate(count)) {
+            response.header(ACCURACY_HEADER, "approximate")
+                    .header(ERROR_BOUND_HEADER, String.valueOf(filmService.getPopularFilmsErrorBound()));
+        } else {
+            response.header(ACCURACY_HEADER, "exact");
+        }
+        return response.body(Projections.FILMS.project(popularFilms, fields, view, embed));
     }
 }
\ No newline at end of file
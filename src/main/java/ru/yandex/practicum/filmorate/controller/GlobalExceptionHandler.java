@@ -1,13 +1,21 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.DeadlineExceededException;
 import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.exception.RangeNotSatisfiableException;
+import ru.yandex.practicum.filmorate.exception.ResnapshotRequiredException;
+import ru.yandex.practicum.filmorate.exception.SnapshotNotReadyException;
 
 import java.util.Map;
 
@@ -38,6 +46,70 @@ public class GlobalExceptionHandler {
         );
     }
 
+    // Обработчик исключений, когда объект был изменён другим запросом (версия не совпала с ожидаемой)
+    @ExceptionHandler(ConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT) // Устанавливает статус ответа 409
+    public Map<String, String> handleConflictException(ConflictException ex) {
+        return Map.of(
+                "error", "Conflict",
+                "message", ex.getMessage()
+        );
+    }
+
+    // Обработчик исключений, когда запрошенные изменения уже вытеснены из ленты изменений
+    @ExceptionHandler(ResnapshotRequiredException.class)
+    @ResponseStatus(HttpStatus.GONE) // Устанавливает статус ответа 410
+    public Map<String, String> handleResnapshotRequiredException(ResnapshotRequiredException ex) {
+        return Map.of(
+                "error", "Resnapshot required",
+                "message", ex.getMessage()
+        );
+    }
+
+    // Обработчик исключений, когда очередь изменений заполнена
+    @ExceptionHandler(OverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE) // Устанавливает статус ответа 503
+    public Map<String, String> handleOverloadedException(OverloadedException ex) {
+        return Map.of(
+                "error", "Service unavailable",
+                "message", ex.getMessage()
+        );
+    }
+
+    // Обработчик исключений, когда первый снимок каталога для выгрузки ещё создаётся
+    @ExceptionHandler(SnapshotNotReadyException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE) // Устанавливает статус ответа 503
+    public Map<String, String> handleSnapshotNotReadyException(SnapshotNotReadyException ex,
+                                                               HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return Map.of(
+                "error", "Service unavailable",
+                "message", ex.getMessage()
+        );
+    }
+
+    // Обработчик исключений, когда запрос не уложился в отведённое время (например, параллельный поиск друзей)
+    @ExceptionHandler(DeadlineExceededException.class)
+    @ResponseStatus(HttpStatus.GATEWAY_TIMEOUT) // Устанавливает статус ответа 504
+    public Map<String, String> handleDeadlineExceededException(DeadlineExceededException ex) {
+        return Map.of(
+                "error", "Gateway timeout",
+                "message", ex.getMessage()
+        );
+    }
+
+    // Обработчик исключений, когда запрошенный диапазон байт лежит за концом файла (выгрузка каталога)
+    @ExceptionHandler(RangeNotSatisfiableException.class)
+    @ResponseStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE) // Устанавливает статус ответа 416
+    public Map<String, String> handleRangeNotSatisfiableException(RangeNotSatisfiableException ex,
+                                                                  HttpServletResponse response) {
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + ex.getSize());
+        return Map.of(
+                "error", "Range not satisfiable",
+                "message", ex.getMessage()
+        );
+    }
+
     //Обработчик всех остальных необработанных исключений (общий случай).
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR) // Устанавливает статус ответа 500
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.importer.NdjsonImporter;
+
+import java.io.InputStream;
+
+// Класс ImportController принимает массовую загрузку фильмов и пользователей в формате NDJSON
+// (Content-Type: application/x-ndjson, один объект на строку). Тело запроса читается потоком, а ответ —
+// отчёт с числом загруженных записей и номерами отклонённых строк; отклонённые строки не прерывают загрузку
+@Slf4j
+@RestController
+public class ImportController {
+
+    private static final String IMPORT_PATH = "/import";
+
+    private final NdjsonImporter importer;
+
+    public ImportController(NdjsonImporter importer) {
+        this.importer = importer;
+    }
+
+    // Метод importFilms обрабатывает POST-запрос на /films/import
+    @PostMapping(path = FilmController.BASE_PATH + IMPORT_PATH, consumes = NdjsonImporter.MEDIA_TYPE)
+    public NdjsonImporter.Report importFilms(InputStream body) {
+        log.info("Получен запрос на импорт фильмов");
+        return importer.importFilms(body);
+    }
+
+    // Метод importUsers обрабатывает POST-запрос на /users/import
+    @PostMapping(path = UserController.BASE_PATH + IMPORT_PATH, consumes = NdjsonImporter.MEDIA_TYPE)
+    public NdjsonImporter.Report importUsers(InputStream body) {
+        log.info("Получен запрос на импорт пользователей");
+        return importer.importUsers(body);
+    }
+}
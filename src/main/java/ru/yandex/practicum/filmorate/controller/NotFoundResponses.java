@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.charset.StandardCharsets;
+
+// Класс NotFoundResponses готовит ответы 404 для ID, которых по фильтру Блума хранилища точно нет.
+// Такие запросы в основном шлют сборщики данных и сломанные клиенты, поэтому ответ собирается без исключения
+// (и снятия стека) и без сериализации: тело склеивается из заранее закодированных частей JSON того же вида,
+// что возвращает GlobalExceptionHandler, а заголовки общие для всех ответов
+final class NotFoundResponses {
+
+    static final NotFoundResponses FILM = new NotFoundResponses("Фильм");
+    static final NotFoundResponses USER = new NotFoundResponses("Пользователь");
+
+    private static final HttpHeaders HEADERS;
+
+    static {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        HEADERS = HttpHeaders.readOnlyHttpHeaders(headers);
+    }
+
+    private final byte[] prefix;
+    private final byte[] suffix;
+
+    private NotFoundResponses(String entity) {
+        this.prefix = ("{\"error\":\"Not found\",\"message\":\"" + entity + " с ID ").getBytes(StandardCharsets.UTF_8);
+        this.suffix = " не найден\"}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Метод of возвращает ответ 404 с сообщением «<Сущность> с ID <id> не найден»
+    ResponseEntity<Object> of(long id) {
+        byte[] digits = Long.toString(id).getBytes(StandardCharsets.US_ASCII);
+        byte[] body = new byte[prefix.length + digits.length + suffix.length];
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        System.arraycopy(digits, 0, body, prefix.length, digits.length);
+        System.arraycopy(suffix, 0, body, prefix.length + digits.length, suffix.length);
+        return new ResponseEntity<>(body, HEADERS, HttpStatus.NOT_FOUND);
+    }
+}
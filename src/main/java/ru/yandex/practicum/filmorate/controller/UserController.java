@@ -1,16 +1,28 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.fanout.FanOut;
+import ru.yandex.practicum.filmorate.model.BulkLookup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MutationAccepted;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserDistance;
+import ru.yandex.practicum.filmorate.model.UserReach;
+import ru.yandex.practicum.filmorate.pipeline.MutationPipeline;
+import ru.yandex.practicum.filmorate.projection.Projections;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.validation.EntityValidation;
 
-import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 
@@ -25,68 +37,141 @@ public class UserController {
     private static final String FRIEND_PATH = "/{id}/friends/{friendId}";
     // Константа COMMON_FRIENDS_PATH задаёт путь для получения общих друзей
     private static final String COMMON_FRIENDS_PATH = "/{id}/friends/common/{otherId}";
+    // Размер страницы по умолчанию для постраничной выдачи и поиска
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    // Максимальное количество ID в одном запросе получения по списку
+    private static final int MAX_BULK_IDS = 1000;
 
     private final UserStorage userStorage;
     private final UserService userService;
+    // Асинхронная очередь изменений (null, если дружба меняется синхронно)
+    private final MutationPipeline mutationPipeline;
 
     @Autowired
-    public UserController(UserStorage userStorage, UserService userService) {
+    public UserController(UserStorage userStorage, UserService userService,
+                          ObjectProvider<MutationPipeline> mutationPipeline) {
         this.userStorage = userStorage;
         this.userService = userService;
+        this.mutationPipeline = mutationPipeline.getIfAvailable();
     }
 
-    // Метод validateUser для проверки данных пользователя
-    private void validateUser(User user) {
-        log.debug("Начало валидации пользователя: {}", user);
-        // Проверяем, что email пользователя не пустойб, не null и не состоит только из пробелов
-        if (user.getEmail() == null || user.getEmail().isBlank()) {
-            log.error("Ошибка валидации: Email пользователя не может быть пустым");
-            throw new ValidationException("Email пользователя не может быть пустым");
+    // Метод validateIds для проверки списка ID в запросе получения по списку
+    private void validateIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            log.error("Список ID не может быть пустым");
+            throw new ValidationException("Список ID не может быть пустым");
         }
-        // Проверяем, что email содержит символ @
-        if (!user.getEmail().contains("@")) {
-            log.error("Ошибка валидации: Email должен содержать символ @");
-            throw new ValidationException("Email должен содержать символ @");
+        if (ids.size() > MAX_BULK_IDS) {
+            log.error("Слишком много ID в запросе: {}", ids.size());
+            throw new ValidationException("Количество ID в запросе не может быть больше " + MAX_BULK_IDS);
         }
+        if (ids.contains(null)) {
+            log.error("Список ID содержит пустое значение");
+            throw new ValidationException("Список ID не может содержать пустые значения");
+        }
+    }
 
-        // Проверяем, что логин пользователя не пустой, не null и не состоит только из пробелов
-        if (user.getLogin() == null || user.getLogin().isBlank()) {
-            log.error("Ошибка валидации: Логин пользователя не может быть пустым");
-            throw new ValidationException("Логин пользователя не может быть пустым");
+    // Метод validatePage для проверки параметров постраничной выдачи
+    private void validatePage(int from, int size) {
+        if (from < 0) {
+            log.error("Параметр from не может быть отрицательным: {}", from);
+            throw new ValidationException("Параметр from не может быть отрицательным");
         }
-        // Проверяем, что логин не содержит пробелы
-        if (user.getLogin().contains(" ")) {
-            log.error("Ошибка валидации: Логин не может содержать пробелы");
-            throw new ValidationException("Логин не может содержать пробелы");
+        if (size <= 0) {
+            log.error("Параметр size должен быть положительным числом: {}", size);
+            throw new ValidationException("Размер страницы должен быть положительным числом");
         }
+    }
 
-        // Проверяем, что дата рождения пользователя не в будущем (не позже текущей даты)
-        if (user.getBirthday() == null || user.getBirthday().isAfter(LocalDate.now())) {
-            log.error("Ошибка валидации: Дата рождения не может быть в будущем");
-            throw new ValidationException("Дата рождения не может быть в будущем");
+    // Метод validateUser для проверки данных пользователя
+    // (правила общие с массовым импортом и описаны в EntityValidation)
+    private void validateUser(User user) {
+        log.debug("Начало валидации пользователя: {}", user);
+        String error = EntityValidation.userError(user);
+        if (error != null) {
+            log.error("Ошибка валидации: {}", error);
+            throw new ValidationException(error);
         }
         log.debug("Валидация пользователя успешно завершена");
     }
 
     // Метод findAll для получения всех пользователей, обрабатывает GET-запрос на /users
+    // Если переданы параметры from и size, возвращается только одна страница пользователей в порядке возрастания ID
     @GetMapping
-    public Collection<User> findAll() {
-        log.info("Получен запрос на получение всех пользователей");
-        // Получаем всех пользователей из хранилища userStorage, метод findAll возвращает коллекцию пользователей
-        Collection<User> users = userStorage.findAll();
+    public Collection<User> findAll(@RequestParam(required = false) Integer from,
+                                    @RequestParam(required = false) Integer size,
+                                    @RequestParam(required = false) String fields,
+                                    @RequestParam(required = false) String view) {
+        if (from == null && size == null) {
+            log.info("Получен запрос на получение всех пользователей");
+            // Получаем всех пользователей из хранилища userStorage, метод findAll возвращает коллекцию пользователей
+            Collection<User> users = userStorage.findAll();
+            log.info("Возвращено {} пользователей", users.size());
+            return Projections.USERS.project(users, fields, view);
+        }
+        log.info("Получен запрос на получение страницы пользователей: from={}, size={}", from, size);
+        int offset = from == null ? 0 : from;
+        int limit = size == null ? DEFAULT_PAGE_SIZE : size;
+        validatePage(offset, limit);
+        List<User> users = userStorage.findPage(offset, limit);
         log.info("Возвращено {} пользователей", users.size());
-        return users;
+        return Projections.USERS.project(users, fields, view);
+    }
+
+    // Метод findByIds для получения нескольких пользователей по списку ID, обрабатывает GET-запрос на /users?ids=1,2,3
+    // Отсутствующие ID перечисляются в поле missing ответа
+    @GetMapping(params = "ids")
+    public BulkLookup<User> findByIds(@RequestParam List<Long> ids) {
+        log.info("Получен запрос на получение пользователей по списку из {} ID", ids.size());
+        validateIds(ids);
+        return userService.getUsers(ids);
+    }
+
+    // Метод lookup делает то же, что и findByIds, но принимает список ID в теле POST-запроса
+    // на /users/lookup, чтобы длинные списки не упирались в ограничение длины URL
+    @PostMapping("/lookup")
+    public BulkLookup<User> lookup(@RequestBody List<Long> ids) {
+        log.info("Получен запрос на получение пользователей по списку из {} ID", ids == null ? 0 : ids.size());
+        validateIds(ids);
+        return userService.getUsers(ids);
+    }
+
+    // Метод search для поиска пользователей по подстроке в логине, имени или email,
+    // обрабатывает GET-запрос на /users/search
+    @GetMapping("/search")
+    public List<User> search(@RequestParam String query,
+                             @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                             @RequestParam(required = false) String fields,
+                             @RequestParam(required = false) String view) {
+        log.info("Получен запрос на поиск пользователей: query={}, limit={}", query, limit);
+        if (query.isBlank()) {
+            log.error("Строка поиска не может быть пустой");
+            throw new ValidationException("Строка поиска не может быть пустой");
+        }
+        validatePage(0, limit);
+        List<User> users = userStorage.search(query, limit);
+        log.info("Найдено {} пользователей", users.size());
+        return Projections.USERS.project(users, fields, view);
     }
 
     // Метод findById для получения пользователя по ID , обрабатывает GET-запрос на /users/id
+    // Текущая версия пользователя возвращается в заголовке ETag, параметры fields и view выбирают поля ответа
     @GetMapping("/{id}")
-    public User findById(@PathVariable("id") Long userId) {
+    public ResponseEntity<Object> findById(@PathVariable("id") Long userId,
+                                           @RequestParam(required = false) String fields,
+                                           @RequestParam(required = false) String view) {
         log.info("Получен запрос на получение пользователя с ID {}", userId);
+        // Пользователя, которого точно нет, не ищем в хранилище
+        if (userStorage.isDefinitelyAbsent(userId)) {
+            return NotFoundResponses.USER.of(userId);
+        }
         // Ищем пользователя в хранилище по ID, метод findById возвращает Optional<User>
         User user = userStorage.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с ID " + userId + " не найден"));
         log.debug("Найден пользователь: {}", user);
-        return user;
+        return ResponseEntity.ok()
+                .eTag(EntityTags.of(user.getVersion()))
+                .body(Projections.USERS.projectOne(user, fields, view, null));
     }
 
     // Метод create для создания нового пользователя, обрабатывает POST-запрос на /users
@@ -111,8 +196,12 @@ public class UserController {
     }
 
     // Метод updateUser для обновления существующего пользователя, обрабатывает PUT-запрос на /users
+    // Если передан заголовок If-Match (или поле version в теле), пользователь обновляется, только если его версия
+    // не изменилась, иначе возвращается ошибка 409. Новая версия возвращается в заголовке ETag
     @PutMapping
-    public User updateUser(@RequestBody User user) {
+    public ResponseEntity<User> updateUser(@RequestBody User user,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                           String ifMatch) {
         log.info("Получен запрос на обновление пользователя: {}", user);
         // Проверяем, что ID пользователя указан
         if (user.getId() == null) {
@@ -120,85 +209,147 @@ public class UserController {
             throw new ValidationException("ID пользователя должен быть указан");
         }
 
-        // Ищем пользователя в хранилище по ID, чтобы убедиться, что он существует
-        User existingUser = userStorage.findById(user.getId())
-                .orElseThrow(() -> new NotFoundException(String.format("Пользователь с ID %d не найден", user.getId())));
-        log.debug("Существующий пользователь: {}", existingUser);
-
         validateUser(user);
 
-        // Если email изменён, проверяем, что новый email не используется другим пользователем
-        if (user.getEmail() != null && !user.getEmail().equals(existingUser.getEmail())) {
-            if (userStorage.existsByEmail(user.getEmail())) {
-                log.error("Ошибка: Email {} уже используется", user.getEmail());
-                throw new DuplicatedDataException("Этот email уже используется");
-            }
+        // Проверяем, что новый email не используется другим пользователем
+        if (userStorage.existsByEmailExcept(user.getEmail(), user.getId())) {
+            log.error("Ошибка: Email {} уже используется", user.getEmail());
+            throw new DuplicatedDataException("Этот email уже используется");
         }
 
-        // Обновляем email, если он указан в запросе
-        if (user.getEmail() != null) {
-            log.debug("Обновление email: {}", user.getEmail());
-            // Устанавливаем новый email для существующего пользователя
-            existingUser.setEmail(user.getEmail());
-        }
-        // Обновляем логин, если он указан в запросе
-        if (user.getLogin() != null) {
-            log.debug("Обновление login: {}", user.getLogin());
-            existingUser.setLogin(user.getLogin());
-        }
-        // Обновляем имя, если оно указано в запросе
-        if (user.getName() != null) {
-            log.debug("Обновление name: {}", user.getName());
-            existingUser.setName(user.getName());
-        } else if (user.getLogin() != null && (existingUser.getName() == null || existingUser.getName().isBlank())) {
-            // Если имя не указано, но есть логин, и текущее имя пустое, устанавливаем имя равным логину
-            log.debug("Установка name из login: {}", user.getLogin());
-            existingUser.setName(user.getLogin());
-        }
-        // Обновляем дату рождения, если она указана в запросе
-        if (user.getBirthday() != null) {
-            log.debug("Обновление birthday: {}", user.getBirthday());
-            existingUser.setBirthday(user.getBirthday());
-        }
+        // Если имя пользователя пустое или не указано, устанавливаем его равным логину
+        user.setName(user.getName() == null || user.getName().isBlank() ? user.getLogin() : user.getName());
+        long expectedVersion = EntityTags.expectedVersion(ifMatch, user.getVersion());
+        // Обновляем пользователя в хранилище одной операцией сравнения и записи версии: хранилище само сообщит,
+        // если пользователя нет (404) или его успели изменить (409)
+        User updatedUser = userStorage.update(user, expectedVersion);
+        log.info("Пользователь с ID {} успешно обновлён, версия {}", updatedUser.getId(), updatedUser.getVersion());
+        return ResponseEntity.ok()
+                .eTag(EntityTags.of(updatedUser.getVersion()))
+                .body(updatedUser);
+    }
 
-        // Обновляем пользователя в хранилище, метод update возвращает обновлённого пользователя
-        User updatedUser = userStorage.update(existingUser);
-        log.info("Пользователь с ID {} успешно обновлён", updatedUser.getId());
-        return updatedUser;
+    // Метод delete для удаления пользователя вместе с его дружбами и лайками, обрабатывает DELETE-запрос на /users/id
+    @DeleteMapping("/{id}")
+    public void delete(@PathVariable("id") Long userId) {
+        log.info("Получен запрос на удаление пользователя с ID {}", userId);
+        userService.deleteUser(userId);
+        log.info("Пользователь успешно удалён");
+    }
+
+    // Метод getLikedFilms для постраничного получения фильмов, которые лайкнул пользователь,
+    // обрабатывает GET-запрос на /users/id/likes
+    @GetMapping("/{id}/likes")
+    public List<Film> getLikedFilms(@PathVariable("id") Long userId,
+                                    @RequestParam(defaultValue = "0") int from,
+                                    @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                    @RequestParam(required = false) String fields,
+                                    @RequestParam(required = false) String view,
+                                    @RequestParam(required = false) String embed) {
+        log.info("Получен запрос на получение лайкнутых фильмов пользователя с ID {}: from={}, size={}",
+                userId, from, size);
+        validatePage(from, size);
+        List<Film> films = userService.getLikedFilms(userId, from, size);
+        log.info("Возвращено {} фильмов", films.size());
+        return Projections.FILMS.project(films, fields, view, embed);
     }
 
     // Метод addFriend для добавления друга, обрабатывает PUT-запрос на /users/id/friends/friendId
+    // При включённой асинхронной очереди дружба ставится в очередь: ответ 202 с токеном в заголовке X-Mutation-Token
     @PutMapping(FRIEND_PATH)
-    public void addFriend(@PathVariable("id") Long userId, @PathVariable Long friendId) {
+    public ResponseEntity<MutationAccepted> addFriend(@PathVariable("id") Long userId, @PathVariable Long friendId) {
         log.info("Получен запрос на добавление друга: userId={}, friendId={}", userId, friendId);
+        if (mutationPipeline != null) {
+            return accepted(mutationPipeline.addFriend(userId, friendId));
+        }
         userService.addFriend(userId, friendId);
         log.info("Друг успешно добавлен");
+        return ResponseEntity.ok().build();
     }
 
     // Метод removeFriend для удаления друга обрабатывает DELETE-запрос на /users/id/frends/friendId
     @DeleteMapping(FRIEND_PATH)
-    public void removeFriend(@PathVariable("id") Long userId, @PathVariable Long friendId) {
+    public ResponseEntity<MutationAccepted> removeFriend(@PathVariable("id") Long userId,
+                                                         @PathVariable Long friendId) {
         log.info("Получен запрос на удаление друга: userId={}, friendId={}", userId, friendId);
+        if (mutationPipeline != null) {
+            return accepted(mutationPipeline.removeFriend(userId, friendId));
+        }
         userService.removeFriend(userId, friendId);
         log.info("Друг успешно удалён");
+        return ResponseEntity.ok().build();
+    }
+
+    private static ResponseEntity<MutationAccepted> accepted(MutationAccepted accepted) {
+        log.info("Изменение поставлено в очередь, токен {}", accepted.getToken());
+        return ResponseEntity.accepted()
+                .header(MutationPipeline.TOKEN_HEADER, String.valueOf(accepted.getToken()))
+                .body(accepted);
+    }
+
+    // Метод unresolved возвращает найденных пользователей и сообщает в заголовке ответа, сколько не найдено
+    private static List<User> unresolved(HttpServletResponse response, FanOut.Result<User> result) {
+        if (result.unresolved() > 0) {
+            log.warn("Не найдено из-за ошибок или срока {} пользователей", result.unresolved());
+            response.setHeader(FanOut.UNRESOLVED_HEADER, String.valueOf(result.unresolved()));
+        }
+        return result.items();
     }
 
-    // Метод getFriends для получения списка друзей пользователя, обрабатывает GET-запрос на /users/id/friends
+    // Метод getFriends для получения списка друзей пользователя, обрабатывает GET-запрос на /users/id/friends.
+    // Заголовки X-Lookup-Policy (fail или partial) и X-Lookup-Timeout-Ms задают политику и срок параллельного
+    // поиска друзей; число друзей, не найденных из-за ошибок или срока, возвращается в X-Unresolved-Lookups
     @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable("id") Long userId) {
+    public List<User> getFriends(@PathVariable("id") Long userId,
+                                 @RequestParam(required = false) String fields,
+                                 @RequestParam(required = false) String view,
+                                 @RequestHeader(value = FanOut.POLICY_HEADER, required = false) String policy,
+                                 @RequestHeader(value = FanOut.TIMEOUT_HEADER, required = false) Long timeoutMs,
+                                 HttpServletResponse response) {
         log.info("Получен запрос на получение списка друзей пользователя с ID {}", userId);
+        FanOut.Options options = FanOut.Options.of(policy, timeoutMs);
         // Вызываем метод getFriends в UserService, чтобы получить список друзей пользователя
-        List<User> friends = userService.getFriends(userId);
+        List<User> friends = unresolved(response, userService.getFriends(userId, options));
         log.info("Возвращено {} друзей", friends.size());
-        return friends;
+        return Projections.USERS.project(friends, fields, view);
     }
 
     // Метод getCommonFriends для получения списка общих друзей двух пользователей
     @GetMapping(COMMON_FRIENDS_PATH)
-    public List<User> getCommonFriends(@PathVariable("id") Long userId, @PathVariable Long otherId) {
+    public List<User> getCommonFriends(@PathVariable("id") Long userId, @PathVariable Long otherId,
+                                       @RequestParam(required = false) String fields,
+                                       @RequestParam(required = false) String view,
+                                       @RequestHeader(value = FanOut.POLICY_HEADER, required = false) String policy,
+                                       @RequestHeader(value = FanOut.TIMEOUT_HEADER, required = false)
+                                       Long timeoutMs,
+                                       HttpServletResponse response) {
         log.info("Получен запрос на получение общих друзей: userId={}, otherId={}", userId, otherId);
-        List<User> commonFriends = userService.getCommonFriends(userId, otherId);
+        FanOut.Options options = FanOut.Options.of(policy, timeoutMs);
+        List<User> commonFriends = unresolved(response, userService.getCommonFriends(userId, otherId, options));
         log.info("Возвращено {} общих друзей", commonFriends.size());
-        return commonFriends;
+        return Projections.USERS.project(commonFriends, fields, view);
+    }
+
+    // Метод getDistance для поиска кратчайшей цепочки дружбы между пользователями, обрабатывает GET-запрос
+    // на /users/id/distance/otherId. В ответе — цепочка ID, её длина и количество посещённых пользователей
+    @GetMapping("/{id}/distance/{otherId}")
+    public UserDistance getDistance(@PathVariable("id") Long userId, @PathVariable Long otherId,
+                                    @RequestParam(required = false) Integer maxDepth) {
+        log.info("Получен запрос на поиск цепочки дружбы: userId={}, otherId={}, maxDepth={}",
+                userId, otherId, maxDepth);
+        UserDistance distance = userService.getDistance(userId, otherId, maxDepth);
+        log.info("Цепочка дружбы от {} до {}: {}, расстояние {}", userId, otherId, distance.getStatus(),
+                distance.getDistance());
+        return distance;
+    }
+
+    // Метод getReach для получения приближённого социального охвата пользователя, обрабатывает GET-запрос
+    // на /users/id/reach
+    @GetMapping("/{id}/reach")
+    public UserReach getReach(@PathVariable("id") Long userId) {
+        log.info("Получен запрос на получение охвата пользователя с ID {}", userId);
+        UserReach reach = userService.getReach(userId);
+        log.info("Охват пользователя с ID {}: {}", userId, reach);
+        return reach;
     }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exception;
+
+// Исключение для случаев, когда объект был изменён другим запросом и ожидаемая версия не совпадает с текущей.
+public class ConflictException extends RuntimeException {
+    public ConflictException(String message) {
+        super(message);
+    }
+}
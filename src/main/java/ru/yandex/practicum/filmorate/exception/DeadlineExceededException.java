@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exception;
+
+// Исключение для случаев, когда запрос не уложился в отведённое ему время.
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -5,4 +5,13 @@ public class NotFoundException extends RuntimeException {
     public NotFoundException(String message) {
         super(message);
     }
+
+    // Исключение без стека вызовов — для частых ожидаемых промахов, когда ID точно нет по фильтру Блума хранилища
+    public static NotFoundException withoutStackTrace(String message) {
+        return new NotFoundException(message, false);
+    }
+
+    private NotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
\ No newline at end of file
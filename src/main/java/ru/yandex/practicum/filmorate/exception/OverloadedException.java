@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exception;
+
+// Исключение для случаев, когда очередь изменений заполнена и запрос нужно повторить позже.
+public class OverloadedException extends RuntimeException {
+    public OverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.exception;
+
+// Исключение для случаев, когда запрошенный диапазон байт (заголовок Range) целиком лежит за концом файла.
+// size — размер файла, он возвращается клиенту в заголовке Content-Range
+public class RangeNotSatisfiableException extends RuntimeException {
+    private final long size;
+
+    public RangeNotSatisfiableException(String message, long size) {
+        super(message);
+        this.size = size;
+    }
+
+    public long getSize() {
+        return size;
+    }
+}
@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.exception;
+
+// Исключение для случаев, когда запрошенные изменения уже вытеснены из ленты изменений
+// и потребителю нужно заново получить полный снимок данных.
+public class ResnapshotRequiredException extends RuntimeException {
+    public ResnapshotRequiredException(String message) {
+        super(message);
+    }
+}
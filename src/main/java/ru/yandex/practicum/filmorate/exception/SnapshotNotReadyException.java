@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.exception;
+
+// Исключение для случаев, когда первый снимок каталога ещё создаётся и выгрузку нужно повторить позже.
+// retryAfterSeconds — через сколько секунд стоит повторить запрос, возвращается в заголовке Retry-After
+public class SnapshotNotReadyException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public SnapshotNotReadyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
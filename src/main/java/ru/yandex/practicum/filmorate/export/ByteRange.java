@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.export;
+
+import ru.yandex.practicum.filmorate.exception.RangeNotSatisfiableException;
+
+// Запись ByteRange — диапазон байт файла [start, end] (обе границы включительно) из заголовка Range
+public record ByteRange(long start, long end) {
+
+    private static final String UNIT = "bytes=";
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    // Заголовок Content-Range ответа 206
+    public String contentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    // Метод parse разбирает заголовок Range для файла размером size. Поддерживается один диапазон вида
+    // bytes=a-b, bytes=a- или bytes=-n (последние n байт). Возвращает null, если заголовка нет или его нельзя
+    // разобрать (в том числе несколько диапазонов) — тогда отдаётся весь файл, как разрешает RFC 9110.
+    // Если диапазон начинается за концом файла, бросает RangeNotSatisfiableException (ответ 416)
+    public static ByteRange parse(String header, long size) {
+        if (header == null || !header.regionMatches(true, 0, UNIT, 0, UNIT.length())) {
+            return null;
+        }
+        String spec = header.substring(UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            return null;
+        }
+        long first;
+        long last;
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+            if (from.isEmpty()) {
+                long suffix = Long.parseLong(to);
+                if (suffix <= 0) {
+                    throw new RangeNotSatisfiableException("Пустой диапазон " + header, size);
+                }
+                first = Math.max(0, size - suffix);
+                last = size - 1;
+            } else {
+                first = Long.parseLong(from);
+                last = to.isEmpty() ? size - 1 : Math.min(Long.parseLong(to), size - 1);
+                if (first < 0 || (!to.isEmpty() && Long.parseLong(to) < first)) {
+                    return null;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (first >= size) {
+            throw new RangeNotSatisfiableException("Диапазон " + header + " за концом файла размером " + size, size);
+        }
+        return new ByteRange(first, last);
+    }
+}
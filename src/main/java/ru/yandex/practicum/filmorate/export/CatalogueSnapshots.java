@@ -0,0 +1,240 @@
+package ru.yandex.practicum.filmorate.export;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.SnapshotNotReadyException;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Класс CatalogueSnapshots ведёт снимки всего каталога на диске: для фильмов и для пользователей — по файлу
+// NDJSON (один объект в том же виде, что в GET /films и GET /users, на строку), сжатому gzip. Снимок пишется
+// потоком во временный файл и появляется под своим именем только целиком, поэтому отдавать его можно прямо
+// из файла без повторной сериализации и без чтения в память. Снимки создаются по расписанию, по запросу
+// и в фоне при запуске; пока первый снимок не готов, выгрузка отвечает 503 с Retry-After, а не пишет его
+// в потоке запроса. Хранятся последние retain снимков каждой сущности, чтобы докачка уже начатой выгрузки
+// не обрывалась сразу после создания следующего снимка. Список хранимых снимков живёт только в памяти,
+// поэтому снимки прошлых запусков при запуске удаляются из каталога.
+// Снимок не атомарен относительно изменений: сущности, изменённые во время записи, попадают в него в том
+// состоянии, в котором были прочитаны
+@Slf4j
+@Component
+public class CatalogueSnapshots implements DisposableBean {
+
+    public static final String FILMS = "films";
+    public static final String USERS = "users";
+
+    private static final String SUFFIX = ".ndjson.gz";
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final DateTimeFormatter STAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ObjectWriter writer;
+    private final Path directory;
+    private final int retain;
+    private final long retryAfterSeconds;
+    // Последний снимок каждой сущности и все хранимые снимки (от старых к новым); история меняется под this
+    private final Map<String, Snapshot> latest = new ConcurrentHashMap<>();
+    private final Map<String, Deque<Snapshot>> history = new HashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private long sequence;
+
+    public CatalogueSnapshots(FilmStorage filmStorage, UserStorage userStorage, ObjectMapper objectMapper,
+                              @Value("${filmorate.export.directory:${java.io.tmpdir}/filmorate-export}")
+                              String directory,
+                              @Value("${filmorate.export.interval-minutes:1440}") long intervalMinutes,
+                              @Value("${filmorate.export.retain:2}") int retain,
+                              @Value("${filmorate.export.retry-after-seconds:5}") long retryAfterSeconds) {
+        if (retain <= 0) {
+            throw new IllegalArgumentException("Число хранимых снимков должно быть положительным: " + retain);
+        }
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.writer = objectMapper.writer();
+        this.directory = Path.of(directory);
+        this.retain = retain;
+        this.retryAfterSeconds = retryAfterSeconds;
+        deleteStale();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalogue-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.execute(this::createInitial);
+        if (intervalMinutes > 0) {
+            scheduler.scheduleWithFixedDelay(this::createScheduled, intervalMinutes, intervalMinutes,
+                    TimeUnit.MINUTES);
+        }
+    }
+
+    // Метод create записывает новые снимки фильмов и пользователей и удаляет лишние старые
+    public synchronized List<Snapshot> create() {
+        long number = ++sequence;
+        Instant createdAt = Instant.now();
+        Snapshot films = write(FILMS, filmStorage.findAll(), createdAt, number);
+        Snapshot users = write(USERS, userStorage.findAll(), createdAt, number);
+        publish(films);
+        publish(users);
+        return List.of(films, users);
+    }
+
+    // Метод latest возвращает последний снимок сущности entity. Если первый снимок ещё создаётся,
+    // выбрасывается SnapshotNotReadyException: запрос не ждёт записи всего каталога
+    public Snapshot latest(String entity) {
+        if (!FILMS.equals(entity) && !USERS.equals(entity)) {
+            throw new NotFoundException("Выгрузка " + entity + " не поддерживается");
+        }
+        Snapshot snapshot = latest.get(entity);
+        if (snapshot == null) {
+            throw new SnapshotNotReadyException("Снимок " + entity + " ещё создаётся, повторите запрос позже",
+                    retryAfterSeconds);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    // Первый снимок создаётся в фоне, если его ещё не создали по запросу; при ошибке попытка повторяется
+    private void createInitial() {
+        try {
+            synchronized (this) {
+                if (latest.isEmpty()) {
+                    create();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Ошибка при создании первого снимка каталога, повтор через {} с", retryAfterSeconds, e);
+            scheduler.schedule(this::createInitial, retryAfterSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    private void createScheduled() {
+        try {
+            create();
+        } catch (RuntimeException e) {
+            log.error("Ошибка при создании снимка каталога", e);
+        }
+    }
+
+    private Snapshot write(String entity, Iterable<?> entities, Instant createdAt, long number) {
+        long start = System.nanoTime();
+        Path target = directory.resolve(entity + "-" + STAMP.format(createdAt) + "-" + number + SUFFIX);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        long records = 0;
+        try {
+            Files.createDirectories(directory);
+            try (OutputStream out = new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp), BUFFER_SIZE), BUFFER_SIZE)) {
+                for (Object value : entities) {
+                    out.write(encode(value));
+                    out.write('\n');
+                    records++;
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            Snapshot snapshot = new Snapshot(entity, target.getFileName().toString(), target, Files.size(target),
+                    records, createdAt);
+            log.info("Снимок {}: {} записей, {} байт за {} мс", snapshot.file(), records, snapshot.sizeBytes(),
+                    (System.nanoTime() - start) / 1_000_000);
+            return snapshot;
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException("Не удалось записать снимок " + target, e);
+        }
+    }
+
+    // Коллекции сущности могут меняться во время сериализации, тогда она повторяется
+    private byte[] encode(Object value) throws JsonProcessingException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return writer.writeValueAsBytes(value);
+            } catch (JsonMappingException e) {
+                if (!(e.getCause() instanceof ConcurrentModificationException) || attempt == 10) {
+                    throw e;
+                }
+            } catch (ConcurrentModificationException e) {
+                if (attempt == 10) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void publish(Snapshot snapshot) {
+        latest.put(snapshot.entity(), snapshot);
+        Deque<Snapshot> snapshots = history.computeIfAbsent(snapshot.entity(), entity -> new ArrayDeque<>());
+        snapshots.addLast(snapshot);
+        while (snapshots.size() > retain) {
+            deleteQuietly(snapshots.removeFirst().path());
+        }
+    }
+
+    // Удаляет снимки и недописанные временные файлы прошлых запусков: о них не знает история снимков,
+    // поэтому иначе они остались бы в каталоге навсегда
+    private void deleteStale() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                "{" + FILMS + "," + USERS + "}-*" + SUFFIX + "{,.tmp}")) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось очистить каталог снимков {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить {}: {}", path, e.getMessage());
+        }
+    }
+
+    // Снимок сущности entity: имя и путь файла, размер, число записей и время создания
+    public record Snapshot(String entity, String file, @JsonIgnore Path path, long sizeBytes, long records,
+                           Instant createdAt) {
+
+        // Метка ETag снимка: имя файла уникально, поэтому по ней докачка отличает этот снимок от следующих
+        public String etag() {
+            return "\"" + file + "\"";
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.fanout;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.DeadlineExceededException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+// Класс FanOut ищет несколько сущностей по ID параллельно: каждый поиск идёт в своём виртуальном потоке,
+// поэтому N обращений к удалённому или дисковому хранилищу занимают примерно одно обращение, а не N.
+// Поиски запускаются в области, которая закрывается до возврата из lookup: ни один поиск не переживает запрос.
+// Одновременно идёт не больше maxConcurrency поисков. Срок запроса передаётся поискам: поиск, не начавшийся
+// до срока, не выполняется. Уже идущие поиски не прерываются (прерывание закрыло бы FileChannel хранилища),
+// а дожидаются при закрытии области, поэтому ответ может опоздать не больше чем на одно обращение.
+// Что делать с неудачными и не успевшими поисками, решает политика запроса: FAIL — ошибка всего запроса,
+// PARTIAL — ответ без них с числом ненайденных в Result.unresolved.
+// Включается свойством filmorate.lookups.fan-out.enabled=true; без него списки друзей читаются одним
+// обращением к хранилищу (findAllById)
+@Slf4j
+@Component
+public class FanOut {
+
+    // Заголовки запроса с политикой и сроком и заголовок ответа с числом ненайденных из-за ошибок или срока ID
+    public static final String POLICY_HEADER = "X-Lookup-Policy";
+    public static final String TIMEOUT_HEADER = "X-Lookup-Timeout-Ms";
+    public static final String UNRESOLVED_HEADER = "X-Unresolved-Lookups";
+
+    private final boolean enabled;
+    private final int maxConcurrency;
+    private final int minIds;
+    private final Options defaults;
+    private final ThreadFactory threads = Thread.ofVirtual().name("fan-out-", 0).factory();
+
+    public FanOut(@Value("${filmorate.lookups.fan-out.enabled:false}") boolean enabled,
+                  @Value("${filmorate.lookups.fan-out.max-concurrency:32}") int maxConcurrency,
+                  @Value("${filmorate.lookups.fan-out.min-ids:2}") int minIds,
+                  @Value("${filmorate.lookups.fan-out.policy:FAIL}") Policy policy,
+                  @Value("${filmorate.lookups.fan-out.timeout-ms:2000}") long timeoutMillis) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Число одновременных поисков должно быть положительным: "
+                    + maxConcurrency);
+        }
+        this.enabled = enabled;
+        this.maxConcurrency = maxConcurrency;
+        this.minIds = minIds;
+        this.defaults = new Options(policy, timeoutMillis);
+    }
+
+    // Метод applies сообщает, стоит ли искать count сущностей параллельно
+    public boolean applies(int count) {
+        return enabled && count >= minIds;
+    }
+
+    // Метод resolve дополняет параметры запроса значениями по умолчанию из настроек
+    public Options resolve(Options options) {
+        return new Options(options.policy() != null ? options.policy() : defaults.policy(),
+                options.timeoutMillis() != null ? options.timeoutMillis() : defaults.timeoutMillis());
+    }
+
+    // Метод lookup ищет сущности по ids (без повторов) функцией find и возвращает найденные в порядке ids
+    public <T> Result<T> lookup(Collection<Long> ids, Function<Long, Optional<T>> find, Options requested) {
+        Options options = resolve(requested);
+        List<Long> unique = List.copyOf(new LinkedHashSet<>(ids));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.timeoutMillis());
+        Semaphore permits = new Semaphore(maxConcurrency);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<T> found = new ArrayList<>(unique.size());
+        int unresolved = 0;
+        try (ExecutorService scope = Executors.newThreadPerTaskExecutor(threads)) {
+            List<Future<Optional<T>>> lookups = new ArrayList<>(unique.size());
+            for (Long id : unique) {
+                lookups.add(scope.submit(() -> find(id, find, permits, cancelled, deadline)));
+            }
+            for (int i = 0; i < lookups.size(); i++) {
+                try {
+                    lookups.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                            .ifPresent(found::add);
+                } catch (TimeoutException | ExecutionException e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : expired(unique.size());
+                    if (options.policy() == Policy.FAIL) {
+                        // Ожидающие места поиски пропускаются сразу, чтобы закрытие области не ждало их до срока
+                        cancelled.set(true);
+                        permits.release(unique.size());
+                        throw cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+                    }
+                    unresolved++;
+                    log.debug("Поиск ID {} не выполнен: {}", unique.get(i), cause.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw expired(unique.size());
+        }
+        return new Result<>(found, unresolved);
+    }
+
+    // Поиск ждёт свободного места не дольше срока запроса и не начинается после срока или отмены запроса
+    private static <T> Optional<T> find(Long id, Function<Long, Optional<T>> find, Semaphore permits,
+                                        AtomicBoolean cancelled, long deadline) throws InterruptedException {
+        if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            throw expired(1);
+        }
+        try {
+            if (cancelled.get() || System.nanoTime() - deadline >= 0) {
+                throw expired(1);
+            }
+            return find.apply(id);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static DeadlineExceededException expired(int count) {
+        return new DeadlineExceededException("Поиск " + count + " ID не уложился в отведённое время");
+    }
+
+    public enum Policy {
+        FAIL, PARTIAL
+    }
+
+    // Параметры одного запроса; null — значение из настроек
+    public record Options(Policy policy, Long timeoutMillis) {
+
+        public static final Options DEFAULT = new Options(null, null);
+
+        // Метод of разбирает значения заголовков запроса
+        public static Options of(String policy, Long timeoutMillis) {
+            Policy parsed = null;
+            if (policy != null) {
+                try {
+                    parsed = Policy.valueOf(policy.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new ValidationException("Некорректная политика поиска: " + policy + " (ожидается fail "
+                            + "или partial)");
+                }
+            }
+            if (timeoutMillis != null && timeoutMillis <= 0) {
+                throw new ValidationException("Срок поиска должен быть положительным: " + timeoutMillis);
+            }
+            return new Options(parsed, timeoutMillis);
+        }
+    }
+
+    // Результат поиска: найденные сущности и число ID, поиск которых не удался или не уложился в срок
+    // (при политике PARTIAL; при FAIL оно всегда 0)
+    public record Result<T>(List<T> items, int unresolved) {
+
+        public static <T> Result<T> complete(List<T> items) {
+            return new Result<>(items, 0);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ResnapshotRequiredException;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.model.ChangesPage;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Класс ChangeFeed — лента изменений хранилищ с монотонно растущими номерами seq.
+// Хранит последние capacity событий в кольцевом буфере; потребителю, отставшему больше чем на capacity событий,
+// сообщается, что нужно заново получить полный снимок данных.
+// Событие публикуется после записи, поэтому после чтения события сущность в хранилище уже не старше этой записи.
+// Публикация не берёт общей блокировки: номер выдаётся атомарным счётчиком, ячейка буфера записывается через CAS,
+// а читателям видны только события до первого ещё не записанного номера. Блокировка нужна только для списка
+// ожидающих потребителей. Декораторы хранилищ выполняют запись и публикацию её события под блокировкой
+// изменяемого объекта (метод inOrder): сущности для изменения и удаления, пары «фильм — пользователь» для лайка
+// и пары пользователей для дружбы. Так события одного объекта идут в ленте в порядке записей в хранилище,
+// а лайки одного фильма разными пользователями не ждут друг друга
+@Slf4j
+@Component
+public class ChangeFeed {
+
+    // Число блокировок записи: объекты с разными ID почти всегда пишутся параллельно
+    private static final int STRIPE_BITS = 10;
+    private static final int WRITE_STRIPES = 1 << STRIPE_BITS;
+
+    private final AtomicReferenceArray<ChangeEvent> ring;
+    private final ReentrantLock[] writeLocks = new ReentrantLock[WRITE_STRIPES];
+    // Последний выданный номер события
+    private final AtomicLong assignedSeq = new AtomicLong();
+    // Номер последнего события, до которого записаны все события подряд (0 — событий ещё не было)
+    private final AtomicLong lastSeq = new AtomicLong();
+    // Ожидающие новых событий потребители (защищены waitersLock); hasWaiters позволяет публикации
+    // не брать блокировку, пока никто не ждёт
+    private final Object waitersLock = new Object();
+    private List<Runnable> waiters = new ArrayList<>();
+    private volatile boolean hasWaiters;
+
+    public ChangeFeed(@Value("${filmorate.changes.capacity:10000}") int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость ленты изменений должна быть положительной: " + capacity);
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        for (int i = 0; i < WRITE_STRIPES; i++) {
+            writeLocks[i] = new ReentrantLock();
+        }
+    }
+
+    // Метод inOrder выполняет write (запись в хранилище и публикацию её событий) под блокировками всех
+    // затронутых сущностей ids. Без этого две записи одной сущности могли получить номера в обратном порядке.
+    // Блокировки берутся по возрастанию номера, поэтому записи нескольких сущностей не блокируют друг друга насмерть
+    public <T> T inOrder(ChangeEvent.Entity entity, Collection<Long> ids, Supplier<T> write) {
+        int[] stripes = ids.stream().mapToInt(id -> stripeOf(entity, id, null)).sorted().distinct().toArray();
+        int locked = 0;
+        try {
+            for (int stripe : stripes) {
+                writeLocks[stripe].lock();
+                locked++;
+            }
+            return write.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                writeLocks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    public <T> T inOrder(ChangeEvent.Entity entity, Long id, Supplier<T> write) {
+        return locked(stripeOf(entity, id, null), write);
+    }
+
+    // Метод inOrder для связи двух объектов (лайк, дружба) блокирует только эту пару, а не обе сущности целиком.
+    // Пара неупорядоченная: дружба, добавленная как (a, b) и удалённая как (b, a), берёт одну и ту же блокировку
+    public <T> T inOrder(ChangeEvent.Entity entity, Long id, Long relatedId, Supplier<T> write) {
+        return locked(stripeOf(entity, id, relatedId), write);
+    }
+
+    // Метод publish добавляет событие в ленту и будит ожидающих потребителей
+    public void publish(ChangeEvent.Entity entity, ChangeEvent.Type type, Long id, Long relatedId) {
+        long seq = assignedSeq.incrementAndGet();
+        ChangeEvent event = new ChangeEvent(seq, Instant.now(), entity, type, id, relatedId);
+        int slot = slotOf(seq);
+        while (true) {
+            ChangeEvent current = ring.get(slot);
+            // Ячейку уже занял более новый номер (буфер обошёл круг, пока событие готовилось): события seq
+            // никто не прочитает, читатели получат ResnapshotRequiredException
+            if (current != null && current.getSeq() > seq) {
+                break;
+            }
+            if (ring.compareAndSet(slot, current, event)) {
+                break;
+            }
+        }
+        // Будит потребителей тот поток, который сдвинул lastSeq: до этого новые события читателям не видны
+        if (advance() && hasWaiters) {
+            wakeWaiters();
+        }
+    }
+
+    public long lastSeq() {
+        return lastSeq.get();
+    }
+
+    // Метод read возвращает не больше limit событий с номерами больше since.
+    // Если часть этих событий уже вытеснена из буфера или since больше номера последнего события
+    // (например, после перезапуска сервиса), выбрасывается ResnapshotRequiredException
+    public ChangesPage read(long since, int limit) {
+        long last = lastSeq.get();
+        long oldest = Math.max(1, last - ring.length() + 1);
+        if (since < oldest - 1 || since > last) {
+            throw resnapshotRequired(since, oldest, last);
+        }
+        long to = Math.min(last, since + limit);
+        List<ChangeEvent> events = new ArrayList<>((int) (to - since));
+        for (long seq = since + 1; seq <= to; seq++) {
+            ChangeEvent event = ring.get(slotOf(seq));
+            // Пока страница читалась, событие вытеснили более новые
+            if (event == null || event.getSeq() != seq) {
+                throw resnapshotRequired(since, Math.max(1, lastSeq.get() - ring.length() + 1), lastSeq.get());
+            }
+            events.add(event);
+        }
+        return new ChangesPage(events, to, last);
+    }
+
+    // Метод await вызывает listener, как только в ленте появятся события с номерами больше since
+    // (сразу, если они уже есть). Возвращает действие, которое отменяет ожидание
+    public Runnable await(long since, Runnable listener) {
+        if (lastSeq.get() == since) {
+            synchronized (waitersLock) {
+                waiters.add(listener);
+                hasWaiters = true;
+            }
+            // Событие могло быть опубликовано до того, как listener попал в список, и публикация тогда его
+            // не увидела. Если так, listener забирается из списка и вызывается здесь (если его ещё не вызвали)
+            if (lastSeq.get() == since) {
+                return () -> cancel(listener);
+            }
+            if (!cancel(listener)) {
+                return () -> {
+                };
+            }
+        }
+        listener.run();
+        return () -> {
+        };
+    }
+
+    // Метод advance сдвигает lastSeq по записанным подряд событиям. Его вызывает каждый публикующий поток после
+    // записи своего события, поэтому поток, записавший пропущенный номер, продвигает позицию и за уже записанные
+    // следующие. Возвращает true, если этот поток сдвинул lastSeq
+    private boolean advance() {
+        boolean moved = false;
+        while (true) {
+            long last = lastSeq.get();
+            if (last >= assignedSeq.get()) {
+                return moved;
+            }
+            ChangeEvent next = ring.get(slotOf(last + 1));
+            if (next == null || next.getSeq() < last + 1) {
+                return moved;
+            }
+            moved |= lastSeq.compareAndSet(last, last + 1);
+        }
+    }
+
+    private void wakeWaiters() {
+        List<Runnable> ready;
+        synchronized (waitersLock) {
+            if (waiters.isEmpty()) {
+                return;
+            }
+            ready = waiters;
+            waiters = new ArrayList<>();
+            hasWaiters = false;
+        }
+        // Потребители уведомляются вне блокировки, чтобы не задерживать запись следующих событий
+        ready.forEach(Runnable::run);
+    }
+
+    private <T> T locked(int stripe, Supplier<T> write) {
+        ReentrantLock lock = writeLocks[stripe];
+        lock.lock();
+        try {
+            return write.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int slotOf(long seq) {
+        return (int) (seq % ring.length());
+    }
+
+    private static ResnapshotRequiredException resnapshotRequired(long since, long oldest, long last) {
+        log.warn("Запрошены изменения после {}, доступны с {} по {}", since, oldest, last);
+        return new ResnapshotRequiredException(String.format(
+                "Изменения после %d недоступны (в ленте события с %d по %d), нужно заново получить снимок данных",
+                since, oldest, last));
+    }
+
+    // Полоса выбирается по старшим битам мультипликативного хеша. Для пары ID хеш симметричен,
+    // чтобы (a, b) и (b, a) попадали в одну полосу
+    private static int stripeOf(ChangeEvent.Entity entity, Long id, Long relatedId) {
+        int a = Objects.hashCode(id);
+        int b = Objects.hashCode(relatedId);
+        int hash = (Math.min(a, b) * 31 + Math.max(a, b)) * 31 + entity.ordinal();
+        return (hash * 0x9E3779B9) >>> (Integer.SIZE - STRIPE_BITS);
+    }
+
+    // Метод cancel убирает listener из ожидающих; возвращает false, если публикация его уже забрала
+    private boolean cancel(Runnable listener) {
+        synchronized (waitersLock) {
+            return waiters.remove(listener);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+// Конфигурация ленты изменений: при filmorate.changes.enabled=true оборачивает выбранные хранилища фильмов
+// и пользователей в декораторы, публикующие события в ChangeFeed
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "filmorate.changes.enabled", havingValue = "true")
+public class ChangeFeedConfig {
+
+    // Метод статический, чтобы пост-процессор создавался раньше остальных бинов.
+    // Лента запрашивается у контекста только при обёртывании первого хранилища
+    @Bean
+    public static BeanPostProcessor changeFeedStoragePostProcessor(ObjectProvider<ChangeFeed> changeFeed) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof FilmStorage filmStorage && !(bean instanceof ChangeFeedFilmStorage)) {
+                    log.info("Изменения хранилища фильмов {} публикуются в ленту изменений", beanName);
+                    return new ChangeFeedFilmStorage(filmStorage, changeFeed.getObject());
+                }
+                if (bean instanceof UserStorage userStorage && !(bean instanceof ChangeFeedUserStorage)) {
+                    log.info("Изменения хранилища пользователей {} публикуются в ленту изменений", beanName);
+                    return new ChangeFeedUserStorage(userStorage, changeFeed.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static ru.yandex.practicum.filmorate.model.ChangeEvent.Entity.FILM;
+
+// Класс ChangeFeedFilmStorage — декоратор FilmStorage, который после каждой успешной записи
+// публикует событие в ленту изменений. Изменение и удаление фильма выполняются вместе с публикацией под
+// блокировкой фильма в ленте, лайк — под блокировкой пары «фильм — пользователь», поэтому лайки популярного
+// фильма разными пользователями не ждут друг друга, а события одного фильма и одного лайка идут в порядке записей.
+// Чтение передаётся исходному хранилищу без изменений
+public class ChangeFeedFilmStorage implements FilmStorage {
+
+    private final FilmStorage delegate;
+    private final ChangeFeed feed;
+
+    public ChangeFeedFilmStorage(FilmStorage delegate, ChangeFeed feed) {
+        this.delegate = delegate;
+        this.feed = feed;
+    }
+
+    // Созданный фильм до возврата из create никому не известен, поэтому блокировка для него не нужна
+    @Override
+    public Film create(Film film) {
+        Film created = delegate.create(film);
+        feed.publish(FILM, ChangeEvent.Type.CREATED, created.getId(), null);
+        return created;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        List<Film> created = delegate.createAll(films);
+        for (Film film : created) {
+            feed.publish(FILM, ChangeEvent.Type.CREATED, film.getId(), null);
+        }
+        return created;
+    }
+
+    @Override
+    public Film update(Film film) {
+        return feed.inOrder(FILM, film.getId(), () -> {
+            Film updated = delegate.update(film);
+            feed.publish(FILM, ChangeEvent.Type.UPDATED, film.getId(), null);
+            return updated;
+        });
+    }
+
+    @Override
+    public Film update(Film film, long expectedVersion) {
+        return feed.inOrder(FILM, film.getId(), () -> {
+            Film updated = delegate.update(film, expectedVersion);
+            feed.publish(FILM, ChangeEvent.Type.UPDATED, film.getId(), null);
+            return updated;
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<Film> films) {
+        feed.inOrder(FILM, films.stream().map(Film::getId).toList(), () -> {
+            delegate.updateAll(films);
+            for (Film film : films) {
+                feed.publish(FILM, ChangeEvent.Type.UPDATED, film.getId(), null);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(Long id) {
+        feed.inOrder(FILM, id, () -> {
+            delegate.delete(id);
+            feed.publish(FILM, ChangeEvent.Type.DELETED, id, null);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean addLike(Film film, Long userId) {
+        return feed.inOrder(FILM, film.getId(), userId, () -> {
+            boolean added = delegate.addLike(film, userId);
+            if (added) {
+                feed.publish(FILM, ChangeEvent.Type.LIKE_ADDED, film.getId(), userId);
+            }
+            return added;
+        });
+    }
+
+    @Override
+    public boolean removeLike(Film film, Long userId) {
+        return feed.inOrder(FILM, film.getId(), userId, () -> {
+            boolean removed = delegate.removeLike(film, userId);
+            if (removed) {
+                feed.publish(FILM, ChangeEvent.Type.LIKE_REMOVED, film.getId(), userId);
+            }
+            return removed;
+        });
+    }
+
+    @Override
+    public Optional<Film> findById(Long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return delegate.isDefinitelyAbsent(id);
+    }
+
+    @Override
+    public List<Film> findAllById(Collection<Long> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public void forEachLike(FilmLongConsumer consumer) {
+        delegate.forEachLike(consumer);
+    }
+
+    @Override
+    public void forEachLikeCount(FilmLongConsumer consumer) {
+        delegate.forEachLikeCount(consumer);
+    }
+
+    @Override
+    public List<Film> findPage(int from, int size) {
+        return delegate.findPage(from, size);
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        return delegate.findPopular(count);
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        return delegate.search(query, limit);
+    }
+}
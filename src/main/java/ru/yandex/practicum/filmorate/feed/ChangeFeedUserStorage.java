@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.feed;
+
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static ru.yandex.practicum.filmorate.model.ChangeEvent.Entity.USER;
+
+// Класс ChangeFeedUserStorage — декоратор UserStorage, который после каждой успешной записи
+// публикует событие в ленту изменений. Дружба взаимная, поэтому событие публикуется для обоих пользователей,
+// а запись дружбы выполняется под блокировкой этой пары пользователей. Так события каждой дружбы и каждого
+// пользователя идут в порядке записей
+public class ChangeFeedUserStorage implements UserStorage {
+
+    private final UserStorage delegate;
+    private final ChangeFeed feed;
+
+    public ChangeFeedUserStorage(UserStorage delegate, ChangeFeed feed) {
+        this.delegate = delegate;
+        this.feed = feed;
+    }
+
+    // Созданный пользователь до возврата из create никому не известен, поэтому блокировка для него не нужна
+    @Override
+    public User create(User user) {
+        User created = delegate.create(user);
+        feed.publish(USER, ChangeEvent.Type.CREATED, created.getId(), null);
+        return created;
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        List<User> created = delegate.createAll(users);
+        for (User user : created) {
+            feed.publish(USER, ChangeEvent.Type.CREATED, user.getId(), null);
+        }
+        return created;
+    }
+
+    @Override
+    public User update(User user) {
+        return feed.inOrder(USER, user.getId(), () -> {
+            User updated = delegate.update(user);
+            feed.publish(USER, ChangeEvent.Type.UPDATED, user.getId(), null);
+            return updated;
+        });
+    }
+
+    @Override
+    public User update(User user, long expectedVersion) {
+        return feed.inOrder(USER, user.getId(), () -> {
+            User updated = delegate.update(user, expectedVersion);
+            feed.publish(USER, ChangeEvent.Type.UPDATED, user.getId(), null);
+            return updated;
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<User> users) {
+        feed.inOrder(USER, users.stream().map(User::getId).toList(), () -> {
+            delegate.updateAll(users);
+            for (User user : users) {
+                feed.publish(USER, ChangeEvent.Type.UPDATED, user.getId(), null);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(Long id) {
+        feed.inOrder(USER, id, () -> {
+            delegate.delete(id);
+            feed.publish(USER, ChangeEvent.Type.DELETED, id, null);
+            return null;
+        });
+    }
+
+    @Override
+    public void addFriend(User user, User friend) {
+        feed.inOrder(USER, user.getId(), friend.getId(), () -> {
+            delegate.addFriend(user, friend);
+            feed.publish(USER, ChangeEvent.Type.FRIEND_ADDED, user.getId(), friend.getId());
+            feed.publish(USER, ChangeEvent.Type.FRIEND_ADDED, friend.getId(), user.getId());
+            return null;
+        });
+    }
+
+    @Override
+    public void removeFriend(User user, User friend) {
+        feed.inOrder(USER, user.getId(), friend.getId(), () -> {
+            delegate.removeFriend(user, friend);
+            feed.publish(USER, ChangeEvent.Type.FRIEND_REMOVED, user.getId(), friend.getId());
+            feed.publish(USER, ChangeEvent.Type.FRIEND_REMOVED, friend.getId(), user.getId());
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return delegate.isDefinitelyAbsent(id);
+    }
+
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return delegate.existsByEmail(email);
+    }
+
+    @Override
+    public boolean existsByEmailExcept(String email, Long userId) {
+        return delegate.existsByEmailExcept(email, userId);
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        return delegate.findExistingEmails(emails);
+    }
+
+    @Override
+    public List<User> findFriends(User user) {
+        return delegate.findFriends(user);
+    }
+
+    @Override
+    public List<User> findCommonFriends(User user, User other) {
+        return delegate.findCommonFriends(user, other);
+    }
+
+    @Override
+    public List<User> findPage(int from, int size) {
+        return delegate.findPage(from, size);
+    }
+
+    @Override
+    public List<User> search(String query, int limit) {
+        return delegate.search(query, limit);
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.graph;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Класс ConcurrentUnionFind — система непересекающихся множеств над вершинами 0..size-1, которую можно
+// объединять из нескольких потоков без блокировок. Корень всегда присоединяется к корню с меньшим номером
+// через compareAndSet, поэтому ссылки на родителя только уменьшаются и циклы невозможны.
+// Корень каждого множества — его вершина с наименьшим номером
+public class ConcurrentUnionFind {
+
+    private final AtomicIntegerArray parents;
+
+    public ConcurrentUnionFind(int size) {
+        parents = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            parents.set(i, i);
+        }
+    }
+
+    public int size() {
+        return parents.length();
+    }
+
+    // Метод find возвращает корень множества вершины node, по пути укорачивая ссылки (path halving)
+    public int find(int node) {
+        while (true) {
+            int parent = parents.get(node);
+            if (parent == node) {
+                return node;
+            }
+            int grandParent = parents.get(parent);
+            if (parent != grandParent) {
+                parents.compareAndSet(node, parent, grandParent);
+            }
+            node = grandParent;
+        }
+    }
+
+    // Метод union объединяет множества вершин a и b; возвращает false, если они уже были в одном множестве
+    public boolean union(int a, int b) {
+        while (true) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA == rootB) {
+                return false;
+            }
+            int child = Math.max(rootA, rootB);
+            int root = Math.min(rootA, rootB);
+            // Не удалось — child успели присоединить к другому корню, повторяем поиск корней
+            if (parents.compareAndSet(child, child, root)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.graph;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.ResnapshotRequiredException;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.model.ChangesPage;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongSortedSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Класс FriendGraph — неизменяемый снимок графа дружбы: отсортированные ID пользователей и список рёбер
+// в виде пар номеров вершин (каждая дружба один раз, from < to).
+// Снимок снимается без блокировки записи: друзья пользователей копируются из хранилища, а изменения, которые
+// произошли во время копирования, затем применяются из ленты изменений. Для каждой дружбы, изменённой за время
+// копирования, итог определяется её последним событием, поэтому снимок соответствует позиции ленты seq.
+// Если лента выключена (filmorate.changes.enabled=false), событий нет и изменения, произошедшие во время
+// копирования, в снимок могут попасть частично
+@Slf4j
+public final class FriendGraph {
+
+    // Сколько раз пытаться снять снимок, если лента изменений вытеснила события, произошедшие за время копирования
+    private static final int MAX_ATTEMPTS = 3;
+    // Сколько раз перечитывать друзей пользователя, которого изменили во время копирования
+    private static final int MAX_COPY_RETRIES = 10;
+    private static final int PAGE_SIZE = 1000;
+    // Через сколько скопированных пользователей вычитывать новые события ленты
+    private static final int DRAIN_EVERY = 64;
+
+    private final long[] userIds;
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final long seq;
+
+    private FriendGraph(long[] userIds, int[] edgeFrom, int[] edgeTo, long seq) {
+        this.userIds = userIds;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.seq = seq;
+    }
+
+    // Метод capture снимает согласованный снимок графа дружбы; в totalUsers записывается число пользователей
+    // в хранилище, а copiedUsers увеличивается по мере копирования.
+    // События ленты вычитываются и во время копирования, чтобы их не вытеснили новые записи
+    public static FriendGraph capture(UserStorage userStorage, ChangeFeed changeFeed, AtomicLong copiedUsers,
+                                      AtomicLong totalUsers) {
+        for (int attempt = 1; ; attempt++) {
+            copiedUsers.set(0);
+            try {
+                Changes changes = new Changes(changeFeed, changeFeed.lastSeq());
+                Map<Long, long[]> friends = new HashMap<>();
+                Collection<User> users = userStorage.findAll();
+                totalUsers.set(users.size());
+                for (User user : users) {
+                    friends.put(user.getId(), copyFriends(user));
+                    if (copiedUsers.incrementAndGet() % DRAIN_EVERY == 0) {
+                        changes.drain(changeFeed.lastSeq());
+                    }
+                }
+                long until = changeFeed.lastSeq();
+                changes.drain(until);
+                changes.applyTo(friends);
+                return build(friends, until);
+            } catch (ResnapshotRequiredException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.warn("События за время копирования графа дружбы вытеснены из ленты, попытка {}", attempt);
+            }
+        }
+    }
+
+    public int users() {
+        return userIds.length;
+    }
+
+    public int friendships() {
+        return edgeFrom.length;
+    }
+
+    // Позиция ленты изменений, на момент которой снят снимок
+    public long seq() {
+        return seq;
+    }
+
+    public long userId(int node) {
+        return userIds[node];
+    }
+
+    public int from(int edge) {
+        return edgeFrom[edge];
+    }
+
+    public int to(int edge) {
+        return edgeTo[edge];
+    }
+
+    // Друзья пользователя могут меняться во время копирования, тогда HashSet бросает исключение и чтение повторяется
+    private static long[] copyFriends(User user) {
+        for (int retry = 0; ; retry++) {
+            try {
+                Set<Long> friends = user.getFriends();
+                long[] copy = new long[friends.size()];
+                int size = 0;
+                for (Long friendId : friends) {
+                    if (size == copy.length) {
+                        copy = Arrays.copyOf(copy, size * 2 + 1);
+                    }
+                    copy[size++] = friendId;
+                }
+                return size == copy.length ? copy : Arrays.copyOf(copy, size);
+            } catch (ConcurrentModificationException e) {
+                if (retry == MAX_COPY_RETRIES) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Метод build нумерует пользователей по возрастанию ID и переводит дружбы в пары номеров вершин.
+    // Ссылки на пользователей, которых нет в снимке, пропускаются
+    private static FriendGraph build(Map<Long, long[]> friends, long seq) {
+        long[] userIds = new long[friends.size()];
+        int index = 0;
+        for (Long userId : friends.keySet()) {
+            userIds[index++] = userId;
+        }
+        Arrays.sort(userIds);
+        int edges = 0;
+        for (int node = 0; node < userIds.length; node++) {
+            for (long friendId : friends.get(userIds[node])) {
+                if (Arrays.binarySearch(userIds, friendId) > node) {
+                    edges++;
+                }
+            }
+        }
+        int[] edgeFrom = new int[edges];
+        int[] edgeTo = new int[edges];
+        int edge = 0;
+        for (int node = 0; node < userIds.length; node++) {
+            for (long friendId : friends.get(userIds[node])) {
+                int other = Arrays.binarySearch(userIds, friendId);
+                if (other > node) {
+                    edgeFrom[edge] = node;
+                    edgeTo[edge++] = other;
+                }
+            }
+        }
+        return new FriendGraph(userIds, edgeFrom, edgeTo, seq);
+    }
+
+    // События пользователей, вычитанные из ленты после позиции начала копирования
+    private static final class Changes {
+        private final ChangeFeed changeFeed;
+        private final List<ChangeEvent> events = new ArrayList<>();
+        private long position;
+
+        Changes(ChangeFeed changeFeed, long position) {
+            this.changeFeed = changeFeed;
+            this.position = position;
+        }
+
+        // Метод drain вычитывает события с номерами до until включительно
+        void drain(long until) {
+            while (position < until) {
+                ChangesPage page = changeFeed.read(position, (int) Math.min(PAGE_SIZE, until - position));
+                for (ChangeEvent event : page.getEvents()) {
+                    if (event.getEntity() == ChangeEvent.Entity.USER) {
+                        events.add(event);
+                    }
+                }
+                position = page.getNext();
+            }
+        }
+
+        // Метод applyTo применяет события к скопированным друзьям по порядку номеров. События дружбы публикуются
+        // для обоих пользователей, поэтому каждое событие меняет друзей только пользователя id.
+        // Дружба и удаление пользователя пишутся под разными блокировками ленты, поэтому событие дружбы может
+        // оказаться в ленте после удаления; ID не выдаются повторно, так что такие события пропускаются
+        void applyTo(Map<Long, long[]> friends) {
+            Map<Long, LongSortedSet> changed = new HashMap<>();
+            Set<Long> deleted = new HashSet<>();
+            for (ChangeEvent event : events) {
+                if (event.getType() == ChangeEvent.Type.DELETED) {
+                    deleted.add(event.getId());
+                }
+            }
+            for (ChangeEvent event : events) {
+                Long userId = event.getId();
+                if (deleted.contains(userId) && event.getType() != ChangeEvent.Type.DELETED) {
+                    continue;
+                }
+                switch (event.getType()) {
+                    case CREATED -> friends.putIfAbsent(userId, new long[0]);
+                    case DELETED -> {
+                        friends.remove(userId);
+                        changed.remove(userId);
+                    }
+                    case FRIEND_ADDED -> changedFriends(userId, friends, changed).add(event.getRelatedId());
+                    case FRIEND_REMOVED -> changedFriends(userId, friends, changed).remove(event.getRelatedId());
+                    default -> {
+                    }
+                }
+            }
+            changed.forEach((userId, set) -> friends.put(userId, set.after(0, set.size())));
+        }
+
+        private static LongSortedSet changedFriends(Long userId, Map<Long, long[]> friends,
+                                                    Map<Long, LongSortedSet> changed) {
+            return changed.computeIfAbsent(userId, id -> {
+                LongSortedSet set = new LongSortedSet();
+                for (long friendId : friends.getOrDefault(id, new long[0])) {
+                    set.add(friendId);
+                }
+                return set;
+            });
+        }
+    }
+}
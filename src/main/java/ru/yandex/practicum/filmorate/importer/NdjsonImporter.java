@@ -0,0 +1,304 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.StripedLongSet;
+import ru.yandex.practicum.filmorate.validation.EntityValidation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+// Класс NdjsonImporter загружает фильмы и пользователей из NDJSON (один JSON-объект на строку) потоком, не читая
+// весь файл в память. Строки читаются пакетами по batchSize; разбор и проверка строк пакета идут параллельно
+// в собственном пуле, пока предыдущий пакет сохраняется, а сохраняется пакет одним вызовом createAll
+// (хранилище выделяет ID блоком). Некорректная строка не прерывает импорт: она попадает в отчёт с номером
+// и причиной. ID, лайки и друзья из файла не переносятся — ID выдаёт хранилище, а ссылки на ID исходной
+// системы здесь ничего не значат. Уже сохранённые пакеты при сбое хранилища не откатываются
+@Slf4j
+@Component
+public class NdjsonImporter implements AutoCloseable {
+
+    // Тип содержимого запроса импорта
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final ObjectReader filmReader;
+    private final ObjectReader userReader;
+    private final int batchSize;
+    private final int maxErrors;
+    private final ForkJoinPool pool;
+
+    public NdjsonImporter(FilmStorage filmStorage, UserStorage userStorage, ObjectMapper objectMapper,
+                          @Value("${filmorate.import.batch-size:4096}") int batchSize,
+                          @Value("${filmorate.import.parallelism:0}") int parallelism,
+                          @Value("${filmorate.import.max-errors:1000}") int maxErrors) {
+        if (batchSize <= 0 || maxErrors < 0) {
+            throw new IllegalArgumentException("Размер пакета импорта должен быть положительным, "
+                    + "а число ошибок в отчёте — неотрицательным");
+        }
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.filmReader = objectMapper.readerFor(Film.class);
+        this.userReader = objectMapper.readerFor(User.class);
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    // Метод importFilms загружает фильмы; строка принимается, если проходит проверки POST /films
+    public Report importFilms(InputStream input) {
+        return run("films", input, filmReader, this::prepareFilm, this::writeFilms);
+    }
+
+    // Метод importUsers загружает пользователей; строка принимается, если проходит проверки POST /users
+    // и её email не занят ни в хранилище, ни более ранней строкой файла
+    public Report importUsers(InputStream input) {
+        LocalDate today = LocalDate.now();
+        return run("users", input, userReader, user -> prepareUser(user, today), this::writeUsers);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private <T> Report run(String entity, InputStream input, ObjectReader reader, Function<T, String> prepare,
+                           ToIntFunction<Batch<T>> write) {
+        long start = System.nanoTime();
+        Progress progress = new Progress();
+        BufferedReader lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        // Пока разбирается пакет N, сохраняется пакет N - 1
+        ForkJoinTask<Batch<T>> pending = null;
+        Batch<T> batch;
+        while ((batch = readBatch(lines, progress.lines + 1)) != null) {
+            progress.lines += batch.size();
+            Batch<T> next = batch;
+            ForkJoinTask<Batch<T>> parsed = pool.submit(() -> parse(next, reader, prepare));
+            if (pending != null) {
+                complete(pending.join(), write, progress);
+            }
+            pending = parsed;
+        }
+        if (pending != null) {
+            complete(pending.join(), write, progress);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        Report report = new Report(entity, progress.lines, progress.imported, progress.rejected,
+                progress.errors, progress.rejected > progress.errors.size(), elapsedMillis,
+                progress.imported * 1000 / Math.max(1, elapsedMillis));
+        log.info("Импорт {}: строк {}, загружено {}, отклонено {} за {} мс ({} записей/с)", entity, report.lines(),
+                report.imported(), report.rejected(), elapsedMillis, report.recordsPerSecond());
+        return report;
+    }
+
+    private <T> Batch<T> readBatch(BufferedReader reader, long firstLine) {
+        List<String> lines = new ArrayList<>(batchSize);
+        try {
+            String line;
+            while (lines.size() < batchSize && (line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать строку " + (firstLine + lines.size()), e);
+        }
+        return lines.isEmpty() ? null : new Batch<>(firstLine, lines);
+    }
+
+    // Метод parse разбирает и проверяет строки пакета параллельно; пустые строки пропускаются
+    private <T> Batch<T> parse(Batch<T> batch, ObjectReader reader, Function<T, String> prepare) {
+        IntStream.range(0, batch.size()).parallel().forEach(i -> {
+            String line = batch.lines.get(i);
+            if (line.isBlank()) {
+                return;
+            }
+            T value;
+            try {
+                value = reader.readValue(line);
+            } catch (JsonProcessingException e) {
+                batch.reject(i, "Некорректный JSON: " + e.getOriginalMessage());
+                return;
+            }
+            if (value == null) {
+                batch.reject(i, "Строка должна содержать JSON-объект");
+                return;
+            }
+            String error = prepare.apply(value);
+            if (error != null) {
+                batch.reject(i, error);
+            } else {
+                batch.values[i] = value;
+            }
+        });
+        return batch;
+    }
+
+    // Метод complete сохраняет пакет и переносит его ошибки в отчёт в порядке строк
+    private <T> void complete(Batch<T> batch, ToIntFunction<Batch<T>> write, Progress progress) {
+        progress.imported += write.applyAsInt(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.errors[i] != null) {
+                progress.rejected++;
+                if (progress.errors.size() < maxErrors) {
+                    progress.errors.add(new LineError(batch.firstLine + i, batch.errors[i]));
+                }
+            }
+        }
+    }
+
+    private String prepareFilm(Film film) {
+        String error = EntityValidation.filmError(film);
+        if (error == null) {
+            film.setId(null);
+            if (!film.getLikes().isEmpty()) {
+                film.setLikes(new StripedLongSet());
+            }
+        }
+        return error;
+    }
+
+    private String prepareUser(User user, LocalDate today) {
+        String error = EntityValidation.userError(user, today);
+        if (error == null) {
+            user.setId(null);
+            user.getFriends().clear();
+            // Если имя пользователя пустое или не указано, устанавливаем его равным логину (как в POST /users)
+            if (user.getName() == null || user.getName().isBlank()) {
+                user.setName(user.getLogin());
+            }
+        }
+        return error;
+    }
+
+    private int writeFilms(Batch<Film> batch) {
+        List<Film> films = batch.accepted();
+        filmStorage.createAll(films);
+        return films.size();
+    }
+
+    // Метод writeUsers проверяет занятость email всего пакета одним вызовом хранилища: более ранние пакеты
+    // к этому моменту уже сохранены, поэтому повтор email из них тоже будет найден. Если email между проверкой
+    // и записью занял другой запрос, хранилище отклоняет весь пакет, и он записывается по одному пользователю
+    private int writeUsers(Batch<User> batch) {
+        List<User> users = batch.accepted();
+        if (users.isEmpty()) {
+            return 0;
+        }
+        List<String> emails = new ArrayList<>(users.size());
+        for (User user : users) {
+            emails.add(user.getEmail());
+        }
+        Set<String> taken = new HashSet<>(userStorage.findExistingEmails(emails));
+        for (int i = 0; i < batch.size(); i++) {
+            User user = batch.value(i);
+            if (user != null && !taken.add(user.getEmail())) {
+                batch.reject(i, "Этот email уже используется");
+            }
+        }
+        users = batch.accepted();
+        try {
+            userStorage.createAll(users);
+            return users.size();
+        } catch (DuplicatedDataException e) {
+            log.debug("Пакет пользователей со строки {} записывается по одному: {}", batch.firstLine, e.getMessage());
+            return writeUsersOneByOne(batch);
+        }
+    }
+
+    private int writeUsersOneByOne(Batch<User> batch) {
+        int written = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            User user = batch.value(i);
+            if (user == null) {
+                continue;
+            }
+            try {
+                userStorage.create(user);
+                written++;
+            } catch (DuplicatedDataException e) {
+                batch.reject(i, e.getMessage());
+            }
+        }
+        return written;
+    }
+
+    // Пакет строк: values[i] — принятая сущность строки firstLine + i, errors[i] — причина отказа.
+    // Разные i заполняются разными потоками разбора, а читаются после join, поэтому синхронизация не нужна
+    private static final class Batch<T> {
+        private final long firstLine;
+        private final List<String> lines;
+        private final Object[] values;
+        private final String[] errors;
+
+        Batch(long firstLine, List<String> lines) {
+            this.firstLine = firstLine;
+            this.lines = lines;
+            this.values = new Object[lines.size()];
+            this.errors = new String[lines.size()];
+        }
+
+        int size() {
+            return lines.size();
+        }
+
+        @SuppressWarnings("unchecked")
+        T value(int i) {
+            return (T) values[i];
+        }
+
+        void reject(int i, String error) {
+            values[i] = null;
+            errors[i] = error;
+        }
+
+        List<T> accepted() {
+            List<T> accepted = new ArrayList<>(values.length);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    accepted.add(value(i));
+                }
+            }
+            return accepted;
+        }
+    }
+
+    private static final class Progress {
+        private final List<LineError> errors = new ArrayList<>();
+        private long lines;
+        private long imported;
+        private long rejected;
+    }
+
+    // Отчёт об импорте: lines — прочитано строк (включая пустые), errors — первые maxErrors отклонённых строк
+    // (errorsTruncated — отклонено больше), recordsPerSecond — загружено записей в секунду
+    public record Report(String entity, long lines, long imported, long rejected, List<LineError> errors,
+                         boolean errorsTruncated, long elapsedMillis, long recordsPerSecond) {
+    }
+
+    // Отклонённая строка файла (нумерация с 1) и причина
+    public record LineError(long line, String message) {
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+// Конфигурация событий JFR для хранилищ: оборачивает хранилища фильмов и пользователей в декораторы,
+// которые во время записи JFR замеряют вызовы и записывают StorageEvent для вызовов дольше порога.
+// Включается свойством filmorate.jfr.storage-events=true на время диагностики
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "filmorate.jfr.storage-events", havingValue = "true")
+public class FlightRecorderConfig {
+
+    // Метод статический, чтобы пост-процессор создавался раньше остальных бинов
+    @Bean
+    public static BeanPostProcessor flightRecorderStoragePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof FilmStorage filmStorage && !(bean instanceof FlightRecorderFilmStorage)) {
+                    log.info("Вызовы хранилища фильмов {} записываются в события JFR", beanName);
+                    return new FlightRecorderFilmStorage(filmStorage);
+                }
+                if (bean instanceof UserStorage userStorage && !(bean instanceof FlightRecorderUserStorage)) {
+                    log.info("Вызовы хранилища пользователей {} записываются в события JFR", beanName);
+                    return new FlightRecorderUserStorage(userStorage);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Класс FlightRecorderFilmStorage — декоратор FilmStorage, который во время записи JFR замеряет вызовы
+// хранилища фильмов и записывает StorageEvent для вызовов дольше порога. Без записи вызовы идут напрямую
+public class FlightRecorderFilmStorage implements FilmStorage {
+
+    private final FilmStorage delegate;
+    private final StorageRecorder recorder = new StorageRecorder("films");
+
+    public FlightRecorderFilmStorage(FilmStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Film create(Film film) {
+        if (!recorder.enabled()) {
+            return delegate.create(film);
+        }
+        return recorder.record("create", null, -1, () -> delegate.create(film));
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        if (!recorder.enabled()) {
+            return delegate.createAll(films);
+        }
+        return recorder.record("createAll", null, films.size(), () -> delegate.createAll(films));
+    }
+
+    @Override
+    public Film update(Film film) {
+        if (!recorder.enabled()) {
+            return delegate.update(film);
+        }
+        return recorder.record("update", film.getId(), -1, () -> delegate.update(film));
+    }
+
+    @Override
+    public Film update(Film film, long expectedVersion) {
+        if (!recorder.enabled()) {
+            return delegate.update(film, expectedVersion);
+        }
+        return recorder.record("update", film.getId(), -1, () -> delegate.update(film, expectedVersion));
+    }
+
+    @Override
+    public void updateAll(Collection<Film> films) {
+        if (!recorder.enabled()) {
+            delegate.updateAll(films);
+            return;
+        }
+        recorder.record("updateAll", null, films.size(), () -> {
+            delegate.updateAll(films);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(Long id) {
+        if (!recorder.enabled()) {
+            delegate.delete(id);
+            return;
+        }
+        recorder.record("delete", id, -1, () -> {
+            delegate.delete(id);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean addLike(Film film, Long userId) {
+        if (!recorder.enabled()) {
+            return delegate.addLike(film, userId);
+        }
+        return recorder.record("addLike", film.getId(), -1, () -> delegate.addLike(film, userId));
+    }
+
+    @Override
+    public boolean removeLike(Film film, Long userId) {
+        if (!recorder.enabled()) {
+            return delegate.removeLike(film, userId);
+        }
+        return recorder.record("removeLike", film.getId(), -1, () -> delegate.removeLike(film, userId));
+    }
+
+    @Override
+    public Optional<Film> findById(Long id) {
+        if (!recorder.enabled()) {
+            return delegate.findById(id);
+        }
+        return recorder.record("findById", id, -1, () -> delegate.findById(id));
+    }
+
+    // Проверка фильтра Блума не обращается к данным, поэтому не замеряется
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return delegate.isDefinitelyAbsent(id);
+    }
+
+    @Override
+    public List<Film> findAllById(Collection<Long> ids) {
+        if (!recorder.enabled()) {
+            return delegate.findAllById(ids);
+        }
+        return recorder.record("findAllById", null, ids.size(), () -> delegate.findAllById(ids));
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        if (!recorder.enabled()) {
+            return delegate.findAll();
+        }
+        return recorder.record("findAll", null, -1, delegate::findAll);
+    }
+
+    @Override
+    public void forEachLike(FilmLongConsumer consumer) {
+        if (!recorder.enabled()) {
+            delegate.forEachLike(consumer);
+            return;
+        }
+        recorder.record("forEachLike", null, -1, () -> {
+            delegate.forEachLike(consumer);
+            return null;
+        });
+    }
+
+    @Override
+    public void forEachLikeCount(FilmLongConsumer consumer) {
+        if (!recorder.enabled()) {
+            delegate.forEachLikeCount(consumer);
+            return;
+        }
+        recorder.record("forEachLikeCount", null, -1, () -> {
+            delegate.forEachLikeCount(consumer);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Film> findPage(int from, int size) {
+        if (!recorder.enabled()) {
+            return delegate.findPage(from, size);
+        }
+        return recorder.record("findPage", null, -1, () -> delegate.findPage(from, size));
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        if (!recorder.enabled()) {
+            return delegate.findPopular(count);
+        }
+        return recorder.record("findPopular", null, -1, () -> delegate.findPopular(count));
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        if (!recorder.enabled()) {
+            return delegate.search(query, limit);
+        }
+        return recorder.record("search", null, -1, () -> delegate.search(query, limit));
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// Класс FlightRecorderService запускает и останавливает запись JFR с событиями Filmorate.
+// Порог задаётся при запуске: записываются только операции дольше него. При остановке запись сохраняется
+// в файл в каталоге filmorate.jfr.directory. Одновременно идёт не больше одной такой записи
+@Slf4j
+@Service
+public class FlightRecorderService {
+
+    private static final List<Class<? extends Event>> EVENTS = List.of(LikeEvent.class, PopularFilmsEvent.class,
+            FriendshipEvent.class, StorageEvent.class);
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+            .withZone(ZoneId.systemDefault());
+
+    private final Path directory;
+    // Текущая запись и её параметры (защищены this)
+    private Recording recording;
+    private Info current;
+
+    public FlightRecorderService(
+            @Value("${filmorate.jfr.directory:${java.io.tmpdir}/filmorate-jfr}") String directory) {
+        this.directory = Path.of(directory);
+    }
+
+    // Метод start запускает запись событий Filmorate дольше thresholdMs. Если jdkEvents = true, вместе с ними
+    // записываются стандартные события JVM из настройки default (GC, блокировки, потоки)
+    public synchronized Info start(long thresholdMs, boolean jdkEvents) {
+        if (thresholdMs < 0) {
+            throw new ValidationException("Порог записи событий не может быть отрицательным");
+        }
+        if (recording != null) {
+            throw new ConflictException("Запись JFR уже идёт с " + current.startedAt());
+        }
+        Recording next = jdkEvents ? new Recording(defaultConfiguration()) : new Recording();
+        next.setName("filmorate");
+        for (Class<? extends Event> type : EVENTS) {
+            next.enable(type).withThreshold(Duration.ofMillis(thresholdMs));
+        }
+        next.start();
+        recording = next;
+        current = new Info("RECORDING", Instant.now(), thresholdMs, jdkEvents, null, null);
+        log.info("Запущена запись JFR: порог {} мс, события JVM: {}", thresholdMs, jdkEvents);
+        return current;
+    }
+
+    // Метод stop останавливает запись и сохраняет её в файл, путь к которому возвращается в ответе
+    public synchronized Info stop() {
+        if (recording == null) {
+            throw new ConflictException("Запись JFR не запущена");
+        }
+        Path file = directory.resolve("filmorate-" + FILE_TIME.format(current.startedAt()) + "-"
+                + recording.getId() + ".jfr");
+        try {
+            recording.stop();
+            Files.createDirectories(directory);
+            recording.dump(file);
+            Info stopped = new Info("STOPPED", current.startedAt(), current.thresholdMs(), current.jdkEvents(),
+                    file.toAbsolutePath().toString(), Files.size(file));
+            log.info("Запись JFR сохранена: {}", stopped);
+            return stopped;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось сохранить запись JFR в " + file, e);
+        } finally {
+            recording.close();
+            recording = null;
+            current = null;
+        }
+    }
+
+    // Метод status возвращает параметры текущей записи или состояние IDLE, если запись не идёт
+    public synchronized Info status() {
+        return current != null ? current : new Info("IDLE", null, null, false, null, null);
+    }
+
+    private static Configuration defaultConfiguration() {
+        try {
+            return Configuration.getConfiguration("default");
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Не удалось прочитать настройку JFR default", e);
+        }
+    }
+
+    // Состояние записи; file и bytes заполняются после остановки
+    public record Info(String state, Instant startedAt, Long thresholdMs, boolean jdkEvents, String file,
+                       Long bytes) {
+    }
+}
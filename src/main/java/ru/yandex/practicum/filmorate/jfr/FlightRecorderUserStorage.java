@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Класс FlightRecorderUserStorage — декоратор UserStorage, который во время записи JFR замеряет вызовы
+// хранилища пользователей и записывает StorageEvent для вызовов дольше порога. Без записи вызовы идут напрямую
+public class FlightRecorderUserStorage implements UserStorage {
+
+    private final UserStorage delegate;
+    private final StorageRecorder recorder = new StorageRecorder("users");
+
+    public FlightRecorderUserStorage(UserStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public User create(User user) {
+        if (!recorder.enabled()) {
+            return delegate.create(user);
+        }
+        return recorder.record("create", null, -1, () -> delegate.create(user));
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        if (!recorder.enabled()) {
+            return delegate.createAll(users);
+        }
+        return recorder.record("createAll", null, users.size(), () -> delegate.createAll(users));
+    }
+
+    @Override
+    public User update(User user) {
+        if (!recorder.enabled()) {
+            return delegate.update(user);
+        }
+        return recorder.record("update", user.getId(), -1, () -> delegate.update(user));
+    }
+
+    @Override
+    public User update(User user, long expectedVersion) {
+        if (!recorder.enabled()) {
+            return delegate.update(user, expectedVersion);
+        }
+        return recorder.record("update", user.getId(), -1, () -> delegate.update(user, expectedVersion));
+    }
+
+    @Override
+    public void updateAll(Collection<User> users) {
+        if (!recorder.enabled()) {
+            delegate.updateAll(users);
+            return;
+        }
+        recorder.record("updateAll", null, users.size(), () -> {
+            delegate.updateAll(users);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(Long id) {
+        if (!recorder.enabled()) {
+            delegate.delete(id);
+            return;
+        }
+        recorder.record("delete", id, -1, () -> {
+            delegate.delete(id);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        if (!recorder.enabled()) {
+            return delegate.findById(id);
+        }
+        return recorder.record("findById", id, -1, () -> delegate.findById(id));
+    }
+
+    // Проверка фильтра Блума не обращается к данным, поэтому не замеряется
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return delegate.isDefinitelyAbsent(id);
+    }
+
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        if (!recorder.enabled()) {
+            return delegate.findAllById(ids);
+        }
+        return recorder.record("findAllById", null, ids.size(), () -> delegate.findAllById(ids));
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        if (!recorder.enabled()) {
+            return delegate.findAll();
+        }
+        return recorder.record("findAll", null, -1, delegate::findAll);
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        if (!recorder.enabled()) {
+            return delegate.existsByEmail(email);
+        }
+        return recorder.record("existsByEmail", null, -1, () -> delegate.existsByEmail(email));
+    }
+
+    @Override
+    public boolean existsByEmailExcept(String email, Long userId) {
+        if (!recorder.enabled()) {
+            return delegate.existsByEmailExcept(email, userId);
+        }
+        return recorder.record("existsByEmailExcept", userId, -1, () -> delegate.existsByEmailExcept(email, userId));
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        if (!recorder.enabled()) {
+            return delegate.findExistingEmails(emails);
+        }
+        return recorder.record("findExistingEmails", null, emails.size(), () -> delegate.findExistingEmails(emails));
+    }
+
+    @Override
+    public void addFriend(User user, User friend) {
+        if (!recorder.enabled()) {
+            delegate.addFriend(user, friend);
+            return;
+        }
+        recorder.record("addFriend", user.getId(), -1, () -> {
+            delegate.addFriend(user, friend);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeFriend(User user, User friend) {
+        if (!recorder.enabled()) {
+            delegate.removeFriend(user, friend);
+            return;
+        }
+        recorder.record("removeFriend", user.getId(), -1, () -> {
+            delegate.removeFriend(user, friend);
+            return null;
+        });
+    }
+
+    @Override
+    public List<User> findFriends(User user) {
+        if (!recorder.enabled()) {
+            return delegate.findFriends(user);
+        }
+        return recorder.record("findFriends", user.getId(), -1, () -> delegate.findFriends(user));
+    }
+
+    @Override
+    public List<User> findCommonFriends(User user, User other) {
+        if (!recorder.enabled()) {
+            return delegate.findCommonFriends(user, other);
+        }
+        return recorder.record("findCommonFriends", user.getId(), -1, () -> delegate.findCommonFriends(user, other));
+    }
+
+    @Override
+    public List<User> findPage(int from, int size) {
+        if (!recorder.enabled()) {
+            return delegate.findPage(from, size);
+        }
+        return recorder.record("findPage", null, -1, () -> delegate.findPage(from, size));
+    }
+
+    @Override
+    public List<User> search(String query, int limit) {
+        if (!recorder.enabled()) {
+            return delegate.search(query, limit);
+        }
+        return recorder.record("search", null, -1, () -> delegate.search(query, limit));
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Событие JFR для операций UserService с дружбой. Поля заполняются только для операций дольше порога
+@Name("filmorate.Friendship")
+@Label("Friendship")
+@Category({"Filmorate", "Users"})
+@Description("Добавление или удаление друга, получение друзей и общих друзей")
+@StackTrace(false)
+@Threshold("20 ms")
+public class FriendshipEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("User Id")
+    long userId;
+
+    @Label("Other User Id")
+    @Description("ID второго пользователя, 0 — если операция касается одного пользователя")
+    long otherUserId;
+
+    @Label("User Friends")
+    @Description("Количество друзей пользователя после операции, -1 — не вычислялось")
+    int userFriends;
+
+    @Label("Other User Friends")
+    @Description("Количество друзей второго пользователя после операции, -1 — не вычислялось")
+    int otherUserFriends;
+
+    @Label("Result Size")
+    @Description("Размер возвращённого списка, -1 — операция ничего не возвращает")
+    int resultSize;
+
+    // Метод finish завершает замер и записывает событие, если операция оказалась дольше порога
+    public void finish(String operation, long userId, long otherUserId, int userFriends, int otherUserFriends,
+                       int resultSize) {
+        end();
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.userId = userId;
+            this.otherUserId = otherUserId;
+            this.userFriends = userFriends;
+            this.otherUserFriends = otherUserFriends;
+            this.resultSize = resultSize;
+            commit();
+        }
+    }
+}
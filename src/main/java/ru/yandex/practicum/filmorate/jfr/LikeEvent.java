@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Событие JFR для FilmService.addLike и removeLike. Поля заполняются только для операций дольше порога
+@Name("filmorate.Like")
+@Label("Like")
+@Category({"Filmorate", "Films"})
+@Description("Добавление или удаление лайка фильму")
+@StackTrace(false)
+@Threshold("20 ms")
+public class LikeEvent extends Event {
+
+    @Label("Film Id")
+    long filmId;
+
+    @Label("User Id")
+    long userId;
+
+    @Label("Added")
+    @Description("true — лайк добавлялся, false — удалялся")
+    boolean added;
+
+    @Label("Changed")
+    @Description("Изменилось ли множество лайков (повторный лайк его не меняет)")
+    boolean changed;
+
+    @Label("Like Count")
+    int likeCount;
+
+    // Метод finish завершает замер и записывает событие, если операция оказалась дольше порога
+    public void finish(long filmId, long userId, boolean added, boolean changed, int likeCount) {
+        end();
+        if (shouldCommit()) {
+            this.filmId = filmId;
+            this.userId = userId;
+            this.added = added;
+            this.changed = changed;
+            this.likeCount = likeCount;
+            commit();
+        }
+    }
+}
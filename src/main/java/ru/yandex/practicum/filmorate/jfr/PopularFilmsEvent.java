@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// Событие JFR для FilmService.getPopularFilms. Поля заполняются только для запросов дольше порога
+@Name("filmorate.PopularFilms")
+@Label("Popular Films")
+@Category({"Filmorate", "Films"})
+@Description("Получение списка популярных фильмов")
+@StackTrace(false)
+@Threshold("20 ms")
+public class PopularFilmsEvent extends Event {
+
+    @Label("Count")
+    int count;
+
+    @Label("Returned")
+    int returned;
+
+    @Label("Approximate")
+    @Description("Ответ построен по приближённой сводке популярности")
+    boolean approximate;
+
+    // Метод finish завершает замер и записывает событие, если запрос оказался дольше порога
+    public void finish(int count, int returned, boolean approximate) {
+        end();
+        if (shouldCommit()) {
+            this.count = count;
+            this.returned = returned;
+            this.approximate = approximate;
+            commit();
+        }
+    }
+}
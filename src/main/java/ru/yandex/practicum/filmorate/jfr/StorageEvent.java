@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.util.Collection;
+import java.util.Optional;
+
+// Событие JFR для вызова метода FilmStorage или UserStorage. Поля заполняются только для вызовов дольше порога
+@Name("filmorate.Storage")
+@Label("Storage Call")
+@Category({"Filmorate", "Storage"})
+@Description("Вызов метода хранилища фильмов или пользователей")
+@StackTrace(false)
+@Threshold("10 ms")
+public class StorageEvent extends Event {
+
+    @Label("Storage")
+    String storage;
+
+    @Label("Method")
+    String method;
+
+    @Label("Entity Id")
+    @Description("ID фильма или пользователя из первого аргумента, 0 — если его нет")
+    long entityId;
+
+    @Label("Argument Size")
+    @Description("Размер коллекции в аргументах (например, ID для findAllById), -1 — если её нет")
+    int argumentSize;
+
+    @Label("Result Size")
+    @Description("Размер результата: элементы коллекции, 1/0 для Optional и boolean, -1 — для остальных")
+    int resultSize;
+
+    @Label("Failed")
+    boolean failed;
+
+    // Метод finish завершает замер и, если вызов оказался дольше порога, заполняет поля и записывает событие
+    void finish(String storage, String method, long entityId, int argumentSize, Object result, boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.storage = storage;
+            this.method = method;
+            this.entityId = entityId;
+            this.argumentSize = argumentSize;
+            this.resultSize = failed ? -1 : size(result);
+            this.failed = failed;
+            commit();
+        }
+    }
+
+    private static int size(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        }
+        if (result instanceof Boolean flag) {
+            return flag ? 1 : 0;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.jfr;
+
+import jdk.jfr.EventType;
+
+import java.util.function.Supplier;
+
+// Класс StorageRecorder замеряет вызовы одного хранилища и записывает их в StorageEvent.
+// Декораторы спрашивают enabled() до замера: без идущей записи JFR вызов передаётся хранилищу напрямую,
+// без создания события и лямбды
+final class StorageRecorder {
+
+    private static final EventType EVENT_TYPE = EventType.getEventType(StorageEvent.class);
+
+    private final String storage;
+
+    StorageRecorder(String storage) {
+        this.storage = storage;
+    }
+
+    // Метод enabled сообщает, включено ли событие StorageEvent в какой-нибудь идущей записи JFR
+    boolean enabled() {
+        return EVENT_TYPE.isEnabled();
+    }
+
+    // Метод record выполняет вызов call и записывает событие, если вызов оказался дольше порога.
+    // entityId — ID фильма или пользователя (null, если его нет), argumentSize — размер коллекции в аргументах
+    <T> T record(String method, Long entityId, int argumentSize, Supplier<T> call) {
+        StorageEvent event = new StorageEvent();
+        event.begin();
+        T result = null;
+        boolean failed = true;
+        try {
+            result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            event.finish(storage, method, entityId == null ? 0 : entityId, argumentSize, result, failed);
+        }
+    }
+}
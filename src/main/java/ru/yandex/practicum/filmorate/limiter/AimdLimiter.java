@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.limiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Класс AimdLimiter ограничивает число одновременно выполняемых запросов адаптивным лимитом.
+ * Лимит растёт аддитивно, пока задержка запросов не превышает целевую, и уменьшается мультипликативно,
+ * как только задержка её превышает (AIMD). Запрос сверх лимита сразу отклоняется, а не ставится в очередь.
+ * Лимит уменьшается не чаще одного раза за окно: медленные запросы, начатые до предыдущего уменьшения,
+ * отражают прежнюю нагрузку и лимит повторно не уменьшают. Состояние меняется без общей блокировки.
+ */
+public class AimdLimiter {
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+    // Текущий лимит (биты double, меняется через compareAndSet)
+    private final AtomicLong limitBits;
+    // Момент последнего уменьшения лимита по System.nanoTime
+    private final AtomicLong lastBackoffNanos = new AtomicLong(System.nanoTime());
+
+    public AimdLimiter(String name, int initialLimit, int minLimit, int maxLimit, long targetLatencyMillis,
+                       double backoffRatio) {
+        if (minLimit <= 0 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Некорректные границы лимита " + name + ": " + minLimit + ".." + maxLimit);
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatencyMillis * 1_000_000;
+        this.backoffRatio = backoffRatio;
+        double limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(limit));
+    }
+
+    // Метод tryAcquire занимает место для запроса; возвращает false, если лимит исчерпан
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit()) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Метод release освобождает место и корректирует лимит по измеренной задержке запроса
+    public void release(long latencyNanos) {
+        int current = inFlight.getAndDecrement();
+        if (latencyNanos > targetLatencyNanos) {
+            long now = System.nanoTime();
+            long last = lastBackoffNanos.get();
+            // Запрос начался после предыдущего уменьшения, и уменьшение в этом окне ещё никто не выполнил
+            if (now - latencyNanos - last >= 0 && lastBackoffNanos.compareAndSet(last, now)) {
+                updateLimit(limit -> Math.max(minLimit, limit * backoffRatio));
+            }
+        } else if (current * 2 >= limit()) {
+            // Увеличиваем лимит только когда он действительно используется хотя бы наполовину:
+            // прибавка 1 / limit за запрос даёт примерно +1 за каждый "оборот" лимита
+            updateLimit(limit -> Math.min(maxLimit, limit + 1.0 / limit));
+        }
+    }
+
+    // Метод release без задержки освобождает место, не меняя лимит: для запросов, длительность которых
+    // не говорит о перегрузке (потоковая выгрузка и импорт, длинный опрос)
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(name, (int) limit(), inFlight.get(), rejected.get());
+    }
+
+    private double limit() {
+        return Double.longBitsToDouble(limitBits.get());
+    }
+
+    private void updateLimit(DoubleUnaryOperator change) {
+        while (true) {
+            long bits = limitBits.get();
+            long next = Double.doubleToLongBits(change.applyAsDouble(Double.longBitsToDouble(bits)));
+            if (bits == next || limitBits.compareAndSet(bits, next)) {
+                return;
+            }
+        }
+    }
+
+    // Состояние лимитера для мониторинга
+    public record Snapshot(String name, int limit, int inFlight, int rejected) {
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.limiter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Класс ConcurrencyLimitFilter ограничивает число одновременных запросов перед контроллерами.
+// Чтения (GET, HEAD, OPTIONS) и записи имеют отдельные адаптивные лимиты, поэтому всплеск лайков
+// не отнимает потоки Tomcat у чтений. Запросы сверх лимита сразу получают 503 с заголовком Retry-After.
+// Потоковые запросы (выгрузка, импорт, длинный опрос ленты) занимают место в лимите, но их длительность
+// не считается задержкой: она зависит от объёма данных и клиента, а не от перегрузки сервера
+@Slf4j
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    // Тело ответа при отклонении запроса в формате GlobalExceptionHandler, подготовленное заранее
+    private static final byte[] REJECTED_BODY = ("{\"error\":\"Service unavailable\","
+            + "\"message\":\"Сервер перегружен, повторите запрос позже\"}").getBytes(StandardCharsets.UTF_8);
+
+    private final boolean enabled;
+    private final String retryAfterSeconds;
+    private final AimdLimiter readLimiter;
+    private final AimdLimiter writeLimiter;
+    private final List<String> unsampledPaths;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public ConcurrencyLimitFilter(
+            @Value("${filmorate.limiter.enabled:true}") boolean enabled,
+            @Value("${filmorate.limiter.retry-after-seconds:1}") int retryAfterSeconds,
+            @Value("${filmorate.limiter.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${filmorate.limiter.reads.initial-limit:100}") int readInitial,
+            @Value("${filmorate.limiter.reads.min-limit:10}") int readMin,
+            @Value("${filmorate.limiter.reads.max-limit:400}") int readMax,
+            @Value("${filmorate.limiter.reads.target-latency-ms:50}") long readTargetLatency,
+            @Value("${filmorate.limiter.writes.initial-limit:20}") int writeInitial,
+            @Value("${filmorate.limiter.writes.min-limit:2}") int writeMin,
+            @Value("${filmorate.limiter.writes.max-limit:100}") int writeMax,
+            @Value("${filmorate.limiter.writes.target-latency-ms:100}") long writeTargetLatency,
+            @Value("${filmorate.limiter.unsampled-paths:/export/**,/films/import,/users/import,/changes/poll}")
+            String[] unsampledPaths) {
+        this.enabled = enabled;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+        this.readLimiter = new AimdLimiter("reads", readInitial, readMin, readMax, readTargetLatency, backoffRatio);
+        this.writeLimiter = new AimdLimiter("writes", writeInitial, writeMin, writeMax, writeTargetLatency,
+                backoffRatio);
+        this.unsampledPaths = List.of(unsampledPaths);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AimdLimiter limiter = isRead(request) ? readLimiter : writeLimiter;
+        if (!limiter.tryAcquire()) {
+            log.warn("Запрос {} {} отклонён: исчерпан лимит {}", request.getMethod(), request.getRequestURI(),
+                    limiter.snapshot());
+            reject(response);
+            return;
+        }
+        boolean sampled = isSampled(request);
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (sampled) {
+                limiter.release(System.nanoTime() - start);
+            } else {
+                limiter.release();
+            }
+        }
+    }
+
+    // Метод snapshots возвращает текущее состояние лимитов чтения и записи
+    public List<AimdLimiter.Snapshot> snapshots() {
+        return List.of(readLimiter.snapshot(), writeLimiter.snapshot());
+    }
+
+    private boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    private boolean isSampled(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String pattern : unsampledPaths) {
+            if (pathMatcher.match(pattern, path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(REJECTED_BODY.length);
+        response.getOutputStream().write(REJECTED_BODY);
+    }
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Класс BulkLookup описывает результат получения нескольких фильмов или пользователей по списку ID:
+ * найденные объекты в порядке запрошенных ID и ID, которых нет в хранилище.
+ */
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkLookup<T> {
+    List<T> found;
+    List<Long> missing;
+
+    // Метод of собирает результат: ID из ids, для которых нет объекта в found, попадают в missing
+    public static <T> BulkLookup<T> of(Collection<Long> ids, List<T> found, Function<T, Long> idGetter) {
+        Set<Long> foundIds = new HashSet<>();
+        for (T item : found) {
+            foundIds.add(idGetter.apply(item));
+        }
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (!foundIds.contains(id)) {
+                missing.add(id);
+            }
+        }
+        return new BulkLookup<>(found, missing);
+    }
+}
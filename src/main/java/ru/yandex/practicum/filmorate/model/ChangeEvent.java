@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+/**
+ * Класс ChangeEvent описывает одно изменение в хранилище: порядковый номер seq в ленте изменений,
+ * тип сущности, вид изменения и ID изменённого объекта. Для лайков relatedId — ID пользователя,
+ * для дружбы — ID друга, для остальных изменений — null.
+ */
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ChangeEvent {
+    long seq;
+    Instant at;
+    Entity entity;
+    Type type;
+    Long id;
+    Long relatedId;
+
+    public enum Entity {
+        FILM, USER
+    }
+
+    public enum Type {
+        CREATED, UPDATED, DELETED, LIKE_ADDED, LIKE_REMOVED, FRIEND_ADDED, FRIEND_REMOVED
+    }
+}
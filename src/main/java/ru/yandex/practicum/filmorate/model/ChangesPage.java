@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Класс ChangesPage описывает страницу ленты изменений: события по возрастанию seq, номер next,
+ * который нужно передать в параметре since следующего запроса, и номер последнего события в ленте lastSeq.
+ */
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ChangesPage {
+    List<ChangeEvent> events;
+    long next;
+    long lastSeq;
+}
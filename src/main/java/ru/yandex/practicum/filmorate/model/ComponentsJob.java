@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+
+/**
+ * Класс ComponentsJob описывает состояние фонового поиска компонент связности графа дружбы:
+ * этап, прогресс от 0 до 1 и счётчики скопированных пользователей и обработанных дружб.
+ * В result — результат последнего успешно завершённого поиска (он остаётся доступен, пока идёт следующий).
+ */
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class ComponentsJob {
+    Status status;
+    double progress;
+    long copiedUsers;
+    long totalUsers;
+    long processedFriendships;
+    long totalFriendships;
+    Instant startedAt;
+    Instant finishedAt;
+    String error;
+    GraphComponents result;
+
+    public enum Status {
+        // Поиск ещё не запускался
+        IDLE,
+        // Снимается снимок графа дружбы
+        SNAPSHOT,
+        // Дружбы объединяются в компоненты
+        UNION,
+        // Считаются размеры и плотность компонент
+        ANALYSIS,
+        DONE,
+        FAILED
+    }
+}
@@ -1,12 +1,12 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.experimental.FieldDefaults;
+import ru.yandex.practicum.filmorate.util.StripedLongSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Класс Film представляет модель фильма в приложении Filmorate.
@@ -19,7 +19,17 @@ public class Film {
     String description;
     LocalDate releaseDate;
     int duration;
-    Set<Long> likes = new HashSet<>(); // Список ID пользователей,
-    // которые поставили лайк фильму (тип Set<Long>)
-    // Инициализируем его как пустой HashSet, чтобы избежать NullPointerException
+    // Множество ID пользователей, которые поставили лайк фильму, упорядоченное по возрастанию ID.
+    // Множество потокобезопасно и разбито на полосы, чтобы лайки популярного фильма не упирались в одну блокировку.
+    // В ответы по умолчанию не попадает (только likeCount): целиком его можно запросить параметром embed=likes,
+    // а постранично — через GET /films/id/likes
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    StripedLongSet likes = new StripedLongSet();
+    long version; // Версия фильма, увеличивается при каждом обновлении через update с проверкой версии
+
+    // Метод getLikeCount возвращает количество лайков фильма по счётчику множества likes, не обходя его
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public int getLikeCount() {
+        return likes.size();
+    }
 }
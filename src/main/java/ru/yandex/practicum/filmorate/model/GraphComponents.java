@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс GraphComponents описывает компоненты связности графа дружбы на момент позиции ленты изменений snapshotSeq:
+ * их количество, распределение по размерам, крупнейшие компоненты и плотные изолированные группы
+ * (в которых дружит большая доля пар пользователей — так обычно выглядят кольца ботов).
+ */
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class GraphComponents {
+    long snapshotSeq;
+    int users;
+    long friendships;
+    int components;
+    // Пользователи без друзей (компоненты из одного пользователя)
+    int isolatedUsers;
+    int largestComponent;
+    // Количество компонент по размерам: "1", "2", "3-4", "5-8" и т.д.
+    Map<String, Integer> sizeHistogram;
+    List<Component> largestComponents;
+    List<Component> denseComponents;
+    long millis;
+
+    /**
+     * Компонента связности: наименьший ID пользователя в ней, число пользователей и дружб,
+     * плотность (доля дружащих пар среди всех пар) и несколько ID пользователей для примера.
+     */
+    @Data
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Component {
+        Long userId;
+        int users;
+        long friendships;
+        double density;
+        List<Long> sampleUserIds;
+    }
+}
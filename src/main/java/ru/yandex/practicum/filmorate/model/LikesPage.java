@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Класс LikesPage описывает страницу ID пользователей, лайкнувших фильм, в порядке возрастания ID.
+ * Поле next содержит курсор для следующей страницы (передаётся в параметре after) или null, если страница последняя.
+ */
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class LikesPage {
+    long[] userIds;
+    Long next;
+    int likeCount;
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Класс MutationAccepted — ответ на изменение, принятое в асинхронную очередь.
+ * Токен token можно передать в заголовке X-Await-Mutation при чтении, чтобы дождаться применения изменения.
+ */
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class MutationAccepted {
+    long token;
+}
@@ -20,4 +20,5 @@ public class User {
     String name;
     LocalDate birthday;
     Set<Long> friends = new HashSet<>(); // Список ID друзей
+    long version; // Версия пользователя, увеличивается при каждом обновлении через update с проверкой версии
 }
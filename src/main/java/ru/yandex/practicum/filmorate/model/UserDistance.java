@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Класс UserDistance описывает кратчайшую цепочку дружбы между двумя пользователями и объём проделанной работы.
+ * Если цепочка не найдена, distance равен null, а status объясняет причину.
+ */
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserDistance {
+    Long userId;
+    Long otherId;
+    Status status;
+    // Количество шагов дружбы и сама цепочка ID от userId до otherId включительно
+    Integer distance;
+    List<Long> path;
+    // Сколько пользователей было посещено и сколько из них раскрыто (прочитаны их друзья)
+    int visitedUsers;
+    int expandedUsers;
+
+    public enum Status {
+        // Цепочка найдена
+        FOUND,
+        // Пользователи не связаны: поиск обошёл все достижимые вершины
+        NOT_CONNECTED,
+        // Цепочки не больше maxDepth шагов нет
+        DEPTH_LIMIT,
+        // Поиск остановлен, так как исчерпан бюджет посещённых пользователей
+        VISIT_LIMIT
+    }
+}
@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Класс UserReach описывает приближённый социальный охват пользователя, посчитанный по скетчам HyperLogLog.
+ */
+@Data
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class UserReach {
+    Long userId;
+    // Количество различных пользователей на расстоянии не больше двух шагов по дружбе (без самого пользователя)
+    long usersWithinTwoHops;
+    // Количество различных пользователей, лайкнувших фильмы, которые лайкнули друзья пользователя
+    long usersLikingFriendsFilms;
+    // Стандартная относительная ошибка оценок
+    double relativeError;
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.pipeline;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Класс AwaitMutationFilter обеспечивает чтение своих записей при асинхронных изменениях: если в запросе есть
+// заголовок X-Await-Mutation с токеном, полученным при постановке изменения в очередь, запрос передаётся дальше
+// только после применения этого изменения. Если изменение не применено за отведённое время, запрос получает 503
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.mutations.async.enabled", havingValue = "true")
+public class AwaitMutationFilter extends OncePerRequestFilter {
+
+    public static final String AWAIT_HEADER = "X-Await-Mutation";
+
+    // Тела ответов в формате GlobalExceptionHandler, подготовленные заранее
+    private static final byte[] TIMEOUT_BODY = ("{\"error\":\"Service unavailable\","
+            + "\"message\":\"Изменение ещё не применено, повторите запрос позже\"}").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INVALID_BODY = ("{\"error\":\"Validation error\","
+            + "\"message\":\"Некорректный токен изменения\"}").getBytes(StandardCharsets.UTF_8);
+
+    private final MutationPipeline pipeline;
+    private final long awaitTimeoutMillis;
+    private final String retryAfterSeconds;
+
+    public AwaitMutationFilter(MutationPipeline pipeline,
+                               @Value("${filmorate.mutations.async.await-timeout-ms:1000}") long awaitTimeoutMillis,
+                               @Value("${filmorate.limiter.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.pipeline = pipeline;
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+        this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(AWAIT_HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(AWAIT_HEADER);
+        boolean applied;
+        try {
+            applied = pipeline.await(Long.parseLong(header.trim()), awaitTimeoutMillis);
+        } catch (NumberFormatException | ValidationException e) {
+            log.warn("Некорректный заголовок {}: {}", AWAIT_HEADER, header);
+            write(response, HttpStatus.BAD_REQUEST, INVALID_BODY);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            applied = false;
+        }
+        if (!applied) {
+            log.warn("Изменение {} не применено за {} мс", header, awaitTimeoutMillis);
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            write(response, HttpStatus.SERVICE_UNAVAILABLE, TIMEOUT_BODY);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void write(HttpServletResponse response, HttpStatus status, byte[] body) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
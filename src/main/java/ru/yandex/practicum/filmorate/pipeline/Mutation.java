@@ -0,0 +1,10 @@
+package ru.yandex.practicum.filmorate.pipeline;
+
+// Изменение, ожидающее применения в очереди: для лайков target — ID фильма, actor — ID пользователя,
+// для дружбы target — ID пользователя, actor — ID друга
+record Mutation(long seq, Type type, long target, long actor) {
+
+    enum Type {
+        ADD_LIKE, REMOVE_LIKE, ADD_FRIEND, REMOVE_FRIEND
+    }
+}
@@ -0,0 +1,254 @@
+package ru.yandex.practicum.filmorate.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.MutationAccepted;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Класс MutationPipeline принимает лайки и изменения дружбы в ограниченные очереди и применяет их в фоне:
+// у каждой секции очереди один поток-писатель, который забирает изменения пачками и вызывает FilmService
+// и UserService. Лайки распределяются по секциям по ID фильма, поэтому лайки одного фильма меняет только один
+// поток. Изменение дружбы затрагивает двух пользователей, поэтому вся дружба идёт через отдельную секцию.
+// Каждому изменению выдаётся токен; по нему чтение может дождаться применения изменения (read-your-writes).
+// Включается свойством filmorate.mutations.async.enabled=true
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.mutations.async.enabled", havingValue = "true")
+public class MutationPipeline implements DisposableBean {
+
+    // Заголовок ответа с токеном принятого изменения
+    public static final String TOKEN_HEADER = "X-Mutation-Token";
+
+    // Младшие биты токена — номер секции, старшие — номер изменения в секции
+    private static final int PARTITION_BITS = 8;
+    private static final int MAX_PARTITIONS = 1 << PARTITION_BITS;
+    private static final long POLL_MILLIS = 100;
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final Partition[] likePartitions;
+    private final Partition friendPartition;
+    private final int batchSize;
+    private final long enqueueTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private volatile boolean running = true;
+
+    public MutationPipeline(FilmService filmService, UserService userService,
+                            @Value("${filmorate.mutations.async.like-partitions:4}") int likePartitions,
+                            @Value("${filmorate.mutations.async.capacity:65536}") int capacity,
+                            @Value("${filmorate.mutations.async.batch-size:256}") int batchSize,
+                            @Value("${filmorate.mutations.async.enqueue-timeout-ms:100}") long enqueueTimeoutMillis,
+                            @Value("${filmorate.mutations.async.shutdown-timeout-ms:10000}")
+                            long shutdownTimeoutMillis) {
+        if (likePartitions <= 0 || likePartitions >= MAX_PARTITIONS) {
+            throw new IllegalArgumentException("Количество секций лайков должно быть от 1 до "
+                    + (MAX_PARTITIONS - 1) + ": " + likePartitions);
+        }
+        this.filmService = filmService;
+        this.userService = userService;
+        this.batchSize = batchSize;
+        this.enqueueTimeoutMillis = enqueueTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.likePartitions = new Partition[likePartitions];
+        for (int i = 0; i < likePartitions; i++) {
+            this.likePartitions[i] = new Partition(i, "likes-" + i, capacity);
+        }
+        this.friendPartition = new Partition(likePartitions, "friends", capacity);
+    }
+
+    // Метод addLike проверяет, что фильм и пользователь существуют, и ставит лайк в очередь
+    public MutationAccepted addLike(Long filmId, Long userId) {
+        filmService.checkLike(filmId, userId);
+        return likePartition(filmId).submit(Mutation.Type.ADD_LIKE, filmId, userId);
+    }
+
+    public MutationAccepted removeLike(Long filmId, Long userId) {
+        filmService.checkLike(filmId, userId);
+        return likePartition(filmId).submit(Mutation.Type.REMOVE_LIKE, filmId, userId);
+    }
+
+    // Метод addFriend проверяет, что оба пользователя существуют, и ставит дружбу в очередь
+    public MutationAccepted addFriend(Long userId, Long friendId) {
+        userService.checkFriendship(userId, friendId);
+        return friendPartition.submit(Mutation.Type.ADD_FRIEND, userId, friendId);
+    }
+
+    public MutationAccepted removeFriend(Long userId, Long friendId) {
+        userService.checkFriendship(userId, friendId);
+        return friendPartition.submit(Mutation.Type.REMOVE_FRIEND, userId, friendId);
+    }
+
+    // Метод await ждёт не дольше timeoutMillis, пока будет применено изменение с токеном token
+    // (и все изменения, принятые в его секцию раньше). Возвращает false, если время вышло
+    public boolean await(long token, long timeoutMillis) throws InterruptedException {
+        int index = (int) (token & (MAX_PARTITIONS - 1));
+        if (token <= 0 || index > likePartitions.length) {
+            throw new ValidationException("Некорректный токен изменения: " + token);
+        }
+        Partition partition = index == likePartitions.length ? friendPartition : likePartitions[index];
+        return partition.await(token >>> PARTITION_BITS, timeoutMillis);
+    }
+
+    // Метод snapshots возвращает состояние секций очереди для мониторинга
+    public List<Snapshot> snapshots() {
+        List<Snapshot> snapshots = new ArrayList<>(likePartitions.length + 1);
+        for (Partition partition : likePartitions) {
+            snapshots.add(partition.snapshot());
+        }
+        snapshots.add(friendPartition.snapshot());
+        return snapshots;
+    }
+
+    // При остановке писатели применяют всё, что уже принято в очередь, но не дольше shutdownTimeoutMillis
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMillis);
+        for (Partition partition : likePartitions) {
+            partition.writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        friendPartition.writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        log.info("Очередь изменений остановлена: {}", snapshots());
+    }
+
+    private Partition likePartition(Long filmId) {
+        return likePartitions[(int) Math.floorMod(filmId, (long) likePartitions.length)];
+    }
+
+    private void apply(Mutation mutation) {
+        switch (mutation.type()) {
+            case ADD_LIKE -> filmService.addLike(mutation.target(), mutation.actor());
+            case REMOVE_LIKE -> filmService.removeLike(mutation.target(), mutation.actor());
+            case ADD_FRIEND -> userService.addFriend(mutation.target(), mutation.actor());
+            case REMOVE_FRIEND -> userService.removeFriend(mutation.target(), mutation.actor());
+        }
+    }
+
+    // Секция очереди: кольцевой буфер ограниченного размера и поток, который его разбирает
+    private final class Partition {
+        private final int index;
+        private final String name;
+        private final ArrayBlockingQueue<Mutation> queue;
+        // Номера выдаются под блокировкой вместе с постановкой в очередь, поэтому идут в очереди по возрастанию
+        private final ReentrantLock enqueueLock = new ReentrantLock();
+        private long lastSeq;
+        // Номер последнего применённого изменения; ожидающие чтения ждут на мониторе секции
+        private volatile long appliedSeq;
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final Thread writer;
+
+        Partition(int index, String name, int capacity) {
+            this.index = index;
+            this.name = name;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.writer = new Thread(this::drainLoop, "mutations-" + name);
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+
+        MutationAccepted submit(Mutation.Type type, long target, long actor) {
+            if (!running) {
+                throw new OverloadedException("Очередь изменений остановлена");
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(enqueueTimeoutMillis);
+            try {
+                if (!enqueueLock.tryLock(enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw overloaded();
+                }
+                try {
+                    Mutation mutation = new Mutation(lastSeq + 1, type, target, actor);
+                    if (!queue.offer(mutation, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                        throw overloaded();
+                    }
+                    lastSeq = mutation.seq();
+                    return new MutationAccepted(mutation.seq() << PARTITION_BITS | index);
+                } finally {
+                    enqueueLock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw overloaded();
+            }
+        }
+
+        boolean await(long seq, long timeoutMillis) throws InterruptedException {
+            if (appliedSeq >= seq) {
+                return true;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            synchronized (this) {
+                while (appliedSeq < seq) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    wait(remaining);
+                }
+            }
+            return true;
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(name, queue.size(), queue.remainingCapacity() + queue.size(), appliedSeq,
+                    failed.get(), batches.get());
+        }
+
+        private OverloadedException overloaded() {
+            log.warn("Очередь изменений {} заполнена: {}", name, snapshot());
+            return new OverloadedException("Очередь изменений заполнена, повторите запрос позже");
+        }
+
+        // Поток-писатель забирает изменения пачками до batchSize и применяет их по порядку.
+        // После остановки он дописывает то, что осталось в очереди
+        private void drainLoop() {
+            List<Mutation> batch = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Mutation first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (Mutation mutation : batch) {
+                    try {
+                        apply(mutation);
+                    } catch (RuntimeException e) {
+                        // Фильм или пользователя могли удалить после постановки изменения в очередь
+                        failed.incrementAndGet();
+                        log.warn("Изменение {} не применено: {}", mutation, e.getMessage());
+                    }
+                }
+                batches.incrementAndGet();
+                synchronized (this) {
+                    appliedSeq = batch.get(batch.size() - 1).seq();
+                    notifyAll();
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    // Состояние секции очереди: ожидающие изменения, ёмкость, номер последнего применённого изменения,
+    // число неприменённых из-за ошибки изменений и разобранных пачек
+    public record Snapshot(String name, int queued, int capacity, long appliedSeq, long failed, long batches) {
+    }
+}
@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Класс FieldSet описывает поля, которые можно выбрать в ответе (?fields=id,name), именованные
+// представления (?view=summary) и вложенные поля, которые выводятся только по запросу (?embed=likes).
+// Выбранные поля записываются прямо из объектов, без построения их копий
+public final class FieldSet<T> {
+
+    private final String entityName;
+    private final Map<String, FieldWriter<T>> fields = new LinkedHashMap<>();
+    private final Map<String, List<String>> views = new LinkedHashMap<>();
+    private final Set<String> embeddable = new LinkedHashSet<>();
+
+    public FieldSet(String entityName) {
+        this.entityName = entityName;
+    }
+
+    // Метод field добавляет поле, которое можно запросить по имени name
+    public FieldSet<T> field(String name, FieldWriter<T> writer) {
+        fields.put(name, writer);
+        return this;
+    }
+
+    // Метод embeddable добавляет поле, которое по умолчанию не выводится и добавляется к ответу параметром embed
+    public FieldSet<T> embeddable(String name, FieldWriter<T> writer) {
+        embeddable.add(name);
+        return field(name, writer);
+    }
+
+    // Метод view добавляет именованное представление из перечисленных полей
+    public FieldSet<T> view(String name, String... fieldNames) {
+        for (String fieldName : fieldNames) {
+            if (!fields.containsKey(fieldName)) {
+                throw new IllegalArgumentException("Неизвестное поле " + fieldName + " в представлении " + name);
+            }
+        }
+        views.put(name, List.of(fieldNames));
+        return this;
+    }
+
+    public Set<String> fieldNames() {
+        return fields.keySet();
+    }
+
+    // Метод project возвращает items без изменений, если ни fields, ни view не указаны,
+    // иначе — список, который при сериализации выводит только выбранные поля.
+    // Параметр fields — имена полей через запятую, view — имя представления; указать можно только одно из них
+    public List<T> project(Collection<T> items, String fields, String view) {
+        return project(items, fields, view, null);
+    }
+
+    // Метод project с параметром embed дополнительно выводит перечисленные через запятую вложенные поля.
+    // Если указан только embed, выводятся все обычные поля и запрошенные вложенные
+    public List<T> project(Collection<T> items, String fields, String view, String embed) {
+        List<T> list = items instanceof List<T> l ? l : new ArrayList<>(items);
+        List<Field<T>> selected = selection(fields, view, embed);
+        return selected == null ? list : new ProjectedList<>(list, selected);
+    }
+
+    // Метод projectOne делает то же, что и project, для одного объекта: возвращает сам item
+    // или объект, который при сериализации выводит только выбранные поля item
+    public Object projectOne(T item, String fields, String view, String embed) {
+        List<Field<T>> selected = selection(fields, view, embed);
+        return selected == null ? item : new ProjectedItem<>(item, selected);
+    }
+
+    private List<Field<T>> selection(String fields, String view, String embed) {
+        boolean hasFields = fields != null && !fields.isBlank();
+        boolean hasView = view != null && !view.isBlank();
+        boolean hasEmbed = embed != null && !embed.isBlank();
+        if (!hasFields && !hasView && !hasEmbed) {
+            return null;
+        }
+        if (hasFields && hasView) {
+            throw new ValidationException("Можно указать либо fields, либо view");
+        }
+        List<String> names = new ArrayList<>();
+        if (hasView) {
+            names.addAll(viewFields(view.trim()));
+        } else if (hasFields) {
+            names.addAll(List.of(fields.split(",")));
+        } else {
+            this.fields.keySet().stream().filter(name -> !embeddable.contains(name)).forEach(names::add);
+        }
+        if (hasEmbed) {
+            for (String rawName : embed.split(",")) {
+                String name = rawName.trim();
+                if (!embeddable.contains(name)) {
+                    throw new ValidationException(String.format("Неизвестное вложенное поле %s для %s, доступны: %s",
+                            name, entityName, String.join(", ", embeddable)));
+                }
+                names.add(name);
+            }
+        }
+        return select(names);
+    }
+
+    private List<String> viewFields(String view) {
+        if ("full".equals(view)) {
+            return List.copyOf(fields.keySet());
+        }
+        List<String> names = views.get(view);
+        if (names == null) {
+            throw new ValidationException(String.format("Неизвестное представление %s для %s, доступны: full, %s",
+                    view, entityName, String.join(", ", views.keySet())));
+        }
+        return names;
+    }
+
+    private List<Field<T>> select(List<String> names) {
+        Map<String, Field<T>> selected = new LinkedHashMap<>();
+        for (String rawName : names) {
+            String name = rawName.trim();
+            FieldWriter<T> writer = fields.get(name);
+            if (writer == null) {
+                throw new ValidationException(String.format("Неизвестное поле %s для %s, доступны: %s",
+                        name, entityName, String.join(", ", fields.keySet())));
+            }
+            selected.putIfAbsent(name, new Field<>(name, writer));
+        }
+        return List.copyOf(selected.values());
+    }
+
+    // Метод writeObject записывает item как JSON-объект из выбранных полей
+    static <T> void writeObject(T item, List<Field<T>> fields, JsonGenerator generator, SerializerProvider provider)
+            throws IOException {
+        generator.writeStartObject(item);
+        for (Field<T> field : fields) {
+            field.write(item, generator, provider);
+        }
+        generator.writeEndObject();
+    }
+
+    // Выбранное поле: имя в JSON и способ записи значения
+    record Field<T>(String name, FieldWriter<T> writer) {
+        void write(T value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeFieldName(name);
+            writer.write(value, generator, provider);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+// Интерфейс FieldWriter записывает значение одного поля объекта прямо в JsonGenerator
+@FunctionalInterface
+public interface FieldWriter<T> {
+
+    void write(T value, JsonGenerator generator, SerializerProvider provider) throws IOException;
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.List;
+
+// Класс ProjectedItem — обёртка над одним объектом, которая при сериализации в JSON выводит только выбранные поля
+@JsonSerialize(using = ProjectedItem.Serializer.class)
+public final class ProjectedItem<T> {
+
+    private final T item;
+    private final List<FieldSet.Field<T>> fields;
+
+    ProjectedItem(T item, List<FieldSet.Field<T>> fields) {
+        this.item = item;
+        this.fields = fields;
+    }
+
+    public T getItem() {
+        return item;
+    }
+
+    static final class Serializer extends JsonSerializer<ProjectedItem<?>> {
+        @Override
+        public void serialize(ProjectedItem<?> value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            write(value, generator, provider);
+        }
+
+        private <T> void write(ProjectedItem<T> value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            FieldSet.writeObject(value.item, value.fields, generator, provider);
+        }
+    }
+}
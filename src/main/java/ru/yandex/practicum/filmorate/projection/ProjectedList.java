@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.List;
+
+// Класс ProjectedList — список объектов, который при сериализации в JSON выводит только выбранные поля.
+// Для остального кода это обычный неизменяемый список исходных объектов
+@JsonSerialize(using = ProjectedList.Serializer.class)
+public final class ProjectedList<T> extends AbstractList<T> {
+
+    private final List<T> items;
+    private final List<FieldSet.Field<T>> fields;
+
+    ProjectedList(List<T> items, List<FieldSet.Field<T>> fields) {
+        this.items = items;
+        this.fields = fields;
+    }
+
+    @Override
+    public T get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    // Сериализатор записывает каждый объект как JSON-объект из выбранных полей
+    static final class Serializer extends JsonSerializer<ProjectedList<?>> {
+        @Override
+        public void serialize(ProjectedList<?> list, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            write(list, generator, provider);
+        }
+
+        private <T> void write(ProjectedList<T> list, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeStartArray(list, list.size());
+            for (T item : list.items) {
+                FieldSet.writeObject(item, list.fields, generator, provider);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.projection;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.io.IOException;
+import java.util.Set;
+
+// Класс Projections содержит наборы полей фильмов и пользователей, доступных для выборочного вывода.
+// Представление summary заменяет множества ID их размерами: likeCount вместо likes и friendCount вместо friends
+public final class Projections {
+
+    public static final FieldSet<Film> FILMS = new FieldSet<Film>("фильмов")
+            .field("id", (film, gen, provider) -> writeNumber(film.getId(), gen))
+            .field("name", (film, gen, provider) -> gen.writeString(film.getName()))
+            .field("description", (film, gen, provider) -> gen.writeString(film.getDescription()))
+            .field("releaseDate", (film, gen, provider) -> provider.defaultSerializeValue(film.getReleaseDate(), gen))
+            .field("duration", (film, gen, provider) -> gen.writeNumber(film.getDuration()))
+            .embeddable("likes", (film, gen, provider) -> writeIds(film.getLikes(), gen))
+            .field("likeCount", (film, gen, provider) -> gen.writeNumber(film.getLikeCount()))
+            .field("version", (film, gen, provider) -> gen.writeNumber(film.getVersion()))
+            .view("summary", "id", "name", "releaseDate", "duration", "likeCount");
+
+    public static final FieldSet<User> USERS = new FieldSet<User>("пользователей")
+            .field("id", (user, gen, provider) -> writeNumber(user.getId(), gen))
+            .field("email", (user, gen, provider) -> gen.writeString(user.getEmail()))
+            .field("login", (user, gen, provider) -> gen.writeString(user.getLogin()))
+            .field("name", (user, gen, provider) -> gen.writeString(user.getName()))
+            .field("birthday", (user, gen, provider) -> provider.defaultSerializeValue(user.getBirthday(), gen))
+            .field("friends", (user, gen, provider) -> writeIds(user.getFriends(), gen))
+            .field("friendCount", (user, gen, provider) -> gen.writeNumber(user.getFriends().size()))
+            .field("version", (user, gen, provider) -> gen.writeNumber(user.getVersion()))
+            .view("summary", "id", "login", "name", "friendCount");
+
+    private Projections() {
+    }
+
+    private static void writeNumber(Long value, JsonGenerator gen) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    private static void writeIds(Set<Long> ids, JsonGenerator gen) throws IOException {
+        gen.writeStartArray();
+        for (Long id : ids) {
+            gen.writeNumber(id);
+        }
+        gen.writeEndArray();
+    }
+}
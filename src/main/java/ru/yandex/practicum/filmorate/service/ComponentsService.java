@@ -0,0 +1,274 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.graph.ConcurrentUnionFind;
+import ru.yandex.practicum.filmorate.graph.FriendGraph;
+import ru.yandex.practicum.filmorate.model.ComponentsJob;
+import ru.yandex.practicum.filmorate.model.GraphComponents;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.TopN;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+// Класс ComponentsService по запросу ищет в фоне компоненты связности графа дружбы.
+// Поиск идёт в отдельном пуле fork-join: сначала снимается согласованный снимок графа (FriendGraph) без блокировки
+// записи, затем дружбы параллельно объединяются в системе непересекающихся множеств, после чего для компонент
+// считаются размеры и плотность. Одновременно выполняется не больше одного поиска
+@Slf4j
+@Service
+public class ComponentsService implements DisposableBean {
+
+    // Сколько дружб объединяет одна подзадача, не разделяясь дальше
+    private static final int UNION_CHUNK = 8192;
+    // Сколько ID пользователей показывать в описании компоненты
+    private static final int SAMPLE_SIZE = 10;
+    // Доли общего прогресса, приходящиеся на снимок и на объединение дружб
+    private static final double SNAPSHOT_SHARE = 0.2;
+    private static final double UNION_SHARE = 0.7;
+
+    private final UserStorage userStorage;
+    private final ChangeFeed changeFeed;
+    private final int top;
+    private final int denseMinSize;
+    private final double denseDensity;
+    private final ForkJoinPool pool;
+
+    // Текущий или последний поиск (null, если поиск не запускался) и результат последнего успешного поиска
+    private volatile Job job;
+    private volatile GraphComponents lastResult;
+
+    public ComponentsService(UserStorage userStorage, ChangeFeed changeFeed,
+                             @Value("${filmorate.graph.components.parallelism:0}") int parallelism,
+                             @Value("${filmorate.graph.components.top:10}") int top,
+                             @Value("${filmorate.graph.components.dense-min-size:3}") int denseMinSize,
+                             @Value("${filmorate.graph.components.dense-density:0.5}") double denseDensity) {
+        this.userStorage = userStorage;
+        this.changeFeed = changeFeed;
+        this.top = top;
+        this.denseMinSize = denseMinSize;
+        this.denseDensity = denseDensity;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setName("graph-components-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                }, null, false);
+    }
+
+    // Метод start запускает поиск компонент в фоне и возвращает его состояние.
+    // Если поиск уже идёт, новый не запускается — возвращается состояние текущего
+    public synchronized ComponentsJob start() {
+        Job running = job;
+        if (running != null && running.isActive()) {
+            log.info("Поиск компонент связности уже выполняется");
+            return running.describe(lastResult);
+        }
+        Job next = new Job();
+        job = next;
+        pool.execute(() -> run(next));
+        log.info("Запущен поиск компонент связности графа дружбы");
+        return next.describe(lastResult);
+    }
+
+    // Метод status возвращает состояние текущего или последнего поиска
+    public ComponentsJob status() {
+        Job current = job;
+        if (current == null) {
+            return new ComponentsJob(ComponentsJob.Status.IDLE, 0, 0, 0, 0, 0, null, null, null, lastResult);
+        }
+        return current.describe(lastResult);
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private void run(Job current) {
+        long start = System.nanoTime();
+        try {
+            FriendGraph graph = FriendGraph.capture(userStorage, changeFeed, current.copiedUsers,
+                    current.totalUsers);
+            current.totalFriendships = graph.friendships();
+            current.status = ComponentsJob.Status.UNION;
+            ConcurrentUnionFind components = new ConcurrentUnionFind(graph.users());
+            new UnionTask(graph, components, 0, graph.friendships(), current.processedFriendships).invoke();
+            current.status = ComponentsJob.Status.ANALYSIS;
+            GraphComponents result = analyze(graph, components, (System.nanoTime() - start) / 1_000_000);
+            lastResult = result;
+            current.finishedAt = Instant.now();
+            current.status = ComponentsJob.Status.DONE;
+            log.info("Найдено {} компонент связности среди {} пользователей за {} мс",
+                    result.getComponents(), result.getUsers(), result.getMillis());
+        } catch (RuntimeException e) {
+            log.error("Ошибка при поиске компонент связности", e);
+            current.error = e.getMessage();
+            current.finishedAt = Instant.now();
+            current.status = ComponentsJob.Status.FAILED;
+        }
+    }
+
+    // Метод analyze считает размеры и число дружб компонент, гистограмму размеров и выбирает крупнейшие
+    // и плотные компоненты. Корень компоненты — её вершина с наименьшим номером, то есть с наименьшим ID
+    private GraphComponents analyze(FriendGraph graph, ConcurrentUnionFind components, long millis) {
+        int users = graph.users();
+        int[] roots = new int[users];
+        IntStream.range(0, users).parallel().forEach(node -> roots[node] = components.find(node));
+        int[] sizes = new int[users];
+        long[] friendships = new long[users];
+        for (int node = 0; node < users; node++) {
+            sizes[roots[node]]++;
+        }
+        for (int edge = 0; edge < graph.friendships(); edge++) {
+            friendships[roots[graph.from(edge)]]++;
+        }
+        List<Integer> allRoots = new ArrayList<>();
+        TreeMap<Integer, Integer> buckets = new TreeMap<>();
+        int isolated = 0;
+        int largest = 0;
+        for (int node = 0; node < users; node++) {
+            if (roots[node] == node) {
+                allRoots.add(node);
+                buckets.merge(bucket(sizes[node]), 1, Integer::sum);
+                isolated += sizes[node] == 1 ? 1 : 0;
+                largest = Math.max(largest, sizes[node]);
+            }
+        }
+        Map<String, Integer> histogram = new LinkedHashMap<>();
+        buckets.forEach((upper, count) -> histogram.put(label(upper), count));
+
+        Comparator<Integer> bySize = Comparator.comparingInt((Integer root) -> sizes[root]).reversed()
+                .thenComparing(Comparator.naturalOrder());
+        List<Integer> largestRoots = TopN.select(allRoots, top, bySize);
+        List<Integer> denseRoots = TopN.select(allRoots.stream()
+                .filter(root -> sizes[root] >= denseMinSize && density(sizes[root], friendships[root]) >= denseDensity)
+                .toList(), top, bySize);
+        Map<Integer, List<Long>> samples = samples(graph, roots, largestRoots, denseRoots);
+        return new GraphComponents(graph.seq(), users, graph.friendships(), allRoots.size(), isolated, largest,
+                histogram, describe(graph, largestRoots, sizes, friendships, samples),
+                describe(graph, denseRoots, sizes, friendships, samples), millis);
+    }
+
+    private static Map<Integer, List<Long>> samples(FriendGraph graph, int[] roots, List<Integer> largestRoots,
+                                                    List<Integer> denseRoots) {
+        Map<Integer, List<Long>> samples = new HashMap<>();
+        largestRoots.forEach(root -> samples.put(root, new ArrayList<>()));
+        denseRoots.forEach(root -> samples.put(root, new ArrayList<>()));
+        for (int node = 0; node < roots.length; node++) {
+            List<Long> sample = samples.get(roots[node]);
+            if (sample != null && sample.size() < SAMPLE_SIZE) {
+                sample.add(graph.userId(node));
+            }
+        }
+        return samples;
+    }
+
+    private static List<GraphComponents.Component> describe(FriendGraph graph, List<Integer> roots, int[] sizes,
+                                                           long[] friendships, Map<Integer, List<Long>> samples) {
+        return roots.stream()
+                .map(root -> new GraphComponents.Component(graph.userId(root), sizes[root], friendships[root],
+                        density(sizes[root], friendships[root]), samples.get(root)))
+                .toList();
+    }
+
+    // Плотность — доля дружащих пар среди всех пар пользователей компоненты
+    private static double density(int size, long friendships) {
+        return size < 2 ? 0 : friendships / ((double) size * (size - 1) / 2);
+    }
+
+    // Верхняя граница корзины гистограммы: ближайшая степень двойки, не меньшая размера
+    private static int bucket(int size) {
+        return size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static String label(int upper) {
+        int lower = upper / 2 + 1;
+        return lower >= upper ? String.valueOf(upper) : lower + "-" + upper;
+    }
+
+    // Состояние поиска; поля меняет только поток, выполняющий поиск
+    private static final class Job {
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong copiedUsers = new AtomicLong();
+        private final AtomicLong totalUsers = new AtomicLong();
+        private final AtomicLong processedFriendships = new AtomicLong();
+        private volatile ComponentsJob.Status status = ComponentsJob.Status.SNAPSHOT;
+        private volatile long totalFriendships;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        boolean isActive() {
+            return status != ComponentsJob.Status.DONE && status != ComponentsJob.Status.FAILED;
+        }
+
+        ComponentsJob describe(GraphComponents result) {
+            return new ComponentsJob(status, progress(), copiedUsers.get(), totalUsers.get(),
+                    processedFriendships.get(), totalFriendships, startedAt, finishedAt, error, result);
+        }
+
+        private double progress() {
+            return switch (status) {
+                case IDLE -> 0;
+                // Пока копируются пользователи, прогресс — доля скопированных от числа пользователей в хранилище
+                case SNAPSHOT -> SNAPSHOT_SHARE * fraction(copiedUsers.get(), totalUsers.get());
+                case UNION -> SNAPSHOT_SHARE + UNION_SHARE * fraction(processedFriendships.get(), totalFriendships);
+                case ANALYSIS -> SNAPSHOT_SHARE + UNION_SHARE;
+                case DONE, FAILED -> 1;
+            };
+        }
+
+        // Доля выполненной работы не больше 1: пользователи, созданные во время копирования, могут попасть в обход
+        // сверх числа пользователей на его начало
+        private static double fraction(long done, long total) {
+            return Math.min(1, (double) done / Math.max(1, total));
+        }
+    }
+
+    // Подзадача объединяет дружбы с номерами от from до to, при большом диапазоне делится пополам
+    private static final class UnionTask extends RecursiveAction {
+        private final FriendGraph graph;
+        private final ConcurrentUnionFind components;
+        private final int from;
+        private final int to;
+        private final AtomicLong processed;
+
+        UnionTask(FriendGraph graph, ConcurrentUnionFind components, int from, int to, AtomicLong processed) {
+            this.graph = graph;
+            this.components = components;
+            this.from = from;
+            this.to = to;
+            this.processed = processed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= UNION_CHUNK) {
+                for (int edge = from; edge < to; edge++) {
+                    components.union(graph.from(edge), graph.to(edge));
+                }
+                processed.addAndGet(to - from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new UnionTask(graph, components, from, middle, processed),
+                    new UnionTask(graph, components, middle, to, processed));
+        }
+    }
+}
@@ -2,16 +2,23 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.coalesce.SingleFlight;
+import ru.yandex.practicum.filmorate.coalesce.SingleFlightRegistry;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.jfr.LikeEvent;
+import ru.yandex.practicum.filmorate.jfr.PopularFilmsEvent;
+import ru.yandex.practicum.filmorate.model.BulkLookup;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikesPage;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.Set;
 
 @Slf4j
 @Service // Аннотация @Service указывает, что этот класс является сервисом в Spring (содержит бизнес-логику)
@@ -21,22 +28,33 @@ public class FilmService {
     private final FilmStorage filmStorage;
     // Переменная userStorage для работы с хранилищем пользователей
     private final UserStorage userStorage;
+    // Переменная popularFilmsTracker для приближённого подсчёта популярных фильмов
+    private final PopularFilmsTracker popularFilmsTracker;
+    // Переменная reachService для обновления скетчей социального охвата
+    private final ReachService reachService;
+    // Переменная likeIndex для обратного индекса лайков (пользователь -> лайкнутые фильмы)
+    private final LikeIndex likeIndex;
+    // Переменная popularFlights объединяет одновременные запросы популярных фильмов с одинаковым count
+    private final SingleFlight<Integer, List<Film>> popularFlights;
 
-    // Создаём компаратор LIKES_COMPARATOR для сортировки фильмов по количеству лайков (в порядке убывания)
-    private static final Comparator<Film> LIKES_COMPARATOR =
-            // Сравниваем два фильма f1 и f2 по количеству лайков
-            (f1, f2) -> Integer.compare(f2.getLikes().size(), f1.getLikes().size());
-
-    // Конструктор класса FilmService, который принимает зависимости filmStorage и userStorage
-    public FilmService(FilmStorage filmStorage, UserStorage userStorage) {
+    // Конструктор класса FilmService, который принимает зависимости от хранилищ и вспомогательных сервисов
+    public FilmService(FilmStorage filmStorage, UserStorage userStorage, PopularFilmsTracker popularFilmsTracker,
+                       ReachService reachService, LikeIndex likeIndex, SingleFlightRegistry singleFlightRegistry) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.popularFilmsTracker = popularFilmsTracker;
+        this.reachService = reachService;
+        this.likeIndex = likeIndex;
+        this.popularFlights = singleFlightRegistry.create("popular-films");
     }
 
     // Метод getFilmOrThrow для получения фильма по id или выброса исключения, если фильм не найден
     private Film getFilmOrThrow(Long filmId) {
         log.debug("Поиск фильма с ID {}", filmId);
-        // Если фильм не найден, выбрасываем исключение NotFoundException
+        // Если фильм не найден, выбрасываем исключение NotFoundException (без стека, если фильма точно нет)
+        if (filmStorage.isDefinitelyAbsent(filmId)) {
+            throw NotFoundException.withoutStackTrace("Фильм с ID " + filmId + " не найден");
+        }
         Film film = filmStorage.findById(filmId)
                 .orElseThrow(() -> new NotFoundException("Фильм с ID " + filmId + " не найден"));
         log.debug("Фильм найден: {}", film);
@@ -47,42 +65,136 @@ public class FilmService {
     // Метод getUserOrThrow для получения пользователя по Id или выброса исключения, если пользователь не найден
     private User getUserOrThrow(Long userId) {
         log.debug("Поиск пользователя с ID {}", userId);
+        if (userStorage.isDefinitelyAbsent(userId)) {
+            throw NotFoundException.withoutStackTrace("Пользователь с ID " + userId + " не найден");
+        }
         User user = userStorage.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с ID " + userId + " не найден"));
         log.debug("Пользователь найден: {}", user);
         return user;
     }
 
+    // Метод getFilms для получения нескольких фильмов по списку ID одним обращением к хранилищу.
+    // Отсутствующие ID возвращаются в поле missing, исключение при этом не выбрасывается
+    public BulkLookup<Film> getFilms(List<Long> ids) {
+        log.debug("Получение фильмов по {} ID", ids.size());
+        BulkLookup<Film> result = BulkLookup.of(ids, filmStorage.findAllById(ids), Film::getId);
+        log.debug("Найдено {} фильмов, не найдено {}", result.getFound().size(), result.getMissing().size());
+        return result;
+    }
+
+    // Метод checkLike проверяет, что фильм и пользователь существуют (перед постановкой лайка в очередь)
+    public void checkLike(Long filmId, Long userId) {
+        getFilmOrThrow(filmId);
+        getUserOrThrow(userId);
+    }
+
     // Метод addLike для добавления лайка фильму от пользователя
     public void addLike(Long filmId, Long userId) {
         log.debug("Добавление лайка: filmId={}, userId={}", filmId, userId);
+        LikeEvent event = new LikeEvent();
+        event.begin();
         // Получаем фильм по ID, используя метод getFilmOrThrow (если фильм не найден, будет выброшено исключение)
         Film film = getFilmOrThrow(filmId);
         // Получаем пользователя по ID, используя метод getUserOrThrow
         getUserOrThrow(userId);
 
-        // Добавляем ID пользователя в список лайков фильма
-        film.getLikes().add(userId);
-        // Обновляем фильм в хранилище
-        filmStorage.update(film);
+        // Добавляем лайк через хранилище (для базы данных это одна вставка в таблицу лайков),
+        // повторный лайк в сводке популярности не учитываем
+        boolean added = filmStorage.addLike(film, userId);
+        if (added) {
+            likeIndex.add(userId, filmId);
+            popularFilmsTracker.recordLike(filmId);
+            reachService.recordLike(filmId, userId);
+            popularFlights.invalidateAll();
+        }
+        event.finish(filmId, userId, true, added, film.getLikeCount());
         log.info("Пользователь с ID {} поставил лайк фильму с ID {}", userId, filmId);
     }
 
     // Метод removeLike для удаления лайка с фильма от пользователя
     public void removeLike(Long filmId, Long userId) {
         log.debug("Удаление лайка: filmId={}, userId={}", filmId, userId);
+        LikeEvent event = new LikeEvent();
+        event.begin();
         // Получаем фильм по ID
         Film film = getFilmOrThrow(filmId);
         // Получаем пользователя по ID
         getUserOrThrow(userId);
 
-        // Удаляем ID пользователя из списка лайков фильма
-        film.getLikes().remove(userId);
-        // Обновляем фильм в хранилище
-        filmStorage.update(film);
+        // Удаляем лайк пользователя с фильма через хранилище
+        boolean removed = filmStorage.removeLike(film, userId);
+        if (removed) {
+            likeIndex.remove(userId, filmId);
+            popularFilmsTracker.recordUnlike(filmId);
+            reachService.likeRemoved(filmId, userId);
+            popularFlights.invalidateAll();
+        }
+        event.finish(filmId, userId, false, removed, film.getLikeCount());
         log.info("Пользователь с ID {} удалил лайк с фильма с ID {}", userId, filmId);
     }
 
+    // Метод deleteFilm для удаления фильма вместе с его записями в обратном индексе лайков
+    public void deleteFilm(Long filmId) {
+        log.debug("Удаление фильма с ID {}", filmId);
+        Film film = getFilmOrThrow(filmId);
+        // Лайкнувшие фильм известны из самого фильма, поэтому очистка занимает O(количество лайков)
+        for (Long userId : film.getLikes()) {
+            likeIndex.remove(userId, filmId);
+            popularFilmsTracker.recordUnlike(filmId);
+        }
+        filmStorage.delete(filmId);
+        reachService.filmRemoved(filmId);
+        popularFlights.invalidateAll();
+        log.info("Фильм с ID {} удалён, снято {} лайков", filmId, film.getLikeCount());
+    }
+
+    // Метод removeAllLikes для снятия всех лайков пользователя (используется при удалении пользователя).
+    // Фильмы находятся по обратному индексу, поэтому весь каталог не просматривается
+    public void removeAllLikes(Long userId) {
+        Set<Long> filmIds = likeIndex.removeUser(userId);
+        log.debug("Снятие {} лайков пользователя с ID {}", filmIds.size(), userId);
+        for (Long filmId : filmIds) {
+            filmStorage.findById(filmId).ifPresent(film -> {
+                if (filmStorage.removeLike(film, userId)) {
+                    popularFilmsTracker.recordUnlike(filmId);
+                    reachService.likeRemoved(filmId, userId);
+                }
+            });
+        }
+        if (!filmIds.isEmpty()) {
+            popularFlights.invalidateAll();
+        }
+    }
+
+    // Метод getLikedFilms для постраничного получения фильмов, которые лайкнул пользователь, в порядке возрастания ID
+    public List<Film> getLikedFilms(Long userId, int from, int size) {
+        log.debug("Получение лайкнутых фильмов пользователя с ID {}: from={}, size={}", userId, from, size);
+        getUserOrThrow(userId);
+        List<Film> films = likeIndex.page(userId, from, size).stream()
+                .map(filmStorage::findById)
+                .flatMap(Optional::stream)
+                .toList();
+        log.debug("Найдено {} лайкнутых фильмов", films.size());
+        return films;
+    }
+
+    // Метод getLikes для получения страницы ID пользователей, лайкнувших фильм: не больше limit ID,
+    // больших курсора after (если after не указан — с начала), в порядке возрастания
+    public LikesPage getLikes(Long filmId, Long after, int limit) {
+        log.debug("Получение лайков фильма с ID {}: after={}, limit={}", filmId, after, limit);
+        Film film = getFilmOrThrow(filmId);
+        // Берём на один ID больше, чтобы понять, есть ли следующая страница
+        long[] ids = film.getLikes().after(after == null ? Long.MIN_VALUE : after, limit + 1);
+        Long next = null;
+        if (ids.length > limit) {
+            ids = Arrays.copyOf(ids, limit);
+            next = ids[limit - 1];
+        }
+        log.debug("Возвращено {} из {} лайков", ids.length, film.getLikeCount());
+        return new LikesPage(ids, next, film.getLikeCount());
+    }
+
     // Метод getPopularFilms для получения списка популярных фильмов, сортированных по количеству лайков
     public List<Film> getPopularFilms(int count) {
         log.debug("Получение популярных фильмов, count={}", count);
@@ -91,16 +203,40 @@ public class FilmService {
             log.error("Количество фильмов должно быть положительным числом: {}", count);
             throw new ValidationException("Количество фильмов должно быть положительным числом");
         }
-        // Получаем все фильмы из хранилища, сортируем их в порядке убывания лайков
-        // и берём первые count фильмов
-        List<Film> popularFilms = filmStorage.findAll().stream()
-                // Сортируем фильмы с помощью компаратора LIKES_COMPARATOR
-                .sorted(LIKES_COMPARATOR)
-                // Ограничиваем количество фильмов параметром count
-                .limit(count)
-                // Преобразуем Stream в List
-                .collect(Collectors.toList());
+        PopularFilmsEvent event = new PopularFilmsEvent();
+        event.begin();
+        // Одновременные запросы с тем же count получают результат одного вычисления,
+        // после лайка или удаления фильма список вычисляется заново
+        List<Film> popularFilms = popularFlights.get(count, () -> loadPopularFilms(count));
+        event.finish(count, popularFilms.size(), popularFilmsTracker.canServe(count));
+        return popularFilms;
+    }
+
+    private List<Film> loadPopularFilms(int count) {
+        if (popularFilmsTracker.canServe(count)) {
+            // В приближённом режиме берём ID фильмов из сводки и загружаем только их
+            List<Film> popularFilms = popularFilmsTracker.topFilms(count).stream()
+                    .map(estimate -> filmStorage.findById(estimate.key()))
+                    .flatMap(Optional::stream)
+                    .toList();
+            log.debug("Найдено {} популярных фильмов (приближённо)", popularFilms.size());
+            return popularFilms;
+        }
+        // Хранилище само выбирает count фильмов с наибольшим количеством лайков (порядок LIKES_COMPARATOR),
+        // не сортируя весь каталог; шардированное хранилище делает это по шардам параллельно
+        // Список отдаётся нескольким запросам сразу, поэтому возвращаем его неизменяемым
+        List<Film> popularFilms = List.copyOf(filmStorage.findPopular(count));
         log.debug("Найдено {} популярных фильмов", popularFilms.size());
         return popularFilms;
     }
+
+    // Метод isPopularFilmsApproximate сообщает, будет ли ответ getPopularFilms(count) приближённым
+    public boolean isPopularFilmsApproximate(int count) {
+        return popularFilmsTracker.canServe(count);
+    }
+
+    // Метод getPopularFilmsErrorBound возвращает максимальное завышение количества лайков в приближённом ответе
+    public long getPopularFilmsErrorBound() {
+        return popularFilmsTracker.errorBound();
+    }
 }
\ No newline at end of file
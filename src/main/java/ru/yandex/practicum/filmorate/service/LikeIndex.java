@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+// Класс LikeIndex хранит обратный индекс лайков: для каждого пользователя — упорядоченное множество ID фильмов,
+// которые он лайкнул. Индекс обновляется FilmService вместе с лайками фильмов и позволяет найти все лайки
+// пользователя за O(количество его лайков), не просматривая весь каталог фильмов
+@Slf4j
+@Component
+public class LikeIndex {
+
+    private final Map<Long, NavigableSet<Long>> filmsByUser = new ConcurrentHashMap<>();
+
+    public LikeIndex(FilmStorage filmStorage) {
+        // Заполняем индекс лайками, которые уже есть в хранилище, обходя их потоком, а не загружая все фильмы
+        LongAdder likes = new LongAdder();
+        filmStorage.forEachLike((filmId, userId) -> {
+            add(userId, filmId);
+            likes.increment();
+        });
+        log.debug("Обратный индекс лайков заполнен: {} пользователей, {} лайков", filmsByUser.size(), likes.sum());
+    }
+
+    // Метод add учитывает лайк пользователя userId фильму filmId
+    public void add(Long userId, Long filmId) {
+        // Изменяем множество внутри compute, чтобы параллельный remove не удалил его между созданием и вставкой
+        filmsByUser.compute(userId, (id, films) -> {
+            NavigableSet<Long> result = films == null ? new ConcurrentSkipListSet<>() : films;
+            result.add(filmId);
+            return result;
+        });
+    }
+
+    // Метод remove убирает лайк пользователя userId с фильма filmId
+    public void remove(Long userId, Long filmId) {
+        filmsByUser.computeIfPresent(userId, (id, films) -> {
+            films.remove(filmId);
+            return films.isEmpty() ? null : films;
+        });
+    }
+
+    // Метод removeUser удаляет все записи пользователя и возвращает ID фильмов, которые он лайкнул
+    public Set<Long> removeUser(Long userId) {
+        Set<Long> films = filmsByUser.remove(userId);
+        return films == null ? Set.of() : films;
+    }
+
+    // Метод likedFilms возвращает ID фильмов, которые лайкнул пользователь, в порядке возрастания
+    public Set<Long> likedFilms(Long userId) {
+        NavigableSet<Long> films = filmsByUser.get(userId);
+        return films == null ? Set.of() : Collections.unmodifiableSet(films);
+    }
+
+    // Метод page возвращает size ID фильмов, лайкнутых пользователем, начиная с позиции from
+    public List<Long> page(Long userId, int from, int size) {
+        return likedFilms(userId).stream()
+                .skip(from)
+                .limit(size)
+                .toList();
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.sketch.SpaceSaving;
+import ru.yandex.practicum.filmorate.sketch.StripedSpaceSaving;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.List;
+
+// Класс PopularFilmsTracker поддерживает приближённый топ популярных фильмов на основе сводки Space-Saving.
+// Включается свойством filmorate.popular.mode=approximate; в режиме exact (по умолчанию) ничего не хранит,
+// и популярные фильмы вычисляются хранилищем точно
+@Slf4j
+@Service
+public class PopularFilmsTracker {
+
+    private final boolean approximate;
+    // Сводка Space-Saving с фиксированным числом счётчиков, разбитая на полосы, чтобы лайки разных фильмов
+    // не упирались в одну блокировку (null в точном режиме)
+    private final StripedSpaceSaving sketch;
+
+    public PopularFilmsTracker(FilmStorage filmStorage,
+                               @Value("${filmorate.popular.mode:exact}") String mode,
+                               @Value("${filmorate.popular.sketch.epsilon:0.001}") double epsilon,
+                               @Value("${filmorate.popular.sketch.max-counters:10000}") int maxCounters) {
+        this.approximate = "approximate".equalsIgnoreCase(mode);
+        if (!approximate) {
+            this.sketch = null;
+            return;
+        }
+        this.sketch = StripedSpaceSaving.forErrorBound(epsilon, maxCounters);
+        // Заполняем сводку количеством лайков, которые уже есть в хранилище, не загружая фильмы и сами лайки
+        filmStorage.forEachLikeCount(sketch::offer);
+        log.info("Включён приближённый режим популярных фильмов: {} счётчиков, учтено {} лайков",
+                sketch.capacity(), sketch.total());
+    }
+
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    // Метод canServe проверяет, можно ли ответить на запрос топа из count фильмов по сводке
+    public boolean canServe(int count) {
+        return approximate && count <= sketch.capacity();
+    }
+
+    // Метод recordLike учитывает новый лайк фильма
+    public void recordLike(Long filmId) {
+        if (approximate) {
+            sketch.offer(filmId, 1);
+        }
+    }
+
+    // Метод recordUnlike учитывает снятый лайк фильма
+    public void recordUnlike(Long filmId) {
+        if (approximate) {
+            sketch.decrement(filmId);
+        }
+    }
+
+    // Метод topFilms возвращает оценки count самых популярных фильмов в порядке убывания
+    public List<SpaceSaving.Estimate> topFilms(int count) {
+        return sketch.top(count);
+    }
+
+    // Метод errorBound возвращает максимальное завышение количества лайков в приближённом ответе
+    public long errorBound() {
+        return approximate ? sketch.errorBound() : 0;
+    }
+}
@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserReach;
+import ru.yandex.practicum.filmorate.sketch.HyperLogLog;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Класс ReachService поддерживает скетчи HyperLogLog для оценки социального охвата пользователей.
+// Скетчи друзей каждого пользователя и лайкнувших каждый фильм обновляются инкрементально при addFriend и addLike,
+// а при запросе охвата объединяются. HyperLogLog не поддерживает удаление, поэтому после удаления друга или лайка
+// соответствующий скетч помечается устаревшим и пересобирается из хранилища при следующем обращении
+@Slf4j
+@Service
+public class ReachService {
+
+    private final UserStorage userStorage;
+    private final FilmStorage filmStorage;
+    // Обратный индекс лайков, по которому находятся фильмы, лайкнутые друзьями пользователя
+    private final LikeIndex likeIndex;
+    private final int precision;
+
+    // Текущее состояние скетчей и состояние, которое заполняется во время перестройки (null, если её нет)
+    private volatile Sketches current = new Sketches();
+    private volatile Sketches building;
+
+    public ReachService(UserStorage userStorage, FilmStorage filmStorage, LikeIndex likeIndex,
+                        @Value("${filmorate.reach.precision:12}") int precision) {
+        this.userStorage = userStorage;
+        this.filmStorage = filmStorage;
+        this.likeIndex = likeIndex;
+        this.precision = precision;
+    }
+
+    // Метод recordFriendship учитывает взаимную дружбу пользователей userId и friendId
+    public void recordFriendship(Long userId, Long friendId) {
+        forEachState(state -> {
+            state.friendSketch(userId).add(friendId);
+            state.friendSketch(friendId).add(userId);
+        });
+    }
+
+    // Метод friendshipRemoved помечает скетчи друзей обоих пользователей устаревшими
+    public void friendshipRemoved(Long userId, Long friendId) {
+        forEachState(state -> {
+            state.staleUsers.add(userId);
+            state.staleUsers.add(friendId);
+        });
+    }
+
+    // Метод recordLike учитывает лайк пользователя userId фильму filmId
+    public void recordLike(Long filmId, Long userId) {
+        forEachState(state -> state.likerSketch(filmId).add(userId));
+    }
+
+    // Метод likeRemoved помечает скетч лайкнувших фильм устаревшим
+    public void likeRemoved(Long filmId, Long userId) {
+        forEachState(state -> state.staleFilms.add(filmId));
+    }
+
+    // Метод filmRemoved помечает скетч удалённого фильма устаревшим, при следующем обращении он будет удалён
+    public void filmRemoved(Long filmId) {
+        forEachState(state -> state.staleFilms.add(filmId));
+    }
+
+    // Метод getReach объединяет скетчи друзей пользователя и скетчи лайкнувших фильмы, которые лайкнули друзья
+    public UserReach getReach(User user) {
+        Sketches state = current;
+        HyperLogLog own = friendSketch(state, user.getId());
+        HyperLogLog twoHops = own != null ? own.copy() : new HyperLogLog(precision);
+        HyperLogLog coLikers = new HyperLogLog(precision);
+        for (Long friendId : user.getFriends()) {
+            HyperLogLog friends = friendSketch(state, friendId);
+            if (friends != null) {
+                twoHops.merge(friends);
+            }
+            for (Long filmId : likeIndex.likedFilms(friendId)) {
+                HyperLogLog likers = likerSketch(state, filmId);
+                if (likers != null) {
+                    coLikers.merge(likers);
+                }
+            }
+        }
+        // Сам пользователь попадает в скетчи своих друзей, поэтому исключаем его из оценки
+        long withinTwoHops = Math.max(0, twoHops.estimate() - (user.getFriends().isEmpty() ? 0 : 1));
+        return new UserReach(user.getId(), withinTwoHops, coLikers.estimate(), twoHops.relativeError());
+    }
+
+    // Метод rebuild параллельно пересобирает все скетчи из хранилищ (например, после восстановления из снимка).
+    // Изменения, пришедшие во время перестройки, применяются и к старому, и к новому состоянию
+    public synchronized RebuildResult rebuild() {
+        long start = System.nanoTime();
+        Sketches next = new Sketches();
+        building = next;
+        try {
+            userStorage.findAll().parallelStream()
+                    .forEach(user -> next.friendSketches.put(user.getId(), sketchOf(user.getFriends())));
+            filmStorage.findAll().parallelStream()
+                    .forEach(film -> next.likerSketches.put(film.getId(), sketchOf(film.getLikes())));
+            current = next;
+        } finally {
+            building = null;
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Скетчи охвата перестроены за {} мс: {} пользователей, {} фильмов",
+                millis, next.friendSketches.size(), next.likerSketches.size());
+        return new RebuildResult(next.friendSketches.size(), next.likerSketches.size(), millis);
+    }
+
+    // Методы friendSketch и likerSketch возвращают null, если скетча нет: пустой скетч на 2^precision байт
+    // не создаётся заново при каждом обращении
+    private HyperLogLog friendSketch(Sketches state, Long userId) {
+        if (state.staleUsers.remove(userId)) {
+            userStorage.findById(userId).ifPresentOrElse(
+                    user -> state.friendSketches.put(userId, sketchOf(user.getFriends())),
+                    () -> state.friendSketches.remove(userId));
+        }
+        return state.friendSketches.get(userId);
+    }
+
+    private HyperLogLog likerSketch(Sketches state, Long filmId) {
+        if (state.staleFilms.remove(filmId)) {
+            filmStorage.findById(filmId).map(Film::getLikes).ifPresentOrElse(
+                    likes -> state.likerSketches.put(filmId, sketchOf(likes)),
+                    () -> state.likerSketches.remove(filmId));
+        }
+        return state.likerSketches.get(filmId);
+    }
+
+    private HyperLogLog sketchOf(Set<Long> ids) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (Long id : ids) {
+            sketch.add(id);
+        }
+        return sketch;
+    }
+
+    private void forEachState(Consumer<Sketches> mutation) {
+        mutation.accept(current);
+        Sketches next = building;
+        if (next != null) {
+            mutation.accept(next);
+        }
+    }
+
+    // Результат перестройки скетчей
+    public record RebuildResult(int users, int films, long millis) {
+    }
+
+    // Набор скетчей: друзья по пользователям и лайкнувшие по фильмам
+    private final class Sketches {
+        private final Map<Long, HyperLogLog> friendSketches = new ConcurrentHashMap<>();
+        private final Map<Long, HyperLogLog> likerSketches = new ConcurrentHashMap<>();
+        private final Set<Long> staleUsers = ConcurrentHashMap.newKeySet();
+        private final Set<Long> staleFilms = ConcurrentHashMap.newKeySet();
+
+        HyperLogLog friendSketch(Long userId) {
+            return friendSketches.computeIfAbsent(userId, id -> new HyperLogLog(precision));
+        }
+
+        HyperLogLog likerSketch(Long filmId) {
+            return likerSketches.computeIfAbsent(filmId, id -> new HyperLogLog(precision));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserDistance;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.util.LongLongHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Класс SeparationService ищет кратчайшую цепочку дружбы между двумя пользователями двунаправленным поиском
+// в ширину: фронты растут навстречу друг другу от обоих пользователей, и на каждом шаге раскрывается меньший
+// из них. Посещённые вершины хранятся в хеш-таблицах long -> long (пользователь -> от кого пришли), которые
+// берутся из пула и переиспользуются между запросами. Глубина поиска и число посещённых пользователей ограничены
+@Slf4j
+@Service
+public class SeparationService {
+
+    // Сколько пользователей запрашивать у хранилища за один вызов при раскрытии фронта
+    private static final int BATCH_SIZE = 1000;
+    // Сколько таблиц посещённых вершин держать в пуле
+    private static final int MAX_POOLED = 16;
+    // Признак корня поиска в таблице "пользователь -> от кого пришли" (ID пользователей начинаются с 1)
+    private static final long ROOT = 0;
+
+    private final UserStorage userStorage;
+    private final int defaultMaxDepth;
+    private final int maxDepthLimit;
+    private final int maxVisits;
+    private final Queue<LongLongHashMap> pool = new ConcurrentLinkedQueue<>();
+
+    public SeparationService(UserStorage userStorage,
+                             @Value("${filmorate.graph.distance.default-max-depth:6}") int defaultMaxDepth,
+                             @Value("${filmorate.graph.distance.max-depth-limit:12}") int maxDepthLimit,
+                             @Value("${filmorate.graph.distance.max-visits:200000}") int maxVisits) {
+        this.userStorage = userStorage;
+        this.defaultMaxDepth = defaultMaxDepth;
+        this.maxDepthLimit = maxDepthLimit;
+        this.maxVisits = maxVisits;
+    }
+
+    // Метод distance ищет кратчайшую цепочку дружбы от userId до otherId длиной не больше maxDepth шагов
+    // (если maxDepth не указан — значение по умолчанию из настроек)
+    public UserDistance distance(User user, User other, Integer maxDepth) {
+        int depthLimit = maxDepth == null ? defaultMaxDepth : maxDepth;
+        if (depthLimit <= 0 || depthLimit > maxDepthLimit) {
+            throw new ValidationException("Параметр maxDepth должен быть от 1 до " + maxDepthLimit);
+        }
+        long from = user.getId();
+        long to = other.getId();
+        if (from == to) {
+            return new UserDistance(from, to, UserDistance.Status.FOUND, 0, List.of(from), 1, 0);
+        }
+        LongLongHashMap forward = acquire();
+        LongLongHashMap backward = acquire();
+        try {
+            return search(user, other, depthLimit, forward, backward);
+        } finally {
+            release(forward);
+            release(backward);
+        }
+    }
+
+    private UserDistance search(User user, User other, int depthLimit,
+                                LongLongHashMap forward, LongLongHashMap backward) {
+        long from = user.getId();
+        long to = other.getId();
+        forward.putIfAbsent(from, ROOT);
+        backward.putIfAbsent(to, ROOT);
+        Frontier forwardFrontier = new Frontier(from);
+        Frontier backwardFrontier = new Frontier(to);
+        int depth = 0;
+        int expanded = 0;
+        while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+            if (depth >= depthLimit) {
+                return notFound(from, to, UserDistance.Status.DEPTH_LIMIT, forward, backward, expanded);
+            }
+            // Раскрываем меньший фронт: так число посещённых вершин растёт медленнее всего
+            boolean expandForward = forwardFrontier.size <= backwardFrontier.size;
+            Frontier frontier = expandForward ? forwardFrontier : backwardFrontier;
+            LongLongHashMap visited = expandForward ? forward : backward;
+            LongLongHashMap opposite = expandForward ? backward : forward;
+            Frontier next = new Frontier();
+            long meeting = ROOT;
+            int bestLength = Integer.MAX_VALUE;
+            boolean budgetExceeded = false;
+            for (int start = 0; start < frontier.size && !budgetExceeded; start += BATCH_SIZE) {
+                List<User> users = frontier.load(start, userStorage, expandForward ? user : other);
+                for (User current : users) {
+                    expanded++;
+                    for (Long friendId : current.getFriends()) {
+                        if (visited.containsKey(friendId)) {
+                            continue;
+                        }
+                        if (forward.size() + backward.size() >= maxVisits) {
+                            budgetExceeded = true;
+                            break;
+                        }
+                        visited.putIfAbsent(friendId, current.getId());
+                        if (opposite.containsKey(friendId)) {
+                            // Вершина уже достигнута с другой стороны: длина цепочки — сумма расстояний до неё
+                            int length = chainLength(visited, friendId) + chainLength(opposite, friendId);
+                            if (length < bestLength) {
+                                bestLength = length;
+                                meeting = friendId;
+                            }
+                        } else {
+                            next.add(friendId);
+                        }
+                    }
+                    if (budgetExceeded) {
+                        break;
+                    }
+                }
+            }
+            // Уровень раскрыт полностью (или до исчерпания бюджета): из найденных встреч выбираем кратчайшую
+            if (meeting != ROOT) {
+                List<Long> path = path(forward, backward, meeting);
+                return new UserDistance(from, to, UserDistance.Status.FOUND, path.size() - 1, path,
+                        forward.size() + backward.size(), expanded);
+            }
+            if (budgetExceeded) {
+                return notFound(from, to, UserDistance.Status.VISIT_LIMIT, forward, backward, expanded);
+            }
+            if (expandForward) {
+                forwardFrontier = next;
+            } else {
+                backwardFrontier = next;
+            }
+            depth++;
+        }
+        return notFound(from, to, UserDistance.Status.NOT_CONNECTED, forward, backward, expanded);
+    }
+
+    private static UserDistance notFound(long from, long to, UserDistance.Status status,
+                                         LongLongHashMap forward, LongLongHashMap backward, int expanded) {
+        log.debug("Цепочка дружбы от {} до {} не найдена: {}", from, to, status);
+        return new UserDistance(from, to, status, null, List.of(), forward.size() + backward.size(), expanded);
+    }
+
+    // Метод chainLength возвращает число шагов от вершины node до корня поиска по таблице parents
+    private static int chainLength(LongLongHashMap parents, long node) {
+        int length = 0;
+        for (long current = parents.get(node, ROOT); current != ROOT; current = parents.get(current, ROOT)) {
+            length++;
+        }
+        return length;
+    }
+
+    // Метод path собирает цепочку: от начального пользователя до точки встречи и от неё до конечного
+    private static List<Long> path(LongLongHashMap forward, LongLongHashMap backward, long meeting) {
+        List<Long> path = new ArrayList<>();
+        for (long current = meeting; current != ROOT; current = forward.get(current, ROOT)) {
+            path.add(current);
+        }
+        Collections.reverse(path);
+        for (long current = backward.get(meeting, ROOT); current != ROOT; current = backward.get(current, ROOT)) {
+            path.add(current);
+        }
+        return path;
+    }
+
+    private LongLongHashMap acquire() {
+        LongLongHashMap map = pool.poll();
+        return map != null ? map : new LongLongHashMap(1024);
+    }
+
+    private void release(LongLongHashMap map) {
+        map.clear();
+        // Слишком разросшиеся таблицы не возвращаем, чтобы пул не удерживал много памяти
+        if (map.capacity() <= 8L * maxVisits && pool.size() < MAX_POOLED) {
+            pool.offer(map);
+        }
+    }
+
+    // Фронт поиска: ID пользователей текущего уровня в массиве long[]
+    private static final class Frontier {
+        private long[] ids = new long[16];
+        private int size;
+
+        Frontier() {
+        }
+
+        Frontier(long id) {
+            add(id);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        // Метод load читает из хранилища пользователей фронта с позиции start одним вызовом.
+        // Корень уже прочитан, поэтому для фронта из одного корня хранилище не запрашивается
+        List<User> load(int start, UserStorage storage, User root) {
+            if (size == 1 && ids[0] == root.getId()) {
+                return List.of(root);
+            }
+            int end = Math.min(size, start + BATCH_SIZE);
+            List<Long> batch = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                batch.add(ids[i]);
+            }
+            return storage.findAllById(batch);
+        }
+    }
+}
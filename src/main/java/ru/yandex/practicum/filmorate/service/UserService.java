@@ -2,14 +2,20 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.coalesce.SingleFlight;
+import ru.yandex.practicum.filmorate.coalesce.SingleFlightRegistry;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.fanout.FanOut;
+import ru.yandex.practicum.filmorate.jfr.FriendshipEvent;
+import ru.yandex.practicum.filmorate.model.BulkLookup;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserDistance;
+import ru.yandex.practicum.filmorate.model.UserReach;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service // Аннотация @Service указывает, что этот класс является сервисом в Spring (содержит бизнес-логику)
@@ -17,98 +23,197 @@ public class UserService {
 
     // Переменная userStorage для работы с хранилищем пользователей
     private final UserStorage userStorage;
+    // Переменная reachService для обновления скетчей социального охвата
+    private final ReachService reachService;
+    // Переменная filmService для снятия лайков удаляемого пользователя и выдачи его лайкнутых фильмов
+    private final FilmService filmService;
+    // Переменная separationService для поиска кратчайших цепочек дружбы
+    private final SeparationService separationService;
+    // Переменная commonFriendsFlights объединяет одновременные запросы общих друзей одной пары пользователей
+    private final SingleFlight<List<Long>, FanOut.Result<User>> commonFriendsFlights;
+    // Переменная fanOut для параллельного поиска друзей в удалённом или дисковом хранилище
+    private final FanOut fanOut;
 
-    // Конструктор класса UserService, который принимает зависимость userStorage
-    public UserService(UserStorage userStorage) {
+    // Конструктор класса UserService, который принимает зависимости от хранилища и вспомогательных сервисов
+    public UserService(UserStorage userStorage, ReachService reachService, FilmService filmService,
+                       SeparationService separationService, SingleFlightRegistry singleFlightRegistry,
+                       FanOut fanOut) {
         this.userStorage = userStorage;
+        this.reachService = reachService;
+        this.filmService = filmService;
+        this.separationService = separationService;
+        this.commonFriendsFlights = singleFlightRegistry.create("common-friends");
+        this.fanOut = fanOut;
     }
 
     // Метод getUserOrThrow для получения пользователя по Id или выброса исключения, если пользователь не найден
     private User getUserOrThrow(Long userId) {
         log.debug("Поиск пользователя с ID {}", userId);
+        // Пользователя, которого точно нет по фильтру Блума хранилища, не ищем, а исключение создаём без стека
+        if (userStorage.isDefinitelyAbsent(userId)) {
+            throw NotFoundException.withoutStackTrace("Пользователь с ID " + userId + " не найден");
+        }
         User user = userStorage.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Пользователь с ID " + userId + " не найден"));
         log.debug("Пользователь найден: {}", user);
         return user;
     }
 
+    // Метод getUsers для получения нескольких пользователей по списку ID одним обращением к хранилищу.
+    // Отсутствующие ID возвращаются в поле missing, исключение при этом не выбрасывается
+    public BulkLookup<User> getUsers(List<Long> ids) {
+        log.debug("Получение пользователей по {} ID", ids.size());
+        BulkLookup<User> result = BulkLookup.of(ids, userStorage.findAllById(ids), User::getId);
+        log.debug("Найдено {} пользователей, не найдено {}", result.getFound().size(), result.getMissing().size());
+        return result;
+    }
+
+    // Метод checkFriendship проверяет, что оба пользователя существуют (перед постановкой дружбы в очередь)
+    public void checkFriendship(Long userId, Long friendId) {
+        getUserOrThrow(userId);
+        getUserOrThrow(friendId);
+    }
+
     // Метод addFriend для добавления друга пользователю
     public void addFriend(Long userId, Long friendId) {
         log.debug("Добавление друга: userId={}, friendId={}", userId, friendId);
+        FriendshipEvent event = new FriendshipEvent();
+        event.begin();
         // Получаем пользователя по ID, используя метод getUserOrThrow
         User user = getUserOrThrow(userId);
         // Получаем друга по ID
         User friend = getUserOrThrow(friendId);
 
-        // Добавляем ID друга в список друзей пользователя
-        user.getFriends().add(friendId);
-        // Добавляем ID пользователя в список друзей друга (дружба взаимная)
-        friend.getFriends().add(userId);
-        // Обновляем пользователя в хранилище
-        userStorage.update(user);
-        // Обновляем друга в хранилище
-        userStorage.update(friend);
+        // Добавляем взаимную дружбу через хранилище (для базы данных это две строки в таблице дружбы)
+        userStorage.addFriend(user, friend);
+        reachService.recordFriendship(userId, friendId);
+        invalidateCommonFriends(userId, friendId);
+        event.finish("addFriend", userId, friendId, user.getFriends().size(), friend.getFriends().size(), -1);
         log.info("Пользователь с ID {} добавил в друзья пользователя с ID {}", userId, friendId);
     }
 
     // Метод removeFriend для удаления друга у пользователя
     public void removeFriend(Long userId, Long friendId) {
         log.debug("Удаление друга: userId={}, friendId={}", userId, friendId);
+        FriendshipEvent event = new FriendshipEvent();
+        event.begin();
         // Получаем пользователя по ID
         User user = getUserOrThrow(userId);
         // Получаем друга по ID
         User friend = getUserOrThrow(friendId);
 
-        // Удаляем ID друга из списка друзей пользователя
-        user.getFriends().remove(friendId);
-        // Удаляем ID пользователя из списка друзей друга (дружба взаимная)
-        friend.getFriends().remove(userId);
-        // Обновляем пользователя в хранилище
-        userStorage.update(user);
-        // Обновляем друга в хранилище
-        userStorage.update(friend);
+        // Удаляем взаимную дружбу через хранилище
+        userStorage.removeFriend(user, friend);
+        reachService.friendshipRemoved(userId, friendId);
+        invalidateCommonFriends(userId, friendId);
+        event.finish("removeFriend", userId, friendId, user.getFriends().size(), friend.getFriends().size(), -1);
         log.info("Пользователь с ID {} удалил из друзей пользователя с ID {}", userId, friendId);
     }
 
-    // Метод getFriends для получения списка друзей пользователя
-    public List<User> getFriends(Long userId) {
+    // Метод getFriends для получения списка друзей пользователя с параметрами параллельного поиска из запроса
+    // (политика при ошибках и срок); без параметров действуют настройки filmorate.lookups.fan-out
+    public FanOut.Result<User> getFriends(Long userId, FanOut.Options options) {
         log.debug("Получение списка друзей для пользователя с ID {}", userId);
+        FriendshipEvent event = new FriendshipEvent();
+        event.begin();
         // Получаем пользователя по ID
         User user = getUserOrThrow(userId);
-        // Получаем список друзей пользователя: берём список ID друзей, преобразуем каждый ID в объект User
-        // и собираем в список
-        List<User> friends = user.getFriends().stream()
-                // Для каждого ID друга вызываем метод getUserOrThrow, чтобы получить объект User
-                .map(this::getUserOrThrow)
-                // Преобразуем Stream в List
-                .collect(Collectors.toList());
-        log.debug("Найдено {} друзей", friends.size());
+        FanOut.Result<User> friends;
+        if (fanOut.applies(user.getFriends().size())) {
+            // Каждый друг ищется в своём виртуальном потоке
+            friends = fanOut.lookup(user.getFriends(), userStorage::findById, options);
+        } else {
+            // Получаем список друзей пользователя одним запросом к хранилищу
+            // (для базы данных это один JOIN вместо отдельного поиска каждого друга)
+            friends = FanOut.Result.complete(userStorage.findFriends(user));
+        }
+        event.finish("getFriends", userId, 0, user.getFriends().size(), -1, friends.items().size());
+        log.debug("Найдено {} друзей, не найдено из-за ошибок или срока {}", friends.items().size(),
+                friends.unresolved());
         return friends;
     }
 
-    // Метод getCommonFriends для получения списка общих друзей двух пользователей
-    public List<User> getCommonFriends(Long userId, Long otherUserId) {
-        log.debug("Получение общих друзей: userId={}, otherUserId={}", userId, otherUserId);
+    // Метод getCommonFriends для получения списка общих друзей двух пользователей с параметрами параллельного
+    // поиска из запроса. Одновременные запросы без параметров для той же пары пользователей получают результат
+    // одного вычисления; неполный результат не запоминается. Запросы с параметрами зависят от своих срока
+    // и политики, поэтому не объединяются с другими
+    public FanOut.Result<User> getCommonFriends(Long userId, Long otherUserId, FanOut.Options options) {
+        log.debug("Получение общих друзей с параметрами {}: userId={}, otherUserId={}", options, userId,
+                otherUserId);
+        FriendshipEvent event = new FriendshipEvent();
+        event.begin();
+        FanOut.Result<User> result = FanOut.Options.DEFAULT.equals(options)
+                ? commonFriendsFlights.get(List.of(userId, otherUserId),
+                        () -> loadCommonFriends(userId, otherUserId, options), found -> found.unresolved() == 0)
+                : loadCommonFriends(userId, otherUserId, options);
+        event.finish("getCommonFriends", userId, otherUserId, -1, -1, result.items().size());
+        return result;
+    }
+
+    private FanOut.Result<User> loadCommonFriends(Long userId, Long otherUserId, FanOut.Options options) {
         // Получаем первого пользователя по ID
         User user = getUserOrThrow(userId);
         // Получаем второго пользователя по ID
         User otherUser = getUserOrThrow(otherUserId);
 
-        // Создаём коллекцию commonFriends, копируя список друзей первого пользователя
-        Set<Long> commonFriends = new HashSet<>(user.getFriends());
         log.debug("Друзья пользователя {}: {}", userId, user.getFriends());
         log.debug("Друзья пользователя {}: {}", otherUserId, otherUser.getFriends());
-        // Оставляем в commonFriends те ID, которые есть в списке друзей второго пользователя (находим пересечение)
-        commonFriends.retainAll(otherUser.getFriends());
-        log.debug("Общие друзья: {}", commonFriends);
-
-        // Преобразуем множество ID общих друзей в список объектов User
-        List<User> result = commonFriends.stream()
-                // Для каждого ID друга вызываем метод getUserOrThrow, чтобы получить объект User
-                .map(this::getUserOrThrow)
-                // Преобразуем Stream в List
-                .collect(Collectors.toList());
-        log.debug("Найдено {} общих друзей", result.size());
+        FanOut.Result<User> result;
+        Collection<Long> common = user.getFriends().stream().filter(otherUser.getFriends()::contains).toList();
+        if (fanOut.applies(common.size())) {
+            FanOut.Result<User> found = fanOut.lookup(common, userStorage::findById, options);
+            result = new FanOut.Result<>(List.copyOf(found.items()), found.unresolved());
+        } else {
+            // Получаем пересечение списков друзей одним запросом к хранилищу
+            result = FanOut.Result.complete(List.copyOf(userStorage.findCommonFriends(user, otherUser)));
+        }
+        log.debug("Найдено {} общих друзей", result.items().size());
         return result;
     }
-}
\ No newline at end of file
+
+    // Метод invalidateCommonFriends забывает общих друзей всех пар, в которые входит один из пользователей
+    private void invalidateCommonFriends(Long userId, Long friendId) {
+        commonFriendsFlights.invalidateIf(pair -> pair.contains(userId) || pair.contains(friendId));
+    }
+
+    // Метод deleteUser для удаления пользователя вместе с его дружбами и лайками.
+    // Затрагиваются только друзья пользователя и лайкнутые им фильмы, а не все пользователи и фильмы
+    public void deleteUser(Long userId) {
+        log.debug("Удаление пользователя с ID {}", userId);
+        User user = getUserOrThrow(userId);
+        for (Long friendId : List.copyOf(user.getFriends())) {
+            userStorage.findById(friendId).ifPresent(friend -> {
+                userStorage.removeFriend(user, friend);
+                reachService.friendshipRemoved(userId, friendId);
+                invalidateCommonFriends(userId, friendId);
+            });
+        }
+        filmService.removeAllLikes(userId);
+        userStorage.delete(userId);
+        // Забываем все пары с удалённым пользователем, а не только пары с его друзьями: запомненный ответ
+        // для пары с не другом (или с другом, которого не удалось найти) иначе отдавался бы вместо 404
+        commonFriendsFlights.invalidateIf(pair -> pair.contains(userId));
+        log.info("Пользователь с ID {} удалён", userId);
+    }
+
+    // Метод getLikedFilms для постраничного получения фильмов, которые лайкнул пользователь
+    public List<Film> getLikedFilms(Long userId, int from, int size) {
+        return filmService.getLikedFilms(userId, from, size);
+    }
+
+    // Метод getReach для получения приближённого социального охвата пользователя
+    public UserReach getReach(Long userId) {
+        log.debug("Получение охвата пользователя с ID {}", userId);
+        UserReach reach = reachService.getReach(getUserOrThrow(userId));
+        log.debug("Охват пользователя: {}", reach);
+        return reach;
+    }
+
+    // Метод getDistance для поиска кратчайшей цепочки дружбы между пользователями длиной не больше maxDepth
+    public UserDistance getDistance(Long userId, Long otherId, Integer maxDepth) {
+        log.debug("Поиск цепочки дружбы от пользователя {} до {}, maxDepth={}", userId, otherId, maxDepth);
+        UserDistance distance = separationService.distance(getUserOrThrow(userId), getUserOrThrow(otherId), maxDepth);
+        log.debug("Результат поиска цепочки дружбы: {}", distance);
+        return distance;
+    }
+}
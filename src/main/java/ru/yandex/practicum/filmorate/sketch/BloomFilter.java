@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.sketch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс BloomFilter — потокобезопасный фильтр Блума для ID и строк: mightContain возвращает false, только если
+ * элемент точно не добавлялся, и true — если добавлялся или (с вероятностью около fpp) не добавлялся.
+ * Фильтр растёт вместе с числом элементов: когда в последний слой добавлено столько элементов, на сколько он
+ * рассчитан, добавляется слой вдвое больше с вдвое меньшей долей ложных срабатываний (первый слой рассчитан
+ * на fpp / 2), так что общая доля не превышает fpp. Удаление элементов не поддерживается: удалённый элемент
+ * остаётся «возможно присутствующим».
+ */
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+    // Начальный слой на 64K элементов при доле ложных срабатываний 1% занимает около 90 КБ
+    private static final long DEFAULT_EXPECTED_INSERTIONS = 1 << 16;
+    private static final double DEFAULT_FPP = 0.01;
+
+    private volatile Layer[] layers;
+
+    public BloomFilter() {
+        this(DEFAULT_EXPECTED_INSERTIONS, DEFAULT_FPP);
+    }
+
+    public BloomFilter(long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("Некорректные параметры фильтра Блума: " + expectedInsertions
+                    + ", " + fpp);
+        }
+        this.layers = new Layer[]{new Layer(expectedInsertions, fpp / 2)};
+    }
+
+    public void add(long value) {
+        addHash(mix(value));
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    public boolean mightContain(long value) {
+        return mightContainHash(mix(value));
+    }
+
+    public boolean mightContain(String value) {
+        return mightContainHash(hash(value));
+    }
+
+    // Размер всех слоёв в байтах
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (Layer layer : layers) {
+            bytes += (long) layer.bits.length() * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    private void addHash(long hash) {
+        Layer[] current = layers;
+        Layer last = current[current.length - 1];
+        last.set(hash);
+        if (last.count.incrementAndGet() == last.capacity) {
+            grow(current);
+        }
+    }
+
+    private boolean mightContainHash(long hash) {
+        for (Layer layer : layers) {
+            if (layer.test(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Новый слой добавляется один раз: рост запускает только поток, заполнивший последний слой
+    private synchronized void grow(Layer[] current) {
+        Layer last = current[current.length - 1];
+        Layer[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = new Layer(last.capacity * 2, last.fpp / 2);
+        layers = next;
+    }
+
+    private static long mix(long value) {
+        long z = value * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // 64-битный FNV-1a по байтам UTF-8 с перемешиванием результата; null хешируется как отдельное значение
+    private static long hash(String value) {
+        if (value == null) {
+            return mix(0);
+        }
+        long h = 0xCBF29CE484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    // Слой — обычный фильтр Блума из m бит и k хешей, полученных из двух половин 64-битного хеша
+    private static final class Layer {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashes;
+        private final long capacity;
+        private final double fpp;
+        private final AtomicLong count = new AtomicLong();
+
+        Layer(long capacity, double fpp) {
+            long m = (long) Math.ceil(-capacity * Math.log(fpp) / (LN2 * LN2));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) / 64));
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * LN2));
+            this.capacity = capacity;
+            this.fpp = fpp;
+        }
+
+        void set(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long old = bits.get(word);
+                while ((old & mask) == 0 && !bits.weakCompareAndSetVolatile(word, old, old | mask)) {
+                    old = bits.get(word);
+                }
+            }
+        }
+
+        boolean test(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
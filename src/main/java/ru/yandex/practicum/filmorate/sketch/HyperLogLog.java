@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.sketch;
+
+/**
+ * Класс HyperLogLog оценивает количество различных элементов множества, занимая фиксированные 2^precision байт.
+ * Относительная ошибка оценки около 1.04 / sqrt(2^precision): для precision = 12 это примерно 1.6% при 4 КБ памяти.
+ * Скетчи с одинаковой точностью объединяются поэлементным максимумом регистров, поэтому мощность объединения
+ * множеств вычисляется без хранения самих множеств. Удаление элементов не поддерживается.
+ */
+public class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Точность HyperLogLog должна быть от 4 до 16");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    // Метод add добавляет элемент в скетч. Регистры только растут, поэтому если регистр уже не меньше ранга,
+    // блокировка не берётся: у скетча популярного фильма так завершается почти каждое добавление
+    public void add(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        // Сдвигаем использованные под индекс биты и ставим ограничитель, чтобы ранг не вышел за пределы хеша
+        long remainder = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remainder) + 1);
+        if (rank <= registers[index]) {
+            return;
+        }
+        synchronized (this) {
+            if (rank > registers[index]) {
+                registers[index] = rank;
+            }
+        }
+    }
+
+    // Метод merge добавляет в скетч все элементы другого скетча той же точности
+    public synchronized void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Нельзя объединить скетчи HyperLogLog с разной точностью");
+        }
+        byte[] source = other.copyRegisters();
+        for (int i = 0; i < registers.length; i++) {
+            if (source[i] > registers[i]) {
+                registers[i] = source[i];
+            }
+        }
+    }
+
+    // Метод copy возвращает независимую копию скетча
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        System.arraycopy(copyRegisters(), 0, copy.registers, 0, registers.length);
+        return copy;
+    }
+
+    // Метод estimate возвращает оценку количества различных элементов
+    public synchronized long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        // Для малых мощностей точнее линейный подсчёт по пустым регистрам
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    // Метод relativeError возвращает стандартную относительную ошибку оценки для этой точности
+    public double relativeError() {
+        return relativeError(precision);
+    }
+
+    public static double relativeError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    private synchronized byte[] copyRegisters() {
+        return registers.clone();
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+
+    // Перемешивание SplitMix64: последовательные ID дают равномерно распределённые 64-битные хеши
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
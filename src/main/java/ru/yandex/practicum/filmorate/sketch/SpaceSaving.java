@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Класс SpaceSaving реализует потоковый алгоритм Space-Saving (Metwally et al.) для поиска самых частых ключей.
+ * Хранит не более capacity счётчиков, поэтому объём памяти фиксирован независимо от числа ключей.
+ * Оценка любого ключа завышена не более чем на total / capacity, где total — сумма всех учтённых приращений.
+ * Сводки можно объединять (Agarwal et al., "Mergeable Summaries"), что позволяет сливать топы шардов или узлов.
+ */
+public class SpaceSaving {
+
+    // Счётчики упорядочены по возрастанию значения, чтобы минимальный вытеснялся за O(log capacity)
+    private static final Comparator<Counter> BY_COUNT = Comparator
+            .comparingLong((Counter counter) -> counter.count)
+            .thenComparingLong(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters;
+    private final TreeSet<Counter> byCount = new TreeSet<>(BY_COUNT);
+    private long total;
+    // Наибольший счёт, когда-либо вытесненный или унаследованный при объединении. Не уменьшается, поэтому
+    // граница ошибки сохраняется, даже когда снятые лайки освобождают счётчики
+    private long errorFloor;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Количество счётчиков должно быть положительным");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    // Метод forErrorBound создаёт сводку, у которой завышение оценки не превышает epsilon * total,
+    // но не больше maxCounters счётчиков
+    public static SpaceSaving forErrorBound(double epsilon, int maxCounters) {
+        int required = (int) Math.min(Integer.MAX_VALUE, Math.ceil(1.0 / epsilon));
+        return new SpaceSaving(Math.min(required, maxCounters));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // Метод offer учитывает increment вхождений ключа key
+    public synchronized void offer(long key, long increment) {
+        if (increment <= 0) {
+            return;
+        }
+        total += increment;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count += increment;
+            byCount.add(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            counter = new Counter(key, increment, 0);
+        } else {
+            // Вытесняем ключ с минимальным счётчиком: новый ключ наследует его значение как возможную ошибку
+            Counter min = byCount.pollFirst();
+            counters.remove(min.key);
+            errorFloor = Math.max(errorFloor, min.count);
+            counter = new Counter(key, min.count + increment, min.count);
+        }
+        counters.put(key, counter);
+        byCount.add(counter);
+    }
+
+    // Метод decrement учитывает удаление одного вхождения ключа (например, снятие лайка).
+    // Классический Space-Saving не поддерживает удаления: если ключ не отслеживается, удаление игнорируется,
+    // а оценка остаётся верхней границей. Обнулившийся счётчик удаляется, но errorFloor не уменьшается
+    public synchronized void decrement(long key) {
+        if (total > 0) {
+            total--;
+        }
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            return;
+        }
+        byCount.remove(counter);
+        counter.count--;
+        if (counter.count <= 0) {
+            counters.remove(key);
+            return;
+        }
+        counter.error = Math.min(counter.error, counter.count);
+        byCount.add(counter);
+    }
+
+    // Метод top возвращает не более n оценок в порядке убывания счётчика
+    public synchronized List<Estimate> top(int n) {
+        List<Estimate> result = new ArrayList<>(Math.min(n, counters.size()));
+        Iterator<Counter> iterator = byCount.descendingIterator();
+        while (iterator.hasNext() && result.size() < n) {
+            Counter counter = iterator.next();
+            result.add(new Estimate(counter.key, counter.count, counter.error));
+        }
+        return result;
+    }
+
+    // Метод errorBound возвращает гарантированную верхнюю границу завышения любой оценки
+    public synchronized long errorBound() {
+        return counters.size() < capacity ? errorFloor : Math.max(errorFloor, byCount.first().count);
+    }
+
+    public synchronized long total() {
+        return total;
+    }
+
+    // Метод merge объединяет две сводки в новую сводку ёмкостью capacity.
+    // Ключ, отсутствующий в заполненной сводке, мог иметь в ней счёт не больше её минимума,
+    // поэтому этот минимум добавляется и к оценке, и к ошибке
+    public static SpaceSaving merge(SpaceSaving first, SpaceSaving second, int capacity) {
+        Map<Long, Estimate> a = first.snapshot();
+        Map<Long, Estimate> b = second.snapshot();
+        long minA = first.errorBound();
+        long minB = second.errorBound();
+        Set<Long> keys = new HashSet<>(a.keySet());
+        keys.addAll(b.keySet());
+        List<Counter> merged = new ArrayList<>(keys.size());
+        for (Long key : keys) {
+            Estimate ea = a.get(key);
+            Estimate eb = b.get(key);
+            long count = (ea != null ? ea.count() : minA) + (eb != null ? eb.count() : minB);
+            long error = (ea != null ? ea.error() : minA) + (eb != null ? eb.error() : minB);
+            merged.add(new Counter(key, count, error));
+        }
+        merged.sort(BY_COUNT.reversed());
+        SpaceSaving result = new SpaceSaving(capacity);
+        int kept = Math.min(capacity, merged.size());
+        for (Counter counter : merged.subList(0, kept)) {
+            result.counters.put(counter.key, counter);
+            result.byCount.add(counter);
+        }
+        // Отсутствующий в результате ключ мог набрать минимумы обеих сводок или счёт отброшенного счётчика
+        result.errorFloor = Math.max(minA + minB, kept < merged.size() ? merged.get(kept).count : 0);
+        result.total = first.total() + second.total();
+        return result;
+    }
+
+    private synchronized Map<Long, Estimate> snapshot() {
+        Map<Long, Estimate> result = new HashMap<>(counters.size() * 2);
+        for (Counter counter : counters.values()) {
+            result.put(counter.key, new Estimate(counter.key, counter.count, counter.error));
+        }
+        return result;
+    }
+
+    // Оценка частоты ключа: count — верхняя граница, count - error — гарантированная нижняя граница
+    public record Estimate(long key, long count, long error) {
+        public long guaranteed() {
+            return count - error;
+        }
+    }
+
+    private static final class Counter {
+        private final long key;
+        private long count;
+        private long error;
+
+        Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.sketch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Класс StripedSpaceSaving — потокобезопасная сводка Space-Saving, разбитая на полосы по хешу ключа.
+// Каждая полоса — отдельная SpaceSaving со своей блокировкой, поэтому лайки разных фильмов не ждут друг друга.
+// Ключ всегда попадает в одну и ту же полосу, так что в остальных его счёт равен нулю и при запросе топа
+// полосы сливаются простым объединением их топов, без поправки на минимумы, как в SpaceSaving.merge.
+// Завышение оценки ключа ограничено минимальным счётчиком его полосы
+public class StripedSpaceSaving {
+
+    private static final int STRIPE_BITS = 4;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+    // Порядок топа тот же, что у SpaceSaving.top: по убыванию счётчика, при равенстве — по убыванию ключа
+    private static final Comparator<SpaceSaving.Estimate> BY_COUNT_DESCENDING = Comparator
+            .comparingLong(SpaceSaving.Estimate::count)
+            .thenComparingLong(SpaceSaving.Estimate::key)
+            .reversed();
+
+    private final SpaceSaving[] stripes = new SpaceSaving[STRIPES];
+
+    // capacity — общее число счётчиков, которое делится между полосами поровну
+    public StripedSpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Количество счётчиков должно быть положительным");
+        }
+        int perStripe = Math.max(1, (capacity + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new SpaceSaving(perStripe);
+        }
+    }
+
+    // Метод forErrorBound создаёт сводку, у которой завышение оценки не превышает примерно epsilon * total
+    // при равномерном распределении ключей по полосам, но не больше maxCounters счётчиков
+    public static StripedSpaceSaving forErrorBound(double epsilon, int maxCounters) {
+        return new StripedSpaceSaving(SpaceSaving.forErrorBound(epsilon, maxCounters).capacity());
+    }
+
+    public int capacity() {
+        return stripes[0].capacity() * STRIPES;
+    }
+
+    // Метод offer учитывает increment вхождений ключа key
+    public void offer(long key, long increment) {
+        stripes[stripeOf(key)].offer(key, increment);
+    }
+
+    // Метод decrement учитывает удаление одного вхождения ключа (см. SpaceSaving.decrement)
+    public void decrement(long key) {
+        stripes[stripeOf(key)].decrement(key);
+    }
+
+    // Метод top возвращает не более n оценок в порядке убывания счётчика: каждая полоса отдаёт свой топ из n,
+    // и из них выбираются n наибольших
+    public List<SpaceSaving.Estimate> top(int n) {
+        List<SpaceSaving.Estimate> candidates = new ArrayList<>();
+        for (SpaceSaving stripe : stripes) {
+            candidates.addAll(stripe.top(n));
+        }
+        candidates.sort(BY_COUNT_DESCENDING);
+        return candidates.size() > n ? List.copyOf(candidates.subList(0, n)) : candidates;
+    }
+
+    // Метод errorBound возвращает верхнюю границу завышения любой оценки — наибольшую среди полос
+    public long errorBound() {
+        long bound = 0;
+        for (SpaceSaving stripe : stripes) {
+            bound = Math.max(bound, stripe.errorBound());
+        }
+        return bound;
+    }
+
+    public long total() {
+        long total = 0;
+        for (SpaceSaving stripe : stripes) {
+            total += stripe.total();
+        }
+        return total;
+    }
+
+    // Полоса выбирается по старшим битам мультипликативного хеша, поэтому подряд идущие ID попадают в разные полосы
+    private static int stripeOf(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - STRIPE_BITS));
+    }
+}
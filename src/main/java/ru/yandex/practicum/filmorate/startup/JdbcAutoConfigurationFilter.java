@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.startup;
+
+import org.springframework.boot.autoconfigure.AutoConfigurationImportFilter;
+import org.springframework.boot.autoconfigure.AutoConfigurationMetadata;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+
+import java.util.Set;
+
+// Класс JdbcAutoConfigurationFilter отключает автоконфигурацию источника данных, JdbcTemplate, менеджера
+// транзакций и выполнения schema.sql, если хранилище не jdbc (filmorate.storage.type). Иначе из-за
+// spring-boot-starter-jdbc и H2 в зависимостях любой режим хранения поднимал бы встроенную базу при запуске.
+// Зарегистрирован в META-INF/spring.factories
+public class JdbcAutoConfigurationFilter implements AutoConfigurationImportFilter, EnvironmentAware {
+
+    private static final Set<String> JDBC_AUTO_CONFIGURATIONS = Set.of(
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration",
+            "org.springframework.boot.autoconfigure.jdbc.JdbcClientAutoConfiguration",
+            "org.springframework.boot.autoconfigure.sql.init.SqlInitializationAutoConfiguration");
+
+    private boolean jdbcStorage;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.jdbcStorage = "jdbc".equals(environment.getProperty("filmorate.storage.type"));
+    }
+
+    @Override
+    public boolean[] match(String[] autoConfigurationClasses, AutoConfigurationMetadata autoConfigurationMetadata) {
+        boolean[] matches = new boolean[autoConfigurationClasses.length];
+        for (int i = 0; i < autoConfigurationClasses.length; i++) {
+            matches[i] = jdbcStorage || !JDBC_AUTO_CONFIGURATIONS.contains(autoConfigurationClasses[i]);
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Класс LazyBeansPostProcessor помечает второстепенные бины ленивыми, чтобы они создавались при первом
+// обращении, а не во время запуска. Второстепенными считаются бины, класс которых или класс конфигурации,
+// объявившей их, начинается с одного из префиксов filmorate.startup.lazy-beans.packages.
+// При сборке с Spring AOT признак ленивости сохраняется в сгенерированных определениях бинов
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.startup.lazy-beans.enabled", havingValue = "true")
+public class LazyBeansPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    private List<String> packages = List.of();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.packages = Binder.get(environment)
+                .bind("filmorate.startup.lazy-beans.packages", Bindable.listOf(String.class))
+                .orElse(List.of());
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        int marked = 0;
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            if (!definition.isLazyInit() && matches(definition)) {
+                definition.setLazyInit(true);
+                marked++;
+            }
+        }
+        log.info("Ленивыми помечено {} бинов из пакетов {}", marked, packages);
+    }
+
+    // Метод matches проверяет класс бина, а для бинов из @Bean-методов — класс конфигурации и тип результата
+    private boolean matches(BeanDefinition definition) {
+        if (matches(definition.getBeanClassName())) {
+            return true;
+        }
+        if (definition instanceof AnnotatedBeanDefinition annotated) {
+            MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+            return factoryMethod != null
+                    && (matches(factoryMethod.getDeclaringClassName()) || matches(factoryMethod.getReturnTypeName()));
+        }
+        return false;
+    }
+
+    private boolean matches(String className) {
+        if (className == null) {
+            return false;
+        }
+        for (String prefix : packages) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
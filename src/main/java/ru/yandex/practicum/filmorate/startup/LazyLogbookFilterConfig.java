@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.startup;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.zalando.logbook.Logbook;
+import org.zalando.logbook.servlet.LogbookFilter;
+
+import java.io.IOException;
+
+// Класс LazyLogbookFilterConfig заменяет фильтр Logbook на фильтр, который получает Logbook при первом запросе.
+// Автоконфигурация Logbook создаёт свой фильтр только при отсутствии бина с именем logbookFilter,
+// поэтому вместе с LazyBeansPostProcessor весь Logbook (форматтеры, стратегии, запись в лог)
+// инициализируется уже после запуска приложения
+@Configuration
+@ConditionalOnClass(LogbookFilter.class)
+@ConditionalOnProperty(name = "filmorate.startup.lazy-beans.enabled", havingValue = "true")
+public class LazyLogbookFilterConfig {
+
+    @Bean("logbookFilter")
+    public FilterRegistrationBean<Filter> logbookFilter(ObjectProvider<Logbook> logbook) {
+        FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(new LazyLogbookFilter(logbook));
+        registration.setName("logbookFilter");
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+        return registration;
+    }
+
+    // Фильтр, который создаёт LogbookFilter при первом запросе и дальше передаёт запросы ему
+    static final class LazyLogbookFilter implements Filter {
+        private final ObjectProvider<Logbook> logbook;
+        private volatile Filter delegate;
+
+        LazyLogbookFilter(ObjectProvider<Logbook> logbook) {
+            this.logbook = logbook;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            delegate().doFilter(request, response, chain);
+        }
+
+        private Filter delegate() {
+            Filter filter = delegate;
+            if (filter == null) {
+                synchronized (this) {
+                    filter = delegate;
+                    if (filter == null) {
+                        filter = new LogbookFilter(logbook.getObject());
+                        delegate = filter;
+                    }
+                }
+            }
+            return filter;
+        }
+    }
+}
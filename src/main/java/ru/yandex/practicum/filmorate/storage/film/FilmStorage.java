@@ -1,22 +1,173 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.TopN;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 // Интерфейс FilmStorage определяет методы для работы с хранилищем фильмов
 public interface FilmStorage {
 
+    // Компаратор LIKES_COMPARATOR задаёт порядок популярности: по убыванию количества лайков,
+    // при равенстве — по возрастанию ID, чтобы результат не зависел от порядка обхода хранилища
+    Comparator<Film> LIKES_COMPARATOR = Comparator
+            .comparingInt(Film::getLikeCount).reversed()
+            .thenComparing(Film::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
     Film create(Film film);
 
+    // Значение ожидаемой версии, при котором update(film, expectedVersion) не проверяет версию
+    long ANY_VERSION = 0;
+
+    // Метод update сохраняет фильм без проверки и без изменения версии
+    // (используется для лайков и внутренних изменений)
     Film update(Film film);
 
+    // Метод update с проверкой версии: сохраняет название, описание, дату выхода и продолжительность фильма,
+    // только если его текущая версия равна expectedVersion, и увеличивает версию на 1.
+    // Лайки остаются прежними. Если фильма нет — NotFoundException, если версия не совпала — ConflictException.
+    // Реализация по умолчанию не атомарна; хранилища, допускающие параллельную запись, переопределяют её
+    default Film update(Film film, long expectedVersion) {
+        Film current = findById(film.getId()).orElse(null);
+        return update(nextVersion(current, film, expectedVersion));
+    }
+
+    // Метод updateAll для обновления нескольких фильмов за один вызов
+    default void updateAll(Collection<Film> films) {
+        for (Film film : films) {
+            update(film);
+        }
+    }
+
+    // Метод createAll для создания нескольких фильмов за один вызов (массовый импорт): выдаёт им ID и версию 1,
+    // как create, и возвращает их в том же порядке. Хранилища переопределяют его, чтобы выделять ID блоком
+    // и сохранять фильмы пакетом
+    default List<Film> createAll(List<Film> films) {
+        List<Film> created = new ArrayList<>(films.size());
+        for (Film film : films) {
+            created.add(create(film));
+        }
+        return created;
+    }
+
     void delete(Long id);
 
+    // Метод addLike для добавления лайка пользователя userId фильму film.
+    // Возвращает false, если пользователь уже лайкал этот фильм
+    default boolean addLike(Film film, Long userId) {
+        boolean added = film.getLikes().add(userId);
+        update(film);
+        return added;
+    }
+
+    // Метод removeLike для удаления лайка пользователя userId с фильма film.
+    // Возвращает false, если лайка не было
+    default boolean removeLike(Film film, Long userId) {
+        boolean removed = film.getLikes().remove(userId);
+        update(film);
+        return removed;
+    }
+
     // Метод findById для поиска фильма по ID
     Optional<Film> findById(Long id);
 
+    // Метод isDefinitelyAbsent возвращает true, только если фильма с таким ID точно нет, не обращаясь к самим
+    // данным (хранилища в памяти проверяют фильтр Блума созданных ID). false означает «возможно, есть» —
+    // тогда нужен findById. Реализация по умолчанию ничего не знает заранее
+    default boolean isDefinitelyAbsent(Long id) {
+        return false;
+    }
+
+    // Метод findAllById для получения нескольких фильмов за один вызов: возвращает найденные фильмы
+    // в порядке ids (без повторов), отсутствующие ID пропускаются
+    default List<Film> findAllById(Collection<Long> ids) {
+        List<Film> films = new ArrayList<>(ids.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            findById(id).ifPresent(films::add);
+        }
+        return films;
+    }
+
     // Метод findAll для получения всех фильмов
     Collection<Film> findAll();
-}
\ No newline at end of file
+
+    // Метод forEachLike передаёт consumer каждый лайк: ID фильма и ID пользователя, не собирая все фильмы в памяти
+    // (для заполнения индексов при запуске). Реализация по умолчанию обходит findAll — у хранилищ в памяти
+    // это представление без копирования; хранилище на JDBC читает таблицу лайков потоком
+    default void forEachLike(FilmLongConsumer consumer) {
+        for (Film film : findAll()) {
+            for (Long userId : film.getLikes()) {
+                consumer.accept(film.getId(), userId);
+            }
+        }
+    }
+
+    // Метод forEachLikeCount передаёт consumer ID и количество лайков каждого фильма, у которого они есть,
+    // не загружая сами лайки
+    default void forEachLikeCount(FilmLongConsumer consumer) {
+        for (Film film : findAll()) {
+            if (film.getLikeCount() > 0) {
+                consumer.accept(film.getId(), film.getLikeCount());
+            }
+        }
+    }
+
+    // Метод findPage для постраничного получения фильмов в порядке возрастания ID
+    default List<Film> findPage(int from, int size) {
+        return findAll().stream()
+                .sorted(Comparator.comparing(Film::getId))
+                .skip(from)
+                .limit(size)
+                .toList();
+    }
+
+    // Метод findPopular для получения count самых популярных фильмов в порядке LIKES_COMPARATOR
+    default List<Film> findPopular(int count) {
+        return TopN.select(findAll(), count, LIKES_COMPARATOR);
+    }
+
+    // Метод search для поиска фильмов, в названии или описании которых встречается строка query
+    default List<Film> search(String query, int limit) {
+        return findAll().stream()
+                .filter(film -> matches(film, query))
+                .sorted(Comparator.comparing(Film::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    // Получатель пар «ID фильма — значение» для forEachLike и forEachLikeCount без упаковки в Long
+    @FunctionalInterface
+    interface FilmLongConsumer {
+        void accept(long filmId, long value);
+    }
+
+    // Метод nextVersion проверяет ожидаемую версию текущего фильма current и готовит к сохранению новое
+    // состояние film: переносит лайки текущего фильма и увеличивает версию
+    static Film nextVersion(Film current, Film film, long expectedVersion) {
+        if (current == null) {
+            throw new NotFoundException("Фильм с ID " + film.getId() + " не найден");
+        }
+        if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+            throw new ConflictException(String.format("Фильм с ID %d был изменён: текущая версия %d, ожидалась %d",
+                    film.getId(), current.getVersion(), expectedVersion));
+        }
+        film.setLikes(current.getLikes());
+        film.setVersion(current.getVersion() + 1);
+        return film;
+    }
+
+    // Метод matches проверяет без учёта регистра, что название или описание фильма содержит строку query
+    static boolean matches(Film film, String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        return (film.getName() != null && film.getName().toLowerCase(Locale.ROOT).contains(needle))
+                || (film.getDescription() != null && film.getDescription().toLowerCase(Locale.ROOT).contains(needle));
+    }
+}
@@ -1,25 +1,50 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.sketch.BloomFilter;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 // Аннотация @Component указывает, что этот класс является компонентом Spring (будет автоматически создан Spring)
 @Component
-// Класс InMemoryFilmStorage реализует интерфейс FilmStorage, храня фильмы в памяти (в HashMap)
+// Используется по умолчанию, если свойство filmorate.storage.type не задано или равно memory
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "memory", matchIfMissing = true)
+// Класс InMemoryFilmStorage реализует интерфейс FilmStorage, храня фильмы в памяти (в ConcurrentHashMap)
 public class InMemoryFilmStorage implements FilmStorage {
 
-    private final Map<Long, Film> films = new HashMap<>();
+    private final Map<Long, Film> films = new ConcurrentHashMap<>();
+    // Счётчик для генерации уникальных ID без просмотра всех ключей
+    private final AtomicLong lastId = new AtomicLong();
+    // Фильтр Блума созданных ID: запросы несуществующих фильмов отсекаются без обращения к карте
+    private final BloomFilter idFilter = new BloomFilter();
 
     // Метод для создания нового фильма
     @Override
     public Film create(Film film) {
-        film.setId(getNextId()); // Устанавливаем уникальный ID для нового фильма
+        film.setId(lastId.incrementAndGet()); // Устанавливаем уникальный ID для нового фильма
+        film.setVersion(1);
+        idFilter.add(film.getId());
         films.put(film.getId(), film); // Добавляем фильм в хранилище
         return film;
     }
 
+    // Метод createAll выделяет ID всему пакету одним обращением к счётчику
+    @Override
+    public List<Film> createAll(List<Film> batch) {
+        long id = lastId.getAndAdd(batch.size());
+        for (Film film : batch) {
+            film.setId(++id);
+            film.setVersion(1);
+            idFilter.add(id);
+            films.put(id, film);
+        }
+        return batch;
+    }
+
     // Метод для обновления существующего фильма
     @Override
     public Film update(Film film) {
@@ -27,6 +52,31 @@ public class InMemoryFilmStorage implements FilmStorage {
         return film;
     }
 
+    // Метод для обновления фильма с проверкой версии без блокировок: новое состояние подменяет текущее
+    // через replace, а если фильм успели изменить, проверка повторяется с его новой версией
+    @Override
+    public Film update(Film film, long expectedVersion) {
+        while (true) {
+            Film current = films.get(film.getId());
+            Film next = FilmStorage.nextVersion(current, film, expectedVersion);
+            if (films.replace(film.getId(), current, next)) {
+                return next;
+            }
+        }
+    }
+
+    // Метод addLike меняет только множество лайков: оно общее у всех версий хранимого фильма и потокобезопасно,
+    // поэтому фильм не перезаписывается в карту и лайки популярного фильма не ждут друг друга на её блокировке
+    @Override
+    public boolean addLike(Film film, Long userId) {
+        return film.getLikes().add(userId);
+    }
+
+    @Override
+    public boolean removeLike(Film film, Long userId) {
+        return film.getLikes().remove(userId);
+    }
+
     // Метод для удаления фильма по ID
     @Override
     public void delete(Long id) {
@@ -41,22 +91,14 @@ public class InMemoryFilmStorage implements FilmStorage {
         return Optional.ofNullable(films.get(id));
     }
 
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return id != null && !idFilter.mightContain(id);
+    }
+
     // Метод для получения всех фильмов
     @Override
     public Collection<Film> findAll() {
         return films.values();
     }
-
-    // Метод для генерации следующего уникального ID.
-    private long getNextId() {
-        // Находим максимальный ID среди всех фильмов, если хранилище пустое то возвращаем 0
-        long currentMaxId = films.keySet()
-                .stream()
-                // Преобразуем каждый ключ в число типа long
-                .mapToLong(id -> id)
-                // Находим максимальный ID, если хранилище пустое — возвращаем 0
-                .max()
-                .orElse(0);
-        return ++currentMaxId; // Увеличиваем максимальный ID на 1 и возвращаем
-    }
 }
@@ -0,0 +1,365 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.util.LazyLongSet;
+import ru.yandex.practicum.filmorate.util.SqlPatterns;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+// Класс JdbcFilmStorage хранит фильмы в базе данных через JdbcTemplate.
+// Лайки хранятся в таблице film_likes, а их количество дублируется в столбце films.like_count,
+// поэтому топ популярных фильмов выбирается по индексу (like_count DESC, id) без подсчёта лайков.
+// Чтения (кроме findAll) не загружают лайки: likeCount берётся из like_count, а ID лайкнувших читаются
+// при первом обращении к ним или постранично (LazyLongSet). Изменения из нескольких запросов выполняются
+// в одной транзакции, чтобы like_count не расходился с film_likes.
+// Включается свойством filmorate.storage.type=jdbc
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class JdbcFilmStorage implements FilmStorage {
+
+    private static final String SELECT_FILMS = "SELECT f.id, f.name, f.description, f.release_date, f.duration, "
+            + "f.version, f.like_count FROM films f ";
+
+    private static final String INSERT_FILM =
+            "INSERT INTO films (name, description, release_date, duration, like_count) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String INSERT_LIKE = "INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)";
+
+    // Лайк вставляется, только если его ещё нет: счётчик обновлённых строк 1 — лайк новый, 0 — уже был
+    private static final String MERGE_LIKE = "MERGE INTO film_likes l "
+            + "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) AS v (film_id, user_id) "
+            + "ON l.film_id = v.film_id AND l.user_id = v.user_id "
+            + "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (v.film_id, v.user_id)";
+
+    private static final RowMapper<Long> ID_MAPPER = (rs, rowNum) -> rs.getLong(1);
+
+    // Фильм с лайками, которые загрузятся при первом обращении; likeCount берётся из столбца like_count
+    private final RowMapper<Film> filmMapper = (rs, rowNum) -> {
+        Film film = mapFilm(rs);
+        film.setLikes(lazyLikes(film.getId(), rs.getInt("like_count")));
+        return film;
+    };
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+
+    public JdbcFilmStorage(JdbcTemplate jdbc, TransactionTemplate transactions) {
+        this.jdbc = jdbc;
+        this.transactions = transactions;
+    }
+
+    @Override
+    public Film create(Film film) {
+        transactions.executeWithoutResult(status -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbc.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(INSERT_FILM,
+                        Statement.RETURN_GENERATED_KEYS);
+                bindInsert(statement, film);
+                return statement;
+            }, keyHolder);
+            film.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+            insertLikes(List.of(film));
+        });
+        film.setVersion(1);
+        return film;
+    }
+
+    // Метод createAll вставляет фильмы одним пакетным запросом и берёт выданные базой ID из сгенерированных ключей
+    // пакета (по одному ключу на строку в порядке вставки)
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        transactions.executeWithoutResult(status -> insertAll(films));
+        return films;
+    }
+
+    private void insertAll(List<Film> films) {
+        jdbc.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_FILM,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (Film film : films) {
+                    bindInsert(statement, film);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (Film film : films) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("База вернула меньше ID, чем вставлено фильмов");
+                        }
+                        film.setId(keys.getLong(1));
+                        film.setVersion(1);
+                    }
+                }
+            }
+            return null;
+        });
+        insertLikes(films);
+    }
+
+    // Метод update записывает всё состояние фильма, включая лайки, если они были загружены
+    @Override
+    public Film update(Film film) {
+        updateAll(List.of(film));
+        return film;
+    }
+
+    // Метод updateAll обновляет строки фильмов пакетными запросами в одной транзакции. Лайки перезаписываются
+    // только у фильмов, чьи лайки были загружены (и, значит, могли измениться); иначе film_likes не трогается
+    @Override
+    public void updateAll(Collection<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(films.size());
+        List<Object[]> ids = new ArrayList<>();
+        List<Object[]> likes = new ArrayList<>();
+        for (Film film : films) {
+            rows.add(new Object[]{film.getName(), film.getDescription(),
+                    film.getReleaseDate() != null ? Date.valueOf(film.getReleaseDate()) : null,
+                    film.getDuration(), film.getId()});
+            if (film.getLikes() instanceof LazyLongSet lazy && !lazy.isLoaded()) {
+                continue;
+            }
+            ids.add(new Object[]{film.getId()});
+            for (Long userId : film.getLikes()) {
+                likes.add(new Object[]{film.getId(), userId});
+            }
+        }
+        transactions.executeWithoutResult(status -> {
+            jdbc.batchUpdate("UPDATE films SET name = ?, description = ?, release_date = ?, duration = ? "
+                    + "WHERE id = ?", rows);
+            if (ids.isEmpty()) {
+                return;
+            }
+            jdbc.batchUpdate("DELETE FROM film_likes WHERE film_id = ?", ids);
+            if (!likes.isEmpty()) {
+                jdbc.batchUpdate(INSERT_LIKE, likes);
+            }
+            jdbc.batchUpdate("UPDATE films f SET like_count = (SELECT COUNT(*) FROM film_likes l "
+                    + "WHERE l.film_id = f.id) WHERE f.id = ?", ids);
+        });
+    }
+
+    // Метод update с проверкой версии: условие на версию входит в сам UPDATE, поэтому проверка и запись атомарны
+    @Override
+    public Film update(Film film, long expectedVersion) {
+        int updated = jdbc.update("UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, "
+                        + "version = version + 1 WHERE id = ? AND (version = ? OR ? = " + ANY_VERSION + ")",
+                film.getName(), film.getDescription(),
+                film.getReleaseDate() != null ? Date.valueOf(film.getReleaseDate()) : null,
+                film.getDuration(), film.getId(), expectedVersion, expectedVersion);
+        Film current = findById(film.getId()).orElse(null);
+        if (updated == 0) {
+            // Строка не обновлена: фильма нет или его версия другая, nextVersion выбросит нужное исключение
+            FilmStorage.nextVersion(current, film, expectedVersion);
+            throw new ConflictException("Фильм с ID " + film.getId() + " был изменён другим запросом");
+        }
+        return current;
+    }
+
+    @Override
+    public void delete(Long id) {
+        jdbc.update("DELETE FROM films WHERE id = ?", id);
+    }
+
+    // Метод addLike в одной транзакции вставляет строку лайка и увеличивает like_count, только если лайка ещё
+    // не было. Если такой же лайк одновременно вставил другой запрос, вставка нарушает первичный ключ —
+    // это тот же повторный лайк, поэтому транзакция откатывается, а метод возвращает false.
+    // Лайки фильма после этого снова читаются лениво, а likeCount — из обновлённого like_count
+    @Override
+    public boolean addLike(Film film, Long userId) {
+        try {
+            Integer count = transactions.execute(status -> {
+                if (jdbc.update(MERGE_LIKE, film.getId(), userId) == 0) {
+                    return null;
+                }
+                return updateLikeCount(film.getId(), 1);
+            });
+            if (count == null) {
+                return false;
+            }
+            film.setLikes(lazyLikes(film.getId(), count));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean removeLike(Film film, Long userId) {
+        Integer count = transactions.execute(status -> {
+            if (jdbc.update("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?", film.getId(), userId) == 0) {
+                return null;
+            }
+            return updateLikeCount(film.getId(), -1);
+        });
+        if (count == null) {
+            return false;
+        }
+        film.setLikes(lazyLikes(film.getId(), count));
+        return true;
+    }
+
+    @Override
+    public Optional<Film> findById(Long id) {
+        return jdbc.query(SELECT_FILMS + "WHERE f.id = ?", filmMapper, id).stream().findFirst();
+    }
+
+    // Метод findAllById читает все строки одним запросом с условием IN и восстанавливает порядок ids
+    @Override
+    public List<Film> findAllById(Collection<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+        if (uniqueIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Film> byId = new HashMap<>();
+        for (Film film : jdbc.query(SELECT_FILMS + "WHERE f.id IN ("
+                + SqlPatterns.placeholders(uniqueIds.size()) + ")", filmMapper, uniqueIds.toArray())) {
+            byId.put(film.getId(), film);
+        }
+        List<Film> result = new ArrayList<>(byId.size());
+        for (Long id : uniqueIds) {
+            Film film = byId.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    // Метод findAll читает лайки всех фильмов сразу одним запросом: полному обходу они обычно нужны,
+    // а ленивая загрузка сделала бы по запросу на фильм
+    @Override
+    public Collection<Film> findAll() {
+        List<Film> films = jdbc.query(SELECT_FILMS + "ORDER BY f.id", (rs, rowNum) -> mapFilm(rs));
+        Map<Long, Film> byId = new HashMap<>();
+        for (Film film : films) {
+            byId.put(film.getId(), film);
+        }
+        // Лайки читаются в порядке первичного ключа, чтобы ID добавлялись в конец упорядоченного множества
+        jdbc.query("SELECT film_id, user_id FROM film_likes ORDER BY film_id, user_id", rs -> {
+            Film film = byId.get(rs.getLong("film_id"));
+            if (film != null) {
+                film.getLikes().add(rs.getLong("user_id"));
+            }
+        });
+        return films;
+    }
+
+    // Метод forEachLike передаёт строки film_likes по мере чтения результата, не собирая фильмы и лайки в списки
+    @Override
+    public void forEachLike(FilmLongConsumer consumer) {
+        jdbc.query("SELECT film_id, user_id FROM film_likes",
+                rs -> consumer.accept(rs.getLong("film_id"), rs.getLong("user_id")));
+    }
+
+    // Метод forEachLikeCount читает только столбец like_count, не обращаясь к film_likes
+    @Override
+    public void forEachLikeCount(FilmLongConsumer consumer) {
+        jdbc.query("SELECT id, like_count FROM films WHERE like_count > 0",
+                rs -> consumer.accept(rs.getLong("id"), rs.getInt("like_count")));
+    }
+
+    @Override
+    public List<Film> findPage(int from, int size) {
+        return jdbc.query(SELECT_FILMS + "ORDER BY f.id LIMIT ? OFFSET ?", filmMapper, size, from);
+    }
+
+    // Метод findPopular читает первые count строк по индексу популярности, не загружая их лайки
+    @Override
+    public List<Film> findPopular(int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        return jdbc.query(SELECT_FILMS + "ORDER BY f.like_count DESC, f.id LIMIT ?", filmMapper, count);
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        String pattern = SqlPatterns.containsPattern(query);
+        return jdbc.query(SELECT_FILMS
+                + "WHERE LOWER(f.name) LIKE ? ESCAPE '\\' OR LOWER(f.description) LIKE ? ESCAPE '\\' "
+                + "ORDER BY f.id LIMIT ?", filmMapper, pattern, pattern, limit);
+    }
+
+    // Метод updateLikeCount меняет like_count на delta и возвращает новое значение; строка фильма остаётся
+    // заблокированной до конца транзакции, поэтому одновременные лайки одного фильма не теряют изменения счётчика
+    private int updateLikeCount(Long filmId, int delta) {
+        jdbc.update("UPDATE films SET like_count = like_count + ? WHERE id = ?", delta, filmId);
+        Integer count = jdbc.queryForObject("SELECT like_count FROM films WHERE id = ?", Integer.class, filmId);
+        return count != null ? count : 0;
+    }
+
+    // Метод lazyLikes возвращает лайки фильма, которые читаются целиком при первом обращении к ним,
+    // а постранично (GET /films/id/likes) — по первичному ключу film_likes без загрузки остальных
+    private LazyLongSet lazyLikes(Long filmId, int count) {
+        return new LazyLongSet(count,
+                () -> jdbc.query("SELECT user_id FROM film_likes WHERE film_id = ? ORDER BY user_id", ID_MAPPER,
+                        filmId),
+                (after, limit) -> jdbc.query("SELECT user_id FROM film_likes WHERE film_id = ? AND user_id > ? "
+                                + "ORDER BY user_id LIMIT ?", ID_MAPPER, filmId, after, limit).stream()
+                        .mapToLong(Long::longValue)
+                        .toArray());
+    }
+
+    private static Film mapFilm(ResultSet rs) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getLong("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        Date releaseDate = rs.getDate("release_date");
+        film.setReleaseDate(releaseDate != null ? releaseDate.toLocalDate() : null);
+        film.setDuration(rs.getInt("duration"));
+        film.setVersion(rs.getLong("version"));
+        return film;
+    }
+
+    private static void bindInsert(PreparedStatement statement, Film film) throws SQLException {
+        statement.setString(1, film.getName());
+        statement.setString(2, film.getDescription());
+        statement.setDate(3, film.getReleaseDate() != null ? Date.valueOf(film.getReleaseDate()) : null);
+        statement.setInt(4, film.getDuration());
+        statement.setInt(5, film.getLikes().size());
+    }
+
+    // Метод insertLikes сохраняет лайки только что созданных фильмов одним пакетом
+    private void insertLikes(List<Film> films) {
+        List<Object[]> likes = new ArrayList<>();
+        for (Film film : films) {
+            for (Long userId : film.getLikes()) {
+                likes.add(new Object[]{film.getId(), userId});
+            }
+        }
+        if (!likes.isEmpty()) {
+            jdbc.batchUpdate(INSERT_LIKE, likes);
+        }
+    }
+}
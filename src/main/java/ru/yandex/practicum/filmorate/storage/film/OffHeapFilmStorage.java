@@ -0,0 +1,298 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.sketch.BloomFilter;
+import ru.yandex.practicum.filmorate.storage.offheap.OffHeapFilmStore;
+import ru.yandex.practicum.filmorate.util.StripedLongSet;
+import ru.yandex.practicum.filmorate.util.TopN;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Класс OffHeapFilmStorage хранит поля фильмов вне кучи в OffHeapFilmStore, а в куче — только лайки
+// (по одному множеству ID на фильм с лайками). Объекты Film создаются при чтении и только для тех
+// фильмов, которые нужны запросу: список популярных и постраничная выдача сначала выбирают ID, а затем
+// читают только выбранные записи. Освободившееся место возвращается фоновым сжатием слабов.
+// Включается свойством filmorate.storage.type=offheap
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "offheap")
+public class OffHeapFilmStorage implements FilmStorage, DisposableBean {
+
+    // Порядок популярности для лайков фильмов: по убыванию количества, при равенстве — по возрастанию ID
+    private static final Comparator<Map.Entry<Long, StripedLongSet>> POPULARITY = Comparator
+            .comparingInt((Map.Entry<Long, StripedLongSet> entry) -> entry.getValue().size()).reversed()
+            .thenComparing(Map.Entry::getKey);
+
+    private final OffHeapFilmStore store;
+    // Лайки фильмов по ID. Множество фильма меняется без блокировки карты; опустевшие множества остаются в карте,
+    // чтобы одновременный лайк не попал в уже убранное множество
+    private final Map<Long, StripedLongSet> likes = new ConcurrentHashMap<>();
+    // Фильтр Блума созданных ID: запросы несуществующих фильмов отсекаются без поиска в индексе слабов
+    private final BloomFilter idFilter = new BloomFilter();
+    private final ScheduledExecutorService compactor;
+
+    public OffHeapFilmStorage(@Value("${filmorate.storage.offheap.slab-size-mb:16}") int slabSizeMb,
+                              @Value("${filmorate.storage.offheap.compaction-interval-ms:1000}") long intervalMillis,
+                              @Value("${filmorate.storage.offheap.compaction-threshold:0.5}") double threshold) {
+        this.store = new OffHeapFilmStore(slabSizeMb * 1024 * 1024);
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "offheap-films-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> compact(threshold), intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Film create(Film film) {
+        film.setId(store.nextId());
+        film.setVersion(1);
+        idFilter.add(film.getId());
+        store.put(film);
+        if (!film.getLikes().isEmpty()) {
+            likes.put(film.getId(), film.getLikes());
+        }
+        return film;
+    }
+
+    @Override
+    public Film update(Film film) {
+        store.put(film);
+        if (film.getLikes().isEmpty()) {
+            likes.remove(film.getId());
+        } else {
+            likes.put(film.getId(), film.getLikes());
+        }
+        return film;
+    }
+
+    // Метод update с проверкой версии сравнивает и записывает версию под блокировкой записи хранилища
+    @Override
+    public Film update(Film film, long expectedVersion) {
+        return store.compute(film.getId(), current -> FilmStorage.nextVersion(withLikes(current), film,
+                expectedVersion));
+    }
+
+    @Override
+    public void delete(Long id) {
+        store.remove(id);
+        likes.remove(id);
+    }
+
+    // Лайк меняет только множество в куче, запись фильма вне кучи при этом не переписывается
+    @Override
+    public boolean addLike(Film film, Long userId) {
+        StripedLongSet stored = likes.get(film.getId());
+        if (stored == null) {
+            stored = likes.computeIfAbsent(film.getId(), id -> new StripedLongSet());
+        }
+        boolean added = stored.add(userId);
+        if (film.getLikes() != stored) {
+            film.getLikes().add(userId);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeLike(Film film, Long userId) {
+        StripedLongSet stored = likes.get(film.getId());
+        boolean removed = stored != null && stored.remove(userId);
+        if (film.getLikes() != stored) {
+            film.getLikes().remove(userId);
+        }
+        return removed;
+    }
+
+    @Override
+    public Optional<Film> findById(Long id) {
+        return Optional.ofNullable(withLikes(store.get(id)));
+    }
+
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return id != null && !idFilter.mightContain(id);
+    }
+
+    @Override
+    public List<Film> findAllById(Collection<Long> ids) {
+        List<Film> films = new ArrayList<>(ids.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Film film = store.get(id);
+            if (film != null) {
+                films.add(withLikes(film));
+            }
+        }
+        return films;
+    }
+
+    // Метод findAll возвращает представление, которое читает фильмы из слабов по одному во время обхода
+    @Override
+    public Collection<Film> findAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Film> iterator() {
+                return new FilmIterator();
+            }
+
+            @Override
+            public int size() {
+                return store.size();
+            }
+        };
+    }
+
+    // Лайки хранятся в куче отдельно от записей фильмов, поэтому обходятся без чтения фильмов из слабов
+    @Override
+    public void forEachLike(FilmLongConsumer consumer) {
+        likes.forEach((filmId, filmLikes) -> {
+            for (Long userId : filmLikes) {
+                consumer.accept(filmId, userId);
+            }
+        });
+    }
+
+    @Override
+    public void forEachLikeCount(FilmLongConsumer consumer) {
+        likes.forEach((filmId, filmLikes) -> {
+            int count = filmLikes.size();
+            if (count > 0) {
+                consumer.accept(filmId, count);
+            }
+        });
+    }
+
+    @Override
+    public List<Film> findPage(int from, int size) {
+        return materialize(store.firstIds(from, size, id -> true));
+    }
+
+    // Метод findPopular выбирает ID по размерам множеств лайков и читает из слабов только выбранные фильмы.
+    // Если фильмов с лайками меньше count, список дополняется фильмами без лайков в порядке возрастания ID
+    @Override
+    public List<Film> findPopular(int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        List<Map.Entry<Long, StripedLongSet>> top = TopN.select(likes.entrySet(), count, POPULARITY);
+        List<Film> films = new ArrayList<>(top.size());
+        for (Map.Entry<Long, StripedLongSet> entry : top) {
+            Film film = entry.getValue().isEmpty() ? null : store.get(entry.getKey());
+            if (film != null) {
+                films.add(withLikes(film));
+            }
+        }
+        if (films.size() < count) {
+            films.addAll(materialize(store.firstIds(0, count - films.size(), id -> {
+                StripedLongSet filmLikes = likes.get(id);
+                return filmLikes == null || filmLikes.isEmpty();
+            })));
+        }
+        return films;
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        List<Film> films = new ArrayList<>();
+        Iterator<Film> iterator = new FilmIterator();
+        while (iterator.hasNext() && films.size() < limit) {
+            Film film = iterator.next();
+            if (FilmStorage.matches(film, query)) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    public OffHeapFilmStore.Stats stats() {
+        return store.stats();
+    }
+
+    @Override
+    public void destroy() {
+        compactor.shutdownNow();
+        store.clear();
+        likes.clear();
+    }
+
+    private void compact(double threshold) {
+        try {
+            int freed = store.compact(threshold);
+            if (freed > 0) {
+                log.debug("Сжатие слабов фильмов: освобождено {}, {}", freed, store.stats());
+            }
+        } catch (RuntimeException e) {
+            log.error("Ошибка при сжатии слабов фильмов", e);
+        }
+    }
+
+    private List<Film> materialize(long[] ids) {
+        List<Film> films = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Film film = store.get(id);
+            if (film != null) {
+                films.add(withLikes(film));
+            }
+        }
+        return films;
+    }
+
+    // Метод withLikes подставляет в прочитанный фильм его множество лайков из кучи
+    private Film withLikes(Film film) {
+        if (film != null) {
+            StripedLongSet filmLikes = likes.get(film.getId());
+            if (filmLikes != null) {
+                film.setLikes(filmLikes);
+            }
+        }
+        return film;
+    }
+
+    // Итератор по фильмам в порядке возрастания ID; каждый фильм читается из слаба при переходе к нему
+    private final class FilmIterator implements Iterator<Film> {
+        private long lastId;
+        private Film pending;
+
+        @Override
+        public boolean hasNext() {
+            // Фильм могут удалить после того, как итератор нашёл его ID, тогда переходим к следующему
+            while (pending == null) {
+                long id = store.nextIdAfter(lastId);
+                if (id < 0) {
+                    return false;
+                }
+                lastId = id;
+                pending = store.get(id);
+            }
+            return true;
+        }
+
+        @Override
+        public Film next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Film film = pending;
+            pending = null;
+            return withLikes(film);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.sketch.BloomFilter;
+import ru.yandex.practicum.filmorate.storage.partition.PartitionedStore;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Класс PartitionedFilmStorage хранит фильмы в шардах PartitionedStore
+// Включается свойством filmorate.storage.type=partitioned
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "partitioned")
+public class PartitionedFilmStorage implements FilmStorage, DisposableBean {
+
+    private final PartitionedStore<Film> films;
+    // Фильтр Блума созданных ID: запросы несуществующих фильмов отсекаются без обращения к шардам
+    private final BloomFilter idFilter = new BloomFilter();
+
+    public PartitionedFilmStorage(@Value("${filmorate.storage.partitions.count:16}") int shardCount,
+                                  @Value("${filmorate.storage.partitions.id-block-size:1024}") int idBlockSize,
+                                  @Value("${filmorate.storage.partitions.parallelism:0}") int parallelism) {
+        this.films = new PartitionedStore<>(shardCount, idBlockSize,
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                Film::getId, Film::setId);
+    }
+
+    @Override
+    public Film create(Film film) {
+        film.setVersion(1);
+        Film created = films.create(film);
+        idFilter.add(created.getId());
+        return created;
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> batch) {
+        for (Film film : batch) {
+            film.setVersion(1);
+        }
+        films.createAll(batch);
+        for (Film film : batch) {
+            idFilter.add(film.getId());
+        }
+        return batch;
+    }
+
+    @Override
+    public Film update(Film film) {
+        return films.put(film);
+    }
+
+    // Метод update с проверкой версии выполняется под блокировкой записи только одного шарда
+    @Override
+    public Film update(Film film, long expectedVersion) {
+        return films.compute(film.getId(), current -> FilmStorage.nextVersion(current, film, expectedVersion));
+    }
+
+    // Лайк меняет только потокобезопасное множество лайков фильма, блокировка записи шарда не берётся
+    @Override
+    public boolean addLike(Film film, Long userId) {
+        return film.getLikes().add(userId);
+    }
+
+    @Override
+    public boolean removeLike(Film film, Long userId) {
+        return film.getLikes().remove(userId);
+    }
+
+    @Override
+    public void delete(Long id) {
+        films.remove(id);
+    }
+
+    @Override
+    public Optional<Film> findById(Long id) {
+        return films.get(id);
+    }
+
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return id != null && !idFilter.mightContain(id);
+    }
+
+    @Override
+    public List<Film> findAllById(Collection<Long> ids) {
+        return films.getAll(ids);
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return films.all();
+    }
+
+    @Override
+    public List<Film> findPage(int from, int size) {
+        return films.page(from, size);
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        return films.top(count, LIKES_COMPARATOR);
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        return films.filter(film -> FilmStorage.matches(film, query), limit);
+    }
+
+    @Override
+    public void destroy() {
+        films.close();
+    }
+}
@@ -0,0 +1,247 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.tiered.Records;
+import ru.yandex.practicum.filmorate.storage.tiered.TieredStore;
+import ru.yandex.practicum.filmorate.storage.tiered.TieredStoreRegistry;
+import ru.yandex.practicum.filmorate.util.TopN;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Класс TieredFilmStorage хранит фильмы в TieredStore: часто запрашиваемые — объектами в куче, остальные —
+// записями в файле сегмента на диске. В куче для каждого фильма остаётся только количество лайков: по нему
+// выбираются популярные фильмы, и из сегмента читаются только выбранные.
+// Включается свойством filmorate.storage.type=tiered
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "tiered")
+public class TieredFilmStorage implements FilmStorage {
+
+    // Порядок популярности: по убыванию количества лайков, при равенстве — по возрастанию ID
+    private static final Comparator<Map.Entry<Long, Integer>> POPULARITY = Comparator
+            .comparingInt((Map.Entry<Long, Integer> entry) -> entry.getValue()).reversed()
+            .thenComparing(Map.Entry::getKey);
+
+    private final TieredStore<Film> films;
+    // Количество лайков каждого существующего фильма; заодно это список ID всех фильмов
+    private final Map<Long, Integer> likeCounts = new ConcurrentHashMap<>();
+    private final AtomicLong lastId = new AtomicLong();
+
+    public TieredFilmStorage(TieredStoreRegistry registry,
+                             @Value("${filmorate.storage.tiered.films-hot-mb:64}") int hotMb) {
+        this.films = registry.create("films", new FilmCodec(), Film::getId, hotMb);
+    }
+
+    @Override
+    public Film create(Film film) {
+        film.setId(lastId.incrementAndGet());
+        film.setVersion(1);
+        films.put(film);
+        likeCounts.put(film.getId(), film.getLikeCount());
+        return film;
+    }
+
+    // Количество лайков меняется под той же блокировкой записи фильма, что и сам фильм, поэтому после
+    // одновременных update, addLike и delete оно совпадает с лайками сохранённого фильма
+    @Override
+    public Film update(Film film) {
+        films.put(film, () -> likeCounts.put(film.getId(), film.getLikeCount()));
+        return film;
+    }
+
+    @Override
+    public Film update(Film film, long expectedVersion) {
+        return films.compute(film.getId(), current -> FilmStorage.nextVersion(current, film, expectedVersion));
+    }
+
+    // Метод addLike меняет лайки хранимого фильма под блокировкой его записи: фильм, полученный раньше,
+    // мог быть уже вытеснен, и лайк, поставленный в его копию, потерялся бы
+    @Override
+    public boolean addLike(Film film, Long userId) {
+        boolean[] added = new boolean[1];
+        films.compute(film.getId(), current -> {
+            added[0] = stored(current, film).getLikes().add(userId);
+            likeCounts.put(current.getId(), current.getLikeCount());
+            return current;
+        });
+        return added[0];
+    }
+
+    @Override
+    public boolean removeLike(Film film, Long userId) {
+        boolean[] removed = new boolean[1];
+        films.compute(film.getId(), current -> {
+            removed[0] = stored(current, film).getLikes().remove(userId);
+            likeCounts.put(current.getId(), current.getLikeCount());
+            return current;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public void delete(Long id) {
+        films.remove(id, () -> likeCounts.remove(id));
+    }
+
+    @Override
+    public Optional<Film> findById(Long id) {
+        return id == null || !likeCounts.containsKey(id) ? Optional.empty() : Optional.ofNullable(films.get(id));
+    }
+
+    // Индекс ID в куче точный, поэтому фильтр Блума здесь не нужен
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return id != null && !likeCounts.containsKey(id);
+    }
+
+    // Обход всех фильмов читает холодные записи, не поднимая их в горячий уровень
+    @Override
+    public Collection<Film> findAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Film> iterator() {
+                return new FilmIterator(likeCounts.keySet().iterator());
+            }
+
+            @Override
+            public int size() {
+                return likeCounts.size();
+            }
+        };
+    }
+
+    // Количество лайков каждого фильма хранится в куче, поэтому холодные записи не читаются
+    @Override
+    public void forEachLikeCount(FilmLongConsumer consumer) {
+        likeCounts.forEach((filmId, count) -> {
+            if (count > 0) {
+                consumer.accept(filmId, count);
+            }
+        });
+    }
+
+    // ID выдаются по порядку, поэтому страница собирается проходом по ID без сортировки
+    @Override
+    public List<Film> findPage(int from, int size) {
+        List<Film> page = new ArrayList<>(size);
+        int skipped = 0;
+        for (long id = 1; id <= lastId.get() && page.size() < size; id++) {
+            if (likeCounts.containsKey(id) && skipped++ >= from) {
+                Film film = films.peek(id);
+                if (film != null) {
+                    page.add(film);
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        List<Map.Entry<Long, Integer>> top = TopN.select(likeCounts.entrySet(), count, POPULARITY);
+        List<Film> popular = new ArrayList<>(top.size());
+        for (Map.Entry<Long, Integer> entry : top) {
+            Film film = films.get(entry.getKey());
+            if (film != null) {
+                popular.add(film);
+            }
+        }
+        return popular;
+    }
+
+    private static Film stored(Film current, Film film) {
+        if (current == null) {
+            throw new NotFoundException("Фильм с ID " + film.getId() + " не найден");
+        }
+        return current;
+    }
+
+    private final class FilmIterator implements Iterator<Film> {
+        private final Iterator<Long> ids;
+        private Film next;
+
+        FilmIterator(Iterator<Long> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && ids.hasNext()) {
+                next = films.peek(ids.next());
+            }
+            return next != null;
+        }
+
+        @Override
+        public Film next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Film film = next;
+            next = null;
+            return film;
+        }
+    }
+
+    // Запись фильма: ID, версия, продолжительность, дата выхода, название, описание и ID лайкнувших
+    private static final class FilmCodec implements TieredStore.Codec<Film> {
+
+        @Override
+        public byte[] encode(Film film) {
+            long[] likes = film.getLikes().after(Long.MIN_VALUE, Integer.MAX_VALUE);
+            return Records.write(out -> {
+                out.writeLong(film.getId());
+                out.writeLong(film.getVersion());
+                out.writeInt(film.getDuration());
+                Records.writeDate(out, film.getReleaseDate());
+                Records.writeString(out, film.getName());
+                Records.writeString(out, film.getDescription());
+                out.writeInt(likes.length);
+                for (long userId : likes) {
+                    out.writeLong(userId);
+                }
+            });
+        }
+
+        @Override
+        public Film decode(byte[] data) {
+            return Records.read(data, in -> {
+                Film film = new Film();
+                film.setId(in.readLong());
+                film.setVersion(in.readLong());
+                film.setDuration(in.readInt());
+                film.setReleaseDate(Records.readDate(in));
+                film.setName(Records.readString(in));
+                film.setDescription(Records.readString(in));
+                int likes = in.readInt();
+                for (int i = 0; i < likes; i++) {
+                    film.getLikes().add(in.readLong());
+                }
+                return film;
+            });
+        }
+
+        // Объект фильма с полями и множеством лайков (около 16 байт на лайк с учётом запаса массивов полос)
+        @Override
+        public int weigh(Film film) {
+            return 200 + Records.weigh(film.getName()) + Records.weigh(film.getDescription())
+                    + film.getLikeCount() * 16;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package ru.yandex.practicum.filmorate.storage.offheap;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Класс OffHeapFilmStore хранит поля фильмов вне кучи Java — в прямых буферах ByteBuffer фиксированного размера
+ * (слабах). Запись фильма добавляется в конец текущего слаба, а индекс ID -> положение записи — массив long[],
+ * поэтому на каждый фильм в куче не приходится ни одного объекта. Строки хранятся в UTF-8, даты — номером дня
+ * от начала эпохи. При обновлении старая запись становится мусором; compact переносит живые записи из
+ * заполненных мусором слабов в текущий и освобождает эти слабы (несколько из них остаются для повторного
+ * использования).
+ * Объекты Film создаются только при чтении конкретного фильма. Лайки здесь не хранятся.
+ *
+ * <p>Формат записи: id (long), длина записи (int), версия (long), продолжительность (int),
+ * дата выхода (long, Long.MIN_VALUE — не указана), название и описание (длина int, -1 — null, затем байты UTF-8).
+ */
+public class OffHeapFilmStore {
+
+    private static final int ID_OFFSET = 0;
+    private static final int LENGTH_OFFSET = 8;
+    private static final int VERSION_OFFSET = 12;
+    private static final int DURATION_OFFSET = 20;
+    private static final int RELEASE_DATE_OFFSET = 24;
+    private static final int NAME_OFFSET = 32;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    // Сколько освобождённых слабов держать для повторного использования; остальные отдаются сборщику мусора
+    private static final int MAX_FREE_SLABS = 4;
+
+    private final int slabSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Слабы по номерам; null — слаб освобождён и лежит в списке свободных (все поля ниже защищены lock)
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final Deque<ByteBuffer> freeSlabs = new ArrayDeque<>();
+    // Конец записанных данных и объём живых записей в каждом слабе
+    private int[] used = new int[4];
+    private int[] live = new int[4];
+    private int active = -1;
+    // Индекс: положение записи фильма с ID id хранится в locations[id] как (номер слаба << 32 | смещение) + 1,
+    // 0 — фильма нет
+    private long[] locations = new long[1024];
+    private long lastId;
+    private int size;
+
+    public OffHeapFilmStore(int slabSize) {
+        if (slabSize < NAME_OFFSET + 8) {
+            throw new IllegalArgumentException("Размер слаба слишком мал: " + slabSize);
+        }
+        this.slabSize = slabSize;
+    }
+
+    // Метод nextId выдаёт ID для нового фильма
+    public long nextId() {
+        lock.writeLock().lock();
+        try {
+            return ++lastId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Метод put сохраняет поля фильма film, заменяя предыдущую запись с тем же ID
+    public void put(Film film) {
+        byte[] name = encode(film.getName());
+        byte[] description = encode(film.getDescription());
+        lock.writeLock().lock();
+        try {
+            write(film, name, description);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Метод compute атомарно читает фильм с ID id (null, если его нет), передаёт его в update
+    // и сохраняет результат. Исключение из update оставляет запись без изменений
+    public Film compute(long id, UnaryOperator<Film> update) {
+        lock.writeLock().lock();
+        try {
+            Film next = update.apply(read(id));
+            write(next, encode(next.getName()), encode(next.getDescription()));
+            return next;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Метод get создаёт объект Film по записи с ID id или возвращает null, если фильма нет
+    public Film get(long id) {
+        lock.readLock().lock();
+        try {
+            return read(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return location(id) != 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            long location = location(id);
+            if (location == 0) {
+                return false;
+            }
+            release(location - 1);
+            locations[(int) id] = 0;
+            size--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Метод nextIdAfter возвращает наименьший ID сохранённого фильма, больший id, или -1, если таких нет
+    public long nextIdAfter(long id) {
+        lock.readLock().lock();
+        try {
+            for (long next = Math.max(id + 1, 1); next < locations.length; next++) {
+                if (locations[(int) next] != 0) {
+                    return next;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Метод firstIds возвращает не больше limit ID сохранённых фильмов по возрастанию, подходящих под filter,
+    // пропуская первые skip подходящих. Фильтр получает только ID, объекты Film при этом не создаются
+    public long[] firstIds(int skip, int limit, LongPredicate filter) {
+        long[] result = new long[Math.max(0, Math.min(limit, 1024))];
+        int count = 0;
+        int skipped = 0;
+        lock.readLock().lock();
+        try {
+            for (long id = 1; id < locations.length && count < limit; id++) {
+                if (locations[(int) id] == 0 || !filter.test(id)) {
+                    continue;
+                }
+                if (skipped < skip) {
+                    skipped++;
+                    continue;
+                }
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = id;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Метод compact переносит живые записи из слабов, в которых их доля меньше threshold, в текущий слаб
+    // и освобождает эти слабы. Каждый слаб переносится под отдельной блокировкой записи, чтобы не задерживать
+    // запросы на всё время сжатия. Возвращает количество освобождённых слабов
+    public int compact(double threshold) {
+        int freed = 0;
+        for (int slab = 0; ; slab++) {
+            lock.writeLock().lock();
+            try {
+                if (slab >= slabs.size()) {
+                    return freed;
+                }
+                if (slab == active || slabs.get(slab) == null || live[slab] >= threshold * slabSize) {
+                    continue;
+                }
+                evacuate(slab);
+                freed++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            int allocated = 0;
+            long usedBytes = 0;
+            long liveBytes = 0;
+            for (int slab = 0; slab < slabs.size(); slab++) {
+                if (slabs.get(slab) != null) {
+                    allocated++;
+                    usedBytes += used[slab];
+                    liveBytes += live[slab];
+                }
+            }
+            return new Stats(size, allocated, freeSlabs.size(), (long) slabSize * (allocated + freeSlabs.size()),
+                    usedBytes, liveBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Метод clear освобождает все слабы; прямая память возвращается системе после сборки мусора буферов
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            slabs.clear();
+            freeSlabs.clear();
+            locations = new long[1024];
+            active = -1;
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Статистика хранилища: количество фильмов, занятых и свободных слабов, выделенной прямой памяти,
+    // записанных байтов и байтов живых записей
+    public record Stats(int films, int slabs, int freeSlabs, long allocatedBytes, long usedBytes, long liveBytes) {
+    }
+
+    private void write(Film film, byte[] name, byte[] description) {
+        long id = film.getId();
+        int length = NAME_OFFSET + 4 + length(name) + 4 + length(description);
+        if (length > slabSize) {
+            throw new IllegalArgumentException("Запись фильма с ID " + id + " не помещается в слаб: " + length);
+        }
+        if (active < 0 || used[active] + length > slabSize) {
+            active = allocateSlab();
+        }
+        ByteBuffer buffer = slabs.get(active);
+        int offset = used[active];
+        buffer.putLong(offset + ID_OFFSET, id);
+        buffer.putInt(offset + LENGTH_OFFSET, length);
+        buffer.putLong(offset + VERSION_OFFSET, film.getVersion());
+        buffer.putInt(offset + DURATION_OFFSET, film.getDuration());
+        buffer.putLong(offset + RELEASE_DATE_OFFSET,
+                film.getReleaseDate() == null ? NO_DATE : film.getReleaseDate().toEpochDay());
+        int position = putBytes(buffer, offset + NAME_OFFSET, name);
+        putBytes(buffer, position, description);
+        used[active] += length;
+        live[active] += length;
+
+        ensureIndexCapacity(id);
+        long previous = locations[(int) id];
+        if (previous != 0) {
+            release(previous - 1);
+        } else {
+            size++;
+        }
+        locations[(int) id] = ((long) active << 32 | offset) + 1;
+    }
+
+    private Film read(long id) {
+        long location = location(id);
+        if (location == 0) {
+            return null;
+        }
+        ByteBuffer buffer = slabs.get(slabOf(location - 1));
+        int offset = offsetOf(location - 1);
+        Film film = new Film();
+        film.setId(buffer.getLong(offset + ID_OFFSET));
+        film.setVersion(buffer.getLong(offset + VERSION_OFFSET));
+        film.setDuration(buffer.getInt(offset + DURATION_OFFSET));
+        long releaseDate = buffer.getLong(offset + RELEASE_DATE_OFFSET);
+        film.setReleaseDate(releaseDate == NO_DATE ? null : LocalDate.ofEpochDay(releaseDate));
+        int position = offset + NAME_OFFSET;
+        film.setName(getString(buffer, position));
+        position += 4 + Math.max(0, buffer.getInt(position));
+        film.setDescription(getString(buffer, position));
+        return film;
+    }
+
+    // Метод evacuate переносит живые записи слаба slab в текущий слаб и возвращает slab в список свободных
+    private void evacuate(int slab) {
+        ByteBuffer buffer = slabs.get(slab);
+        int offset = 0;
+        while (offset < used[slab]) {
+            long id = buffer.getLong(offset + ID_OFFSET);
+            int length = buffer.getInt(offset + LENGTH_OFFSET);
+            long location = ((long) slab << 32 | offset) + 1;
+            if (id < locations.length && locations[(int) id] == location) {
+                if (active < 0 || used[active] + length > slabSize) {
+                    active = allocateSlab();
+                }
+                ByteBuffer target = slabs.get(active);
+                int targetOffset = used[active];
+                target.put(targetOffset, buffer, offset, length);
+                used[active] += length;
+                live[active] += length;
+                locations[(int) id] = ((long) active << 32 | targetOffset) + 1;
+            }
+            offset += length;
+        }
+        slabs.set(slab, null);
+        used[slab] = 0;
+        live[slab] = 0;
+        if (freeSlabs.size() < MAX_FREE_SLABS) {
+            freeSlabs.push(buffer.clear());
+        }
+    }
+
+    private int allocateSlab() {
+        ByteBuffer buffer = freeSlabs.isEmpty() ? ByteBuffer.allocateDirect(slabSize) : freeSlabs.pop();
+        int slab = slabs.indexOf(null);
+        if (slab < 0) {
+            slab = slabs.size();
+            slabs.add(buffer);
+        } else {
+            slabs.set(slab, buffer);
+        }
+        if (slab >= used.length) {
+            used = Arrays.copyOf(used, used.length * 2);
+            live = Arrays.copyOf(live, live.length * 2);
+        }
+        used[slab] = 0;
+        live[slab] = 0;
+        return slab;
+    }
+
+    private void release(long location) {
+        int slab = slabOf(location);
+        live[slab] -= slabs.get(slab).getInt(offsetOf(location) + LENGTH_OFFSET);
+    }
+
+    private long location(long id) {
+        return id > 0 && id < locations.length ? locations[(int) id] : 0;
+    }
+
+    private void ensureIndexCapacity(long id) {
+        if (id >= Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("ID фильма слишком велик для индекса: " + id);
+        }
+        if (id >= locations.length) {
+            locations = Arrays.copyOf(locations, (int) Math.max(id + 1, Math.min(Integer.MAX_VALUE - 8,
+                    (long) locations.length * 2)));
+        }
+        lastId = Math.max(lastId, id);
+    }
+
+    private static int slabOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static int putBytes(ByteBuffer buffer, int position, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(position, -1);
+            return position + 4;
+        }
+        buffer.putInt(position, bytes.length);
+        buffer.put(position + 4, bytes);
+        return position + 4 + bytes.length;
+    }
+
+    private static String getString(ByteBuffer buffer, int position) {
+        int length = buffer.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,350 @@
+package ru.yandex.practicum.filmorate.storage.partition;
+
+import ru.yandex.practicum.filmorate.util.TopN;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Класс PartitionedStore хранит сущности в N независимых шардах, разбитых по ID.
+ * Каждый шард имеет собственную карту, собственную блокировку и сам выдаёт ID из своих блоков:
+ * шарду с номером i принадлежат блоки i, i + N, i + 2N и т.д., поэтому шард любой сущности
+ * однозначно вычисляется по её ID. Операции над всем набором данных выполняются по шардам параллельно
+ * в пуле ForkJoinPool, после чего частичные результаты сливаются.
+ */
+public class PartitionedStore<T> implements AutoCloseable {
+
+    private static final Comparator<Long> ID_ORDER = Comparator.naturalOrder();
+
+    private final Shard<T>[] shards;
+    private final long blockSize;
+    private final ForkJoinPool pool;
+    private final Function<T, Long> idGetter;
+    private final BiConsumer<T, Long> idSetter;
+    // Счётчик для равномерного распределения новых сущностей по шардам
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    public PartitionedStore(int shardCount, int blockSize, int parallelism,
+                            Function<T, Long> idGetter, BiConsumer<T, Long> idSetter) {
+        if (shardCount <= 0 || blockSize <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Число шардов, размер блока ID и параллелизм должны быть положительными");
+        }
+        this.blockSize = blockSize;
+        this.idGetter = idGetter;
+        this.idSetter = idSetter;
+        this.pool = new ForkJoinPool(parallelism);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard<>(i, shardCount, blockSize);
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    // Метод shardOf вычисляет номер шарда, которому принадлежит ID
+    int shardOf(long id) {
+        return (int) Math.floorMod(Math.floorDiv(id - 1, blockSize), (long) shards.length);
+    }
+
+    // Метод create выдаёт сущности новый ID из блока выбранного шарда и сохраняет её в этом шарде
+    public T create(T entity) {
+        Shard<T> shard = shards[Math.floorMod(nextShard.getAndIncrement(), shards.length)];
+        shard.lock.writeLock().lock();
+        try {
+            long id = shard.allocateId();
+            idSetter.accept(entity, id);
+            shard.entities.put(id, entity);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+        return entity;
+    }
+
+    // Метод createAll раскладывает сущности по шардам в том же порядке, что и последовательные вызовы create,
+    // и сохраняет часть каждого шарда под одной блокировкой записи, выдавая ID подряд из его блоков
+    public List<T> createAll(List<T> entities) {
+        int first = nextShard.getAndAdd(entities.size());
+        int used = Math.min(shards.length, entities.size());
+        for (int offset = 0; offset < used; offset++) {
+            Shard<T> shard = shards[Math.floorMod(first + offset, shards.length)];
+            shard.lock.writeLock().lock();
+            try {
+                for (int i = offset; i < entities.size(); i += shards.length) {
+                    T entity = entities.get(i);
+                    long id = shard.allocateId();
+                    idSetter.accept(entity, id);
+                    shard.entities.put(id, entity);
+                }
+            } finally {
+                shard.lock.writeLock().unlock();
+            }
+        }
+        return entities;
+    }
+
+    // Метод put сохраняет сущность в шарде, которому принадлежит её ID
+    public T put(T entity) {
+        Long id = idGetter.apply(entity);
+        Shard<T> shard = shards[shardOf(id)];
+        shard.lock.writeLock().lock();
+        try {
+            shard.entities.put(id, entity);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+        return entity;
+    }
+
+    // Метод compute вычисляет новое состояние сущности по текущему (null, если её нет) под блокировкой записи
+    // её шарда и сохраняет результат; исключение из change оставляет шард без изменений
+    public T compute(Long id, UnaryOperator<T> change) {
+        Shard<T> shard = shards[shardOf(id)];
+        shard.lock.writeLock().lock();
+        try {
+            T next = change.apply(shard.entities.get(id));
+            shard.entities.put(id, next);
+            return next;
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        Shard<T> shard = shards[shardOf(id)];
+        shard.lock.writeLock().lock();
+        try {
+            shard.entities.remove(id);
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<T> get(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Shard<T> shard = shards[shardOf(id)];
+        shard.lock.readLock().lock();
+        try {
+            return Optional.ofNullable(shard.entities.get(id));
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    // Метод getAll возвращает найденные сущности с указанными ID в порядке ids, пропуская отсутствующие.
+    // ID группируются по шардам, и каждый шард блокируется на чтение один раз
+    public List<T> getAll(Collection<Long> ids) {
+        List<List<Long>> idsByShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            idsByShard.add(new ArrayList<>());
+        }
+        for (Long id : ids) {
+            if (id != null) {
+                idsByShard.get(shardOf(id)).add(id);
+            }
+        }
+        Map<Long, T> found = new HashMap<>();
+        for (int i = 0; i < shards.length; i++) {
+            List<Long> shardIds = idsByShard.get(i);
+            if (!shardIds.isEmpty()) {
+                shards[i].read(entities -> {
+                    for (Long id : shardIds) {
+                        T entity = entities.get(id);
+                        if (entity != null) {
+                            found.put(id, entity);
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+        List<T> result = new ArrayList<>(found.size());
+        for (Long id : ids) {
+            T entity = found.remove(id);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    // Метод all возвращает все сущности, упорядоченные по ID
+    public List<T> all() {
+        return mergeById(scatter(shard -> new ArrayList<>(shard.values())), 0, Integer.MAX_VALUE);
+    }
+
+    // Метод page возвращает size сущностей начиная с позиции from в порядке возрастания ID.
+    // Каждый шард отдаёт только свои первые from + size сущностей, затем списки сливаются
+    public List<T> page(int from, int size) {
+        int perShard = (int) Math.min((long) from + size, Integer.MAX_VALUE);
+        return mergeById(scatter(shard -> firstN(shard.values(), perShard, x -> true)), from, size);
+    }
+
+    // Метод filter возвращает не более limit сущностей, удовлетворяющих условию, в порядке возрастания ID
+    public List<T> filter(Predicate<? super T> condition, int limit) {
+        return mergeById(scatter(shard -> firstN(shard.values(), limit, condition)), 0, limit);
+    }
+
+    // Метод top возвращает n лучших сущностей: каждый шард выбирает свои n лучших, затем выбор повторяется
+    // над объединением частичных результатов
+    public List<T> top(int n, Comparator<? super T> order) {
+        List<T> candidates = new ArrayList<>();
+        for (List<T> partial : scatter(shard -> TopN.select(shard.values(), n, order))) {
+            candidates.addAll(partial);
+        }
+        return TopN.select(candidates, n, order);
+    }
+
+    // Метод anyMatch проверяет условие во всех шардах параллельно
+    public boolean anyMatch(Predicate<? super T> condition) {
+        return scatter(shard -> shard.values().stream().anyMatch(condition)).contains(Boolean.TRUE);
+    }
+
+    // Метод scatter применяет функцию к каждому шарду под его блокировкой чтения в пуле ForkJoinPool
+    // и собирает результаты в порядке номеров шардов
+    private <R> List<R> scatter(Function<NavigableMap<Long, T>, R> perShard) {
+        List<ForkJoinTask<R>> tasks = new ArrayList<>(shards.length);
+        for (Shard<T> shard : shards) {
+            tasks.add(pool.submit(() -> shard.read(perShard)));
+        }
+        List<R> results = new ArrayList<>(shards.length);
+        for (ForkJoinTask<R> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    // Метод firstN возвращает первые n сущностей шарда (в порядке ID), удовлетворяющих условию
+    private List<T> firstN(Iterable<T> values, int n, Predicate<? super T> condition) {
+        List<T> result = new ArrayList<>();
+        for (T value : values) {
+            if (result.size() >= n) {
+                break;
+            }
+            if (condition.test(value)) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    // Метод mergeById сливает упорядоченные по ID списки шардов, пропускает skip первых элементов
+    // и возвращает не более limit следующих
+    private List<T> mergeById(List<List<T>> sortedParts, int skip, int limit) {
+        PriorityQueue<Cursor<T>> queue = new PriorityQueue<>(Comparator.comparing(c -> c.head, ID_ORDER));
+        for (List<T> part : sortedParts) {
+            if (!part.isEmpty()) {
+                queue.add(new Cursor<>(part, idGetter));
+            }
+        }
+        List<T> result = new ArrayList<>();
+        int skipped = 0;
+        while (!queue.isEmpty() && result.size() < limit) {
+            Cursor<T> cursor = queue.poll();
+            T value = cursor.current();
+            if (skipped < skip) {
+                skipped++;
+            } else {
+                result.add(value);
+            }
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // Курсор по упорядоченному списку одного шарда для k-путевого слияния
+    private static final class Cursor<T> {
+        private final List<T> items;
+        private final Function<T, Long> idGetter;
+        private int position;
+        private Long head;
+
+        Cursor(List<T> items, Function<T, Long> idGetter) {
+            this.items = items;
+            this.idGetter = idGetter;
+            this.head = idGetter.apply(items.get(0));
+        }
+
+        T current() {
+            return items.get(position);
+        }
+
+        boolean advance() {
+            position++;
+            if (position >= items.size()) {
+                return false;
+            }
+            head = idGetter.apply(items.get(position));
+            return true;
+        }
+    }
+
+    // Шард: упорядоченная карта сущностей, блокировка и состояние выдачи ID
+    private static final class Shard<T> {
+        private final NavigableMap<Long, T> entities = new TreeMap<>();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final int shardCount;
+        private final long blockSize;
+        // Номер текущего блока ID и следующий свободный ID в нём
+        private long block;
+        private long nextId;
+
+        Shard(int index, int shardCount, long blockSize) {
+            this.shardCount = shardCount;
+            this.blockSize = blockSize;
+            this.block = index;
+            this.nextId = index * blockSize + 1;
+        }
+
+        // Метод allocateId выдаёт следующий ID; вызывается под блокировкой записи
+        long allocateId() {
+            // Пропускаем ID, которые уже заняты (например, сущность была сохранена через put с явным ID)
+            while (true) {
+                if (nextId > (block + 1) * blockSize) {
+                    block += shardCount;
+                    nextId = block * blockSize + 1;
+                }
+                long id = nextId++;
+                if (!entities.containsKey(id)) {
+                    return id;
+                }
+            }
+        }
+
+        <R> R read(Function<NavigableMap<Long, T>, R> reader) {
+            lock.readLock().lock();
+            try {
+                return reader.apply(entities);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.storage.tiered;
+
+// Класс FrequencySketch приближённо считает, как часто запрашивались ID (скетч Count-Min с 4-битными счётчиками).
+// В каждом long 16 счётчиков; ID задевает по одному счётчику в четырёх группах одного long, оценка — минимум
+// из них. Когда число добавлений достигает sampleSize, все счётчики делятся пополам, поэтому старая
+// популярность постепенно забывается. Класс не потокобезопасен: им пользуется TinyLfuPolicy под своей блокировкой
+final class FrequencySketch {
+
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final int MAX_COUNT = 15;
+    private static final long[] SEEDS = {
+            0x97CB3127D5E1B9F1L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedEntries) {
+        int size = Integer.highestOneBit(Math.max(64, expectedEntries) - 1) << 1;
+        this.table = new long[size];
+        this.mask = size - 1;
+        this.sampleSize = 10 * size;
+    }
+
+    // Метод frequency возвращает оценку числа обращений к ID (от 0 до 15)
+    int frequency(long id) {
+        long hash = spread(id);
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            frequency = Math.min(frequency, count(hash, row));
+        }
+        return frequency;
+    }
+
+    // Метод increment учитывает обращение к ID
+    void increment(long id) {
+        long hash = spread(id);
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            if (count(hash, row) < MAX_COUNT) {
+                table[slot(hash, row)] += 1L << shift(hash, row);
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private int count(long hash, int row) {
+        return (int) ((table[slot(hash, row)] >>> shift(hash, row)) & MAX_COUNT);
+    }
+
+    private int slot(long hash, int row) {
+        long mixed = (hash + SEEDS[row]) * SEEDS[row];
+        return (int) (mixed >>> 32) & mask;
+    }
+
+    // Строка row пользуется своей четвёркой счётчиков long, а счётчик в ней выбирается битами хеша
+    private static int shift(long hash, int row) {
+        return ((row << 2) + (int) ((hash >>> (row << 1)) & 3)) << 2;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    // Перемешивание SplitMix64: последовательные ID дают равномерно распределённые 64-битные хеши
+    private static long spread(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
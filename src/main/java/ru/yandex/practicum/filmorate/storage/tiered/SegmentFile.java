@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.storage.tiered;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Класс SegmentFile — файл, в который записи только дописываются: заголовок (ID и длина) и байты записи.
+// Положение записи кодируется одним long: смещение в старших 40 битах и полная длина в младших 24. Длина записи
+// от LARGE байт в положение не помещается: вместо неё хранится LARGE, а длина читается из заголовка записи.
+// Место под запись резервируется атомарно, а запись и чтение идут по абсолютной позиции, поэтому дописывать
+// и читать можно из нескольких потоков без блокировки. Файл удаляется при закрытии
+final class SegmentFile implements Closeable {
+
+    private static final int HEADER = Long.BYTES + Integer.BYTES;
+    private static final int LENGTH_BITS = 24;
+    private static final int LARGE = (1 << LENGTH_BITS) - 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final AtomicLong end = new AtomicLong();
+    private final AtomicLong deadBytes = new AtomicLong();
+
+    SegmentFile(Path directory, String name) {
+        try {
+            Files.createDirectories(directory);
+            this.path = Files.createTempFile(directory, name + "-", ".segment");
+            this.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать файл сегмента в " + directory, e);
+        }
+    }
+
+    // Метод append дописывает запись и возвращает её положение
+    long append(long id, byte[] data) {
+        if (data.length > Integer.MAX_VALUE - HEADER) {
+            throw new IllegalArgumentException("Запись " + id + " длиной " + data.length
+                    + " байт не помещается в сегмент");
+        }
+        int length = HEADER + data.length;
+        ByteBuffer buffer = ByteBuffer.allocate(length).putLong(id).putInt(data.length).put(data).flip();
+        long position = end.getAndAdd(length);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать запись " + id + " в " + path, e);
+        }
+        return position << LENGTH_BITS | Math.min(length, LARGE);
+    }
+
+    // Метод read читает байты записи id по её положению
+    byte[] read(long id, long location) {
+        ByteBuffer buffer = readFully(id, location >>> LENGTH_BITS, lengthOf(id, location));
+        long storedId = buffer.getLong();
+        if (storedId != id) {
+            throw new IllegalStateException("По положению записи " + id + " в " + path
+                    + " лежит запись " + storedId);
+        }
+        byte[] data = new byte[buffer.getInt()];
+        buffer.get(data);
+        return data;
+    }
+
+    // Метод release отмечает запись устаревшей: её место освободится при следующем сжатии
+    void release(long id, long location) {
+        deadBytes.addAndGet(lengthOf(id, location));
+    }
+
+    long size() {
+        return end.get();
+    }
+
+    long deadBytes() {
+        return deadBytes.get();
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось закрыть " + path, e);
+        }
+    }
+
+    // Полная длина записи; длину большой записи приходится читать из её заголовка
+    private int lengthOf(long id, long location) {
+        int length = (int) (location & LARGE);
+        if (length < LARGE) {
+            return length;
+        }
+        ByteBuffer header = readFully(id, location >>> LENGTH_BITS, HEADER);
+        return HEADER + header.getInt(Long.BYTES);
+    }
+
+    private ByteBuffer readFully(long id, long position, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Неожиданный конец файла");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать запись " + id + " из " + path, e);
+        }
+        return buffer.flip();
+    }
+}
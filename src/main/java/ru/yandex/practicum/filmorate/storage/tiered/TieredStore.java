@@ -0,0 +1,403 @@
+package ru.yandex.practicum.filmorate.storage.tiered;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+// Класс TieredStore хранит сущности в двух уровнях: горячий — объекты в куче, суммарный оценочный размер которых
+// ограничен maxHotBytes, холодный — сериализованные записи в SegmentFile на локальном диске. Какие записи
+// остаются горячими, решает TinyLfuPolicy; вытесненная запись, изменённая с момента попадания в горячий уровень,
+// дописывается в сегмент. Чтение холодной записи поднимает её в горячий уровень, обход всех записей — нет.
+// Чтение, подъём, изменение и вытеснение одной записи выполняются под блокировкой её полосы, поэтому вытеснение
+// не теряет одновременное изменение. Если записать вытесняемую запись в сегмент не удалось, она остаётся
+// в горячем уровне, а ошибка не доходит до вызвавшего. Устаревшие записи сегмента убираются при сжатии
+@Slf4j
+public class TieredStore<T> {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final String name;
+    private final Codec<T> codec;
+    private final ToLongFunction<T> idGetter;
+    private final Path directory;
+    private final long maxHotBytes;
+    // Горячий уровень и положения записей холодного уровня
+    private final Map<Long, Entry<T>> hot = new ConcurrentHashMap<>();
+    private final Map<Long, Long> locations = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final TinyLfuPolicy policy;
+    private final ReentrantLock policyLock = new ReentrantLock();
+    // Чтение и запись сегмента идут под блокировкой чтения, замена сегмента при сжатии — под блокировкой записи
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private volatile SegmentFile segment;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coldReads = new LongAdder();
+    private final LongAdder coldReadNanos = new LongAdder();
+    private final AtomicLong maxColdReadNanos = new AtomicLong();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder writeBacks = new LongAdder();
+    private final LongAdder writeBackFailures = new LongAdder();
+    private final AtomicLong compactions = new AtomicLong();
+
+    public TieredStore(String name, Codec<T> codec, ToLongFunction<T> idGetter, Path directory, long maxHotBytes) {
+        this.name = name;
+        this.codec = codec;
+        this.idGetter = idGetter;
+        this.directory = directory;
+        this.maxHotBytes = maxHotBytes;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        // Ширина скетча частот рассчитана на записи размером около 256 байт
+        this.policy = new TinyLfuPolicy(maxHotBytes, (int) Math.min(1 << 24, Math.max(64, maxHotBytes / 256)));
+        this.segment = new SegmentFile(directory, name);
+    }
+
+    // Метод get возвращает сущность по ID (null, если её нет); холодная запись поднимается в горячий уровень
+    public T get(long id) {
+        Entry<T> entry = hot.get(id);
+        if (entry != null) {
+            hits.increment();
+            recordAccess(id);
+            return entry.value;
+        }
+        misses.increment();
+        T value;
+        List<Long> victims;
+        synchronized (lock(id)) {
+            entry = hot.get(id);
+            if (entry != null) {
+                return entry.value;
+            }
+            value = readCold(id);
+            if (value == null) {
+                return null;
+            }
+            Entry<T> promoted = new Entry<>(value, codec.weigh(value), false);
+            hot.put(id, promoted);
+            victims = admit(id, promoted.weight);
+        }
+        evict(victims);
+        return value;
+    }
+
+    // Метод peek возвращает сущность по ID, не поднимая холодную запись в горячий уровень (для обхода всех записей)
+    public T peek(long id) {
+        Entry<T> entry = hot.get(id);
+        return entry != null ? entry.value : readCold(id);
+    }
+
+    // Метод put сохраняет сущность в горячем уровне; в сегмент она попадёт при вытеснении
+    public void put(T value) {
+        put(value, () -> {
+        });
+    }
+
+    // Метод put с действием locked дополнительно выполняет locked под блокировкой записи (например, обновляет
+    // индекс владельца хранилища), так что одновременные изменения той же записи видят индекс согласованным
+    public void put(T value, Runnable locked) {
+        long id = idGetter.applyAsLong(value);
+        List<Long> victims;
+        synchronized (lock(id)) {
+            locked.run();
+            Entry<T> entry = new Entry<>(value, codec.weigh(value), true);
+            hot.put(id, entry);
+            victims = admit(id, entry.weight);
+        }
+        evict(victims);
+    }
+
+    // Метод compute заменяет сущность результатом update(текущая сущность или null) атомарно относительно
+    // других изменений той же записи и возвращает новое значение; если update вернул null, запись удаляется
+    public T compute(long id, UnaryOperator<T> update) {
+        T next;
+        List<Long> victims;
+        synchronized (lock(id)) {
+            Entry<T> current = hot.get(id);
+            next = update.apply(current != null ? current.value : readCold(id));
+            if (next == null) {
+                removeLocked(id);
+                return null;
+            }
+            Entry<T> entry = new Entry<>(next, codec.weigh(next), true);
+            hot.put(id, entry);
+            victims = admit(id, entry.weight);
+        }
+        evict(victims);
+        return next;
+    }
+
+    public void remove(long id) {
+        remove(id, () -> {
+        });
+    }
+
+    public void remove(long id, Runnable locked) {
+        synchronized (lock(id)) {
+            locked.run();
+            removeLocked(id);
+        }
+    }
+
+    // Метод compact переписывает живые записи в новый сегмент, если устаревшие занимают больше доли threshold.
+    // Записи копируются под блокировкой чтения, так что чтение и дозапись холодных записей не ждут. Под блокировкой
+    // записи новый сегмент только подменяет старый: записи, изменённые во время копирования, берутся из старого
+    // сегмента заново. Возвращает число освобождённых байт
+    public long compact(double threshold) {
+        if (!compactionLock.tryLock()) {
+            return 0;
+        }
+        try {
+            SegmentFile current = segment;
+            long dead = current.deadBytes();
+            if (dead == 0 || dead < current.size() * threshold) {
+                return 0;
+            }
+            SegmentFile next = new SegmentFile(directory, name);
+            // Положения скопированных записей: в старом и в новом сегменте
+            Map<Long, long[]> copied = new HashMap<>();
+            segmentLock.readLock().lock();
+            try {
+                for (Map.Entry<Long, Long> location : locations.entrySet()) {
+                    long id = location.getKey();
+                    long from = location.getValue();
+                    copied.put(id, new long[]{from, next.append(id, current.read(id, from))});
+                }
+            } catch (RuntimeException e) {
+                next.close();
+                throw e;
+            } finally {
+                segmentLock.readLock().unlock();
+            }
+            segmentLock.writeLock().lock();
+            try {
+                for (Map.Entry<Long, Long> location : locations.entrySet()) {
+                    long id = location.getKey();
+                    long[] copy = copied.remove(id);
+                    if (copy != null && copy[0] == location.getValue()) {
+                        location.setValue(copy[1]);
+                    } else {
+                        location.setValue(next.append(id, current.read(id, location.getValue())));
+                        if (copy != null) {
+                            next.release(id, copy[1]);
+                        }
+                    }
+                }
+                // Записи, удалённые во время копирования
+                for (Map.Entry<Long, long[]> copy : copied.entrySet()) {
+                    next.release(copy.getKey(), copy.getValue()[1]);
+                }
+                segment = next;
+            } finally {
+                segmentLock.writeLock().unlock();
+            }
+            current.close();
+            compactions.incrementAndGet();
+            long freed = current.size() - next.size();
+            log.debug("Сегмент {} сжат: освобождено {} байт", name, freed);
+            return freed;
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long reads = coldReads.sum();
+        long hotWeight;
+        long rejected;
+        policyLock.lock();
+        try {
+            hotWeight = policy.weight();
+            rejected = policy.rejected();
+        } finally {
+            policyLock.unlock();
+        }
+        SegmentFile current = segment;
+        return new Stats(name, hot.size(), hotWeight, maxHotBytes, locations.size(), current.size(),
+                current.deadBytes(), hitCount, missCount,
+                hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount),
+                reads, reads == 0 ? 0 : coldReadNanos.sum() / reads / 1000.0, maxColdReadNanos.get() / 1000.0,
+                evictions.sum(), writeBacks.sum(), writeBackFailures.sum(), rejected, compactions.get());
+    }
+
+    public void close() {
+        segmentLock.writeLock().lock();
+        try {
+            hot.clear();
+            locations.clear();
+            segment.close();
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(long id) {
+        hot.remove(id);
+        policyLock.lock();
+        try {
+            policy.remove(id);
+        } finally {
+            policyLock.unlock();
+        }
+        segmentLock.readLock().lock();
+        try {
+            Long location = locations.remove(id);
+            if (location != null) {
+                segment.release(id, location);
+            }
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    private Object lock(long id) {
+        return locks[(int) (id ^ (id >>> 32)) & (LOCK_STRIPES - 1)];
+    }
+
+    // Обращение к горячей записи учитывается, только если блокировка политики свободна: при высокой нагрузке часть
+    // обращений теряется, зато чтения горячих записей не выстраиваются в очередь друг за другом
+    private void recordAccess(long id) {
+        if (policyLock.tryLock()) {
+            try {
+                policy.recordAccess(id);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    private List<Long> admit(long id, int weight) {
+        policyLock.lock();
+        try {
+            return policy.put(id, weight);
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private T readCold(long id) {
+        segmentLock.readLock().lock();
+        try {
+            Long location = locations.get(id);
+            if (location == null) {
+                return null;
+            }
+            long start = System.nanoTime();
+            T value = codec.decode(segment.read(id, location));
+            long nanos = System.nanoTime() - start;
+            coldReads.increment();
+            coldReadNanos.add(nanos);
+            maxColdReadNanos.accumulateAndGet(nanos, Math::max);
+            return value;
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    // Метод evict убирает выбранные политикой записи из горячего уровня, дописывая изменённые в сегмент.
+    // Запись, к которой успели снова обратиться после выбора, остаётся. Запись, которую не удалось дописать
+    // (например, диск заполнен), тоже остаётся в горячем уровне: политика снова учтёт её при следующем изменении
+    private void evict(List<Long> victims) {
+        for (Long id : victims) {
+            synchronized (lock(id)) {
+                Entry<T> entry = hot.get(id);
+                if (entry == null || isTracked(id)) {
+                    continue;
+                }
+                if (entry.dirty) {
+                    try {
+                        writeBack(id, entry.value);
+                    } catch (RuntimeException e) {
+                        writeBackFailures.increment();
+                        log.error("Не удалось вытеснить запись {} в сегмент {}, она остаётся в памяти", id, name, e);
+                        continue;
+                    }
+                }
+                hot.remove(id);
+                evictions.increment();
+            }
+        }
+    }
+
+    private boolean isTracked(long id) {
+        policyLock.lock();
+        try {
+            return policy.contains(id);
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void writeBack(long id, T value) {
+        byte[] data = encode(value);
+        segmentLock.readLock().lock();
+        try {
+            Long previous = locations.put(id, segment.append(id, data));
+            if (previous != null) {
+                segment.release(id, previous);
+            }
+            writeBacks.increment();
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    // Коллекции сущности могут меняться во время сериализации (они изменяются до вызова update), тогда она повторяется
+    private byte[] encode(T value) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return codec.encode(value);
+            } catch (ConcurrentModificationException e) {
+                if (attempt == 10) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Сериализация сущностей холодного уровня и оценка размера объекта в куче
+    public interface Codec<T> {
+        byte[] encode(T value);
+
+        T decode(byte[] data);
+
+        int weigh(T value);
+    }
+
+    private static final class Entry<T> {
+        private final T value;
+        private final int weight;
+        private final boolean dirty;
+
+        Entry(T value, int weight, boolean dirty) {
+            this.value = value;
+            this.weight = weight;
+            this.dirty = dirty;
+        }
+    }
+
+    // Метрики уровней: hitRatio — доля чтений по ID, обслуженных горячим уровнем, coldRead*Micros — время чтения
+    // и разбора холодной записи, writeBackFailures — вытеснения, не записанные в сегмент, rejected — кандидаты,
+    // не допущенные фильтром частоты
+    public record Stats(String name, int hotEntries, long hotBytes, long maxHotBytes, int coldEntries,
+                        long segmentBytes, long deadBytes, long hits, long misses, double hitRatio, long coldReads,
+                        double avgColdReadMicros, double maxColdReadMicros, long evictions, long writeBacks,
+                        long writeBackFailures, long rejected, long compactions) {
+    }
+}
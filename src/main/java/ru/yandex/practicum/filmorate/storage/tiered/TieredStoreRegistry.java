@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storage.tiered;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+// Класс TieredStoreRegistry создаёт двухуровневые хранилища TieredStore с общим каталогом сегментов,
+// сжимает их сегменты в фоне и собирает метрики уровней для мониторинга.
+// Включается свойством filmorate.storage.type=tiered
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "tiered")
+public class TieredStoreRegistry implements DisposableBean {
+
+    private final Path directory;
+    private final double compactionThreshold;
+    private final List<TieredStore<?>> stores = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService compactor;
+
+    public TieredStoreRegistry(@Value("${filmorate.storage.tiered.directory:${java.io.tmpdir}/filmorate-tiered}")
+                               String directory,
+                               @Value("${filmorate.storage.tiered.compaction-interval-ms:5000}") long intervalMillis,
+                               @Value("${filmorate.storage.tiered.compaction-threshold:0.5}") double threshold) {
+        this.directory = Path.of(directory);
+        this.compactionThreshold = threshold;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tiered-segments-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compact, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Метод create создаёт хранилище с горячим уровнем не больше maxHotMb мегабайт (по оценке кодека)
+    public <T> TieredStore<T> create(String name, TieredStore.Codec<T> codec, ToLongFunction<T> idGetter,
+                                     int maxHotMb) {
+        TieredStore<T> store = new TieredStore<>(name, codec, idGetter, directory, maxHotMb * 1024L * 1024L);
+        stores.add(store);
+        log.info("Двухуровневое хранилище {}: горячий уровень до {} МБ, сегменты в {}", name, maxHotMb, directory);
+        return store;
+    }
+
+    // Метод stats возвращает метрики уровней всех хранилищ
+    public List<TieredStore.Stats> stats() {
+        return stores.stream().map(TieredStore::stats).toList();
+    }
+
+    @Override
+    public void destroy() {
+        compactor.shutdownNow();
+        stores.forEach(TieredStore::close);
+    }
+
+    private void compact() {
+        for (TieredStore<?> store : stores) {
+            try {
+                store.compact(compactionThreshold);
+            } catch (RuntimeException e) {
+                log.error("Ошибка при сжатии сегмента", e);
+            }
+        }
+    }
+}
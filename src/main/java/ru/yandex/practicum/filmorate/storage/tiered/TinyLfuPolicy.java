@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate.storage.tiered;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Класс TinyLfuPolicy решает, какие записи держать в горячем уровне (политика W-TinyLFU с учётом веса записей).
+// Новые записи попадают в небольшое окно LRU (1% ёмкости). Вытесненная из окна запись становится кандидатом
+// в основную часть: если места нет, она принимается, только если по FrequencySketch к ней обращались чаще,
+// чем к записи, которую придётся вытеснить. Основная часть — сегментированный LRU: испытательный сегмент
+// и защищённый (80% основной части), куда переходят записи при повторном обращении. Так разовые чтения
+// (например, обход всего каталога) не вытесняют часто запрашиваемые записи.
+// Класс не потокобезопасен: TieredStore вызывает его под своей блокировкой
+final class TinyLfuPolicy {
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+
+    // Веса записей в порядке от давно использованных к недавним
+    private final LinkedHashMap<Long, Integer> window = new LinkedHashMap<>();
+    private final LinkedHashMap<Long, Integer> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<Long, Integer> protectedSegment = new LinkedHashMap<>();
+    private final FrequencySketch sketch;
+    private final long maximum;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private long windowWeight;
+    private long mainWeight;
+    private long protectedWeight;
+    private long rejected;
+
+    TinyLfuPolicy(long maximum, int expectedEntries) {
+        this.maximum = maximum;
+        this.windowMaximum = Math.max(1, (long) (maximum * WINDOW_SHARE));
+        this.protectedMaximum = (long) ((maximum - windowMaximum) * PROTECTED_SHARE);
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    boolean contains(long id) {
+        return window.containsKey(id) || probation.containsKey(id) || protectedSegment.containsKey(id);
+    }
+
+    long weight() {
+        return windowWeight + mainWeight;
+    }
+
+    // Количество кандидатов, которых фильтр частоты не пустил в основную часть
+    long rejected() {
+        return rejected;
+    }
+
+    // Метод recordAccess учитывает обращение к записи горячего уровня
+    void recordAccess(long id) {
+        sketch.increment(id);
+        Integer weight = window.remove(id);
+        if (weight != null) {
+            window.put(id, weight);
+            return;
+        }
+        weight = probation.remove(id);
+        if (weight != null) {
+            protectedSegment.put(id, weight);
+            protectedWeight += weight;
+            demoteProtected();
+            return;
+        }
+        weight = protectedSegment.remove(id);
+        if (weight != null) {
+            protectedSegment.put(id, weight);
+        }
+    }
+
+    // Метод put добавляет запись или меняет вес уже добавленной и возвращает ID записей, которые нужно вытеснить
+    List<Long> put(long id, int weight) {
+        Integer previous = window.get(id);
+        if (previous != null) {
+            window.put(id, weight);
+            windowWeight += weight - previous;
+        } else if ((previous = probation.get(id)) != null) {
+            probation.put(id, weight);
+            mainWeight += weight - previous;
+        } else if ((previous = protectedSegment.get(id)) != null) {
+            protectedSegment.put(id, weight);
+            mainWeight += weight - previous;
+            protectedWeight += weight - previous;
+        } else {
+            window.put(id, weight);
+            windowWeight += weight;
+        }
+        recordAccess(id);
+        return evict();
+    }
+
+    void remove(long id) {
+        Integer weight = window.remove(id);
+        if (weight != null) {
+            windowWeight -= weight;
+            return;
+        }
+        weight = probation.remove(id);
+        if (weight != null) {
+            mainWeight -= weight;
+            return;
+        }
+        weight = protectedSegment.remove(id);
+        if (weight != null) {
+            mainWeight -= weight;
+            protectedWeight -= weight;
+        }
+    }
+
+    // Метод evict переносит лишнее из окна в основную часть через фильтр частоты и освобождает место
+    private List<Long> evict() {
+        List<Long> victims = new ArrayList<>();
+        while (windowWeight > windowMaximum) {
+            Map.Entry<Long, Integer> candidate = removeEldest(window);
+            windowWeight -= candidate.getValue();
+            admit(candidate.getKey(), candidate.getValue(), victims);
+        }
+        // Основная часть могла переполниться из-за выросшего веса записи
+        while (weight() > maximum && !(probation.isEmpty() && protectedSegment.isEmpty())) {
+            victims.add(evictMain());
+        }
+        return victims;
+    }
+
+    private void admit(long candidate, int weight, List<Long> victims) {
+        long mainMaximum = maximum - windowMaximum;
+        if (weight > mainMaximum) {
+            rejected++;
+            victims.add(candidate);
+            return;
+        }
+        if (mainWeight + weight > mainMaximum) {
+            long victim = eldestMain();
+            if (sketch.frequency(candidate) <= sketch.frequency(victim)) {
+                rejected++;
+                victims.add(candidate);
+                return;
+            }
+            while (mainWeight + weight > mainMaximum) {
+                victims.add(evictMain());
+            }
+        }
+        probation.put(candidate, weight);
+        mainWeight += weight;
+    }
+
+    private long eldestMain() {
+        return (probation.isEmpty() ? protectedSegment : probation).keySet().iterator().next();
+    }
+
+    private long evictMain() {
+        if (!probation.isEmpty()) {
+            Map.Entry<Long, Integer> victim = removeEldest(probation);
+            mainWeight -= victim.getValue();
+            return victim.getKey();
+        }
+        Map.Entry<Long, Integer> victim = removeEldest(protectedSegment);
+        mainWeight -= victim.getValue();
+        protectedWeight -= victim.getValue();
+        return victim.getKey();
+    }
+
+    // Лишние записи защищённого сегмента возвращаются в испытательный как самые недавние
+    private void demoteProtected() {
+        while (protectedWeight > protectedMaximum && protectedSegment.size() > 1) {
+            Map.Entry<Long, Integer> demoted = removeEldest(protectedSegment);
+            protectedWeight -= demoted.getValue();
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+    }
+
+    private static Map.Entry<Long, Integer> removeEldest(LinkedHashMap<Long, Integer> segment) {
+        Iterator<Map.Entry<Long, Integer>> iterator = segment.entrySet().iterator();
+        Map.Entry<Long, Integer> eldest = iterator.next();
+        Map.Entry<Long, Integer> copy = Map.entry(eldest.getKey(), eldest.getValue());
+        iterator.remove();
+        return copy;
+    }
+}
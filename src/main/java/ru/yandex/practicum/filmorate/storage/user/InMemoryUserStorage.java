@@ -1,30 +1,76 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.sketch.BloomFilter;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 // Аннотация @Component указывает, что этот класс является компонентом Spring (будет автоматически создан Spring)
 @Component
-// Класс InMemoryUserStorage реализует интерфейс UserStorage, храня пользователей в памяти (в HashMap)
+// Используется по умолчанию, если свойство filmorate.storage.type не задано или равно memory,
+// а также вместе с хранилищем фильмов вне кучи (offheap)
+@ConditionalOnExpression("'${filmorate.storage.type:memory}' == 'memory'"
+        + " or '${filmorate.storage.type:memory}' == 'offheap'")
+// Класс InMemoryUserStorage реализует интерфейс UserStorage, храня пользователей в памяти (в ConcurrentHashMap)
 public class InMemoryUserStorage implements UserStorage {
 
-    private final Map<Long, User> users = new HashMap<>();
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    // Счётчик для генерации уникальных ID без просмотра всех ключей
+    private final AtomicLong lastId = new AtomicLong();
+    // Фильтры Блума созданных ID и всех когда-либо сохранённых email: запросы несуществующих пользователей
+    // и проверка свободного email обходятся без обращения к карте
+    private final BloomFilter idFilter = new BloomFilter();
+    private final BloomFilter emailFilter = new BloomFilter();
 
     @Override
     public User create(User user) {
-        user.setId(getNextId());
+        user.setId(lastId.incrementAndGet());
+        user.setVersion(1);
+        idFilter.add(user.getId());
+        emailFilter.add(user.getEmail());
         users.put(user.getId(), user);
         return user;
     }
 
+    // Метод createAll выделяет ID всему пакету одним обращением к счётчику
+    @Override
+    public List<User> createAll(List<User> batch) {
+        long id = lastId.getAndAdd(batch.size());
+        for (User user : batch) {
+            user.setId(++id);
+            user.setVersion(1);
+            idFilter.add(id);
+            emailFilter.add(user.getEmail());
+            users.put(id, user);
+        }
+        return batch;
+    }
+
     @Override
     public User update(User user) {
+        emailFilter.add(user.getEmail());
         users.put(user.getId(), user);
         return user;
     }
 
+    // Метод для обновления пользователя с проверкой версии без блокировок: новое состояние подменяет текущее
+    // через replace, а если пользователя успели изменить, проверка повторяется с его новой версией
+    @Override
+    public User update(User user, long expectedVersion) {
+        while (true) {
+            User current = users.get(user.getId());
+            User next = UserStorage.nextVersion(current, user, expectedVersion);
+            emailFilter.add(next.getEmail());
+            if (users.replace(user.getId(), current, next)) {
+                return next;
+            }
+        }
+    }
+
     @Override
     public void delete(Long id) {
         users.remove(id);
@@ -35,23 +81,44 @@ public class InMemoryUserStorage implements UserStorage {
         return Optional.ofNullable(users.get(id));
     }
 
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return id != null && !idFilter.mightContain(id);
+    }
+
     @Override
     public Collection<User> findAll() {
         return users.values();
     }
 
-    // Метод для проверки, существует ли пользователь с указанным email
+    // Метод для проверки, существует ли пользователь с указанным email: email, которого нет в фильтре,
+    // точно свободен, и пользователи не перебираются
     @Override
     public boolean existsByEmail(String email) {
+        if (email != null && !emailFilter.mightContain(email)) {
+            return false;
+        }
         return users.values().stream().anyMatch(user -> user.getEmail().equals(email));
     }
 
-    private long getNextId() {
-        long currentMaxId = users.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    // Метод findExistingEmails отсекает фильтром Блума свободные email, а оставшиеся проверяет одним обходом карты
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        Set<String> candidates = new HashSet<>();
+        for (String email : emails) {
+            if (email == null || emailFilter.mightContain(email)) {
+                candidates.add(email);
+            }
+        }
+        Set<String> existing = new HashSet<>();
+        if (candidates.isEmpty()) {
+            return existing;
+        }
+        for (User user : users.values()) {
+            if (candidates.contains(user.getEmail())) {
+                existing.add(user.getEmail());
+            }
+        }
+        return existing;
     }
 }
@@ -0,0 +1,378 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.util.SqlPatterns;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+// Класс JdbcUserStorage хранит пользователей в базе данных через JdbcTemplate.
+// Дружба хранится в таблице friendships двумя строками на пару, поэтому друзья и общие друзья
+// читаются одним соединением таблиц, а не отдельным запросом на каждого друга.
+// Изменения из нескольких запросов выполняются в одной транзакции, поэтому дружба не остаётся односторонней.
+// Включается свойством filmorate.storage.type=jdbc
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "jdbc")
+public class JdbcUserStorage implements UserStorage {
+
+    private static final String SELECT_USERS = "SELECT u.id, u.email, u.login, u.name, u.birthday, u.version FROM users u ";
+
+    private static final RowMapper<User> USER_MAPPER = (rs, rowNum) -> {
+        User user = new User();
+        user.setId(rs.getLong("id"));
+        user.setEmail(rs.getString("email"));
+        user.setLogin(rs.getString("login"));
+        user.setName(rs.getString("name"));
+        Date birthday = rs.getDate("birthday");
+        user.setBirthday(birthday != null ? birthday.toLocalDate() : null);
+        user.setVersion(rs.getLong("version"));
+        return user;
+    };
+
+    private static final String INSERT_USER = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)";
+
+    // Строка дружбы вставляется, только если её ещё нет
+    private static final String MERGE_FRIENDSHIP = "MERGE INTO friendships f "
+            + "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) AS v (user_id, friend_id) "
+            + "ON f.user_id = v.user_id AND f.friend_id = v.friend_id "
+            + "WHEN NOT MATCHED THEN INSERT (user_id, friend_id) VALUES (v.user_id, v.friend_id)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactions;
+
+    public JdbcUserStorage(JdbcTemplate jdbc, TransactionTemplate transactions) {
+        this.jdbc = jdbc;
+        this.transactions = transactions;
+    }
+
+    // Методы create, createAll и update переводят нарушение уникального индекса email в DuplicatedDataException:
+    // проверка в контроллере не защищает от одновременной записи того же email другим запросом
+    @Override
+    public User create(User user) {
+        try {
+            transactions.executeWithoutResult(status -> {
+                KeyHolder keyHolder = new GeneratedKeyHolder();
+                jdbc.update(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(INSERT_USER,
+                            Statement.RETURN_GENERATED_KEYS);
+                    bindInsert(statement, user);
+                    return statement;
+                }, keyHolder);
+                user.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+                insertFriends(user.getId(), user.getFriends());
+            });
+        } catch (DuplicateKeyException e) {
+            throw duplicatedEmail();
+        }
+        user.setVersion(1);
+        return user;
+    }
+
+    // Метод createAll вставляет пользователей одним пакетным запросом и берёт выданные базой ID
+    // из сгенерированных ключей пакета (по одному ключу на строку в порядке вставки)
+    @Override
+    public List<User> createAll(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        try {
+            transactions.executeWithoutResult(status -> insertAll(users));
+        } catch (DuplicateKeyException e) {
+            throw duplicatedEmail();
+        }
+        return users;
+    }
+
+    private void insertAll(List<User> users) {
+        jdbc.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_USER,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (User user : users) {
+                    bindInsert(statement, user);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (User user : users) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("База вернула меньше ID, чем вставлено пользователей");
+                        }
+                        user.setId(keys.getLong(1));
+                        user.setVersion(1);
+                    }
+                }
+            }
+            return null;
+        });
+        for (User user : users) {
+            insertFriends(user.getId(), user.getFriends());
+        }
+    }
+
+    // Метод update записывает всё состояние пользователя, включая список друзей
+    @Override
+    public User update(User user) {
+        updateAll(List.of(user));
+        return user;
+    }
+
+    // Метод updateAll обновляет строки пользователей и их друзей пакетными запросами в одной транзакции,
+    // поэтому другие запросы не видят пользователя без друзей между удалением и вставкой строк дружбы
+    @Override
+    public void updateAll(Collection<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(users.size());
+        List<Object[]> ids = new ArrayList<>(users.size());
+        List<Object[]> friendships = new ArrayList<>();
+        for (User user : users) {
+            rows.add(new Object[]{user.getEmail(), user.getLogin(), user.getName(),
+                    user.getBirthday() != null ? Date.valueOf(user.getBirthday()) : null, user.getId()});
+            ids.add(new Object[]{user.getId()});
+            for (Long friendId : user.getFriends()) {
+                friendships.add(new Object[]{user.getId(), friendId});
+            }
+        }
+        try {
+            transactions.executeWithoutResult(status -> {
+                jdbc.batchUpdate("UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?",
+                        rows);
+                jdbc.batchUpdate("DELETE FROM friendships WHERE user_id = ?", ids);
+                if (!friendships.isEmpty()) {
+                    jdbc.batchUpdate(INSERT_FRIENDSHIP, friendships);
+                }
+            });
+        } catch (DuplicateKeyException e) {
+            throw duplicatedEmail();
+        }
+    }
+
+    // Метод update с проверкой версии: условие на версию входит в сам UPDATE, поэтому проверка и запись атомарны
+    @Override
+    public User update(User user, long expectedVersion) {
+        int updated;
+        try {
+            updated = jdbc.update("UPDATE users SET email = ?, login = ?, name = ?, birthday = ?, "
+                            + "version = version + 1 WHERE id = ? AND (version = ? OR ? = " + ANY_VERSION + ")",
+                    user.getEmail(), user.getLogin(), user.getName(),
+                    user.getBirthday() != null ? Date.valueOf(user.getBirthday()) : null,
+                    user.getId(), expectedVersion, expectedVersion);
+        } catch (DuplicateKeyException e) {
+            throw duplicatedEmail();
+        }
+        User current = findById(user.getId()).orElse(null);
+        if (updated == 0) {
+            // Строка не обновлена: пользователя нет или его версия другая, nextVersion выбросит нужное исключение
+            UserStorage.nextVersion(current, user, expectedVersion);
+            throw new ConflictException("Пользователь с ID " + user.getId() + " был изменён другим запросом");
+        }
+        return current;
+    }
+
+    @Override
+    public void delete(Long id) {
+        jdbc.update("DELETE FROM users WHERE id = ?", id);
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        List<User> users = jdbc.query(SELECT_USERS + "WHERE u.id = ?", USER_MAPPER, id);
+        return withFriends(users).stream().findFirst();
+    }
+
+    // Метод findAllById читает все строки одним запросом с условием IN и восстанавливает порядок ids
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+        if (uniqueIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, User> byId = new HashMap<>();
+        for (User user : withFriends(jdbc.query(SELECT_USERS + "WHERE u.id IN ("
+                + SqlPatterns.placeholders(uniqueIds.size()) + ")", USER_MAPPER, uniqueIds.toArray()))) {
+            byId.put(user.getId(), user);
+        }
+        List<User> result = new ArrayList<>(byId.size());
+        for (Long id : uniqueIds) {
+            User user = byId.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return withAllFriends(jdbc.query(SELECT_USERS + "ORDER BY u.id", USER_MAPPER));
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE email = ?)", Boolean.class, email));
+    }
+
+    @Override
+    public boolean existsByEmailExcept(String email, Long userId) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE email = ? AND id <> ?)", Boolean.class, email, userId));
+    }
+
+    // Метод findExistingEmails проверяет весь набор одним запросом с IN, а не запросом на каждый email
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        Set<String> unique = new LinkedHashSet<>(emails);
+        unique.remove(null);
+        if (unique.isEmpty()) {
+            return existing;
+        }
+        jdbc.query("SELECT email FROM users WHERE email IN (" + SqlPatterns.placeholders(unique.size()) + ")",
+                rs -> {
+                    existing.add(rs.getString("email"));
+                }, unique.toArray());
+        return existing;
+    }
+
+    // Метод addFriend добавляет обе строки дружбы в одной транзакции, не перезаписывая остальных друзей.
+    // Если ту же дружбу одновременно добавил другой запрос, вставка нарушает первичный ключ — дружба уже есть,
+    // поэтому это не ошибка
+    @Override
+    public void addFriend(User user, User friend) {
+        try {
+            transactions.executeWithoutResult(status -> jdbc.batchUpdate(MERGE_FRIENDSHIP, List.of(
+                    new Object[]{user.getId(), friend.getId()},
+                    new Object[]{friend.getId(), user.getId()})));
+        } catch (DuplicateKeyException e) {
+            // Дружбу уже записал другой запрос
+        }
+        user.getFriends().add(friend.getId());
+        friend.getFriends().add(user.getId());
+    }
+
+    @Override
+    public void removeFriend(User user, User friend) {
+        transactions.executeWithoutResult(status -> jdbc.batchUpdate(
+                "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?", List.of(
+                        new Object[]{user.getId(), friend.getId()},
+                        new Object[]{friend.getId(), user.getId()})));
+        user.getFriends().remove(friend.getId());
+        friend.getFriends().remove(user.getId());
+    }
+
+    // Метод findFriends читает друзей одним соединением таблиц и их списки друзей одним запросом
+    @Override
+    public List<User> findFriends(User user) {
+        return withFriends(jdbc.query(SELECT_USERS
+                + "JOIN friendships f ON f.friend_id = u.id WHERE f.user_id = ? ORDER BY u.id",
+                USER_MAPPER, user.getId()));
+    }
+
+    // Метод findCommonFriends находит общих друзей двойным соединением таблицы дружбы
+    @Override
+    public List<User> findCommonFriends(User user, User other) {
+        return withFriends(jdbc.query(SELECT_USERS
+                + "JOIN friendships a ON a.friend_id = u.id "
+                + "JOIN friendships b ON b.friend_id = u.id "
+                + "WHERE a.user_id = ? AND b.user_id = ? ORDER BY u.id", USER_MAPPER, user.getId(), other.getId()));
+    }
+
+    @Override
+    public List<User> findPage(int from, int size) {
+        return withFriends(jdbc.query(SELECT_USERS + "ORDER BY u.id LIMIT ? OFFSET ?", USER_MAPPER, size, from));
+    }
+
+    @Override
+    public List<User> search(String query, int limit) {
+        String pattern = SqlPatterns.containsPattern(query);
+        return withFriends(jdbc.query(SELECT_USERS
+                + "WHERE LOWER(u.login) LIKE ? ESCAPE '\\' OR LOWER(u.name) LIKE ? ESCAPE '\\' "
+                + "OR LOWER(u.email) LIKE ? ESCAPE '\\' ORDER BY u.id LIMIT ?",
+                USER_MAPPER, pattern, pattern, pattern, limit));
+    }
+
+    // Метод withFriends загружает списки друзей для всех переданных пользователей одним запросом
+    private List<User> withFriends(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Long, User> byId = new LinkedHashMap<>();
+        for (User user : users) {
+            byId.put(user.getId(), user);
+        }
+        jdbc.query("SELECT user_id, friend_id FROM friendships WHERE user_id IN ("
+                        + SqlPatterns.placeholders(byId.size()) + ")",
+                rs -> {
+                    byId.get(rs.getLong("user_id")).getFriends().add(rs.getLong("friend_id"));
+                }, byId.keySet().toArray());
+        return users;
+    }
+
+    // Метод withAllFriends загружает всю таблицу дружбы одним запросом без длинного условия IN
+    private List<User> withAllFriends(List<User> users) {
+        Map<Long, User> byId = new HashMap<>();
+        for (User user : users) {
+            byId.put(user.getId(), user);
+        }
+        jdbc.query("SELECT user_id, friend_id FROM friendships", rs -> {
+            User user = byId.get(rs.getLong("user_id"));
+            if (user != null) {
+                user.getFriends().add(rs.getLong("friend_id"));
+            }
+        });
+        return users;
+    }
+
+    private static void bindInsert(PreparedStatement statement, User user) throws SQLException {
+        statement.setString(1, user.getEmail());
+        statement.setString(2, user.getLogin());
+        statement.setString(3, user.getName());
+        statement.setDate(4, user.getBirthday() != null ? Date.valueOf(user.getBirthday()) : null);
+    }
+
+    private void insertFriends(Long userId, Collection<Long> friendIds) {
+        if (friendIds.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(friendIds.size());
+        for (Long friendId : friendIds) {
+            rows.add(new Object[]{userId, friendId});
+        }
+        jdbc.batchUpdate(INSERT_FRIENDSHIP, rows);
+    }
+
+    // Единственное уникальное ограничение строк users, кроме ID из последовательности, — индекс по email
+    private static DuplicatedDataException duplicatedEmail() {
+        return new DuplicatedDataException("Этот email уже используется");
+    }
+}
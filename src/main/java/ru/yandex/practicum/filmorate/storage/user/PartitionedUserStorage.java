@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.sketch.BloomFilter;
+import ru.yandex.practicum.filmorate.storage.partition.PartitionedStore;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// Класс PartitionedUserStorage хранит пользователей в шардах PartitionedStore
+// Включается свойством filmorate.storage.type=partitioned
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "partitioned")
+public class PartitionedUserStorage implements UserStorage, DisposableBean {
+
+    private final PartitionedStore<User> users;
+    // Фильтры Блума созданных ID и всех когда-либо сохранённых email
+    private final BloomFilter idFilter = new BloomFilter();
+    private final BloomFilter emailFilter = new BloomFilter();
+
+    public PartitionedUserStorage(@Value("${filmorate.storage.partitions.count:16}") int shardCount,
+                                  @Value("${filmorate.storage.partitions.id-block-size:1024}") int idBlockSize,
+                                  @Value("${filmorate.storage.partitions.parallelism:0}") int parallelism) {
+        this.users = new PartitionedStore<>(shardCount, idBlockSize,
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                User::getId, User::setId);
+    }
+
+    @Override
+    public User create(User user) {
+        user.setVersion(1);
+        emailFilter.add(user.getEmail());
+        User created = users.create(user);
+        idFilter.add(created.getId());
+        return created;
+    }
+
+    @Override
+    public List<User> createAll(List<User> batch) {
+        for (User user : batch) {
+            user.setVersion(1);
+            emailFilter.add(user.getEmail());
+        }
+        users.createAll(batch);
+        for (User user : batch) {
+            idFilter.add(user.getId());
+        }
+        return batch;
+    }
+
+    @Override
+    public User update(User user) {
+        emailFilter.add(user.getEmail());
+        return users.put(user);
+    }
+
+    // Метод update с проверкой версии выполняется под блокировкой записи только одного шарда
+    @Override
+    public User update(User user, long expectedVersion) {
+        emailFilter.add(user.getEmail());
+        return users.compute(user.getId(), current -> UserStorage.nextVersion(current, user, expectedVersion));
+    }
+
+    @Override
+    public void delete(Long id) {
+        users.remove(id);
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return users.get(id);
+    }
+
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return id != null && !idFilter.mightContain(id);
+    }
+
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        return users.getAll(ids);
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return users.all();
+    }
+
+    // Метод для проверки, существует ли пользователь с указанным email (проверка идёт по всем шардам параллельно).
+    // Email, которого нет в фильтре, точно свободен, и шарды не перебираются
+    @Override
+    public boolean existsByEmail(String email) {
+        if (email != null && !emailFilter.mightContain(email)) {
+            return false;
+        }
+        return users.anyMatch(user -> user.getEmail().equals(email));
+    }
+
+    // Метод findExistingEmails отсекает фильтром Блума свободные email, а оставшиеся ищет одним параллельным
+    // обходом шардов
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        Set<String> candidates = new HashSet<>();
+        for (String email : emails) {
+            if (email == null || emailFilter.mightContain(email)) {
+                candidates.add(email);
+            }
+        }
+        Set<String> existing = new HashSet<>();
+        if (candidates.isEmpty()) {
+            return existing;
+        }
+        for (User user : users.filter(user -> candidates.contains(user.getEmail()), Integer.MAX_VALUE)) {
+            existing.add(user.getEmail());
+        }
+        return existing;
+    }
+
+    @Override
+    public List<User> findPage(int from, int size) {
+        return users.page(from, size);
+    }
+
+    @Override
+    public List<User> search(String query, int limit) {
+        return users.filter(user -> UserStorage.matches(user, query), limit);
+    }
+
+    @Override
+    public void destroy() {
+        users.close();
+    }
+}
@@ -0,0 +1,217 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.sketch.BloomFilter;
+import ru.yandex.practicum.filmorate.storage.tiered.Records;
+import ru.yandex.practicum.filmorate.storage.tiered.TieredStore;
+import ru.yandex.practicum.filmorate.storage.tiered.TieredStoreRegistry;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Класс TieredUserStorage хранит пользователей в TieredStore: часто запрашиваемых — объектами в куче,
+// остальных — записями в файле сегмента на диске. В куче для каждого пользователя остаётся только email,
+// чтобы проверка занятости email не читала холодные записи.
+// Включается свойством filmorate.storage.type=tiered
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.type", havingValue = "tiered")
+public class TieredUserStorage implements UserStorage {
+
+    private final TieredStore<User> users;
+    // Email каждого существующего пользователя; заодно это список ID всех пользователей
+    private final Map<Long, String> emails = new ConcurrentHashMap<>();
+    // Фильтр Блума всех когда-либо сохранённых email: проверка свободного email обходится без перебора карты
+    private final BloomFilter emailFilter = new BloomFilter();
+    private final AtomicLong lastId = new AtomicLong();
+
+    public TieredUserStorage(TieredStoreRegistry registry,
+                             @Value("${filmorate.storage.tiered.users-hot-mb:64}") int hotMb) {
+        this.users = registry.create("users", new UserCodec(), User::getId, hotMb);
+    }
+
+    @Override
+    public User create(User user) {
+        user.setId(lastId.incrementAndGet());
+        user.setVersion(1);
+        emailFilter.add(user.getEmail());
+        users.put(user);
+        emails.put(user.getId(), user.getEmail());
+        return user;
+    }
+
+    @Override
+    public User update(User user) {
+        emailFilter.add(user.getEmail());
+        users.put(user);
+        emails.put(user.getId(), user.getEmail());
+        return user;
+    }
+
+    @Override
+    public User update(User user, long expectedVersion) {
+        emailFilter.add(user.getEmail());
+        User next = users.compute(user.getId(), current -> UserStorage.nextVersion(current, user, expectedVersion));
+        emails.put(next.getId(), next.getEmail());
+        return next;
+    }
+
+    @Override
+    public void delete(Long id) {
+        users.remove(id);
+        emails.remove(id);
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return id == null || !emails.containsKey(id) ? Optional.empty() : Optional.ofNullable(users.get(id));
+    }
+
+    // Индекс ID в куче точный, поэтому фильтр Блума для ID здесь не нужен
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return id != null && !emails.containsKey(id);
+    }
+
+    // Обход всех пользователей читает холодные записи, не поднимая их в горячий уровень
+    @Override
+    public Collection<User> findAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<User> iterator() {
+                return new UserIterator(emails.keySet().iterator());
+            }
+
+            @Override
+            public int size() {
+                return emails.size();
+            }
+        };
+    }
+
+    // ID выдаются по порядку, поэтому страница собирается проходом по ID без сортировки
+    @Override
+    public List<User> findPage(int from, int size) {
+        List<User> page = new ArrayList<>(size);
+        int skipped = 0;
+        for (long id = 1; id <= lastId.get() && page.size() < size; id++) {
+            if (emails.containsKey(id) && skipped++ >= from) {
+                User user = users.peek(id);
+                if (user != null) {
+                    page.add(user);
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return emailFilter.mightContain(email) && emails.containsValue(email);
+    }
+
+    // Метод findExistingEmails отсекает фильтром Блума свободные email, а оставшиеся проверяет одним обходом индекса
+    @Override
+    public Set<String> findExistingEmails(Collection<String> candidates) {
+        Set<String> possible = new HashSet<>();
+        for (String email : candidates) {
+            if (emailFilter.mightContain(email)) {
+                possible.add(email);
+            }
+        }
+        Set<String> existing = new HashSet<>();
+        if (possible.isEmpty()) {
+            return existing;
+        }
+        for (String email : emails.values()) {
+            if (possible.contains(email)) {
+                existing.add(email);
+            }
+        }
+        return existing;
+    }
+
+    private final class UserIterator implements Iterator<User> {
+        private final Iterator<Long> ids;
+        private User next;
+
+        UserIterator(Iterator<Long> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && ids.hasNext()) {
+                next = users.peek(ids.next());
+            }
+            return next != null;
+        }
+
+        @Override
+        public User next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            User user = next;
+            next = null;
+            return user;
+        }
+    }
+
+    // Запись пользователя: ID, версия, email, логин, имя, дата рождения и ID друзей
+    private static final class UserCodec implements TieredStore.Codec<User> {
+
+        @Override
+        public byte[] encode(User user) {
+            return Records.write(out -> {
+                out.writeLong(user.getId());
+                out.writeLong(user.getVersion());
+                Records.writeString(out, user.getEmail());
+                Records.writeString(out, user.getLogin());
+                Records.writeString(out, user.getName());
+                Records.writeDate(out, user.getBirthday());
+                out.writeInt(user.getFriends().size());
+                for (Long friendId : user.getFriends()) {
+                    out.writeLong(friendId);
+                }
+            });
+        }
+
+        @Override
+        public User decode(byte[] data) {
+            return Records.read(data, in -> {
+                User user = new User();
+                user.setId(in.readLong());
+                user.setVersion(in.readLong());
+                user.setEmail(Records.readString(in));
+                user.setLogin(Records.readString(in));
+                user.setName(Records.readString(in));
+                user.setBirthday(Records.readDate(in));
+                int friends = in.readInt();
+                for (int i = 0; i < friends; i++) {
+                    user.getFriends().add(in.readLong());
+                }
+                return user;
+            });
+        }
+
+        // Объект пользователя с полями и HashSet друзей (около 48 байт на друга: узел, Long и слот таблицы)
+        @Override
+        public int weigh(User user) {
+            return 200 + Records.weigh(user.getEmail()) + Records.weigh(user.getLogin())
+                    + Records.weigh(user.getName()) + user.getFriends().size() * 48;
+        }
+    }
+}
@@ -1,25 +1,171 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 
 // Интерфейс UserStorage определяет методы для работы с хранилищем пользователей
 public interface UserStorage {
 
     User create(User user);
 
+    // Значение ожидаемой версии, при котором update(user, expectedVersion) не проверяет версию
+    long ANY_VERSION = 0;
+
+    // Метод update сохраняет пользователя без проверки и без изменения версии
+    // (используется для дружбы и внутренних изменений)
     User update(User user);
 
+    // Метод update с проверкой версии: сохраняет email, логин, имя и дату рождения пользователя,
+    // только если его текущая версия равна expectedVersion, и увеличивает версию на 1.
+    // Друзья остаются прежними. Если пользователя нет — NotFoundException, если версия не совпала — ConflictException.
+    // Реализация по умолчанию не атомарна; хранилища, допускающие параллельную запись, переопределяют её
+    default User update(User user, long expectedVersion) {
+        User current = findById(user.getId()).orElse(null);
+        return update(nextVersion(current, user, expectedVersion));
+    }
+
+    // Метод updateAll для обновления нескольких пользователей за один вызов
+    default void updateAll(Collection<User> users) {
+        for (User user : users) {
+            update(user);
+        }
+    }
+
+    // Метод createAll для создания нескольких пользователей за один вызов (массовый импорт): выдаёт им ID
+    // и версию 1, как create, и возвращает их в том же порядке. Уникальность email не проверяется — это делает
+    // вызывающий код. Хранилища переопределяют метод, чтобы выделять ID блоком и сохранять пользователей пакетом
+    default List<User> createAll(List<User> users) {
+        List<User> created = new ArrayList<>(users.size());
+        for (User user : users) {
+            created.add(create(user));
+        }
+        return created;
+    }
+
     void delete(Long id);
 
     // Метод findById для поиска пользователя по ID
     Optional<User> findById(Long id);
 
+    // Метод isDefinitelyAbsent возвращает true, только если пользователя с таким ID точно нет, не обращаясь
+    // к самим данным (хранилища в памяти проверяют фильтр Блума созданных ID). false означает «возможно, есть» —
+    // тогда нужен findById. Реализация по умолчанию ничего не знает заранее
+    default boolean isDefinitelyAbsent(Long id) {
+        return false;
+    }
+
+    // Метод findAllById для получения нескольких пользователей за один вызов: возвращает найденных
+    // пользователей в порядке ids (без повторов), отсутствующие ID пропускаются
+    default List<User> findAllById(Collection<Long> ids) {
+        List<User> users = new ArrayList<>(ids.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            findById(id).ifPresent(users::add);
+        }
+        return users;
+    }
+
     // Метод findAll для получения всех пользователей
     Collection<User> findAll();
 
     // Метод для проверки, существует ли пользователь с указанным email
     boolean existsByEmail(String email);
+
+    // Метод existsByEmailExcept проверяет, что email использует кто-то, кроме пользователя userId (при обновлении).
+    // Пользователь читается, только если email вообще занят
+    default boolean existsByEmailExcept(String email, Long userId) {
+        return existsByEmail(email) && findById(userId).map(User::getEmail).filter(email::equals).isEmpty();
+    }
+
+    // Метод findExistingEmails возвращает те из emails, которые уже используются (для проверки пакета
+    // при массовом импорте). Хранилища переопределяют его, чтобы проверить весь пакет за один проход или запрос
+    default Set<String> findExistingEmails(Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        for (String email : emails) {
+            if (existsByEmail(email)) {
+                existing.add(email);
+            }
+        }
+        return existing;
+    }
+
+    // Метод addFriend для добавления взаимной дружбы пользователей user и friend
+    default void addFriend(User user, User friend) {
+        user.getFriends().add(friend.getId());
+        friend.getFriends().add(user.getId());
+        update(user);
+        update(friend);
+    }
+
+    // Метод removeFriend для удаления взаимной дружбы пользователей user и friend
+    default void removeFriend(User user, User friend) {
+        user.getFriends().remove(friend.getId());
+        friend.getFriends().remove(user.getId());
+        update(user);
+        update(friend);
+    }
+
+    // Метод findFriends для получения друзей пользователя одним вызовом findAllById
+    default List<User> findFriends(User user) {
+        return findAllById(user.getFriends());
+    }
+
+    // Метод findCommonFriends для получения общих друзей двух пользователей одним вызовом findAllById
+    default List<User> findCommonFriends(User user, User other) {
+        return findAllById(user.getFriends().stream()
+                .filter(other.getFriends()::contains)
+                .toList());
+    }
+
+    // Метод findPage для постраничного получения пользователей в порядке возрастания ID
+    default List<User> findPage(int from, int size) {
+        return findAll().stream()
+                .sorted(Comparator.comparing(User::getId))
+                .skip(from)
+                .limit(size)
+                .toList();
+    }
+
+    // Метод search для поиска пользователей, у которых логин, имя или email содержат строку query
+    default List<User> search(String query, int limit) {
+        return findAll().stream()
+                .filter(user -> matches(user, query))
+                .sorted(Comparator.comparing(User::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    // Метод nextVersion проверяет ожидаемую версию текущего пользователя current и готовит к сохранению новое
+    // состояние user: переносит друзей текущего пользователя и увеличивает версию
+    static User nextVersion(User current, User user, long expectedVersion) {
+        if (current == null) {
+            throw new NotFoundException("Пользователь с ID " + user.getId() + " не найден");
+        }
+        if (expectedVersion != ANY_VERSION && current.getVersion() != expectedVersion) {
+            throw new ConflictException(String.format(
+                    "Пользователь с ID %d был изменён: текущая версия %d, ожидалась %d",
+                    user.getId(), current.getVersion(), expectedVersion));
+        }
+        user.setFriends(current.getFriends());
+        user.setVersion(current.getVersion() + 1);
+        return user;
+    }
+
+    // Метод matches проверяет без учёта регистра, что логин, имя или email пользователя содержат строку query
+    static boolean matches(User user, String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        return (user.getLogin() != null && user.getLogin().toLowerCase(Locale.ROOT).contains(needle))
+                || (user.getName() != null && user.getName().toLowerCase(Locale.ROOT).contains(needle))
+                || (user.getEmail() != null && user.getEmail().toLowerCase(Locale.ROOT).contains(needle));
+    }
 }
@@ -0,0 +1,277 @@
+package ru.yandex.practicum.filmorate.storage.writebehind;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Класс WriteBehindBuffer накапливает обновления сущностей и записывает их в хранилище пачками.
+ * Повторные обновления одной сущности в пределах окна схлопываются в одну запись. Буфер ограничен:
+ * если он заполнен, вызывающий поток ждёт освобождения места (backpressure), а по истечении таймаута
+ * сам сбрасывает буфер. Чтения через get видят ещё не записанные изменения (read-your-writes).
+ */
+@Slf4j
+public class WriteBehindBuffer<T> implements AutoCloseable {
+
+    // Гарантия сохранности при остановке: сбросить всё, сбросить сколько успеем за таймаут или ничего
+    public enum ShutdownMode {
+        FLUSH_ALL, TIMEOUT, NONE
+    }
+
+    private final String name;
+    private final Consumer<Collection<T>> writer;
+    private final Function<T, Long> idGetter;
+    private final int capacity;
+    private final long windowMillis;
+    private final long backpressureTimeoutMillis;
+    private final ShutdownMode shutdownMode;
+    private final long shutdownTimeoutMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushRequested = lock.newCondition();
+    // Сбросы выполняются строго по очереди, чтобы более новая версия сущности не была перезаписана старой
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Ожидающие записи обновления и пачка, которая записывается прямо сейчас
+    private volatile Map<Long, T> pending = new ConcurrentHashMap<>();
+    private volatile Map<Long, T> inFlight = Map.of();
+    private volatile boolean closed;
+    private final Thread flusher;
+
+    private final AtomicLong updates = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    public WriteBehindBuffer(String name, Consumer<Collection<T>> writer, Function<T, Long> idGetter, int capacity,
+                             long windowMillis, long backpressureTimeoutMillis, ShutdownMode shutdownMode,
+                             long shutdownTimeoutMillis) {
+        this.name = name;
+        this.writer = writer;
+        this.idGetter = idGetter;
+        this.capacity = capacity;
+        this.windowMillis = windowMillis;
+        this.backpressureTimeoutMillis = backpressureTimeoutMillis;
+        this.shutdownMode = shutdownMode;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.flusher = new Thread(this::flushLoop, "write-behind-" + name);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    // Метод put ставит обновление сущности в очередь на запись
+    public void put(T entity) {
+        Long id = idGetter.apply(entity);
+        updates.incrementAndGet();
+        boolean flushInline = false;
+        lock.lock();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backpressureTimeoutMillis);
+            while (!pending.containsKey(id) && pending.size() >= capacity && !closed) {
+                flushRequested.signal();
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    flushInline = true;
+                    break;
+                }
+                notFull.awaitNanos(remaining);
+            }
+            if (pending.put(id, entity) != null) {
+                coalesced.incrementAndGet();
+            }
+            if (pending.size() >= capacity) {
+                flushRequested.signal();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.put(id, entity);
+        } finally {
+            lock.unlock();
+        }
+        if (flushInline || closed) {
+            // Фоновый сброс не успевает: записываем в потоке вызывающего, чтобы не терять изменения
+            flush();
+        }
+    }
+
+    // Метод get возвращает ещё не записанную версию сущности или null, если её нет в буфере
+    public T get(Long id) {
+        // Порядок чтения важен: при сбросе пачка сначала публикуется в inFlight и только потом убирается из pending
+        T entity = pending.get(id);
+        return entity != null ? entity : inFlight.get(id);
+    }
+
+    // Метод remove убирает сущность из буфера (например, перед удалением из хранилища)
+    public void remove(Long id) {
+        lock.lock();
+        try {
+            pending.remove(id);
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // Дожидаемся записи пачки, в которой может оказаться эта сущность, чтобы она не "воскресла" после удаления
+        if (inFlight.containsKey(id)) {
+            flushLock.lock();
+            flushLock.unlock();
+        }
+    }
+
+    // Метод flush синхронно записывает все накопленные обновления
+    public void flush() {
+        while (!pending.isEmpty()) {
+            flushOnce();
+        }
+    }
+
+    // Метод flush(id) синхронно записывает отложенное обновление одной сущности, если оно есть, не сбрасывая
+    // остальные, и дожидается записи пачки, в которой эта сущность может находиться прямо сейчас
+    public void flush(Long id) {
+        if (!pending.containsKey(id) && !inFlight.containsKey(id)) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            T entity = pending.get(id);
+            if (entity == null) {
+                return;
+            }
+            lock.lock();
+            try {
+                // Как и при сбросе пачки: сначала публикуем в inFlight, потом убираем из pending
+                inFlight = Map.of(id, entity);
+                pending.remove(id);
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                writer.accept(List.of(entity));
+                written.incrementAndGet();
+                batches.incrementAndGet();
+            } catch (RuntimeException e) {
+                lock.lock();
+                try {
+                    pending.putIfAbsent(id, entity);
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            } finally {
+                inFlight = Map.of();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(name, pending.size(), updates.get(), coalesced.get(), written.get(), batches.get());
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            lock.lock();
+            try {
+                if (pending.size() < capacity) {
+                    flushRequested.await(windowMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                if (closed) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            try {
+                flushOnce();
+            } catch (RuntimeException e) {
+                log.error("Ошибка фоновой записи буфера {}", name, e);
+            }
+        }
+    }
+
+    private void flushOnce() {
+        flushLock.lock();
+        try {
+            Map<Long, T> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new ConcurrentHashMap<>();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            try {
+                writer.accept(batch.values());
+                written.addAndGet(batch.size());
+                batches.incrementAndGet();
+            } catch (RuntimeException e) {
+                // Возвращаем в буфер те сущности, которые не успели обновиться заново, и повторим позже
+                lock.lock();
+                try {
+                    batch.forEach(pending::putIfAbsent);
+                } finally {
+                    lock.unlock();
+                }
+                throw e;
+            } finally {
+                inFlight = Map.of();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        switch (shutdownMode) {
+            case FLUSH_ALL -> flush();
+            case TIMEOUT -> flushWithin(shutdownTimeoutMillis);
+            case NONE -> {
+                if (!pending.isEmpty()) {
+                    log.warn("Буфер {} остановлен без записи {} обновлений", name, pending.size());
+                }
+            }
+        }
+    }
+
+    private void flushWithin(long timeoutMillis) {
+        Thread worker = new Thread(this::flush, "write-behind-shutdown-" + name);
+        worker.start();
+        try {
+            worker.join(timeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive() || !pending.isEmpty()) {
+            log.warn("Буфер {} не успел записать обновления за {} мс, осталось {}", name, timeoutMillis,
+                    pending.size());
+        }
+    }
+
+    // Статистика буфера: сколько обновлений пришло, сколько схлопнулось и сколько записано в хранилище
+    public record Stats(String name, int pending, long updates, long coalesced, long written, long batches) {
+    }
+}
@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.storage.writebehind;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Класс WriteBehindFilmStorage — декоратор FilmStorage, который откладывает и схлопывает вызовы update.
+// Создание, удаление и лайки выполняются сразу, чтение по ID видит отложенные изменения,
+// а запросы по всему каталогу сначала сбрасывают буфер
+public class WriteBehindFilmStorage implements FilmStorage {
+
+    private final FilmStorage delegate;
+    private final WriteBehindBuffer<Film> buffer;
+
+    public WriteBehindFilmStorage(FilmStorage delegate, WriteBehindSettings settings) {
+        this.delegate = delegate;
+        this.buffer = settings.createBuffer("films", delegate::updateAll, Film::getId);
+    }
+
+    @Override
+    public Film create(Film film) {
+        return delegate.create(film);
+    }
+
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        return delegate.createAll(films);
+    }
+
+    @Override
+    public Film update(Film film) {
+        buffer.put(film);
+        return film;
+    }
+
+    // Метод update с проверкой версии сначала сбрасывает буфер, чтобы версия сравнивалась с сохранённым состоянием
+    @Override
+    public Film update(Film film, long expectedVersion) {
+        buffer.flush();
+        return delegate.update(film, expectedVersion);
+    }
+
+    @Override
+    public void delete(Long id) {
+        buffer.remove(id);
+        delegate.delete(id);
+    }
+
+    // Лайк передаётся хранилищу сразу, а не копией всего фильма через буфер: схлопывание копий, снятых при разных
+    // чтениях, могло бы потерять одновременный лайк. Перед этим записывается отложенное обновление этого фильма
+    @Override
+    public boolean addLike(Film film, Long userId) {
+        buffer.flush(film.getId());
+        return delegate.addLike(film, userId);
+    }
+
+    @Override
+    public boolean removeLike(Film film, Long userId) {
+        buffer.flush(film.getId());
+        return delegate.removeLike(film, userId);
+    }
+
+    @Override
+    public Optional<Film> findById(Long id) {
+        Film pending = buffer.get(id);
+        return pending != null ? Optional.of(pending) : delegate.findById(id);
+    }
+
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return delegate.isDefinitelyAbsent(id);
+    }
+
+    // Метод findAllById берёт отложенные изменения из буфера, а остальные ID запрашивает у хранилища одним вызовом
+    @Override
+    public List<Film> findAllById(Collection<Long> ids) {
+        Map<Long, Film> found = new HashMap<>();
+        List<Long> rest = new ArrayList<>();
+        for (Long id : ids) {
+            Film pending = buffer.get(id);
+            if (pending != null) {
+                found.put(id, pending);
+            } else {
+                rest.add(id);
+            }
+        }
+        if (found.isEmpty()) {
+            return delegate.findAllById(ids);
+        }
+        for (Film film : delegate.findAllById(rest)) {
+            found.put(film.getId(), film);
+        }
+        List<Film> result = new ArrayList<>(found.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Film film = found.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        buffer.flush();
+        return delegate.findAll();
+    }
+
+    @Override
+    public void forEachLike(FilmLongConsumer consumer) {
+        buffer.flush();
+        delegate.forEachLike(consumer);
+    }
+
+    @Override
+    public void forEachLikeCount(FilmLongConsumer consumer) {
+        buffer.flush();
+        delegate.forEachLikeCount(consumer);
+    }
+
+    @Override
+    public List<Film> findPage(int from, int size) {
+        buffer.flush();
+        return delegate.findPage(from, size);
+    }
+
+    @Override
+    public List<Film> findPopular(int count) {
+        buffer.flush();
+        return delegate.findPopular(count);
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        buffer.flush();
+        return delegate.search(query, limit);
+    }
+
+    public WriteBehindBuffer.Stats stats() {
+        return buffer.stats();
+    }
+
+    // Метод shutdown останавливает фоновую запись и сбрасывает буфер согласно настроенной гарантии.
+    // Вызывается до уничтожения исходного хранилища
+    public void shutdown() {
+        buffer.close();
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage.writebehind;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Настройки отложенной записи: ёмкость буфера, окно схлопывания, таймаут ожидания места и гарантия при остановке
+public record WriteBehindSettings(int capacity, long windowMillis, long backpressureTimeoutMillis,
+                                  WriteBehindBuffer.ShutdownMode shutdownMode, long shutdownTimeoutMillis) {
+
+    <T> WriteBehindBuffer<T> createBuffer(String name, Consumer<Collection<T>> writer, Function<T, Long> idGetter) {
+        return new WriteBehindBuffer<>(name, writer, idGetter, capacity, windowMillis, backpressureTimeoutMillis,
+                shutdownMode, shutdownTimeoutMillis);
+    }
+}
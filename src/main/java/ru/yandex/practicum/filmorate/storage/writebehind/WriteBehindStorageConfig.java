@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.storage.writebehind;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Конфигурация отложенной записи: при filmorate.storage.write-behind.enabled=true оборачивает выбранные
+// хранилища фильмов и пользователей в декораторы WriteBehindFilmStorage и WriteBehindUserStorage
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "filmorate.storage.write-behind.enabled", havingValue = "true")
+public class WriteBehindStorageConfig {
+
+    private static final String PREFIX = "filmorate.storage.write-behind.";
+
+    // Метод статический, чтобы пост-процессор создавался раньше остальных бинов
+    @Bean
+    public static WriteBehindPostProcessor writeBehindStoragePostProcessor(Environment environment) {
+        WriteBehindSettings settings = new WriteBehindSettings(
+                environment.getProperty(PREFIX + "capacity", Integer.class, 10_000),
+                environment.getProperty(PREFIX + "window-ms", Long.class, 50L),
+                environment.getProperty(PREFIX + "backpressure-timeout-ms", Long.class, 1_000L),
+                environment.getProperty(PREFIX + "shutdown", WriteBehindBuffer.ShutdownMode.class,
+                        WriteBehindBuffer.ShutdownMode.FLUSH_ALL),
+                environment.getProperty(PREFIX + "shutdown-timeout-ms", Long.class, 10_000L));
+        return new WriteBehindPostProcessor(settings);
+    }
+
+    // Пост-процессор оборачивает хранилища в декораторы. Spring вызывает destroy у исходного бина, а не у обёртки,
+    // поэтому буфер сбрасывается в postProcessBeforeDestruction — до уничтожения исходного хранилища
+    static final class WriteBehindPostProcessor implements DestructionAwareBeanPostProcessor {
+
+        private final WriteBehindSettings settings;
+        private final Map<String, Runnable> shutdownHooks = new ConcurrentHashMap<>();
+
+        WriteBehindPostProcessor(WriteBehindSettings settings) {
+            this.settings = settings;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof FilmStorage filmStorage && !(bean instanceof WriteBehindFilmStorage)) {
+                log.info("Включена отложенная запись для хранилища фильмов {}: {}", beanName, settings);
+                WriteBehindFilmStorage wrapper = new WriteBehindFilmStorage(filmStorage, settings);
+                shutdownHooks.put(beanName, wrapper::shutdown);
+                return wrapper;
+            }
+            if (bean instanceof UserStorage userStorage && !(bean instanceof WriteBehindUserStorage)) {
+                log.info("Включена отложенная запись для хранилища пользователей {}: {}", beanName, settings);
+                WriteBehindUserStorage wrapper = new WriteBehindUserStorage(userStorage, settings);
+                shutdownHooks.put(beanName, wrapper::shutdown);
+                return wrapper;
+            }
+            return bean;
+        }
+
+        @Override
+        public boolean requiresDestruction(Object bean) {
+            return bean instanceof FilmStorage || bean instanceof UserStorage;
+        }
+
+        @Override
+        public void postProcessBeforeDestruction(Object bean, String beanName) {
+            Runnable hook = shutdownHooks.remove(beanName);
+            if (hook != null) {
+                hook.run();
+            }
+        }
+    }
+}
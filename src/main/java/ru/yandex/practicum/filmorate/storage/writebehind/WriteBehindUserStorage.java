@@ -0,0 +1,172 @@
+package ru.yandex.practicum.filmorate.storage.writebehind;
+
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Класс WriteBehindUserStorage — декоратор UserStorage, который откладывает и схлопывает вызовы update.
+// Создание, удаление и изменения дружбы выполняются сразу, чтение по ID видит отложенные изменения,
+// а запросы по всем пользователям сначала сбрасывают буфер
+public class WriteBehindUserStorage implements UserStorage {
+
+    private final UserStorage delegate;
+    private final WriteBehindBuffer<User> buffer;
+
+    public WriteBehindUserStorage(UserStorage delegate, WriteBehindSettings settings) {
+        this.delegate = delegate;
+        this.buffer = settings.createBuffer("users", delegate::updateAll, User::getId);
+    }
+
+    @Override
+    public User create(User user) {
+        return delegate.create(user);
+    }
+
+    @Override
+    public List<User> createAll(List<User> users) {
+        return delegate.createAll(users);
+    }
+
+    @Override
+    public User update(User user) {
+        buffer.put(user);
+        return user;
+    }
+
+    // Метод update с проверкой версии сначала сбрасывает буфер, чтобы версия сравнивалась с сохранённым состоянием
+    @Override
+    public User update(User user, long expectedVersion) {
+        buffer.flush();
+        return delegate.update(user, expectedVersion);
+    }
+
+    @Override
+    public void delete(Long id) {
+        buffer.remove(id);
+        delegate.delete(id);
+    }
+
+    // Дружба передаётся хранилищу сразу, а не копиями обоих пользователей через буфер: схлопывание копий, снятых
+    // при разных чтениях, могло бы потерять одновременное изменение. Перед этим записываются отложенные
+    // обновления обоих пользователей
+    @Override
+    public void addFriend(User user, User friend) {
+        buffer.flush(user.getId());
+        buffer.flush(friend.getId());
+        delegate.addFriend(user, friend);
+    }
+
+    @Override
+    public void removeFriend(User user, User friend) {
+        buffer.flush(user.getId());
+        buffer.flush(friend.getId());
+        delegate.removeFriend(user, friend);
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        User pending = buffer.get(id);
+        return pending != null ? Optional.of(pending) : delegate.findById(id);
+    }
+
+    @Override
+    public boolean isDefinitelyAbsent(Long id) {
+        return delegate.isDefinitelyAbsent(id);
+    }
+
+    // Метод findAllById берёт отложенные изменения из буфера, а остальные ID запрашивает у хранилища одним вызовом
+    @Override
+    public List<User> findAllById(Collection<Long> ids) {
+        Map<Long, User> found = new HashMap<>();
+        List<Long> rest = new ArrayList<>();
+        for (Long id : ids) {
+            User pending = buffer.get(id);
+            if (pending != null) {
+                found.put(id, pending);
+            } else {
+                rest.add(id);
+            }
+        }
+        if (found.isEmpty()) {
+            return delegate.findAllById(ids);
+        }
+        for (User user : delegate.findAllById(rest)) {
+            found.put(user.getId(), user);
+        }
+        List<User> result = new ArrayList<>(found.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            User user = found.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        buffer.flush();
+        return delegate.findAll();
+    }
+
+    // Метод existsByEmail сначала сбрасывает буфер, так как отложенное обновление могло изменить email
+    @Override
+    public boolean existsByEmail(String email) {
+        buffer.flush();
+        return delegate.existsByEmail(email);
+    }
+
+    @Override
+    public boolean existsByEmailExcept(String email, Long userId) {
+        buffer.flush();
+        return delegate.existsByEmailExcept(email, userId);
+    }
+
+    @Override
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        buffer.flush();
+        return delegate.findExistingEmails(emails);
+    }
+
+    @Override
+    public List<User> findFriends(User user) {
+        buffer.flush();
+        return delegate.findFriends(user);
+    }
+
+    @Override
+    public List<User> findCommonFriends(User user, User other) {
+        buffer.flush();
+        return delegate.findCommonFriends(user, other);
+    }
+
+    @Override
+    public List<User> findPage(int from, int size) {
+        buffer.flush();
+        return delegate.findPage(from, size);
+    }
+
+    @Override
+    public List<User> search(String query, int limit) {
+        buffer.flush();
+        return delegate.search(query, limit);
+    }
+
+    public WriteBehindBuffer.Stats stats() {
+        return buffer.stats();
+    }
+
+    // Метод shutdown останавливает фоновую запись и сбрасывает буфер согласно настроенной гарантии.
+    // Вызывается до уничтожения исходного хранилища
+    public void shutdown() {
+        buffer.close();
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+// Класс LazyLongSet — множество ID, размер которого известен заранее (например, из столбца счётчика в базе),
+// а сами ID загружаются только при первом обращении к ним. Размер и страницы after не загружают множество:
+// страница читается из источника напрямую. Проверка, изменение и обход загружают множество целиком один раз,
+// после чего оно ведёт себя как обычное StripedLongSet
+public class LazyLongSet extends StripedLongSet {
+
+    private final int knownSize;
+    private final Supplier<? extends Collection<Long>> loader;
+    private final PageLoader pages;
+    private volatile boolean loaded;
+
+    public LazyLongSet(int knownSize, Supplier<? extends Collection<Long>> loader, PageLoader pages) {
+        this.knownSize = knownSize;
+        this.loader = loader;
+        this.pages = pages;
+    }
+
+    // Метод isLoaded сообщает, загружены ли ID (если нет, множество не менялось с момента чтения)
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public int size() {
+        return loaded ? super.size() : knownSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        load();
+        return super.contains(o);
+    }
+
+    @Override
+    public boolean add(Long id) {
+        load();
+        return super.add(id);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        load();
+        return super.remove(o);
+    }
+
+    @Override
+    public void clear() {
+        load();
+        super.clear();
+    }
+
+    @Override
+    public long[] after(long after, int limit) {
+        return loaded ? super.after(after, limit) : pages.after(after, limit);
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        load();
+        return super.iterator();
+    }
+
+    // Вывод в лог не должен загружать множество
+    @Override
+    public String toString() {
+        return loaded ? super.toString() : "[" + knownSize + " ID не загружены]";
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                for (Long id : loader.get()) {
+                    super.add(id);
+                }
+                loaded = true;
+            }
+        }
+    }
+
+    // Источник страниц ID: не больше limit ID, строго больших after, по возрастанию
+    @FunctionalInterface
+    public interface PageLoader {
+        long[] after(long after, int limit);
+    }
+}
@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+// Класс LongHashSet — множество long с открытой адресацией без упаковки в Long: добавление, удаление и поиск
+// за O(1) в среднем, без сдвига элементов массива. Порядок нужен только страницам after, поэтому
+// отсортированная копия строится при первом чтении страницы и переиспользуется до следующего изменения.
+// Ячейка 0 означает пустую, поэтому сам ID 0 хранится отдельным флагом. Как и HashSet, класс не потокобезопасен
+public class LongHashSet {
+
+    private static final long EMPTY = 0;
+    private static final long[] NO_ELEMENTS = new long[0];
+
+    private long[] keys;
+    private int mask;
+    // Число ненулевых ID в таблице
+    private int size;
+    private boolean containsZero;
+    // Отсортированная копия для страниц after, null — ещё не построена или устарела
+    private long[] sorted;
+
+    public LongHashSet() {
+        this(4);
+    }
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return containsZero ? size + 1 : size;
+    }
+
+    public boolean contains(long id) {
+        return id == EMPTY ? containsZero : keys[find(id)] == id;
+    }
+
+    // Метод add добавляет id. Возвращает true, если его ещё не было
+    public boolean add(long id) {
+        if (id == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+        } else {
+            int slot = find(id);
+            if (keys[slot] == id) {
+                return false;
+            }
+            keys[slot] = id;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+        sorted = null;
+        return true;
+    }
+
+    // Метод remove удаляет id. Следующие за ним ID той же цепочки сдвигаются назад, поэтому таблица
+    // не копит удалённые ячейки и поиск не замедляется после множества удалений
+    public boolean remove(long id) {
+        if (id == EMPTY) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            sorted = null;
+            return true;
+        }
+        int gap = find(id);
+        if (keys[gap] != id) {
+            return false;
+        }
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = mix(keys[next]) & mask;
+            // ID из ячейки next можно перенести в gap, если gap лежит между его начальной ячейкой и next
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+        sorted = null;
+        return true;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+        }
+        containsZero = false;
+        sorted = null;
+    }
+
+    // Метод after возвращает не больше limit ID, строго больших after, по возрастанию
+    public long[] after(long after, int limit) {
+        long[] elements = sorted();
+        int from = Arrays.binarySearch(elements, after);
+        from = from >= 0 ? from + 1 : -from - 1;
+        int to = (int) Math.min(elements.length, (long) from + limit);
+        return from >= to ? NO_ELEMENTS : Arrays.copyOfRange(elements, from, to);
+    }
+
+    private long[] sorted() {
+        if (sorted == null) {
+            long[] elements = new long[size()];
+            int index = 0;
+            if (containsZero) {
+                elements[index++] = EMPTY;
+            }
+            for (long key : keys) {
+                if (key != EMPTY) {
+                    elements[index++] = key;
+                }
+            }
+            Arrays.sort(elements);
+            sorted = elements;
+        }
+        return sorted;
+    }
+
+    private int find(long id) {
+        int slot = mix(id) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        keys = new long[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (long key : oldKeys) {
+            if (key != EMPTY) {
+                keys[find(key)] = key;
+            }
+        }
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+
+// Класс LongLongHashMap — хеш-таблица long -> long с открытой адресацией без упаковки ключей и значений в объекты.
+// Ключ 0 зарезервирован как признак пустой ячейки (ID сущностей начинаются с 1).
+// Таблицу можно очищать и использовать повторно: выделенные массивы при этом сохраняются
+public class LongLongHashMap {
+
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(long key) {
+        return keys[find(key)] == key;
+    }
+
+    // Метод get возвращает значение по ключу key или defaultValue, если ключа нет
+    public long get(long key, long defaultValue) {
+        int slot = find(key);
+        return keys[slot] == key ? values[slot] : defaultValue;
+    }
+
+    // Метод putIfAbsent добавляет пару key -> value, если ключа ещё нет. Возвращает true, если пара добавлена
+    public boolean putIfAbsent(long key, long value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Ключ 0 не поддерживается");
+        }
+        int slot = find(key);
+        if (keys[slot] == key) {
+            return false;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return true;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+        }
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    private int find(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Класс LongSortedSet — множество ID, хранящихся по возрастанию в массиве long[] без упаковки в Long.
+// Размер возвращается за O(1), поиск — двоичным поиском, а страница ID после заданного курсора
+// копируется из массива одним вызовом. Как и HashSet, класс не потокобезопасен
+public class LongSortedSet extends AbstractSet<Long> {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] elements = EMPTY;
+    private int size;
+
+    public LongSortedSet() {
+    }
+
+    public LongSortedSet(Collection<Long> ids) {
+        elements = new long[ids.size()];
+        for (Long id : ids) {
+            add(id);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long id && indexOf(id) >= 0;
+    }
+
+    @Override
+    public boolean add(Long id) {
+        int index = indexOf(id);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(4, size + (size >> 1)));
+        }
+        System.arraycopy(elements, insertAt, elements, insertAt + 1, size - insertAt);
+        elements[insertAt] = id;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Long id)) {
+            return false;
+        }
+        int index = indexOf(id);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    // Метод after возвращает не больше limit ID, строго больших after, по возрастанию
+    public long[] after(long after, int limit) {
+        int from = indexOf(after);
+        from = from >= 0 ? from + 1 : -from - 1;
+        int to = (int) Math.min(size, (long) from + limit);
+        return from >= to ? EMPTY : Arrays.copyOfRange(elements, from, to);
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<>() {
+            private int next;
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Long next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = next++;
+                return elements[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                removeAt(last);
+                next = last;
+                last = -1;
+            }
+        };
+    }
+
+    private int indexOf(long id) {
+        return Arrays.binarySearch(elements, 0, size, id);
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Collections;
+import java.util.Locale;
+
+// Класс SqlPatterns содержит вспомогательные методы для построения SQL-запросов
+public final class SqlPatterns {
+
+    private SqlPatterns() {
+    }
+
+    // Метод containsPattern строит шаблон LIKE "содержит подстроку" в нижнем регистре,
+    // экранируя служебные символы; в запросе используется вместе с ESCAPE '\'
+    public static String containsPattern(String query) {
+        String escaped = query.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    // Метод placeholders возвращает список из count параметров "?, ?, ..." для условия IN
+    public static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
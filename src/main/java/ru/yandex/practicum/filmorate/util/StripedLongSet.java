@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Класс StripedLongSet — потокобезопасное множество ID, разбитое на полосы по хешу ID. Каждая полоса —
+// хеш-множество LongHashSet под своей блокировкой, поэтому одновременные добавления в одно множество (лайки
+// популярного фильма) почти не ждут друг друга и не копируют под блокировкой массив полосы. Размер хранится
+// в LongAdder: при конкуренции он раскладывается по ячейкам разных потоков, а не упирается в один счётчик.
+// Полосы создаются при первом добавлении в них, так что множество с несколькими ID занимает немного памяти.
+// Страница after и обход возвращают ID по возрастанию, сливая полосы (полоса сортируется только при чтении
+// страницы); обход идёт по снимку, снятому при создании итератора
+public class StripedLongSet extends AbstractSet<Long> {
+
+    private static final int STRIPE_BITS = 4;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+    private static final long[] EMPTY = new long[0];
+
+    private final AtomicReferenceArray<LongHashSet> stripes = new AtomicReferenceArray<>(STRIPES);
+    private final LongAdder size = new LongAdder();
+
+    public StripedLongSet() {
+    }
+
+    public StripedLongSet(Collection<Long> ids) {
+        addAll(ids);
+    }
+
+    // Размер может на мгновение отставать от одновременных изменений, но не бывает отрицательным
+    @Override
+    public int size() {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, size.sum()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size.sum() <= 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Long id)) {
+            return false;
+        }
+        LongHashSet stripe = stripes.get(stripeOf(id));
+        if (stripe == null) {
+            return false;
+        }
+        synchronized (stripe) {
+            return stripe.contains(id);
+        }
+    }
+
+    @Override
+    public boolean add(Long id) {
+        LongHashSet stripe = stripe(stripeOf(id));
+        boolean added;
+        synchronized (stripe) {
+            added = stripe.add(id);
+        }
+        if (added) {
+            size.increment();
+        }
+        return added;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Long id)) {
+            return false;
+        }
+        LongHashSet stripe = stripes.get(stripeOf(id));
+        if (stripe == null) {
+            return false;
+        }
+        boolean removed;
+        synchronized (stripe) {
+            removed = stripe.remove(id);
+        }
+        if (removed) {
+            size.decrement();
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < STRIPES; i++) {
+            LongHashSet stripe = stripes.get(i);
+            if (stripe != null) {
+                synchronized (stripe) {
+                    size.add(-stripe.size());
+                    stripe.clear();
+                }
+            }
+        }
+    }
+
+    // Метод after возвращает не больше limit ID, строго больших after, по возрастанию: из каждой полосы берётся
+    // не больше limit ID, после чего страницы полос сливаются
+    public long[] after(long after, int limit) {
+        long[][] pages = new long[STRIPES][];
+        long total = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            LongHashSet stripe = stripes.get(i);
+            if (stripe == null) {
+                pages[i] = EMPTY;
+                continue;
+            }
+            synchronized (stripe) {
+                pages[i] = stripe.after(after, limit);
+            }
+            total += pages[i].length;
+        }
+        long[] result = new long[(int) Math.min(limit, total)];
+        int[] positions = new int[STRIPES];
+        for (int index = 0; index < result.length; index++) {
+            int best = -1;
+            for (int i = 0; i < STRIPES; i++) {
+                if (positions[i] < pages[i].length
+                        && (best < 0 || pages[i][positions[i]] < pages[best][positions[best]])) {
+                    best = i;
+                }
+            }
+            result[index] = pages[best][positions[best]++];
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        long[] snapshot = after(Long.MIN_VALUE, Integer.MAX_VALUE);
+        return new Iterator<>() {
+            private int next;
+            private boolean canRemove;
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public Long next() {
+                if (next >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                canRemove = true;
+                return snapshot[next++];
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                canRemove = false;
+                StripedLongSet.this.remove(snapshot[next - 1]);
+            }
+        };
+    }
+
+    private LongHashSet stripe(int index) {
+        LongHashSet stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new LongHashSet());
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    // Полоса выбирается по старшим битам мультипликативного хеша, поэтому подряд идущие ID попадают в разные полосы
+    private static int stripeOf(long id) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - STRIPE_BITS));
+    }
+}
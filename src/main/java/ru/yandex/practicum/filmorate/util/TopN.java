@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Класс TopN выбирает n "лучших" элементов коллекции по компаратору, не сортируя всю коллекцию целиком.
+// Использует кучу ограниченного размера, поэтому работает за O(size * log n) и занимает O(n) памяти
+public final class TopN {
+
+    private TopN() {
+    }
+
+    // Метод select возвращает не более n первых элементов в порядке компаратора order
+    public static <T> List<T> select(Iterable<? extends T> items, int n, Comparator<? super T> order) {
+        if (n <= 0) {
+            return new ArrayList<>();
+        }
+        // В вершине кучи лежит "худший" из отобранных элементов, поэтому используем обратный порядок.
+        // Куча не бывает больше min(n, число элементов), поэтому большое n не занимает память заранее
+        int capacity = items instanceof Collection<?> collection ? Math.min(n, collection.size()) : Math.min(n, 16);
+        PriorityQueue<T> heap = new PriorityQueue<>(Math.max(1, capacity), order.reversed());
+        for (T item : items) {
+            if (heap.size() < n) {
+                heap.add(item);
+            } else if (order.compare(item, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+        List<T> result = new ArrayList<>(heap);
+        result.sort(order);
+        return result;
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.validation;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+// Класс EntityValidation содержит правила проверки фильмов и пользователей, общие для контроллеров и массового
+// импорта. Методы не бросают исключений и не пишут в лог, а возвращают текст первой найденной ошибки
+// (null, если ошибок нет): при импорте миллионов строк ошибка — обычный результат, а не исключительная ситуация
+public final class EntityValidation {
+
+    // Самая ранняя допустимая дата выхода фильма — первый публичный киносеанс
+    public static final LocalDate EARLIEST_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+    public static final int MAX_DESCRIPTION_LENGTH = 200;
+
+    private EntityValidation() {
+    }
+
+    // Метод filmError проверяет название, описание, дату выхода и продолжительность фильма
+    public static String filmError(Film film) {
+        // Проверяем, что название фильма не пустое (не null и не состоит только из пробелов)
+        if (film.getName() == null || film.getName().isBlank()) {
+            return "Название не может быть пустым";
+        }
+        // Проверяем, что описание фильма (если оно есть) не превышает 200 символов
+        if (film.getDescription() != null && film.getDescription().length() > MAX_DESCRIPTION_LENGTH) {
+            return "Описание не может превышать 200 символов";
+        }
+        // Проверяем, что дата релиза фильма не раньше 28.12/1895 года
+        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(EARLIEST_RELEASE_DATE)) {
+            return "Дата релиза фильма не может быть раньше 28 декабря 1895г.";
+        }
+        // Проверяем, что продолжительность фильма больше 0
+        if (film.getDuration() <= 0) {
+            return "Продолжительность фильма должна быть положительным числом";
+        }
+        return null;
+    }
+
+    // Метод userError проверяет email, логин и дату рождения пользователя на дату today
+    public static String userError(User user, LocalDate today) {
+        // Проверяем, что email пользователя не пустой, не null и не состоит только из пробелов
+        if (user.getEmail() == null || user.getEmail().isBlank()) {
+            return "Email пользователя не может быть пустым";
+        }
+        // Проверяем, что email содержит символ @
+        if (!user.getEmail().contains("@")) {
+            return "Email должен содержать символ @";
+        }
+        // Проверяем, что логин пользователя не пустой, не null и не состоит только из пробелов
+        if (user.getLogin() == null || user.getLogin().isBlank()) {
+            return "Логин пользователя не может быть пустым";
+        }
+        // Проверяем, что логин не содержит пробелы
+        if (user.getLogin().contains(" ")) {
+            return "Логин не может содержать пробелы";
+        }
+        // Проверяем, что дата рождения пользователя не в будущем (не позже текущей даты)
+        if (user.getBirthday() == null || user.getBirthday().isAfter(today)) {
+            return "Дата рождения не может быть в будущем";
+        }
+        return null;
+    }
+
+    public static String userError(User user) {
+        return userError(user, LocalDate.now());
+    }
+}
@@ -0,0 +1,44 @@
+-- Схема для хранилища на JDBC (filmorate.storage.type=jdbc)
+CREATE TABLE IF NOT EXISTS users (
+    id       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL,
+    login    VARCHAR(255) NOT NULL,
+    name     VARCHAR(255),
+    birthday DATE,
+    version  BIGINT NOT NULL DEFAULT 1
+);
+
+-- Уникальность email проверяет сама база, чтобы одновременные создания не записали один email дважды.
+-- Прежний неуникальный индекс удаляется, чтобы уже созданная база тоже получила ограничение
+DROP INDEX IF EXISTS idx_users_email;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_users_email ON users (email);
+
+CREATE TABLE IF NOT EXISTS films (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(255) NOT NULL,
+    description  VARCHAR(200),
+    release_date DATE,
+    duration     INT,
+    version      BIGINT NOT NULL DEFAULT 1,
+    -- Количество лайков хранится в строке фильма, чтобы топ популярных читался по индексу без подсчёта
+    like_count   INT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS idx_films_like_count ON films (like_count DESC, id);
+
+CREATE TABLE IF NOT EXISTS film_likes (
+    film_id BIGINT NOT NULL REFERENCES films (id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_film_likes_user ON film_likes (user_id);
+
+-- Дружба взаимная, поэтому хранится двумя строками: (user_id, friend_id) и (friend_id, user_id)
+CREATE TABLE IF NOT EXISTS friendships (
+    user_id   BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    friend_id BIGINT NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    PRIMARY KEY (user_id, friend_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_friendships_friend ON friendships (friend_id);
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.limiter.AimdLimiter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты адаптивного лимита одновременных запросов
+class AimdLimiterTest {
+
+    @Test // Проверяет, что запрос сверх лимита отклоняется сразу, а освобождение места снова пропускает запросы
+    void shouldRejectRequestsOverLimit() {
+        AimdLimiter limiter = new AimdLimiter("test", 2, 1, 10, 100, 0.5);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.snapshot().rejected());
+
+        limiter.release(0);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test // Проверяет, что медленные запросы уменьшают лимит, но не ниже минимального
+    void shouldDecreaseLimitOnSlowRequests() throws InterruptedException {
+        AimdLimiter limiter = new AimdLimiter("test", 8, 2, 10, 10, 0.5);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire());
+            long start = System.nanoTime();
+            Thread.sleep(15);
+            limiter.release(System.nanoTime() - start);
+        }
+
+        assertEquals(2, limiter.snapshot().limit());
+    }
+
+    @Test // Проверяет, что медленные запросы, начатые до уменьшения лимита, не уменьшают его повторно
+    void shouldDecreaseLimitOncePerWindow() throws InterruptedException {
+        AimdLimiter limiter = new AimdLimiter("test", 8, 1, 10, 10, 0.5);
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        Thread.sleep(15);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.release(System.nanoTime() - start);
+        }
+
+        assertEquals(4, limiter.snapshot().limit());
+        assertEquals(0, limiter.snapshot().inFlight());
+    }
+
+    @Test // Проверяет, что освобождение без задержки не меняет лимит
+    void shouldKeepLimitOnUnsampledRelease() {
+        AimdLimiter limiter = new AimdLimiter("test", 2, 1, 10, 10, 0.5);
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release();
+
+        assertEquals(2, limiter.snapshot().limit());
+        assertEquals(0, limiter.snapshot().inFlight());
+    }
+
+    @Test // Проверяет, что быстрые запросы при загруженном лимите постепенно его увеличивают
+    void shouldIncreaseLimitOnFastRequests() {
+        AimdLimiter limiter = new AimdLimiter("test", 2, 1, 10, 100, 0.5);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire());
+            assertTrue(limiter.tryAcquire());
+            limiter.release(1_000);
+            limiter.release(1_000);
+        }
+
+        assertTrue(limiter.snapshot().limit() > 2);
+    }
+}
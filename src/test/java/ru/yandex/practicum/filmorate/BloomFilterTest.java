@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.sketch.BloomFilter;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты фильтра Блума, по которому хранилища отсекают запросы несуществующих ID и email
+class BloomFilterTest {
+
+    @Test // Проверяет, что добавленные элементы всегда находятся, а доля ложных срабатываний не выше заданной
+    void shouldHaveNoFalseNegativesAndBoundedFalsePositives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (long id = 1; id <= 10_000; id++) {
+            filter.add(id);
+        }
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(filter.mightContain(id));
+        }
+        int falsePositives = 0;
+        for (long id = 1_000_000; id < 1_100_000; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_000, "Ложных срабатываний: " + falsePositives);
+    }
+
+    @Test // Проверяет, что при росте сверх расчётного числа элементов фильтр добавляет слои и держит долю ошибок
+    void shouldGrowBeyondExpectedInsertions() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+        long initialSize = filter.sizeInBytes();
+        for (long id = 1; id <= 50_000; id++) {
+            filter.add(id);
+        }
+        assertTrue(filter.sizeInBytes() > initialSize);
+        for (long id = 1; id <= 50_000; id++) {
+            assertTrue(filter.mightContain(id));
+        }
+        int falsePositives = 0;
+        for (long id = -1; id > -100_000; id--) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_000, "Ложных срабатываний: " + falsePositives);
+    }
+
+    @Test // Проверяет работу со строками (email)
+    void shouldContainAddedStrings() {
+        BloomFilter filter = new BloomFilter();
+        filter.add("user@mail.ru");
+        filter.add("другой@почта.рф");
+        assertTrue(filter.mightContain("user@mail.ru"));
+        assertTrue(filter.mightContain("другой@почта.рф"));
+        assertFalse(filter.mightContain("User@mail.ru"));
+        assertFalse(filter.mightContain("nobody@mail.ru"));
+    }
+}
@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.RangeNotSatisfiableException;
+import ru.yandex.practicum.filmorate.exception.SnapshotNotReadyException;
+import ru.yandex.practicum.filmorate.export.ByteRange;
+import ru.yandex.practicum.filmorate.export.CatalogueSnapshots;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogueExportTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    private Path directory;
+
+    private CatalogueSnapshots snapshots;
+
+    @AfterEach
+    void tearDown() {
+        if (snapshots != null) {
+            snapshots.destroy();
+        }
+    }
+
+    @Test // Проверяет, что снимок — сжатый NDJSON со всеми фильмами, а пользователи пишутся в отдельный файл
+    void shouldWriteCompressedNdjsonSnapshots() throws IOException {
+        InMemoryFilmStorage films = new InMemoryFilmStorage();
+        InMemoryUserStorage users = new InMemoryUserStorage();
+        for (int i = 0; i < 1000; i++) {
+            films.create(film("Фильм " + i));
+        }
+        users.create(user("a@mail.ru"));
+        snapshots = new CatalogueSnapshots(films, users, MAPPER, directory.toString(), 0, 2, 5);
+
+        List<CatalogueSnapshots.Snapshot> created = snapshots.create();
+
+        CatalogueSnapshots.Snapshot filmSnapshot = created.get(0);
+        assertEquals(1000L, filmSnapshot.records());
+        assertEquals(Files.size(filmSnapshot.path()), filmSnapshot.sizeBytes());
+        List<String> lines = readLines(filmSnapshot.path());
+        assertEquals(1000, lines.size());
+        JsonNode first = MAPPER.readTree(lines.get(0));
+        assertTrue(first.get("name").asText().startsWith("Фильм "));
+        assertEquals(1L, created.get(1).records());
+        assertEquals(filmSnapshot, snapshots.latest(CatalogueSnapshots.FILMS));
+    }
+
+    @Test // Проверяет, что первый снимок создаётся в фоне (до готовности выгрузка отвечает «повторите позже»),
+    // снимки прошлых запусков удаляются, а хранятся только последние retain снимков
+    void shouldCreateInitialSnapshotInBackgroundAndKeepLastSnapshots() throws Exception {
+        Path stale = Files.createFile(directory.resolve("users-20261018T020000Z-1.ndjson.gz"));
+        Path staleTemp = Files.createFile(directory.resolve("films-20261018T020000Z-1.ndjson.gz.tmp"));
+        Path foreign = Files.createFile(directory.resolve("readme.txt"));
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryFilmStorage films = new InMemoryFilmStorage() {
+            @Override
+            public Collection<Film> findAll() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.findAll();
+            }
+        };
+        snapshots = new CatalogueSnapshots(films, new InMemoryUserStorage(), MAPPER, directory.toString(), 0, 2,
+                7);
+
+        assertFalse(Files.exists(stale));
+        assertFalse(Files.exists(staleTemp));
+        assertTrue(Files.exists(foreign));
+        SnapshotNotReadyException notReady = assertThrows(SnapshotNotReadyException.class,
+                () -> snapshots.latest(CatalogueSnapshots.USERS));
+        assertEquals(7L, notReady.getRetryAfterSeconds());
+
+        release.countDown();
+        CatalogueSnapshots.Snapshot first = awaitLatest(CatalogueSnapshots.USERS);
+        CatalogueSnapshots.Snapshot second = snapshots.create().get(1);
+        CatalogueSnapshots.Snapshot third = snapshots.create().get(1);
+
+        assertEquals(third, snapshots.latest(CatalogueSnapshots.USERS));
+        assertFalse(Files.exists(first.path()));
+        assertTrue(Files.exists(second.path()));
+        assertFalse(second.etag().equals(third.etag()));
+        assertEquals(0, readLines(third.path()).size());
+        try (var files = Files.list(directory)) {
+            assertEquals(5L, files.count());
+        }
+    }
+
+    @Test // Проверяет разбор заголовка Range: один диапазон, открытый и суффиксный, неподдерживаемые и за концом файла
+    void shouldParseRange() {
+        assertEquals(new ByteRange(10, 19), ByteRange.parse("bytes=10-19", 100));
+        assertEquals(new ByteRange(90, 99), ByteRange.parse("bytes=90-", 100));
+        assertEquals(new ByteRange(70, 99), ByteRange.parse("bytes=-30", 100));
+        assertEquals(new ByteRange(50, 99), ByteRange.parse("bytes=50-500", 100));
+        assertEquals(10L, ByteRange.parse("bytes=10-19", 100).length());
+        assertEquals("bytes 10-19/100", ByteRange.parse("bytes=10-19", 100).contentRange(100));
+        assertNull(ByteRange.parse(null, 100));
+        assertNull(ByteRange.parse("bytes=1-2,5-6", 100));
+        assertNull(ByteRange.parse("items=1-2", 100));
+        assertNull(ByteRange.parse("bytes=20-10", 100));
+        assertNull(ByteRange.parse("bytes=a-b", 100));
+        assertThrows(RangeNotSatisfiableException.class, () -> ByteRange.parse("bytes=100-", 100));
+    }
+
+    private CatalogueSnapshots.Snapshot awaitLatest(String entity) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return snapshots.latest(entity);
+            } catch (SnapshotNotReadyException e) {
+                if (attempt == 500) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static List<String> readLines(Path path) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return film;
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin("login");
+        user.setName("Имя");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.controller.ChangeController;
+import ru.yandex.practicum.filmorate.exception.ResnapshotRequiredException;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.model.ChangesPage;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = ChangeController.class, properties = "filmorate.changes.enabled=true")
+class ChangeControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ChangeFeed changeFeed;
+
+    @Test
+    void shouldGetChangesAfterSince() throws Exception {
+        ChangeEvent event = new ChangeEvent(6, Instant.now(), ChangeEvent.Entity.FILM,
+                ChangeEvent.Type.LIKE_ADDED, 1L, 2L);
+        when(changeFeed.read(5, 100)).thenReturn(new ChangesPage(List.of(event), 6, 6));
+
+        mockMvc.perform(get("/changes").param("since", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.events[0].seq").value(6))
+                .andExpect(jsonPath("$.events[0].type").value("LIKE_ADDED"))
+                .andExpect(jsonPath("$.events[0].relatedId").value(2))
+                .andExpect(jsonPath("$.next").value(6));
+    }
+
+    @Test
+    void shouldReturnGoneWhenResnapshotRequired() throws Exception {
+        when(changeFeed.read(1, 100)).thenThrow(new ResnapshotRequiredException("Изменения после 1 недоступны"));
+
+        mockMvc.perform(get("/changes").param("since", "1"))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.error").value("Resnapshot required"));
+    }
+}
@@ -0,0 +1,197 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ResnapshotRequiredException;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.feed.ChangeFeedFilmStorage;
+import ru.yandex.practicum.filmorate.feed.ChangeFeedUserStorage;
+import ru.yandex.practicum.filmorate.model.ChangeEvent;
+import ru.yandex.practicum.filmorate.model.ChangesPage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты ленты изменений ChangeFeed и декоратора хранилища, который публикует в неё события
+class ChangeFeedTest {
+
+    @Test
+    void shouldReturnEventsAfterSinceInOrder() {
+        ChangeFeed feed = new ChangeFeed(10);
+        for (long id = 1; id <= 5; id++) {
+            feed.publish(ChangeEvent.Entity.FILM, ChangeEvent.Type.CREATED, id, null);
+        }
+
+        ChangesPage page = feed.read(2, 2);
+        assertEquals(List.of(3L, 4L), page.getEvents().stream().map(ChangeEvent::getSeq).toList());
+        assertEquals(4, page.getNext());
+        assertEquals(5, page.getLastSeq());
+        assertTrue(feed.read(5, 10).getEvents().isEmpty());
+    }
+
+    @Test
+    void shouldRequireResnapshotWhenConsumerFellBehind() {
+        ChangeFeed feed = new ChangeFeed(3);
+        for (long id = 1; id <= 5; id++) {
+            feed.publish(ChangeEvent.Entity.USER, ChangeEvent.Type.UPDATED, id, null);
+        }
+
+        // В буфере остались события 3, 4 и 5: продолжить можно только с позиции 2 и дальше
+        assertEquals(3, feed.read(2, 10).getEvents().size());
+        assertThrows(ResnapshotRequiredException.class, () -> feed.read(1, 10));
+        assertThrows(ResnapshotRequiredException.class, () -> feed.read(6, 10));
+    }
+
+    @Test
+    void shouldWakeUpWaitingConsumer() {
+        ChangeFeed feed = new ChangeFeed(10);
+        AtomicInteger calls = new AtomicInteger();
+        feed.await(0, calls::incrementAndGet);
+        assertEquals(0, calls.get());
+
+        feed.publish(ChangeEvent.Entity.FILM, ChangeEvent.Type.CREATED, 1L, null);
+        assertEquals(1, calls.get());
+
+        Runnable cancel = feed.await(1, calls::incrementAndGet);
+        cancel.run();
+        feed.publish(ChangeEvent.Entity.FILM, ChangeEvent.Type.CREATED, 2L, null);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void shouldPublishStorageWritesAndLikes() {
+        ChangeFeed feed = new ChangeFeed(10);
+        ChangeFeedFilmStorage storage = new ChangeFeedFilmStorage(new InMemoryFilmStorage(), feed);
+        Film film = new Film();
+        film.setName("Film");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+
+        Film created = storage.create(film);
+        storage.addLike(created, 7L);
+        // Повторный лайк ничего не меняет и не публикуется
+        storage.addLike(created, 7L);
+        storage.delete(created.getId());
+
+        List<ChangeEvent> events = feed.read(0, 10).getEvents();
+        assertEquals(List.of(ChangeEvent.Type.CREATED, ChangeEvent.Type.LIKE_ADDED, ChangeEvent.Type.DELETED),
+                events.stream().map(ChangeEvent::getType).toList());
+        assertEquals(7L, events.get(1).getRelatedId());
+    }
+
+    @Test // Проверяет, что удаление дружбы, записанное после добавления, и в ленте идёт после него,
+    // даже если добавление публикует событие с задержкой
+    void shouldPublishFriendshipEventsInStorageOrder() throws InterruptedException {
+        CountDownLatch written = new CountDownLatch(1);
+        ChangeFeed feed = new ChangeFeed(10);
+        ChangeFeedUserStorage storage = new ChangeFeedUserStorage(new InMemoryUserStorage() {
+            @Override
+            public void addFriend(User user, User friend) {
+                super.addFriend(user, friend);
+                written.countDown();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, feed);
+        User user = storage.create(user("a@mail.ru"));
+        User friend = storage.create(user("b@mail.ru"));
+
+        Thread adder = new Thread(() -> storage.addFriend(user, friend));
+        adder.start();
+        written.await();
+        storage.removeFriend(friend, user);
+        adder.join();
+
+        assertTrue(user.getFriends().isEmpty());
+        assertEquals(List.of(ChangeEvent.Type.FRIEND_ADDED, ChangeEvent.Type.FRIEND_ADDED,
+                        ChangeEvent.Type.FRIEND_REMOVED, ChangeEvent.Type.FRIEND_REMOVED),
+                feed.read(2, 10).getEvents().stream().map(ChangeEvent::getType).toList());
+    }
+
+    @Test // Проверяет, что параллельная публикация без общей блокировки выдаёт номера подряд без пропусков
+    // и будит ожидающего потребителя
+    void shouldPublishConcurrentlyWithoutGaps() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed(10_000);
+        CountDownLatch woken = new CountDownLatch(1);
+        feed.await(0, woken::countDown);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (long id = 1; id <= 1000; id++) {
+                    feed.publish(ChangeEvent.Entity.FILM, ChangeEvent.Type.UPDATED, id, null);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8000, feed.lastSeq());
+        assertTrue(woken.await(1, TimeUnit.SECONDS));
+        long expected = 1;
+        for (long since = 0; since < 8000; ) {
+            ChangesPage page = feed.read(since, 1000);
+            for (ChangeEvent event : page.getEvents()) {
+                assertEquals(expected++, event.getSeq());
+            }
+            since = page.getNext();
+        }
+    }
+
+    @Test // Проверяет, что лайк одного пользователя не ждёт, пока пишется лайк того же фильма другим пользователем
+    void shouldNotSerializeLikesOfDifferentUsers() throws InterruptedException {
+        CountDownLatch firstLikeStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstLike = new CountDownLatch(1);
+        ChangeFeed feed = new ChangeFeed(10);
+        ChangeFeedFilmStorage storage = new ChangeFeedFilmStorage(new InMemoryFilmStorage() {
+            @Override
+            public boolean addLike(Film film, Long userId) {
+                if (userId == 1L) {
+                    firstLikeStarted.countDown();
+                    try {
+                        releaseFirstLike.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.addLike(film, userId);
+            }
+        }, feed);
+        Film film = new Film();
+        film.setName("Film");
+        Film created = storage.create(film);
+
+        Thread first = new Thread(() -> storage.addLike(created, 1L));
+        first.start();
+        firstLikeStarted.await();
+        storage.addLike(created, 2L);
+        releaseFirstLike.countDown();
+        first.join();
+
+        assertEquals(List.of(2L, 1L), feed.read(1, 10).getEvents().stream().map(ChangeEvent::getRelatedId).toList());
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin(email.substring(0, email.indexOf('@')));
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
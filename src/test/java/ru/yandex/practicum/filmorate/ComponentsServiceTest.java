@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.feed.ChangeFeedUserStorage;
+import ru.yandex.practicum.filmorate.model.ComponentsJob;
+import ru.yandex.practicum.filmorate.model.GraphComponents;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ComponentsService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты фонового поиска компонент связности графа дружбы
+class ComponentsServiceTest {
+
+    private final ChangeFeed changeFeed = new ChangeFeed(1000);
+    private final UserStorage storage = new ChangeFeedUserStorage(new InMemoryUserStorage(), changeFeed);
+    private final ComponentsService service = new ComponentsService(storage, changeFeed, 2, 10, 3, 0.5);
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 12; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("user" + i);
+            users.add(storage.create(user));
+        }
+        // Цепочка 0 - 1 - 2 - 3 - 4 - 5, полный граф из 6, 7, 8, 9, пара 10 - 11
+        for (int i = 0; i < 5; i++) {
+            storage.addFriend(users.get(i), users.get(i + 1));
+        }
+        for (int i = 6; i < 10; i++) {
+            for (int j = i + 1; j < 10; j++) {
+                storage.addFriend(users.get(i), users.get(j));
+            }
+        }
+        storage.addFriend(users.get(10), users.get(11));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    private ComponentsJob awaitFinished() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        ComponentsJob job = service.status();
+        while (job.getStatus() != ComponentsJob.Status.DONE && job.getStatus() != ComponentsJob.Status.FAILED
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            job = service.status();
+        }
+        return job;
+    }
+
+    @Test
+    void shouldBeIdleBeforeFirstRun() {
+        ComponentsJob job = service.status();
+
+        assertEquals(ComponentsJob.Status.IDLE, job.getStatus());
+        assertNull(job.getResult());
+    }
+
+    @Test
+    void shouldFindComponentsAndDenseGroups() throws InterruptedException {
+        service.start();
+        ComponentsJob job = awaitFinished();
+
+        assertEquals(ComponentsJob.Status.DONE, job.getStatus());
+        assertEquals(1.0, job.getProgress());
+        assertEquals(12, job.getProcessedFriendships());
+        GraphComponents result = job.getResult();
+        assertEquals(12, result.getUsers());
+        assertEquals(12, result.getFriendships());
+        assertEquals(3, result.getComponents());
+        assertEquals(0, result.getIsolatedUsers());
+        assertEquals(6, result.getLargestComponent());
+        assertEquals(Map.of("2", 1, "3-4", 1, "5-8", 1), result.getSizeHistogram());
+        assertEquals(users.get(0).getId(), result.getLargestComponents().get(0).getUserId());
+
+        assertEquals(1, result.getDenseComponents().size());
+        GraphComponents.Component dense = result.getDenseComponents().get(0);
+        assertEquals(users.get(6).getId(), dense.getUserId());
+        assertEquals(4, dense.getUsers());
+        assertEquals(6, dense.getFriendships());
+        assertEquals(1.0, dense.getDensity());
+    }
+
+    @Test
+    void shouldReflectChangesMadeBeforeNextRun() throws InterruptedException {
+        service.start();
+        awaitFinished();
+        storage.addFriend(users.get(5), users.get(6));
+        storage.removeFriend(users.get(10), users.get(11));
+
+        service.start();
+        GraphComponents result = awaitFinished().getResult();
+
+        assertEquals(3, result.getComponents());
+        assertEquals(2, result.getIsolatedUsers());
+        assertEquals(10, result.getLargestComponent());
+        assertEquals(changeFeed.lastSeq(), result.getSnapshotSeq());
+        assertTrue(result.getDenseComponents().isEmpty());
+    }
+
+    @Test // Проверяет, что во время снимка прогресс растёт по доле скопированных пользователей
+    void shouldReportSnapshotProgressByCopiedUsers() throws InterruptedException {
+        CountDownLatch halfCopied = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        UserStorage slowStorage = new InMemoryUserStorage() {
+            // Обход пользователей останавливается после первых шести, пока тест не проверит прогресс
+            @Override
+            public Collection<User> findAll() {
+                Collection<User> all = super.findAll();
+                return new AbstractCollection<>() {
+                    @Override
+                    public Iterator<User> iterator() {
+                        Iterator<User> iterator = all.iterator();
+                        return new Iterator<>() {
+                            private int returned;
+
+                            @Override
+                            public boolean hasNext() {
+                                return iterator.hasNext();
+                            }
+
+                            @Override
+                            public User next() {
+                                if (returned++ == 6) {
+                                    halfCopied.countDown();
+                                    try {
+                                        resume.await();
+                                    } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                    }
+                                }
+                                return iterator.next();
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return all.size();
+                    }
+                };
+            }
+        };
+        for (User user : users) {
+            slowStorage.create(user);
+        }
+        ComponentsService slowService = new ComponentsService(slowStorage, changeFeed, 2, 10, 3, 0.5);
+        try {
+            slowService.start();
+            assertTrue(halfCopied.await(10, TimeUnit.SECONDS));
+            ComponentsJob job = slowService.status();
+
+            assertEquals(ComponentsJob.Status.SNAPSHOT, job.getStatus());
+            assertEquals(6, job.getCopiedUsers());
+            assertEquals(12, job.getTotalUsers());
+            assertEquals(0.1, job.getProgress(), 1e-9);
+        } finally {
+            resume.countDown();
+            slowService.destroy();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.controller.ExportController;
+import ru.yandex.practicum.filmorate.exception.SnapshotNotReadyException;
+import ru.yandex.practicum.filmorate.export.CatalogueSnapshots;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(ExportController.class)
+class ExportControllerTest {
+
+    private static final String FILE = "films-20261019T020000Z-1.ndjson.gz";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CatalogueSnapshots snapshots;
+
+    @TempDir
+    private Path directory;
+
+    private byte[] data;
+    private CatalogueSnapshots.Snapshot snapshot;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        Path path = Files.write(directory.resolve(FILE), data);
+        snapshot = new CatalogueSnapshots.Snapshot(CatalogueSnapshots.FILMS, FILE, path, data.length, 10,
+                Instant.now());
+        when(snapshots.latest(CatalogueSnapshots.FILMS)).thenReturn(snapshot);
+    }
+
+    @Test // Проверяет, что без Range снимок отдаётся целиком с ETag и поддержкой диапазонов
+    void shouldDownloadWholeSnapshot() throws Exception {
+        mockMvc.perform(get("/export/films"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, snapshot.etag()))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 1000))
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(content().bytes(data));
+    }
+
+    @Test // Проверяет, что докачка с Range и совпадающим If-Range получает только запрошенный диапазон
+    void shouldDownloadRange() throws Exception {
+        mockMvc.perform(get("/export/films")
+                        .header(HttpHeaders.RANGE, "bytes=900-")
+                        .header(HttpHeaders.IF_RANGE, snapshot.etag()))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 900-999/1000"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 100))
+                .andExpect(content().bytes(Arrays.copyOfRange(data, 900, 1000)));
+    }
+
+    @Test // Проверяет, что если снимок сменился (If-Range не совпал), новый снимок отдаётся целиком
+    void shouldDownloadWholeSnapshotWhenIfRangeDiffers() throws Exception {
+        mockMvc.perform(get("/export/films")
+                        .header(HttpHeaders.RANGE, "bytes=900-")
+                        .header(HttpHeaders.IF_RANGE, "\"films-20261018T020000Z-1.ndjson.gz\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(data));
+    }
+
+    @Test // Проверяет, что диапазон за концом файла отклоняется с кодом 416 и размером файла в Content-Range
+    void shouldRejectRangeBeyondEnd() throws Exception {
+        mockMvc.perform(get("/export/films").header(HttpHeaders.RANGE, "bytes=1000-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */1000"))
+                .andExpect(jsonPath("$.error").value("Range not satisfiable"));
+    }
+
+    @Test // Проверяет, что пока первый снимок не готов, выгрузка отвечает 503 с заголовком Retry-After
+    void shouldAskToRetryWhileFirstSnapshotIsCreated() throws Exception {
+        when(snapshots.latest(CatalogueSnapshots.USERS))
+                .thenThrow(new SnapshotNotReadyException("Снимок users ещё создаётся", 5));
+
+        mockMvc.perform(get("/export/users"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"))
+                .andExpect(jsonPath("$.error").value("Service unavailable"));
+    }
+}
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.DeadlineExceededException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.fanout.FanOut;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты параллельного поиска FanOut: порядок результата, ограничение параллелизма, срок и политики при ошибках
+class FanOutTest {
+
+    private static final FanOut.Options DEFAULT = FanOut.Options.DEFAULT;
+
+    @Test // Проверяет, что поиски идут параллельно, а результат — в порядке ID без ненайденных и повторов
+    void shouldLookUpInParallelKeepingOrder() {
+        FanOut fanOut = new FanOut(true, 32, 2, FanOut.Policy.FAIL, 5_000);
+        List<Long> ids = LongStream.rangeClosed(1, 20).boxed().toList();
+
+        long start = System.nanoTime();
+        FanOut.Result<Long> result = fanOut.lookup(List.of(3L, 1L, 2L, 3L, 99L), id -> {
+            sleep(100);
+            return id == 99 ? Optional.empty() : Optional.of(id * 10);
+        }, DEFAULT);
+        FanOut.Result<Long> many = fanOut.lookup(ids, id -> {
+            sleep(100);
+            return Optional.of(id);
+        }, DEFAULT);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(List.of(30L, 10L, 20L), result.items());
+        assertEquals(0, result.unresolved());
+        assertEquals(ids, many.items());
+        // Последовательно 25 поисков заняли бы 2.5 секунды
+        assertTrue(millis < 1_500, "Поиски шли последовательно: " + millis + " мс");
+    }
+
+    @Test // Проверяет, что одновременно идёт не больше maxConcurrency поисков
+    void shouldCapConcurrency() {
+        FanOut fanOut = new FanOut(true, 4, 2, FanOut.Policy.FAIL, 5_000);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        FanOut.Result<Long> result = fanOut.lookup(LongStream.rangeClosed(1, 40).boxed().toList(), id -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(10);
+            running.decrementAndGet();
+            return Optional.of(id);
+        }, DEFAULT);
+
+        assertEquals(40, result.items().size());
+        assertTrue(maxRunning.get() <= 4, "Одновременных поисков: " + maxRunning.get());
+    }
+
+    @Test // Проверяет, что при политике FAIL ошибка поиска и истёкший срок — ошибка всего запроса
+    void shouldFailWholeLookupWithFailPolicy() {
+        FanOut fanOut = new FanOut(true, 32, 2, FanOut.Policy.FAIL, 5_000);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> fanOut.lookup(List.of(1L, 2L, 3L), id -> {
+                    if (id == 2) {
+                        throw new IllegalStateException("Хранилище недоступно");
+                    }
+                    return Optional.of(id);
+                }, DEFAULT));
+        assertEquals("Хранилище недоступно", error.getMessage());
+
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class, () -> fanOut.lookup(List.of(1L, 2L), id -> {
+            sleep(id == 2 ? 1_000 : 0);
+            return Optional.of(id);
+        }, FanOut.Options.of(null, 100L)));
+        // Область дожидается уже начатого поиска, но не дольше одного обращения
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 2_000);
+    }
+
+    @Test // Проверяет, что при политике PARTIAL возвращаются найденные вовремя, а остальные считаются
+    void shouldReturnPartialResultWithPartialPolicy() {
+        FanOut fanOut = new FanOut(true, 32, 2, FanOut.Policy.FAIL, 5_000);
+
+        FanOut.Result<Long> result = fanOut.lookup(List.of(1L, 2L, 3L, 4L), id -> {
+            if (id == 2) {
+                throw new IllegalStateException("Хранилище недоступно");
+            }
+            sleep(id == 4 ? 500 : 0);
+            return Optional.of(id);
+        }, FanOut.Options.of("partial", 200L));
+
+        assertEquals(List.of(1L, 3L), result.items());
+        assertEquals(2, result.unresolved());
+    }
+
+    @Test // Проверяет разбор параметров запроса и выбор параллельного поиска по настройкам
+    void shouldParseOptions() {
+        assertEquals(DEFAULT, FanOut.Options.of(null, null));
+        assertEquals(new FanOut.Options(FanOut.Policy.PARTIAL, 50L), FanOut.Options.of(" Partial ", 50L));
+        assertThrows(ValidationException.class, () -> FanOut.Options.of("sometimes", null));
+        assertThrows(ValidationException.class, () -> FanOut.Options.of(null, 0L));
+
+        assertFalse(new FanOut(false, 32, 2, FanOut.Policy.FAIL, 100).applies(10));
+        assertFalse(new FanOut(true, 32, 2, FanOut.Policy.FAIL, 100).applies(1));
+        assertTrue(new FanOut(true, 32, 2, FanOut.Policy.FAIL, 100).applies(2));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -10,15 +10,25 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BulkLookup;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikesPage;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -102,6 +112,18 @@ class FilmControllerTest {
                 .andExpect(jsonPath("$.message").value("Фильм с ID 999 не найден"));
     }
 
+    @Test // Проверяет, что фильм, которого точно нет по фильтру Блума, не ищется в хранилище, а ответ тот же
+    void shouldAnswerNotFoundWithoutLookupWhenFilmDefinitelyAbsent() throws Exception {
+        when(filmStorage.isDefinitelyAbsent(999L)).thenReturn(true);
+
+        mockMvc.perform(get("/films/999"))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.error").value("Not found"))
+                .andExpect(jsonPath("$.message").value("Фильм с ID 999 не найден"));
+        verify(filmStorage, never()).findById(999L);
+    }
+
     @Test // Проверяет, что фильм можно успешно создать через POST-запрос
     void shouldCreateFilmSuccessfully() throws Exception {
         // Настраиваем мок filmStorage: при вызове create с любым фильмом (any(Film.class)) возвращаем фильм с id = 1
@@ -173,8 +195,9 @@ class FilmControllerTest {
 
         // Настраиваем мок filmStorage: при вызове findById с ID созданного фильма возвращаем Optional с созданным фильмом
         when(filmStorage.findById(createdFilm.getId())).thenReturn(Optional.of(createdFilm));
-        // Настраиваем мок filmStorage: при вызове update с любым фильмом возвращаем обновлённый фильм (updatedFilm)
-        when(filmStorage.update(any(Film.class))).thenReturn(updatedFilm);
+        // Настраиваем мок filmStorage: при вызове update с любым фильмом и любой ожидаемой версией
+        // возвращаем обновлённый фильм (updatedFilm)
+        when(filmStorage.update(any(Film.class), anyLong())).thenReturn(updatedFilm);
 
         // Выполняем PUT-запрос на /films через MockMvc, чтобы обновить фильм
         mockMvc.perform(put("/films")
@@ -270,7 +293,8 @@ class FilmControllerTest {
     @Test  // Проверяет, что при попытке обновить несуществующий фильм возвращается ошибка 404
     void shouldFailWhenUpdatingNonExistentFilm() throws Exception {
         film.setId(999L);
-        when(filmStorage.findById(999L)).thenReturn(Optional.empty());
+        when(filmStorage.update(any(Film.class), anyLong()))
+                .thenThrow(new NotFoundException("Фильм с ID 999 не найден"));
 
         mockMvc.perform(put("/films")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -322,6 +346,187 @@ class FilmControllerTest {
                 .andExpect(jsonPath("$[0].id").value(2))
                 .andExpect(jsonPath("$[0].name").value("Popular Film"))
                 .andExpect(jsonPath("$[1].id").value(Matchers.nullValue())) // Используем Matchers.nullValue()
-                .andExpect(jsonPath("$[1].name").value("Test Film"));
+                .andExpect(jsonPath("$[1].name").value("Test Film"))
+                // Проверяем, что ответ помечен как точный (приближённый режим по умолчанию выключен)
+                .andExpect(header().string("X-Result-Accuracy", "exact"));
+    }
+
+    @Test // Проверяет, что слишком большой count отклоняется с кодом 400, не доходя до сервиса
+    void shouldRejectTooLargePopularCount() throws Exception {
+        mockMvc.perform(get("/films/popular").param("count", String.valueOf(Integer.MAX_VALUE)))
+                .andExpect(status().isBadRequest());
+
+        verify(filmService, never()).getPopularFilms(anyInt());
+    }
+
+    @Test // Проверяет, что фильмы можно получить постранично через GET-запрос с параметрами from и size
+    void shouldGetFilmsPage() throws Exception {
+        film.setId(3L);
+        when(filmStorage.findPage(2, 1)).thenReturn(List.of(film));
+
+        mockMvc.perform(get("/films").param("from", "2").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(3));
+    }
+
+    @Test // Проверяет, что при неположительном размере страницы возвращается ошибка 400
+    void shouldFailWhenPageSizeNotPositive() throws Exception {
+        mockMvc.perform(get("/films").param("size", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation error"));
+    }
+
+    @Test
+    void shouldDeleteFilm() throws Exception {
+        mockMvc.perform(delete("/films/1"))
+                .andExpect(status().isOk());
+
+        verify(filmService).deleteFilm(1L);
+    }
+
+    @Test
+    void shouldReturnConflictWhenFilmVersionChanged() throws Exception {
+        film.setId(1L);
+        when(filmStorage.update(any(Film.class), eq(3L)))
+                .thenThrow(new ConflictException("Фильм с ID 1 был изменён: текущая версия 4, ожидалась 3"));
+
+        mockMvc.perform(put("/films")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Conflict"));
+    }
+
+    @Test
+    void shouldReturnNewVersionInETag() throws Exception {
+        film.setId(1L);
+        when(filmStorage.update(any(Film.class), eq(3L))).thenAnswer(invocation -> {
+            Film updated = invocation.getArgument(0);
+            updated.setVersion(4);
+            return updated;
+        });
+
+        mockMvc.perform(put("/films")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4\""))
+                .andExpect(jsonPath("$.version").value(4));
+    }
+
+    @Test
+    void shouldGetFilmsByIdsAndReportMissing() throws Exception {
+        film.setId(1L);
+        when(filmService.getFilms(List.of(1L, 2L))).thenReturn(new BulkLookup<>(List.of(film), List.of(2L)));
+
+        mockMvc.perform(get("/films").param("ids", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found.length()").value(1))
+                .andExpect(jsonPath("$.found[0].id").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(2));
+    }
+
+    @Test
+    void shouldFailWhenTooManyIdsRequested() throws Exception {
+        List<Long> ids = LongStream.rangeClosed(1, 1001).boxed().toList();
+
+        mockMvc.perform(post("/films/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(ids)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation error"));
+    }
+
+    @Test
+    void shouldReturnOnlyRequestedFieldsOfPopularFilms() throws Exception {
+        film.setId(1L);
+        film.getLikes().add(5L);
+        when(filmService.getPopularFilms(10)).thenReturn(List.of(film));
+
+        mockMvc.perform(get("/films/popular").param("fields", "id,name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].name").value("Test Film"))
+                .andExpect(jsonPath("$[0].description").doesNotExist())
+                .andExpect(jsonPath("$[0].likes").doesNotExist());
+    }
+
+    @Test
+    void shouldReturnFilmSummaryWithLikeCount() throws Exception {
+        film.setId(1L);
+        film.getLikes().add(5L);
+        film.getLikes().add(6L);
+        when(filmStorage.findPage(0, 1)).thenReturn(List.of(film));
+
+        mockMvc.perform(get("/films").param("from", "0").param("size", "1").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].likeCount").value(2))
+                .andExpect(jsonPath("$[0].releaseDate").value("2000-01-01"))
+                .andExpect(jsonPath("$[0].likes").doesNotExist());
+    }
+
+    @Test
+    void shouldRejectUnknownProjectionField() throws Exception {
+        when(filmService.getPopularFilms(10)).thenReturn(List.of(film));
+
+        mockMvc.perform(get("/films/popular").param("fields", "id,rating"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation error"));
+    }
+
+    @Test
+    void shouldReturnLikeCountAndEmbedLikesOnlyOnRequest() throws Exception {
+        film.setId(1L);
+        film.getLikes().add(7L);
+        film.getLikes().add(3L);
+        when(filmStorage.findById(1L)).thenReturn(Optional.of(film));
+
+        mockMvc.perform(get("/films/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likeCount").value(2))
+                .andExpect(jsonPath("$.likes").doesNotExist());
+
+        mockMvc.perform(get("/films/1").param("embed", "likes"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andExpect(jsonPath("$.name").value("Test Film"))
+                .andExpect(jsonPath("$.likeCount").value(2))
+                .andExpect(jsonPath("$.likes[0]").value(3))
+                .andExpect(jsonPath("$.likes[1]").value(7));
+    }
+
+    @Test // Проверяет, что параметр view выбирает поля ответа для одного фильма
+    void shouldProjectFilmByIdWithView() throws Exception {
+        film.setId(1L);
+        film.getLikes().add(7L);
+        when(filmStorage.findById(1L)).thenReturn(Optional.of(film));
+
+        mockMvc.perform(get("/films/1").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Test Film"))
+                .andExpect(jsonPath("$.likeCount").value(1))
+                .andExpect(jsonPath("$.description").doesNotExist());
+    }
+
+    @Test
+    void shouldGetLikesPageWithCursor() throws Exception {
+        when(filmService.getLikes(1L, 10L, 2)).thenReturn(new LikesPage(new long[]{11, 15}, 15L, 40));
+
+        mockMvc.perform(get("/films/1/likes").param("after", "10").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userIds[0]").value(11))
+                .andExpect(jsonPath("$.userIds[1]").value(15))
+                .andExpect(jsonPath("$.next").value(15))
+                .andExpect(jsonPath("$.likeCount").value(40));
+    }
+
+    @Test
+    void shouldRejectTooLargeLikesPage() throws Exception {
+        mockMvc.perform(get("/films/1/likes").param("limit", "1001"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Validation error"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.jfr.FlightRecorderFilmStorage;
+import ru.yandex.practicum.filmorate.jfr.FlightRecorderService;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты записи событий JFR хранилищ и управления записью
+class FlightRecorderServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test // Проверяет, что вызовы хранилища во время записи попадают в неё с ID и размером результата
+    void shouldRecordStorageCallsIntoFile() throws Exception {
+        FlightRecorderService service = new FlightRecorderService(directory.toString());
+        FilmStorage storage = new FlightRecorderFilmStorage(new InMemoryFilmStorage());
+        storage.findAllById(List.of(1L));
+
+        service.start(0, false);
+        assertThrows(ConflictException.class, () -> service.start(0, false));
+        Film film = new Film();
+        film.setName("Фильм");
+        storage.create(film);
+        storage.findAllById(List.of(film.getId(), 100L));
+        FlightRecorderService.Info info = service.stop();
+
+        assertEquals("STOPPED", info.state());
+        assertTrue(Files.size(Path.of(info.file())) > 0);
+        List<RecordedEvent> events = RecordingFile.readAllEvents(Path.of(info.file())).stream()
+                .filter(event -> event.getEventType().getName().equals("filmorate.Storage"))
+                .filter(event -> event.getString("method").equals("findAllById"))
+                .toList();
+        assertEquals(1, events.size());
+        assertEquals(2, events.get(0).getInt("argumentSize"));
+        assertEquals(1, events.get(0).getInt("resultSize"));
+        assertEquals("IDLE", service.status().state());
+    }
+
+    @Test // Проверяет, что без запущенной записи остановка отклоняется
+    void shouldRejectStopWithoutRecording() {
+        FlightRecorderService service = new FlightRecorderService(directory.toString());
+
+        assertThrows(ConflictException.class, service::stop);
+    }
+}
@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.feed.ChangeFeed;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Бенчмарк лайков «вирусного» фильма: 90% лайков и снятий лайков приходятся на один фильм.
+// Показывает, как пропускная способность FilmService.addLike/removeLike растёт с количеством потоков.
+// Сервис и хранилища берутся из контекста приложения с включёнными лентой изменений и событиями JFR хранилищ,
+// поэтому лайки проходят через те же декораторы, что и запросы пользователей при включённых функциях.
+// Запускается отдельно: mvn test -Pbenchmark
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest(properties = {"filmorate.changes.enabled=true", "filmorate.jfr.storage-events=true"})
+class HotFilmLikesBenchmarkTest {
+
+    private static final int FILMS = 1_000;
+    private static final int USERS = 100_000;
+    private static final int HOT_PERCENT = 90;
+    private static final long DURATION_MILLIS = 3_000;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private FilmStorage filmStorage;
+
+    @Autowired
+    private UserStorage userStorage;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Test
+    void throughputScalesWithThreadCount() throws Exception {
+        int processors = Runtime.getRuntime().availableProcessors();
+        log.info("Процессоров: {}, фильмов: {}, пользователей: {}, на один фильм: {}%",
+                processors, FILMS, USERS, HOT_PERCENT);
+        List<Long> filmIds = fillFilms(filmStorage);
+        List<Long> userIds = fillUsers(userStorage);
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            long seqBefore = changeFeed.lastSeq();
+            double opsPerSecond = run(filmIds, userIds, threads);
+            log.info("Потоков: {} -> {} операций/с", threads, String.format("%,.0f", opsPerSecond));
+            assertTrue(opsPerSecond > 0);
+            // Лайки прошли через декоратор ленты изменений
+            assertTrue(changeFeed.lastSeq() > seqBefore);
+
+            // Счётчик лайков горячего фильма совпадает с содержимым его множества
+            Film hot = filmStorage.findById(filmIds.get(0)).orElseThrow();
+            assertEquals(hot.getLikes().stream().count(), hot.getLikeCount());
+        }
+    }
+
+    private List<Long> fillFilms(FilmStorage storage) {
+        List<Long> ids = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            ids.add(storage.create(film).getId());
+        }
+        return ids;
+    }
+
+    private List<Long> fillUsers(UserStorage storage) {
+        List<Long> ids = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            user.setName("User " + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            ids.add(storage.create(user).getId());
+        }
+        return ids;
+    }
+
+    private double run(List<Long> filmIds, List<Long> userIds, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long operations = 0;
+                while (System.currentTimeMillis() < deadline) {
+                    Long filmId = random.nextInt(100) < HOT_PERCENT
+                            ? filmIds.get(0) : filmIds.get(random.nextInt(filmIds.size()));
+                    Long userId = userIds.get(random.nextInt(userIds.size()));
+                    // Добавления и снятия лайков чередуются случайно, поэтому множество не заполняется целиком
+                    if (random.nextBoolean()) {
+                        filmService.addLike(filmId, userId);
+                    } else {
+                        filmService.removeLike(filmId, userId);
+                    }
+                    operations++;
+                }
+                return operations;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> result : results) {
+            total += result.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        return total * 1000.0 / DURATION_MILLIS;
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.sketch.HyperLogLog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты скетча HyperLogLog, на котором построена статистика охвата пользователей
+class HyperLogLogTest {
+
+    @Test // Проверяет, что малые мощности оцениваются практически точно
+    void shouldEstimateSmallCardinalityExactly() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (long id = 1; id <= 10; id++) {
+            sketch.add(id);
+            sketch.add(id);
+        }
+
+        assertEquals(10, sketch.estimate());
+    }
+
+    @Test // Проверяет, что ошибка оценки большой мощности укладывается в несколько стандартных ошибок
+    void shouldEstimateLargeCardinalityWithinError() {
+        HyperLogLog sketch = new HyperLogLog(12);
+        for (long id = 1; id <= 500_000; id++) {
+            sketch.add(id);
+        }
+
+        double error = Math.abs(sketch.estimate() - 500_000) / 500_000.0;
+        assertTrue(error < 3 * sketch.relativeError(), "Ошибка оценки: " + error);
+    }
+
+    @Test // Проверяет, что объединение скетчей оценивает мощность объединения множеств
+    void shouldEstimateUnionAfterMerge() {
+        HyperLogLog first = new HyperLogLog(12);
+        HyperLogLog second = new HyperLogLog(12);
+        for (long id = 0; id < 50_000; id++) {
+            first.add(id);
+            second.add(id + 25_000);
+        }
+
+        first.merge(second);
+
+        double error = Math.abs(first.estimate() - 75_000) / 75_000.0;
+        assertTrue(error < 3 * first.relativeError(), "Ошибка оценки: " + error);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Проверяет, что фильтр Logbook не буферизует и не пишет в лог тело импорта NDJSON
+@SpringBootTest
+@AutoConfigureMockMvc
+@ExtendWith(OutputCaptureExtension.class)
+class ImportLoggingTest {
+
+    private static final int LINES = 20_000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test // Проверяет, что тело обычного запроса попадает в лог Logbook (иначе проверка ниже ничего не доказывает)
+    void shouldLogRegularRequestBody(CapturedOutput output) throws Exception {
+        // Неизвестное поле есть только в теле запроса: приложение его не читает и само в лог не пишет
+        String body = film("Фильм").replace("}", ", \"marker\": \"regular-request-marker\"}");
+        mockMvc.perform(post("/films")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk());
+
+        assertTrue(output.getAll().contains("regular-request-marker"));
+    }
+
+    @Test // Проверяет, что большое тело импорта загружается, но Logbook его не буферизует и не пишет в лог
+    void shouldNotBufferImportBody(CapturedOutput output) throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            body.append(film("import-body-marker-" + i)).append('\n');
+        }
+
+        mockMvc.perform(post("/films/import")
+                        .contentType("application/x-ndjson")
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(LINES));
+
+        assertFalse(output.getAll().contains("import-body-marker-"));
+    }
+
+    private static String film(String name) {
+        return "{\"name\": \"" + name + "\", \"description\": \"Описание\", \"releaseDate\": \"2000-01-01\", "
+                + "\"duration\": 90}";
+    }
+}
@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты обновления фильмов с проверкой версии в хранилище в памяти
+class InMemoryStorageVersionTest {
+
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage();
+
+    private Film newFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return film;
+    }
+
+    @Test
+    void shouldIncrementVersionAndKeepLikes() {
+        Film created = storage.create(newFilm("Film"));
+        storage.addLike(created, 7L);
+
+        Film changed = newFilm("Renamed");
+        changed.setId(created.getId());
+        Film updated = storage.update(changed, 1);
+
+        assertEquals(2, updated.getVersion());
+        assertEquals("Renamed", storage.findById(created.getId()).orElseThrow().getName());
+        assertTrue(updated.getLikes().contains(7L));
+    }
+
+    @Test
+    void shouldRejectStaleVersion() {
+        Film created = storage.create(newFilm("Film"));
+        Film first = newFilm("First");
+        first.setId(created.getId());
+        storage.update(first, 1);
+
+        Film second = newFilm("Second");
+        second.setId(created.getId());
+        assertThrows(ConflictException.class, () -> storage.update(second, 1));
+        assertEquals("First", storage.findById(created.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void shouldFailForMissingFilm() {
+        Film missing = newFilm("Missing");
+        missing.setId(999L);
+        assertThrows(NotFoundException.class, () -> storage.update(missing, FilmStorage.ANY_VERSION));
+    }
+
+    @Test
+    void shouldNotLoseConcurrentUpdates() throws Exception {
+        Long id = storage.create(newFilm("Film")).getId();
+        int threads = 8;
+        int updatesPerThread = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                int conflicts = 0;
+                for (int i = 0; i < updatesPerThread; i++) {
+                    // Каждый поток читает текущую версию и повторяет попытку, пока его изменение не будет принято
+                    while (true) {
+                        Film current = storage.findById(id).orElseThrow();
+                        Film next = newFilm("Film");
+                        next.setId(id);
+                        next.setDuration(current.getDuration() + 1);
+                        try {
+                            storage.update(next, current.getVersion());
+                            break;
+                        } catch (ConflictException e) {
+                            conflicts++;
+                        }
+                    }
+                }
+                return conflicts;
+            }));
+        }
+        for (Future<Integer> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Film film = storage.findById(id).orElseThrow();
+        assertEquals(1 + threads * updatesPerThread, film.getVersion());
+        assertEquals(100 + threads * updatesPerThread, film.getDuration());
+    }
+}
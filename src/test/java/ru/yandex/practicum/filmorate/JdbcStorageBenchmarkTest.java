@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Бенчмарк хранилища на JDBC (встроенная H2 со схемой schema.sql) в сравнении с хранилищем в памяти:
+// лайки, топ популярных фильмов и выборка друзей на одинаковом наборе данных.
+// Запускается отдельно: mvn test -Pbenchmark
+@Tag("benchmark")
+class JdbcStorageBenchmarkTest {
+
+    private static final int USERS = 2_000;
+    private static final int FILMS = 5_000;
+    private static final int LIKES = 50_000;
+    private static final int FRIENDSHIPS = 10_000;
+    private static final int QUERIES = 2_000;
+
+    @Test
+    void compareJdbcWithInMemory() {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema.sql")
+                .build();
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(database);
+            TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(database));
+            List<Long> jdbcTop = run("jdbc", new JdbcFilmStorage(jdbc, transactions),
+                    new JdbcUserStorage(jdbc, transactions));
+            List<Long> memoryTop = run("memory", new InMemoryFilmStorage(), new InMemoryUserStorage());
+            assertEquals(memoryTop, jdbcTop, "Оба хранилища должны возвращать одинаковый топ");
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    private List<Long> run(String name, FilmStorage films, UserStorage users) {
+        Random random = new Random(42);
+        List<User> createdUsers = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@mail.ru");
+            user.setLogin("user" + i);
+            user.setName("User " + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            createdUsers.add(users.create(user));
+        }
+        List<Film> createdFilms = new ArrayList<>();
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            createdFilms.add(films.create(film));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < LIKES; i++) {
+            Film film = createdFilms.get(skewed(random, FILMS));
+            films.addLike(film, createdUsers.get(random.nextInt(USERS)).getId());
+        }
+        for (int i = 0; i < FRIENDSHIPS; i++) {
+            User user = createdUsers.get(random.nextInt(USERS));
+            User friend = createdUsers.get(random.nextInt(USERS));
+            if (!user.getId().equals(friend.getId())) {
+                users.addFriend(user, friend);
+            }
+        }
+        long writes = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<Long> top = List.of();
+        for (int i = 0; i < QUERIES; i++) {
+            top = films.findPopular(10).stream().map(Film::getId).toList();
+        }
+        long popular = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            User user = createdUsers.get(random.nextInt(USERS));
+            User other = createdUsers.get(random.nextInt(USERS));
+            users.findFriends(user);
+            users.findCommonFriends(user, other);
+        }
+        long friends = System.nanoTime() - start;
+
+        System.out.printf("%-6s: запись %,d мс, топ-10 %,.1f мкс/запрос, друзья %,.1f мкс/запрос%n", name,
+                writes / 1_000_000, popular / 1000.0 / QUERIES, friends / 1000.0 / QUERIES);
+        return top;
+    }
+
+    // Метод skewed выбирает индекс с перекосом к началу, чтобы у части фильмов было заметно больше лайков
+    private int skewed(Random random, int bound) {
+        double x = random.nextDouble();
+        return (int) (x * x * x * bound);
+    }
+}
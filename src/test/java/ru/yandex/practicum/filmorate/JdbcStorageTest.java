@@ -0,0 +1,232 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.DuplicatedDataException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.JdbcFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.JdbcUserStorage;
+import ru.yandex.practicum.filmorate.util.LazyLongSet;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Функциональные тесты хранилищ на JDBC со встроенной H2 и схемой schema.sql
+class JdbcStorageTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbc;
+    private JdbcFilmStorage films;
+    private JdbcUserStorage users;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema.sql")
+                .build();
+        jdbc = new JdbcTemplate(database);
+        TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(database));
+        films = new JdbcFilmStorage(jdbc, transactions);
+        users = new JdbcUserStorage(jdbc, transactions);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test // Проверяет создание, чтение, обновление и удаление фильмов и пользователей
+    void shouldCreateReadUpdateAndDelete() {
+        Film first = films.create(film("Первый"));
+        Film second = films.create(film("Второй"));
+        User user = users.create(user("a@mail.ru"));
+
+        assertEquals(1L, first.getVersion());
+        assertEquals("Первый", films.findById(first.getId()).orElseThrow().getName());
+        assertEquals(List.of(second.getId(), first.getId()),
+                films.findAllById(List.of(second.getId(), 999L, first.getId())).stream().map(Film::getId).toList());
+        assertEquals("a@mail.ru", users.findById(user.getId()).orElseThrow().getEmail());
+
+        first.setName("Первый, новая версия");
+        films.update(first);
+        assertEquals("Первый, новая версия", films.findById(first.getId()).orElseThrow().getName());
+
+        films.delete(first.getId());
+        users.delete(user.getId());
+        assertTrue(films.findById(first.getId()).isEmpty());
+        assertTrue(users.findById(user.getId()).isEmpty());
+        assertEquals(1, films.findAll().size());
+    }
+
+    @Test // Проверяет, что повторный лайк ничего не меняет, а likeCount читается из like_count без загрузки лайков
+    void shouldIgnoreDuplicateLike() {
+        Film film = films.create(film("Фильм"));
+        Long userId = users.create(user("a@mail.ru")).getId();
+
+        assertTrue(films.addLike(films.findById(film.getId()).orElseThrow(), userId));
+        assertFalse(films.addLike(films.findById(film.getId()).orElseThrow(), userId));
+
+        Film stored = films.findById(film.getId()).orElseThrow();
+        assertEquals(1, stored.getLikeCount());
+        assertFalse(((LazyLongSet) stored.getLikes()).isLoaded());
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM film_likes", Integer.class));
+        assertTrue(stored.getLikes().contains(userId));
+
+        assertTrue(films.removeLike(stored, userId));
+        assertFalse(films.removeLike(stored, userId));
+        assertEquals(0, films.findById(film.getId()).orElseThrow().getLikeCount());
+    }
+
+    @Test // Проверяет, что обновление фильма без загруженных лайков не стирает лайки и не сбивает like_count
+    void shouldKeepLikesOnUpdate() {
+        Film film = films.create(film("Фильм"));
+        Long userId = users.create(user("a@mail.ru")).getId();
+        films.addLike(film, userId);
+
+        Film stored = films.findById(film.getId()).orElseThrow();
+        stored.setDescription("Новое описание");
+        films.updateAll(List.of(stored));
+
+        Film updated = films.findById(film.getId()).orElseThrow();
+        assertEquals("Новое описание", updated.getDescription());
+        assertEquals(1, updated.getLikeCount());
+        assertEquals(List.of(userId), List.copyOf(updated.getLikes()));
+    }
+
+    @Test // Проверяет, что повторное добавление в друзья не дублирует строки дружбы, а удаление снимает обе
+    void shouldIgnoreDuplicateFriendship() {
+        User user = users.create(user("a@mail.ru"));
+        User friend = users.create(user("b@mail.ru"));
+
+        users.addFriend(user, friend);
+        users.addFriend(user, friend);
+        users.addFriend(friend, user);
+
+        assertEquals(2, jdbc.queryForObject("SELECT COUNT(*) FROM friendships", Integer.class));
+        assertEquals(List.of(friend.getId()), users.findFriends(user).stream().map(User::getId).toList());
+        assertEquals(List.of(user.getId()), users.findFriends(friend).stream().map(User::getId).toList());
+
+        users.removeFriend(friend, user);
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM friendships", Integer.class));
+    }
+
+    @Test // Проверяет, что уникальный индекс отклоняет повторный email при создании, пакетной вставке и обновлении
+    void shouldRejectDuplicateEmail() {
+        User user = users.create(user("a@mail.ru"));
+        User other = users.create(user("b@mail.ru"));
+
+        assertThrows(DuplicatedDataException.class, () -> users.create(user("a@mail.ru")));
+        assertThrows(DuplicatedDataException.class,
+                () -> users.createAll(List.of(user("c@mail.ru"), user("c@mail.ru"))));
+        other.setEmail(user.getEmail());
+        assertThrows(DuplicatedDataException.class, () -> users.update(other));
+        assertThrows(DuplicatedDataException.class, () -> users.update(other, other.getVersion()));
+        assertEquals(2, users.findAll().size());
+    }
+
+    @Test // Проверяет, что обновление с устаревшей версией отклоняется, а с текущей увеличивает версию
+    void shouldRejectStaleVersion() {
+        Film film = films.create(film("Фильм"));
+        User user = users.create(user("a@mail.ru"));
+
+        film.setName("Новое название");
+        assertEquals(2L, films.update(film, 1L).getVersion());
+        assertThrows(ConflictException.class, () -> films.update(film, 1L));
+        user.setName("Новое имя");
+        assertEquals(2L, users.update(user, 1L).getVersion());
+        assertThrows(ConflictException.class, () -> users.update(user, 1L));
+
+        Film missing = film("Нет такого");
+        missing.setId(999L);
+        assertThrows(NotFoundException.class, () -> films.update(missing, 1L));
+    }
+
+    @Test // Проверяет постраничное чтение фильмов, популярных фильмов и лайков фильма
+    void shouldReadPages() {
+        for (int i = 0; i < 5; i++) {
+            films.create(film("Фильм " + i));
+        }
+        List<Film> all = films.findPage(0, 10);
+        Long popularId = all.get(3).getId();
+        for (int i = 0; i < 4; i++) {
+            films.addLike(all.get(3), users.create(user("u" + i + "@mail.ru")).getId());
+        }
+        films.addLike(all.get(1), users.findPage(0, 1).get(0).getId());
+
+        assertEquals(List.of(all.get(2).getId(), all.get(3).getId()),
+                films.findPage(2, 2).stream().map(Film::getId).toList());
+        assertEquals(List.of(popularId, all.get(1).getId(), all.get(0).getId()),
+                films.findPopular(3).stream().map(Film::getId).toList());
+
+        Film popular = films.findById(popularId).orElseThrow();
+        long[] firstPage = popular.getLikes().after(Long.MIN_VALUE, 3);
+        long[] secondPage = popular.getLikes().after(firstPage[2], 3);
+        assertEquals(3, firstPage.length);
+        assertEquals(1, secondPage.length);
+        assertFalse(((LazyLongSet) popular.getLikes()).isLoaded());
+        assertArrayEquals(popular.getLikes().stream().mapToLong(Long::longValue).toArray(),
+                new long[]{firstPage[0], firstPage[1], firstPage[2], secondPage[0]});
+    }
+
+    @Test // Проверяет, что обход лайков и их количества для заполнения индексов читает их без загрузки фильмов
+    void shouldVisitLikesAndLikeCounts() {
+        Film first = films.create(film("Первый"));
+        Film second = films.create(film("Второй"));
+        films.create(film("Без лайков"));
+        Long a = users.create(user("a@mail.ru")).getId();
+        Long b = users.create(user("b@mail.ru")).getId();
+        films.addLike(first, a);
+        films.addLike(first, b);
+        films.addLike(second, b);
+
+        List<String> likes = new ArrayList<>();
+        films.forEachLike((filmId, userId) -> likes.add(filmId + ":" + userId));
+        Map<Long, Long> counts = new HashMap<>();
+        films.forEachLikeCount(counts::put);
+
+        assertEquals(Set.of(first.getId() + ":" + a, first.getId() + ":" + b, second.getId() + ":" + b),
+                Set.copyOf(likes));
+        assertEquals(3, likes.size());
+        assertEquals(Map.of(first.getId(), 2L, second.getId(), 1L), counts);
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        return film;
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin(email.substring(0, email.indexOf('@')));
+        user.setName("Имя");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
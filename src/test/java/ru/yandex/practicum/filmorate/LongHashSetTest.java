@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.LongHashSet;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты хеш-множества ID LongHashSet
+class LongHashSetTest {
+
+    @Test // Проверяет, что страницы after идут по возрастанию и учитывают изменения после предыдущего чтения
+    void shouldReturnSortedPageAfterCursor() {
+        LongHashSet set = new LongHashSet();
+        for (long id : new long[]{9, 1, 7, 4, 0, -3}) {
+            assertTrue(set.add(id));
+        }
+        assertFalse(set.add(7));
+        assertArrayEquals(new long[]{-3, 0, 1}, set.after(Long.MIN_VALUE, 3));
+        assertArrayEquals(new long[]{7, 9}, set.after(4, 10));
+        assertArrayEquals(new long[0], set.after(9, 10));
+
+        assertTrue(set.remove(0));
+        assertTrue(set.add(5));
+        assertArrayEquals(new long[]{-3, 1, 4, 5, 7, 9}, set.after(Long.MIN_VALUE, 10));
+        assertEquals(6, set.size());
+    }
+
+    @Test // Проверяет, что при случайных добавлениях и удалениях множество ведёт себя как TreeSet
+    void shouldBehaveLikeTreeSet() {
+        LongHashSet set = new LongHashSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long id = random.nextInt(3_000) - 100;
+            if (random.nextInt(3) > 0) {
+                assertEquals(expected.add(id), set.add(id));
+            } else {
+                assertEquals(expected.remove(id), set.remove(id));
+            }
+            if (i % 1_000 == 0) {
+                long probe = random.nextInt(3_000) - 100;
+                assertEquals(expected.contains(probe), set.contains(probe));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).toArray(),
+                set.after(Long.MIN_VALUE, Integer.MAX_VALUE));
+        for (long id = -100; id < 2_900; id++) {
+            assertEquals(expected.contains(id), set.contains(id));
+        }
+
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(0));
+        assertArrayEquals(new long[0], set.after(Long.MIN_VALUE, 10));
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.LongSortedSet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты упорядоченного множества ID LongSortedSet
+class LongSortedSetTest {
+
+    @Test
+    void shouldKeepIdsSortedWithoutDuplicates() {
+        LongSortedSet set = new LongSortedSet(List.of(5L, 1L, 9L));
+        assertTrue(set.add(3L));
+        assertFalse(set.add(5L));
+        assertEquals(List.of(1L, 3L, 5L, 9L), new ArrayList<>(set));
+        assertTrue(set.remove(1L));
+        assertFalse(set.contains(1L));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    void shouldReturnPageAfterCursor() {
+        LongSortedSet set = new LongSortedSet(List.of(1L, 4L, 7L, 9L));
+        assertArrayEquals(new long[]{1, 4}, set.after(Long.MIN_VALUE, 2));
+        assertArrayEquals(new long[]{7, 9}, set.after(4, 10));
+        assertArrayEquals(new long[]{7}, set.after(5, 1));
+        assertArrayEquals(new long[0], set.after(9, 10));
+    }
+
+    @Test
+    void shouldBehaveLikeTreeSet() {
+        LongSortedSet set = new LongSortedSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long id = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(id), set.add(id));
+            } else {
+                assertEquals(expected.remove(id), set.remove(id));
+            }
+        }
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+
+        Iterator<Long> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        expected.removeIf(id -> id % 2 == 0);
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+    }
+}
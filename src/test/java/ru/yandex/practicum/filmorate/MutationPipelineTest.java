@@ -0,0 +1,94 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.OverloadedException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.MutationAccepted;
+import ru.yandex.practicum.filmorate.pipeline.MutationPipeline;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+// Тесты асинхронной очереди лайков и изменений дружбы
+class MutationPipelineTest {
+
+    private final FilmService filmService = mock(FilmService.class);
+    private final UserService userService = mock(UserService.class);
+    private MutationPipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.destroy();
+        }
+    }
+
+    @Test // Проверяет, что изменения одной секции применяются по порядку, а токен дожидается применения
+    void shouldApplyMutationsInOrder() throws InterruptedException {
+        pipeline = new MutationPipeline(filmService, userService, 2, 100, 16, 100, 1000);
+        pipeline.addLike(1L, 10L);
+        pipeline.removeLike(1L, 10L);
+        MutationAccepted last = pipeline.addLike(1L, 11L);
+        MutationAccepted friendship = pipeline.addFriend(10L, 11L);
+
+        assertTrue(pipeline.await(last.getToken(), 5000));
+        assertTrue(pipeline.await(friendship.getToken(), 5000));
+        InOrder order = inOrder(filmService);
+        order.verify(filmService).addLike(1L, 10L);
+        order.verify(filmService).removeLike(1L, 10L);
+        order.verify(filmService).addLike(1L, 11L);
+        verify(userService).addFriend(10L, 11L);
+    }
+
+    @Test // Проверяет, что несуществующий фильм отклоняется сразу, без постановки в очередь
+    void shouldValidateBeforeEnqueue() throws InterruptedException {
+        pipeline = new MutationPipeline(filmService, userService, 1, 100, 16, 100, 1000);
+        doThrow(new NotFoundException("Фильм с ID 999 не найден")).when(filmService).checkLike(999L, 10L);
+
+        assertThrows(NotFoundException.class, () -> pipeline.addLike(999L, 10L));
+        MutationAccepted next = pipeline.addLike(1L, 10L);
+        assertTrue(pipeline.await(next.getToken(), 5000));
+        verify(filmService, never()).addLike(999L, 10L);
+        assertThrows(ValidationException.class, () -> pipeline.await(-1, 10));
+    }
+
+    @Test // Проверяет, что при заполненной очереди запрос отклоняется, а ожидание токена ограничено по времени
+    void shouldRejectWhenQueueIsFull() throws InterruptedException {
+        pipeline = new MutationPipeline(filmService, userService, 1, 2, 1, 10, 1000);
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writerBlocked.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(filmService).addLike(1L, 1L);
+
+        MutationAccepted blocking = pipeline.addLike(1L, 1L);
+        assertTrue(writerBlocked.await(5, TimeUnit.SECONDS));
+        pipeline.addLike(1L, 2L);
+        MutationAccepted queued = pipeline.addLike(1L, 3L);
+        assertThrows(OverloadedException.class, () -> pipeline.addLike(1L, 4L));
+        assertFalse(pipeline.await(blocking.getToken(), 50));
+
+        release.countDown();
+        assertTrue(pipeline.await(queued.getToken(), 5000));
+        assertEquals(0, pipeline.snapshots().get(0).queued());
+        assertEquals(3, pipeline.snapshots().get(0).appliedSeq());
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.importer.NdjsonImporter;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Бенчмарк массового импорта фильмов из NDJSON в хранилище в памяти: сравнивает пропускную способность
+// при разном числе потоков разбора. Каждая сотая строка некорректна и попадает в отчёт.
+// Запускается отдельно: mvn test -Pbenchmark
+@Tag("benchmark")
+class NdjsonImportBenchmarkTest {
+
+    private static final int FILMS = 500_000;
+
+    @Test
+    void importThroughput() {
+        byte[] input = generate();
+        System.out.printf("Строк: %d, размер: %,d байт%n", FILMS, input.length);
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= processors; parallelism *= 2) {
+            try (NdjsonImporter importer = new NdjsonImporter(new InMemoryFilmStorage(), new InMemoryUserStorage(),
+                    new ObjectMapper().findAndRegisterModules(), 4096, parallelism, 1000)) {
+                NdjsonImporter.Report report = importer.importFilms(new ByteArrayInputStream(input));
+                System.out.printf("Потоков: %2d -> %,d записей/с (%d мс)%n", parallelism, report.recordsPerSecond(),
+                        report.elapsedMillis());
+                assertEquals(FILMS - FILMS / 100, report.imported());
+                assertEquals(FILMS / 100, report.rejected());
+            }
+        }
+    }
+
+    private static byte[] generate() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(FILMS * 128);
+        for (int i = 0; i < FILMS; i++) {
+            String line = i % 100 == 99
+                    ? "{\"name\": \"\", \"releaseDate\": \"2000-01-01\", \"duration\": 90}\n"
+                    : "{\"name\": \"Film " + i + "\", \"description\": \"Description " + i
+                    + "\", \"releaseDate\": \"2000-01-01\", \"duration\": 90}\n";
+            out.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.importer.NdjsonImporter;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.PartitionedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NdjsonImporterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    private NdjsonImporter importer;
+
+    @AfterEach
+    void tearDown() {
+        if (importer != null) {
+            importer.close();
+        }
+    }
+
+    @Test // Проверяет, что корректные фильмы загружаются по порядку строк, а некорректные строки попадают в отчёт
+    void shouldImportValidFilmsAndReportInvalidLines() {
+        FilmStorage films = new InMemoryFilmStorage();
+        importer = new NdjsonImporter(films, new InMemoryUserStorage(), MAPPER, 2, 2, 100);
+        NdjsonImporter.Report report = importer.importFilms(ndjson(
+                film("Первый", "1999-03-31"),
+                film("", "1999-03-31"),
+                "{\"name\": \"Сломанный\"",
+                "",
+                film("Второй", "1890-01-01"),
+                film("Третий", "2010-07-16")));
+
+        assertEquals(6L, report.lines());
+        assertEquals(2L, report.imported());
+        assertEquals(3L, report.rejected());
+        assertFalse(report.errorsTruncated());
+        assertEquals(List.of(2L, 3L, 5L), report.errors().stream().map(NdjsonImporter.LineError::line).toList());
+        assertEquals("Название не может быть пустым", report.errors().get(0).message());
+        assertTrue(report.errors().get(1).message().startsWith("Некорректный JSON"));
+        assertEquals("Первый", films.findById(1L).orElseThrow().getName());
+        assertEquals("Третий", films.findById(2L).orElseThrow().getName());
+        assertEquals(1L, films.findById(2L).orElseThrow().getVersion());
+    }
+
+    @Test // Проверяет, что отклоняется email, занятый в хранилище или более ранней строкой (даже другого пакета)
+    void shouldRejectDuplicateEmails() {
+        UserStorage users = new InMemoryUserStorage();
+        users.create(user("taken@mail.ru", "taken", null));
+        importer = new NdjsonImporter(new InMemoryFilmStorage(), users, MAPPER, 2, 2, 100);
+        NdjsonImporter.Report report = importer.importUsers(ndjson(
+                userJson("a@mail.ru", "alice", ""),
+                userJson("taken@mail.ru", "bob", "Боб"),
+                userJson("a@mail.ru", "alice2", "Алиса"),
+                userJson("c@mail.ru", "with space", "Карл"),
+                userJson("d@mail.ru", "dave", "Дэйв")));
+
+        assertEquals(2L, report.imported());
+        assertEquals(List.of(2L, 3L, 4L), report.errors().stream().map(NdjsonImporter.LineError::line).toList());
+        assertEquals("Этот email уже используется", report.errors().get(1).message());
+        assertEquals("Логин не может содержать пробелы", report.errors().get(2).message());
+        assertEquals("alice", users.findById(2L).orElseThrow().getName());
+        assertEquals(3, users.findAll().size());
+    }
+
+    @Test // Проверяет, что отчёт перечисляет не больше maxErrors строк, но считает все отклонённые
+    void shouldLimitListedErrors() {
+        importer = new NdjsonImporter(new InMemoryFilmStorage(), new InMemoryUserStorage(), MAPPER, 3, 1, 2);
+        NdjsonImporter.Report report = importer.importFilms(
+                ndjson("[]", "null", "{", "1", film("Фильм", "2000-01-01")));
+
+        assertEquals(4L, report.rejected());
+        assertEquals(1L, report.imported());
+        assertEquals(2, report.errors().size());
+        assertTrue(report.errorsTruncated());
+    }
+
+    @Test // Проверяет, что пакетное создание в шардированном хранилище выдаёт уникальные ID и фильмы по ним находятся
+    void shouldImportIntoPartitionedStorage() {
+        PartitionedFilmStorage films = new PartitionedFilmStorage(4, 8, 2);
+        try {
+            importer = new NdjsonImporter(films, new InMemoryUserStorage(), MAPPER, 50, 2, 10);
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                lines.add(film("Фильм " + i, "2001-01-01"));
+            }
+            NdjsonImporter.Report report = importer.importFilms(ndjson(lines.toArray(String[]::new)));
+
+            assertEquals(500L, report.imported());
+            Set<Long> ids = new HashSet<>();
+            for (Film film : films.findAll()) {
+                assertTrue(ids.add(film.getId()));
+                assertEquals(film.getName(), films.findById(film.getId()).orElseThrow().getName());
+            }
+            assertEquals(500, ids.size());
+        } finally {
+            films.destroy();
+        }
+    }
+
+    private static ByteArrayInputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String film(String name, String releaseDate) {
+        return String.format("{\"id\": 77, \"name\": \"%s\", \"description\": \"Описание\", \"releaseDate\": \"%s\", "
+                + "\"duration\": 120, \"likes\": [5, 6]}", name, releaseDate);
+    }
+
+    private static String userJson(String email, String login, String name) {
+        return String.format("{\"email\": \"%s\", \"login\": \"%s\", \"name\": \"%s\", \"birthday\": \"1990-05-01\", "
+                + "\"friends\": [1]}", email, login, name);
+    }
+
+    private static User user(String email, String login, String name) {
+        User user = new User();
+        user.setEmail(email);
+        user.setLogin(login);
+        user.setName(name);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.OffHeapFilmStorage;
+import ru.yandex.practicum.filmorate.storage.offheap.OffHeapFilmStore;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты хранилища фильмов вне кучи
+class OffHeapFilmStorageTest {
+
+    private final OffHeapFilmStorage storage = new OffHeapFilmStorage(1, 60_000, 0.5);
+
+    @AfterEach
+    void tearDown() {
+        storage.destroy();
+    }
+
+    private Film newFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание фильма " + name);
+        film.setReleaseDate(LocalDate.of(1999, 12, 31));
+        film.setDuration(120);
+        return film;
+    }
+
+    @Test
+    void shouldStoreAndReadFilmFields() {
+        Long id = storage.create(newFilm("Фильм")).getId();
+        Film noDescription = newFilm("Без описания");
+        noDescription.setDescription(null);
+        noDescription.setReleaseDate(null);
+        Long otherId = storage.create(noDescription).getId();
+
+        Film film = storage.findById(id).orElseThrow();
+        assertEquals("Фильм", film.getName());
+        assertEquals("Описание фильма Фильм", film.getDescription());
+        assertEquals(LocalDate.of(1999, 12, 31), film.getReleaseDate());
+        assertEquals(120, film.getDuration());
+        assertEquals(1, film.getVersion());
+        assertNull(storage.findById(otherId).orElseThrow().getDescription());
+        assertNull(storage.findById(otherId).orElseThrow().getReleaseDate());
+    }
+
+    @Test
+    void shouldKeepLikesAndCheckVersionOnUpdate() {
+        Film created = storage.create(newFilm("Фильм"));
+        storage.addLike(storage.findById(created.getId()).orElseThrow(), 7L);
+
+        Film changed = newFilm("Новое название");
+        changed.setId(created.getId());
+        Film updated = storage.update(changed, 1);
+        assertEquals(2, updated.getVersion());
+        assertTrue(storage.findById(created.getId()).orElseThrow().getLikes().contains(7L));
+        assertThrows(ConflictException.class, () -> storage.update(changed, 1));
+    }
+
+    @Test
+    void shouldOrderPopularFilmsByLikes() {
+        Film first = storage.create(newFilm("Первый"));
+        Film second = storage.create(newFilm("Второй"));
+        Film third = storage.create(newFilm("Третий"));
+        storage.addLike(third, 1L);
+        storage.addLike(third, 2L);
+        storage.addLike(second, 1L);
+
+        List<Long> ids = storage.findPopular(3).stream().map(Film::getId).toList();
+        assertEquals(List.of(third.getId(), second.getId(), first.getId()), ids);
+    }
+
+    @Test
+    void shouldReclaimSpaceOfOverwrittenRecords() {
+        OffHeapFilmStore store = new OffHeapFilmStore(4096);
+        for (long id = 1; id <= 100; id++) {
+            Film film = newFilm("Фильм " + id);
+            film.setId(store.nextId());
+            store.put(film);
+        }
+        // Перезаписываем все фильмы: записи в первых слабах становятся мусором
+        for (long id = 1; id <= 100; id++) {
+            Film film = newFilm("Обновлённый фильм " + id);
+            film.setId(id);
+            store.put(film);
+        }
+        OffHeapFilmStore.Stats before = store.stats();
+        assertTrue(store.compact(0.5) > 0);
+        OffHeapFilmStore.Stats after = store.stats();
+
+        assertTrue(after.slabs() < before.slabs());
+        assertTrue(after.usedBytes() - after.liveBytes() < before.usedBytes() - before.liveBytes());
+        assertEquals(before.liveBytes(), after.liveBytes());
+        assertEquals("Обновлённый фильм 42", store.get(42).getName());
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.OffHeapFilmStorage;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Бенчмарк хранилища фильмов вне кучи: сравнивает с хранилищем в памяти занятый старым поколением объём кучи
+// после загрузки каталога и паузы сборщика мусора при последующей нагрузке (чтения и обновления).
+// Запускается отдельно: mvn test -Pbenchmark
+@Tag("benchmark")
+class OffHeapStorageBenchmarkTest {
+
+    private static final int FILMS = 1_000_000;
+    private static final long DURATION_MILLIS = 10_000;
+
+    @Test
+    void offHeapStorageKeepsOldGenerationSmall() {
+        run("В памяти", InMemoryFilmStorage::new);
+        run("Вне кучи", () -> new OffHeapFilmStorage(64, 1_000, 0.5));
+    }
+
+    private void run(String name, Supplier<FilmStorage> factory) {
+        System.gc();
+        long oldGenBefore = oldGenUsed();
+        FilmStorage storage = factory.get();
+        for (int i = 0; i < FILMS; i++) {
+            storage.create(newFilm(i));
+        }
+        System.gc();
+        long oldGenAfter = oldGenUsed();
+
+        AtomicLong pauses = new AtomicLong();
+        AtomicLong totalPauseMillis = new AtomicLong();
+        AtomicLong maxPauseMillis = new AtomicLong();
+        NotificationListener listener = (notification, handback) -> {
+            if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                long duration = GarbageCollectionNotificationInfo
+                        .from((CompositeData) notification.getUserData()).getGcInfo().getDuration();
+                pauses.incrementAndGet();
+                totalPauseMillis.addAndGet(duration);
+                maxPauseMillis.accumulateAndGet(duration, Math::max);
+            }
+        };
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+        }
+        long operations = 0;
+        try {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+            while (System.currentTimeMillis() < deadline) {
+                long id = 1 + random.nextInt(FILMS);
+                storage.findById(id).ifPresent(film -> {
+                    film.setDescription("Updated " + random.nextInt());
+                    storage.update(film);
+                });
+                operations++;
+            }
+        } finally {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                try {
+                    ((NotificationEmitter) gc).removeNotificationListener(listener);
+                } catch (Exception ignored) {
+                    // Слушатель уже снят
+                }
+            }
+        }
+        System.out.printf("%s: старое поколение +%,d МБ, операций %,d, пауз %d, всего %d мс, максимум %d мс%n",
+                name, (oldGenAfter - oldGenBefore) / (1024 * 1024), operations, pauses.get(),
+                totalPauseMillis.get(), maxPauseMillis.get());
+        assertEquals(FILMS, storage.findAll().size());
+        if (storage instanceof OffHeapFilmStorage offHeap) {
+            System.out.println("Слабы: " + offHeap.stats());
+            offHeap.destroy();
+        }
+    }
+
+    private static Film newFilm(int i) {
+        Film film = new Film();
+        film.setName("Film " + i);
+        film.setDescription("Description of film number " + i);
+        film.setReleaseDate(LocalDate.of(1950, 1, 1).plusDays(i % 25_000));
+        film.setDuration(60 + i % 120);
+        return film;
+    }
+
+    // Метод oldGenUsed возвращает занятый объём пулов кучи старого поколения (Old Gen или Tenured Gen)
+    private static long oldGenUsed() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP
+                    && (pool.getName().contains("Old Gen") || pool.getName().contains("Tenured"))) {
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.PartitionedFilmStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Бенчмарк шардированного хранилища фильмов: показывает, как пропускная способность смешанной нагрузки
+// (чтения, обновления, топ популярных и постраничная выдача) растёт с количеством шардов.
+// Запускается отдельно: mvn test -Pbenchmark
+@Tag("benchmark")
+class PartitionedStorageBenchmarkTest {
+
+    private static final int FILMS = 200_000;
+    private static final long DURATION_MILLIS = 3_000;
+
+    @Test
+    void throughputScalesWithShardCount() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        System.out.printf("Потоков: %d, фильмов: %d%n", threads, FILMS);
+        for (int shards : new int[]{1, 2, 4, 8, 16, 32}) {
+            PartitionedFilmStorage storage = new PartitionedFilmStorage(shards, 1024, threads);
+            try {
+                List<Long> ids = fill(storage);
+                double opsPerSecond = run(storage, ids, threads);
+                System.out.printf("Шардов: %2d -> %,.0f операций/с%n", shards, opsPerSecond);
+                assertTrue(opsPerSecond > 0);
+            } finally {
+                storage.destroy();
+            }
+        }
+    }
+
+    private List<Long> fill(PartitionedFilmStorage storage) {
+        List<Long> ids = new ArrayList<>(FILMS);
+        for (int i = 0; i < FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(90);
+            ids.add(storage.create(film).getId());
+        }
+        return ids;
+    }
+
+    private double run(PartitionedFilmStorage storage, List<Long> ids, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long deadline = System.currentTimeMillis() + DURATION_MILLIS;
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long operations = 0;
+                while (System.currentTimeMillis() < deadline) {
+                    int dice = random.nextInt(1000);
+                    if (dice < 2) {
+                        storage.findPopular(10);
+                    } else if (dice < 4) {
+                        storage.findPage(random.nextInt(1000), 50);
+                    } else {
+                        Long id = ids.get(random.nextInt(ids.size()));
+                        storage.findById(id).ifPresent(storage::update);
+                    }
+                    operations++;
+                }
+                return operations;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> result : results) {
+            total += result.get();
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        return total * 1000.0 / DURATION_MILLIS;
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.partition.PartitionedStore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Функциональные тесты шардированного хранилища: 4 шарда с блоками по 8 ID, поэтому уже 100 сущностей
+// распределяются по всем шардам и по нескольким блокам каждого шарда
+class PartitionedStoreTest {
+
+    private final PartitionedStore<Film> store = new PartitionedStore<>(4, 8, 2, Film::getId, Film::setId);
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test // Проверяет, что созданные в разных шардах сущности находятся по ID, заменяются и удаляются
+    void shouldPutGetAndRemoveAcrossShards() {
+        List<Long> ids = createFilms(100);
+
+        assertEquals(100, ids.stream().distinct().count());
+        assertTrue(ids.stream().anyMatch(id -> id > 8 * 4), "ID должны выдаваться из нескольких блоков шарда");
+        for (Long id : ids) {
+            assertEquals(id, store.get(id).orElseThrow().getId());
+        }
+
+        Film replacement = film("Замена");
+        replacement.setId(ids.get(50));
+        store.put(replacement);
+        store.remove(ids.get(10));
+        store.remove(ids.get(90));
+
+        assertEquals("Замена", store.get(ids.get(50)).orElseThrow().getName());
+        assertTrue(store.get(ids.get(10)).isEmpty());
+        assertTrue(store.get(ids.get(90)).isEmpty());
+        assertTrue(store.get(null).isEmpty());
+        assertEquals(98, store.all().size());
+    }
+
+    @Test // Проверяет, что обход, страницы и выборка по списку ID идут в порядке ID, а не по шардам
+    void shouldIterateInIdOrder() {
+        List<Long> ids = createFilms(100);
+        List<Long> sorted = ids.stream().sorted().toList();
+
+        assertEquals(sorted, store.all().stream().map(Film::getId).toList());
+        assertEquals(sorted.subList(30, 45), store.page(30, 15).stream().map(Film::getId).toList());
+        assertEquals(List.of(), store.page(100, 10));
+        assertEquals(List.of(sorted.get(70), sorted.get(3)),
+                store.getAll(List.of(sorted.get(70), -1L, sorted.get(3))).stream().map(Film::getId).toList());
+        assertEquals(sorted.stream().filter(id -> id % 2 == 1).limit(5).toList(),
+                store.filter(film -> film.getId() % 2 == 1, 5).stream().map(Film::getId).toList());
+    }
+
+    @Test // Проверяет выбор лучших сущностей по всем шардам, в том числе при n больше числа сущностей
+    void shouldSelectTopAcrossShards() {
+        createFilms(100);
+        Comparator<Film> byDurationDesc = Comparator.comparingInt(Film::getDuration).reversed()
+                .thenComparing(Film::getId);
+
+        List<Film> top = store.top(3, byDurationDesc);
+        List<Film> all = store.top(Integer.MAX_VALUE, byDurationDesc);
+
+        assertEquals(List.of(99, 98, 97), top.stream().map(Film::getDuration).toList());
+        assertEquals(100, all.size());
+        assertEquals(LongStream.rangeClosed(0, 99).map(i -> 99 - i).boxed().toList(),
+                all.stream().map(film -> (long) film.getDuration()).toList());
+    }
+
+    @Test // Проверяет, что исключение в compute оставляет сущность без изменений
+    void shouldKeepEntityWhenComputeFails() {
+        Long id = createFilms(1).get(0);
+
+        assertThrows(IllegalStateException.class, () -> store.compute(id, film -> {
+            throw new IllegalStateException("Ошибка изменения");
+        }));
+        store.compute(id, film -> {
+            film.setName("Изменено");
+            return film;
+        });
+
+        assertEquals("Изменено", store.get(id).orElseThrow().getName());
+    }
+
+    private List<Long> createFilms(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Film film = film("Фильм " + i);
+            film.setDuration(i);
+            ids.add(store.create(film).getId());
+        }
+        return ids;
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        return film;
+    }
+}
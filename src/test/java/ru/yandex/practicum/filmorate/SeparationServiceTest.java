@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserDistance;
+import ru.yandex.practicum.filmorate.service.SeparationService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// Тесты поиска кратчайшей цепочки дружбы двунаправленным поиском в ширину
+class SeparationServiceTest {
+
+    private final InMemoryUserStorage storage = new InMemoryUserStorage();
+    private final SeparationService service = new SeparationService(storage, 6, 12, 1_000);
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 10; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@example.com");
+            user.setLogin("user" + i);
+            users.add(storage.create(user));
+        }
+        // Цепочка 0 - 1 - 2 - 3 - 4 - 5 и обходной путь 0 - 6 - 7 - 8 - 5; пользователь 9 ни с кем не дружит
+        int[][] edges = {{0, 1}, {1, 2}, {2, 3}, {3, 4}, {4, 5}, {0, 6}, {6, 7}, {7, 8}, {8, 5}};
+        for (int[] edge : edges) {
+            storage.addFriend(users.get(edge[0]), users.get(edge[1]));
+        }
+    }
+
+    private Long id(int index) {
+        return users.get(index).getId();
+    }
+
+    @Test
+    void shouldFindShortestPath() {
+        UserDistance distance = service.distance(users.get(0), users.get(5), null);
+
+        assertEquals(UserDistance.Status.FOUND, distance.getStatus());
+        assertEquals(4, distance.getDistance());
+        assertEquals(List.of(id(0), id(6), id(7), id(8), id(5)), distance.getPath());
+    }
+
+    @Test
+    void shouldReportDepthLimitAndDisconnectedUsers() {
+        assertEquals(UserDistance.Status.DEPTH_LIMIT, service.distance(users.get(0), users.get(5), 3).getStatus());
+
+        UserDistance distance = service.distance(users.get(0), users.get(9), null);
+        assertEquals(UserDistance.Status.NOT_CONNECTED, distance.getStatus());
+        assertNull(distance.getDistance());
+    }
+
+    @Test
+    void shouldStopWhenVisitBudgetIsExhausted() {
+        SeparationService limited = new SeparationService(storage, 6, 12, 3);
+
+        assertEquals(UserDistance.Status.VISIT_LIMIT, limited.distance(users.get(0), users.get(5), null).getStatus());
+    }
+
+    @Test
+    void shouldRejectTooLargeDepth() {
+        assertThrows(ValidationException.class, () -> service.distance(users.get(0), users.get(5), 13));
+    }
+}
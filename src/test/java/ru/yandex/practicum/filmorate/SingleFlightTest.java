@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.coalesce.SingleFlight;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты объединения одинаковых одновременных запросов
+class SingleFlightTest {
+
+    @Test // Проверяет, что одновременные запросы с одним ключом ждут одного вычисления
+    void shouldShareInFlightComputation() throws Exception {
+        SingleFlight<Integer, Integer> flight = new SingleFlight<>("test", 0, 100);
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> flight.get(1, () -> {
+                    computations.incrementAndGet();
+                    await(release);
+                    return 42;
+                })));
+            }
+            // Ждём, пока все запросы, кроме вычисляющего, присоединятся к вычислению
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (flight.snapshot().coalesced() < 7 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(42, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, computations.get());
+        SingleFlight.Snapshot snapshot = flight.snapshot();
+        assertEquals(8, snapshot.requests());
+        assertEquals(1, snapshot.computations());
+        assertEquals(7.0 / 8, snapshot.coalescingRatio(), 1e-9);
+        assertEquals(0, snapshot.entries());
+    }
+
+    @Test // Проверяет, что результат запоминается на ttl, а invalidate заставляет вычислить заново
+    void shouldMemoizeUntilInvalidated() {
+        SingleFlight<Integer, Integer> flight = new SingleFlight<>("test", 60_000, 100);
+        AtomicInteger computations = new AtomicInteger();
+
+        assertEquals(1, flight.get(1, computations::incrementAndGet));
+        assertEquals(1, flight.get(1, computations::incrementAndGet));
+        assertEquals(1, flight.snapshot().cached());
+
+        flight.invalidateIf(key -> key == 1);
+        assertEquals(2, flight.get(1, computations::incrementAndGet));
+        assertEquals(1, flight.snapshot().invalidations());
+    }
+
+    @Test // Проверяет, что результат, не прошедший условие memoize, не запоминается
+    void shouldNotMemoizeRejectedResults() {
+        SingleFlight<Integer, Integer> flight = new SingleFlight<>("test", 60_000, 100);
+        AtomicInteger computations = new AtomicInteger();
+
+        assertEquals(1, flight.get(1, computations::incrementAndGet, value -> value > 1));
+        assertEquals(2, flight.get(1, computations::incrementAndGet, value -> value > 1));
+        assertEquals(2, flight.get(1, computations::incrementAndGet, value -> value > 1));
+        assertEquals(1, flight.snapshot().cached());
+        assertEquals(1, flight.snapshot().entries());
+    }
+
+    @Test // Проверяет, что ошибка вычисления передаётся вызывающему и не запоминается
+    void shouldNotMemoizeFailures() {
+        SingleFlight<Integer, Integer> flight = new SingleFlight<>("test", 60_000, 100);
+
+        assertThrows(NotFoundException.class, () -> flight.get(1, () -> {
+            throw new NotFoundException("нет");
+        }));
+
+        assertEquals(7, flight.get(1, () -> 7));
+        assertEquals(2, flight.snapshot().computations());
+    }
+
+    @Test // Проверяет, что при превышении числа ключей новые результаты не запоминаются
+    void shouldNotGrowBeyondMaxEntries() {
+        SingleFlight<Integer, Integer> flight = new SingleFlight<>("test", 60_000, 2);
+
+        for (int key = 0; key < 10; key++) {
+            flight.get(key, () -> 0);
+        }
+
+        assertTrue(flight.snapshot().entries() <= 3);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
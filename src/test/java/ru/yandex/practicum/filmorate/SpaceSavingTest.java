@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.sketch.SpaceSaving;
+import ru.yandex.practicum.filmorate.sketch.StripedSpaceSaving;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты сводки Space-Saving, на которой построен приближённый режим популярных фильмов
+class SpaceSavingTest {
+
+    @Test // Проверяет, что при числе ключей не больше ёмкости оценки точные
+    void shouldCountExactlyWhenKeysFitCapacity() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        sketch.offer(1, 5);
+        sketch.offer(2, 3);
+        sketch.offer(1, 1);
+
+        List<SpaceSaving.Estimate> top = sketch.top(2);
+
+        assertEquals(1, top.get(0).key());
+        assertEquals(6, top.get(0).count());
+        assertEquals(0, top.get(0).error());
+        assertEquals(2, top.get(1).key());
+        assertEquals(0, sketch.errorBound());
+    }
+
+    @Test // Проверяет, что частые ключи остаются в топе, а завышение не превышает total / capacity
+    void shouldKeepHeavyHittersWithinErrorBound() {
+        SpaceSaving sketch = new SpaceSaving(20);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.offer(i % 1000, 1);
+            if (i % 10 == 0) {
+                sketch.offer(5000, 1);
+                sketch.offer(6000, 2);
+            }
+        }
+
+        List<SpaceSaving.Estimate> top = sketch.top(2);
+
+        assertEquals(6000, top.get(0).key());
+        assertEquals(5000, top.get(1).key());
+        long bound = sketch.total() / sketch.capacity();
+        assertTrue(top.get(0).count() - 2000 <= bound);
+        assertTrue(top.get(0).guaranteed() <= 2000);
+    }
+
+    @Test // Проверяет, что снятие лайка уменьшает оценку отслеживаемого ключа
+    void shouldDecrementTrackedKey() {
+        SpaceSaving sketch = new SpaceSaving(5);
+        sketch.offer(7, 2);
+        sketch.decrement(7);
+        sketch.decrement(8);
+
+        assertEquals(1, sketch.top(1).get(0).count());
+        sketch.decrement(7);
+        assertTrue(sketch.top(1).isEmpty());
+    }
+
+    @Test // Проверяет, что граница ошибки не сбрасывается, когда снятые лайки освобождают счётчики
+    void shouldKeepErrorBoundAfterDecrementFreesCounter() {
+        SpaceSaving sketch = new SpaceSaving(2);
+        sketch.offer(1, 5);
+        sketch.offer(2, 3);
+        sketch.offer(3, 1);
+        assertEquals(4, sketch.errorBound());
+
+        for (int i = 0; i < 4; i++) {
+            sketch.decrement(3);
+        }
+
+        assertEquals(1, sketch.top(2).size());
+        assertEquals(3, sketch.errorBound());
+
+        SpaceSaving merged = SpaceSaving.merge(sketch, new SpaceSaving(2), 2);
+        assertEquals(3, merged.errorBound());
+    }
+
+    @Test // Проверяет, что объединение сводок двух шардов даёт общий топ
+    void shouldMergeSummaries() {
+        SpaceSaving first = new SpaceSaving(10);
+        SpaceSaving second = new SpaceSaving(10);
+        first.offer(1, 10);
+        first.offer(2, 4);
+        second.offer(2, 8);
+        second.offer(3, 5);
+
+        SpaceSaving merged = SpaceSaving.merge(first, second, 10);
+        List<SpaceSaving.Estimate> top = merged.top(3);
+
+        assertEquals(2, top.get(0).key());
+        assertEquals(12, top.get(0).count());
+        assertEquals(1, top.get(1).key());
+        assertEquals(3, top.get(2).key());
+        assertEquals(27, merged.total());
+    }
+
+    @Test // Проверяет, что сводка с полосами собирает общий топ из полос и учитывает параллельные лайки
+    void shouldMergeStripesAtQueryTime() throws Exception {
+        StripedSpaceSaving sketch = new StripedSpaceSaving(160);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    sketch.offer(i % 20, 1);
+                    sketch.offer(100, 1);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sketch.offer(200, 300);
+        sketch.decrement(200);
+
+        List<SpaceSaving.Estimate> top = sketch.top(3);
+
+        assertEquals(8299, sketch.total());
+        assertEquals(100, top.get(0).key());
+        assertEquals(4000, top.get(0).count());
+        assertEquals(200, top.get(1).key());
+        assertEquals(299, top.get(1).count());
+        assertEquals(200, top.get(2).count());
+        assertEquals(0, sketch.errorBound());
+    }
+}
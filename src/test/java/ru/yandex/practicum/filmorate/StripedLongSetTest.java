@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.util.StripedLongSet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты потокобезопасного множества ID StripedLongSet
+class StripedLongSetTest {
+
+    @Test
+    void shouldReturnMergedPageAfterCursor() {
+        StripedLongSet set = new StripedLongSet(List.of(9L, 1L, 7L, 4L));
+        assertArrayEquals(new long[]{1, 4}, set.after(Long.MIN_VALUE, 2));
+        assertArrayEquals(new long[]{7, 9}, set.after(4, 10));
+        assertArrayEquals(new long[]{7}, set.after(5, 1));
+        assertArrayEquals(new long[0], set.after(9, 10));
+        assertEquals(List.of(1L, 4L, 7L, 9L), new ArrayList<>(set));
+    }
+
+    @Test
+    void shouldBehaveLikeTreeSet() {
+        StripedLongSet set = new StripedLongSet();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long id = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(id), set.add(id));
+            } else {
+                assertEquals(expected.remove(id), set.remove(id));
+            }
+        }
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+        assertEquals(expected.size(), set.size());
+
+        Iterator<Long> iterator = set.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        expected.removeIf(id -> id % 2 == 0);
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(set));
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertFalse(set.contains(1L));
+    }
+
+    @Test // Проверяет, что одновременные добавления и удаления из нескольких потоков не теряются
+    void shouldCountConcurrentChanges() throws Exception {
+        StripedLongSet set = new StripedLongSet();
+        int threads = 8;
+        int perThread = 20_000;
+        int shared = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long base = (long) t * perThread + shared;
+                results.add(executor.submit(() -> {
+                    for (long id = base; id < base + perThread; id++) {
+                        set.add(id);
+                        // Общие ID добавляют все потоки: повторные добавления не должны учитываться
+                        set.add(id % shared);
+                        if (id % 2 == 1) {
+                            set.remove(id);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int expected = threads * perThread / 2 + shared;
+        assertEquals(expected, set.size());
+        assertEquals(expected, set.after(Long.MIN_VALUE, Integer.MAX_VALUE).length);
+        assertEquals(expected, new ArrayList<>(set).size());
+    }
+}
@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.storage.tiered.Records;
+import ru.yandex.practicum.filmorate.storage.tiered.TieredStore;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты двухуровневого хранилища TieredStore: вытеснение с дозаписью в сегмент, подъём при чтении,
+// устойчивость горячих записей к разовому обходу и сжатие сегмента
+class TieredStoreTest {
+
+    // Каждая запись весит 1000 байт, так что в горячий уровень помещается 20 записей
+    private static final int WEIGHT = 1000;
+    private static final long MAX_HOT_BYTES = 20 * WEIGHT;
+
+    @TempDir
+    Path directory;
+
+    private final List<TieredStore<Item>> stores = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() {
+        stores.forEach(TieredStore::close);
+    }
+
+    @Test
+    void shouldEvictToSegmentAndReadBack() {
+        TieredStore<Item> store = store();
+        for (long id = 1; id <= 100; id++) {
+            store.put(new Item(id, "item-" + id));
+        }
+        TieredStore.Stats stats = store.stats();
+        assertTrue(stats.hotBytes() <= MAX_HOT_BYTES, "Горячий уровень превысил лимит: " + stats);
+        assertTrue(stats.hotEntries() <= 20);
+        assertTrue(stats.coldEntries() >= 80, "Вытесненные записи должны попасть в сегмент: " + stats);
+        assertEquals(stats.coldEntries(), stats.writeBacks());
+        for (long id = 1; id <= 100; id++) {
+            assertEquals("item-" + id, store.get(id).text());
+        }
+        assertNull(store.get(101));
+    }
+
+    @Test
+    void shouldPromoteOnReadAndCountHitRatio() {
+        TieredStore<Item> store = store();
+        for (long id = 1; id <= 100; id++) {
+            store.put(new Item(id, "item-" + id));
+        }
+        long cold = findCold(store);
+        long coldReads = store.stats().coldReads();
+
+        // peek читает холодную запись, не поднимая её
+        assertEquals("item-" + cold, store.peek(cold).text());
+        assertEquals(0, store.stats().misses());
+        assertEquals(coldReads + 1, store.stats().coldReads());
+
+        assertEquals("item-" + cold, store.get(cold).text());
+        assertEquals("item-" + cold, store.get(cold).text());
+        TieredStore.Stats stats = store.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.5, stats.hitRatio());
+        assertEquals(coldReads + 2, stats.coldReads());
+        assertTrue(stats.avgColdReadMicros() > 0);
+    }
+
+    @Test
+    void shouldKeepFrequentEntriesDuringScan() {
+        TieredStore<Item> store = store();
+        for (long id = 1; id <= 10; id++) {
+            store.put(new Item(id, "hot-" + id));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (long id = 1; id <= 10; id++) {
+                store.get(id);
+            }
+        }
+        // Разовая запись тысячи новых записей не должна вытеснить часто читаемые
+        for (long id = 1_000; id < 2_000; id++) {
+            store.put(new Item(id, "scan-" + id));
+        }
+        long hits = store.stats().hits();
+        for (long id = 1; id <= 10; id++) {
+            assertEquals("hot-" + id, store.get(id).text());
+        }
+        TieredStore.Stats stats = store.stats();
+        assertEquals(hits + 10, stats.hits(), "Часто читаемые записи вытеснены обходом: " + stats);
+        assertTrue(stats.rejected() > 0);
+    }
+
+    @Test
+    void shouldComputeAndRemoveColdEntries() {
+        TieredStore<Item> store = store();
+        for (long id = 1; id <= 100; id++) {
+            store.put(new Item(id, "item-" + id));
+        }
+        long cold = findCold(store);
+        assertEquals("item-" + cold + "!", store.compute(cold, item -> new Item(item.id(), item.text() + "!")).text());
+        assertEquals("item-" + cold + "!", store.get(cold).text());
+
+        long other = findCold(store);
+        store.remove(other);
+        assertNull(store.get(other));
+        assertNull(store.peek(other));
+        assertTrue(store.stats().deadBytes() > 0);
+
+        // compute, вернувший null, удаляет запись
+        long third = findCold(store);
+        assertNull(store.compute(third, item -> null));
+        assertNull(store.get(third));
+        assertNull(store.compute(100_000, item -> item));
+    }
+
+    @Test
+    void shouldCompactDeadRecords() {
+        TieredStore<Item> store = store();
+        for (long id = 1; id <= 200; id++) {
+            store.put(new Item(id, "item-" + id));
+        }
+        List<Long> alive = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            if (id % 4 != 0) {
+                store.remove(id);
+            } else {
+                alive.add(id);
+            }
+        }
+        TieredStore.Stats before = store.stats();
+        assertEquals(0, store.compact(0.9), "Доля устаревших записей ниже порога");
+        long freed = store.compact(0.5);
+        TieredStore.Stats after = store.stats();
+        assertEquals(before.deadBytes(), freed);
+        assertEquals(before.segmentBytes() - freed, after.segmentBytes());
+        assertEquals(0, after.deadBytes());
+        assertEquals(1, after.compactions());
+        for (long id : alive) {
+            assertEquals("item-" + id, store.get(id).text());
+        }
+    }
+
+    @Test // Проверяет, что запись длиннее 16 МБ (предела длины в положении записи) вытесняется и читается обратно
+    void shouldEvictAndReadLargeRecord() {
+        TieredStore<Item> store = store();
+        for (long id = 1; id < 100; id++) {
+            store.put(new Item(id, "item-" + id));
+        }
+        // Новая запись с той же частотой обращений не допускается в горячий уровень и сразу пишется в сегмент
+        String text = "x".repeat(17 * 1024 * 1024);
+        store.put(new Item(100, text));
+        long coldReads = store.stats().coldReads();
+        assertEquals(text, store.peek(100).text());
+        assertEquals(coldReads + 1, store.stats().coldReads());
+        assertEquals(0, store.stats().writeBackFailures());
+
+        long segmentBytes = store.stats().segmentBytes();
+        store.remove(100);
+        assertTrue(store.stats().deadBytes() > text.length());
+        assertEquals(segmentBytes, store.stats().segmentBytes());
+    }
+
+    @Test // Проверяет, что ошибка записи в сегмент при вытеснении не доходит до put, а запись остаётся в памяти
+    void shouldKeepEntryHotWhenWriteBackFails() {
+        TieredStore<Item> store = store(new ItemCodec() {
+            @Override
+            public byte[] encode(Item item) {
+                if (item.id() == 100) {
+                    throw new IllegalStateException("Сегмент недоступен");
+                }
+                return super.encode(item);
+            }
+        });
+        for (long id = 1; id <= 100; id++) {
+            store.put(new Item(id, "item-" + id));
+        }
+
+        TieredStore.Stats stats = store.stats();
+        assertEquals(1, stats.writeBackFailures());
+        long coldReads = stats.coldReads();
+        assertEquals("item-100", store.get(100).text());
+        assertEquals(coldReads, store.stats().coldReads());
+    }
+
+    private TieredStore<Item> store() {
+        return store(new ItemCodec());
+    }
+
+    private TieredStore<Item> store(ItemCodec codec) {
+        TieredStore<Item> store = new TieredStore<>("items", codec, Item::id, directory, MAX_HOT_BYTES);
+        stores.add(store);
+        return store;
+    }
+
+    // Метод findCold ищет запись, которая сейчас лежит только в сегменте, не меняя статистику чтений по ID
+    private static long findCold(TieredStore<Item> store) {
+        for (long id = 1; ; id++) {
+            long coldReads = store.stats().coldReads();
+            store.peek(id);
+            if (store.stats().coldReads() > coldReads) {
+                return id;
+            }
+        }
+    }
+
+    private record Item(long id, String text) {
+    }
+
+    private static class ItemCodec implements TieredStore.Codec<Item> {
+
+        @Override
+        public byte[] encode(Item item) {
+            return Records.write(out -> {
+                out.writeLong(item.id());
+                Records.writeString(out, item.text());
+            });
+        }
+
+        @Override
+        public Item decode(byte[] data) {
+            return Records.read(data, in -> new Item(in.readLong(), Records.readString(in)));
+        }
+
+        @Override
+        public int weigh(Item item) {
+            return WEIGHT;
+        }
+    }
+}
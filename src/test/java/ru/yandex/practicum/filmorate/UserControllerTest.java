@@ -9,7 +9,14 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.exception.ConflictException;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.fanout.FanOut;
+import ru.yandex.practicum.filmorate.model.BulkLookup;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.UserDistance;
+import ru.yandex.practicum.filmorate.model.UserReach;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
@@ -18,7 +25,11 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -85,6 +96,24 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.birthday").value("1990-01-01"));
     }
 
+    @Test // Проверяет, что параметры fields и view выбирают поля ответа для одного пользователя
+    void shouldProjectUserById() throws Exception {
+        user.setId(1L);
+        user.getFriends().add(2L);
+        when(userStorage.findById(1L)).thenReturn(Optional.of(user));
+
+        mockMvc.perform(get("/users/1").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.login").value("userlogin"))
+                .andExpect(jsonPath("$.friendCount").value(1))
+                .andExpect(jsonPath("$.email").doesNotExist());
+
+        mockMvc.perform(get("/users/1").param("fields", "id,email"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("user@example.com"))
+                .andExpect(jsonPath("$.login").doesNotExist());
+    }
+
     @Test  // Проверяет, что пользователя можно успешно получить по ID через GET-запрос
     void shouldFailWhenUserNotFoundById() throws Exception {
         when(userStorage.findById(999L)).thenReturn(Optional.empty());
@@ -184,7 +213,7 @@ class UserControllerTest {
         when(userStorage.existsByEmail("updated@example.com")).thenReturn(false);
         // Настраиваем мок userStorage: при вызове update с любым пользователем возвращаем
         // обновлённого пользователя (updatedUser)
-        when(userStorage.update(any(User.class))).thenReturn(updatedUser);
+        when(userStorage.update(any(User.class), anyLong())).thenReturn(updatedUser);
 
         // Выполняем PUT-запрос на /users через MockMvc, чтобы обновить пользователя
         mockMvc.perform(put("/users")
@@ -300,7 +329,8 @@ class UserControllerTest {
     @Test // Проверяет, что при попытке обновить несуществующего пользователя возвращается ошибка 404
     void shouldFailWhenUpdatingNonExistentUser() throws Exception {
         user.setId(999L);
-        when(userStorage.findById(999L)).thenReturn(Optional.empty());
+        when(userStorage.update(any(User.class), anyLong()))
+                .thenThrow(new NotFoundException("Пользователь с ID 999 не найден"));
 
         mockMvc.perform(put("/users")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -310,6 +340,19 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.message").value("Пользователь с ID 999 не найден"));
     }
 
+    @Test // Проверяет, что при обновлении нельзя занять email другого пользователя
+    void shouldFailWhenUpdatingWithEmailOfAnotherUser() throws Exception {
+        user.setId(1L);
+        when(userStorage.existsByEmailExcept(user.getEmail(), 1L)).thenReturn(true);
+
+        mockMvc.perform(put("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Duplicated data"));
+        verify(userStorage, never()).update(any(User.class), anyLong());
+    }
+
     @Test // Проверяет, что друга можно успешно добавить через PUT-запрос
     void shouldAddFriend() throws Exception {
         // Настраиваем мок userStorage: при вызове findById с ID = 1 возвращаем Optional с нашим тестовым пользователем
@@ -340,7 +383,7 @@ class UserControllerTest {
         friend.setId(2L);
 
         // Настраиваем поведение userService.getFriends
-        when(userService.getFriends(1L)).thenReturn(List.of(friend));
+        when(userService.getFriends(1L, FanOut.Options.DEFAULT)).thenReturn(FanOut.Result.complete(List.of(friend)));
 
         // Выполняем запрос и проверяем результат
         mockMvc.perform(get("/users/1/friends"))
@@ -349,6 +392,23 @@ class UserControllerTest {
                 .andExpect(jsonPath("$[0].email").value("friend@example.com"));
     }
 
+    @Test // Проверяет, что политика и срок поиска передаются в сервис, а число ненайденных друзей — в заголовок
+    void shouldGetPartialFriendsWithLookupHeaders() throws Exception {
+        friend.setId(2L);
+        when(userService.getFriends(1L, new FanOut.Options(FanOut.Policy.PARTIAL, 500L)))
+                .thenReturn(new FanOut.Result<>(List.of(friend), 3));
+
+        mockMvc.perform(get("/users/1/friends")
+                        .header(FanOut.POLICY_HEADER, "partial")
+                        .header(FanOut.TIMEOUT_HEADER, "500"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(FanOut.UNRESOLVED_HEADER, "3"))
+                .andExpect(jsonPath("$[0].id").value(2));
+
+        mockMvc.perform(get("/users/1/friends").header(FanOut.POLICY_HEADER, "sometimes"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test // Проверяет, что можно получить список общих друзей двух пользователей через GET-запрос
     void shouldGetCommonFriends() throws Exception {
         // Создаём тестового пользователя - общего друга
@@ -362,7 +422,8 @@ class UserControllerTest {
 
         // Настраиваем мок userService: при вызове getCommonFriends с ID = 1 и ID = 2 возвращаем список,
         // содержащий общего друга
-        when(userService.getCommonFriends(1L, 2L)).thenReturn(List.of(commonFriend));
+        when(userService.getCommonFriends(1L, 2L, FanOut.Options.DEFAULT))
+                .thenReturn(FanOut.Result.complete(List.of(commonFriend)));
 
         // Выполняем GET-запрос на /users/1/friends/common/2 через MockMvc, чтобы получить список общих
         // друзей пользователей с ID = 1 и ID = 2
@@ -373,4 +434,93 @@ class UserControllerTest {
                 // Проверяем, что в JSON-ответе первый общий друг (индекс 0) имеет поле email равное "common@example.com"
                 .andExpect(jsonPath("$[0].email").value("common@example.com"));
     }
-}
\ No newline at end of file
+
+    @Test // Проверяет, что можно получить оценку охвата пользователя через GET-запрос
+    void shouldGetReach() throws Exception {
+        when(userService.getReach(1L)).thenReturn(new UserReach(1L, 42, 7, 0.016));
+
+        mockMvc.perform(get("/users/1/reach"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(1))
+                .andExpect(jsonPath("$.usersWithinTwoHops").value(42))
+                .andExpect(jsonPath("$.usersLikingFriendsFilms").value(7));
+    }
+
+    @Test
+    void shouldDeleteUser() throws Exception {
+        mockMvc.perform(delete("/users/1"))
+                .andExpect(status().isOk());
+
+        verify(userService).deleteUser(1L);
+    }
+
+    @Test
+    void shouldGetLikedFilmsPage() throws Exception {
+        Film film = new Film();
+        film.setId(5L);
+        film.setName("Film");
+        when(userService.getLikedFilms(1L, 0, 10)).thenReturn(List.of(film));
+
+        mockMvc.perform(get("/users/1/likes").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(5));
+    }
+
+    @Test
+    void shouldReturnConflictWhenUserVersionChanged() throws Exception {
+        user.setId(1L);
+        user.setVersion(2);
+        when(userStorage.findById(1L)).thenReturn(Optional.of(user));
+        when(userStorage.update(any(User.class), eq(1L)))
+                .thenThrow(new ConflictException("Пользователь с ID 1 был изменён: текущая версия 2, ожидалась 1"));
+
+        mockMvc.perform(put("/users")
+                        .header("If-Match", "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(user)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Conflict"));
+    }
+
+    @Test
+    void shouldLookupUsersByPost() throws Exception {
+        friend.setId(2L);
+        when(userService.getUsers(List.of(2L, 3L))).thenReturn(new BulkLookup<>(List.of(friend), List.of(3L)));
+
+        mockMvc.perform(post("/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[2, 3]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found[0].login").value("friendlogin"))
+                .andExpect(jsonPath("$.missing[0]").value(3));
+    }
+
+    @Test
+    void shouldReturnFriendsSummaryWithFriendCount() throws Exception {
+        friend.setId(2L);
+        friend.getFriends().add(1L);
+        when(userService.getFriends(1L, FanOut.Options.DEFAULT)).thenReturn(FanOut.Result.complete(List.of(friend)));
+
+        mockMvc.perform(get("/users/1/friends").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].login").value("friendlogin"))
+                .andExpect(jsonPath("$[0].friendCount").value(1))
+                .andExpect(jsonPath("$[0].friends").doesNotExist())
+                .andExpect(jsonPath("$[0].email").doesNotExist());
+    }
+
+    @Test
+    void shouldGetDistanceBetweenUsers() throws Exception {
+        when(userService.getDistance(1L, 3L, 4)).thenReturn(new UserDistance(1L, 3L, UserDistance.Status.FOUND,
+                2, List.of(1L, 2L, 3L), 5, 2));
+
+        mockMvc.perform(get("/users/1/distance/3").param("maxDepth", "4"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FOUND"))
+                .andExpect(jsonPath("$.distance").value(2))
+                .andExpect(jsonPath("$.path[1]").value(2))
+                .andExpect(jsonPath("$.visitedUsers").value(5));
+    }
+}
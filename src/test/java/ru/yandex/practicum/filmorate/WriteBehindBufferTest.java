@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.writebehind.WriteBehindBuffer;
+import ru.yandex.practicum.filmorate.storage.writebehind.WriteBehindFilmStorage;
+import ru.yandex.practicum.filmorate.storage.writebehind.WriteBehindSettings;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Тесты буфера отложенной записи
+class WriteBehindBufferTest {
+
+    // Записи, которые буфер передал в хранилище (каждый элемент — одна пачка)
+    private final List<List<Film>> batches = new ArrayList<>();
+
+    private WriteBehindBuffer<Film> buffer(int capacity, WriteBehindBuffer.ShutdownMode mode) {
+        // Окно заведомо больше времени теста, чтобы фоновый сброс не вмешивался в проверки
+        return new WriteBehindBuffer<>("test", this::write, Film::getId, capacity, 60_000, 1_000, mode, 1_000);
+    }
+
+    private synchronized void write(Collection<Film> films) {
+        batches.add(new ArrayList<>(films));
+    }
+
+    private Film film(long id) {
+        Film film = new Film();
+        film.setId(id);
+        return film;
+    }
+
+    @Test // Проверяет, что повторные обновления одного фильма схлопываются в одну запись
+    void shouldCoalesceUpdatesOfSameEntity() {
+        WriteBehindBuffer<Film> buffer = buffer(100, WriteBehindBuffer.ShutdownMode.FLUSH_ALL);
+        Film first = film(1);
+        Film second = film(1);
+
+        buffer.put(first);
+        buffer.put(second);
+        buffer.put(film(2));
+        buffer.flush();
+
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals(1, buffer.stats().coalesced());
+        buffer.close();
+    }
+
+    @Test // Проверяет, что чтение видит ещё не записанное обновление
+    void shouldReadOwnWrites() {
+        WriteBehindBuffer<Film> buffer = buffer(100, WriteBehindBuffer.ShutdownMode.FLUSH_ALL);
+        Film film = film(5);
+
+        buffer.put(film);
+
+        assertSame(film, buffer.get(5L));
+        assertEquals(0, batches.size());
+        buffer.close();
+        assertNull(buffer.get(5L));
+    }
+
+    @Test // Проверяет, что при остановке в режиме FLUSH_ALL все обновления записываются
+    void shouldFlushOnClose() {
+        WriteBehindBuffer<Film> buffer = buffer(100, WriteBehindBuffer.ShutdownMode.FLUSH_ALL);
+        for (long id = 1; id <= 10; id++) {
+            buffer.put(film(id));
+        }
+
+        buffer.close();
+
+        assertEquals(10, batches.stream().mapToInt(List::size).sum());
+    }
+
+    @Test // Проверяет, что при остановке в режиме NONE обновления не записываются
+    void shouldDropPendingUpdatesWhenShutdownModeIsNone() {
+        WriteBehindBuffer<Film> buffer = buffer(100, WriteBehindBuffer.ShutdownMode.NONE);
+        buffer.put(film(1));
+
+        buffer.close();
+
+        assertEquals(0, batches.size());
+    }
+
+    @Test // Проверяет, что flush(id) записывает только обновление этой сущности, а остальные остаются в буфере
+    void shouldFlushSingleEntity() {
+        WriteBehindBuffer<Film> buffer = buffer(100, WriteBehindBuffer.ShutdownMode.NONE);
+        buffer.put(film(1));
+        buffer.put(film(2));
+
+        buffer.flush(1L);
+        buffer.flush(3L);
+
+        assertEquals(1, batches.size());
+        assertEquals(List.of(1L), batches.get(0).stream().map(Film::getId).toList());
+        assertNull(buffer.get(1L));
+        assertEquals(1, buffer.stats().pending());
+        buffer.close();
+    }
+
+    @Test // Проверяет, что лайк передаётся хранилищу сразу, а не ставится в буфер копией фильма
+    void shouldPassLikesStraightToStorage() {
+        InMemoryFilmStorage delegate = new InMemoryFilmStorage();
+        WriteBehindFilmStorage films = new WriteBehindFilmStorage(delegate,
+                new WriteBehindSettings(100, 60_000, 1_000, WriteBehindBuffer.ShutdownMode.NONE, 1_000));
+        Film film = films.create(film(0));
+        film.setName("Новое название");
+        films.update(film);
+
+        assertTrue(films.addLike(film, 7L));
+
+        assertEquals("Новое название", delegate.findById(film.getId()).orElseThrow().getName());
+        assertTrue(delegate.findById(film.getId()).orElseThrow().getLikes().contains(7L));
+        assertEquals(1, films.stats().updates());
+        assertEquals(0, films.stats().pending());
+        films.shutdown();
+    }
+}
@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Бенчмарк запуска: время от старта JVM до первого успешного ответа на GET /films
+# для обычного запуска и запуска с Spring AOT, архивом CDS и ленивыми второстепенными бинами.
+#
+# Подготовка: mvn -B package -Pfast-startup -DskipTests
+# Запуск:     ./startup-benchmark.sh [количество запусков в каждом режиме, по умолчанию 10]
+set -euo pipefail
+
+RUNS=${1:-10}
+PORT=${PORT:-18080}
+TARGET=$(dirname "$0")/target
+JAR=$(ls "$TARGET"/filmorate-*.jar | grep -v original | head -n 1)
+ARCHIVE="$TARGET/filmorate.jsa"
+
+if [[ ! -f "$ARCHIVE" ]]; then
+  echo "Нет архива $ARCHIVE, сначала выполните: mvn -B package -Pfast-startup -DskipTests" >&2
+  exit 1
+fi
+
+# Функция measure запускает приложение и возвращает количество миллисекунд до первого ответа 200
+measure() {
+  local start pid elapsed
+  start=$(date +%s%N)
+  java "$@" -Dserver.port="$PORT" -Dlogging.level.root=WARN -jar "$JAR" > /dev/null 2>&1 &
+  pid=$!
+  until curl -sf -o /dev/null "http://localhost:$PORT/films"; do
+    if ! kill -0 "$pid" 2> /dev/null; then
+      echo "Приложение завершилось до первого ответа" >&2
+      exit 1
+    fi
+    sleep 0.01
+  done
+  elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+  kill "$pid"
+  wait "$pid" 2> /dev/null || true
+  echo "$elapsed"
+}
+
+# Функция report выводит минимальное, медианное и максимальное время по серии запусков
+report() {
+  local name=$1
+  shift
+  local results=()
+  for ((i = 0; i < RUNS; i++)); do
+    results+=("$(measure "$@")")
+  done
+  IFS=$'\n' read -r -d '' -a sorted < <(printf '%s\n' "${results[@]}" | sort -n && printf '\0')
+  printf '%-12s мин %5d мс, медиана %5d мс, макс %5d мс (%d запусков)\n' \
+    "$name" "${sorted[0]}" "${sorted[$((RUNS / 2))]}" "${sorted[$((RUNS - 1))]}" "$RUNS"
+}
+
+# Прогревочный запуск, чтобы файлы jar-архивов были в кэше страниц для обоих режимов
+measure > /dev/null
+
+report "обычный" -Dspring.aot.enabled=false
+report "быстрый" -XX:SharedArchiveFile="$ARCHIVE" -Dspring.aot.enabled=true -Dspring.profiles.active=fast-startup